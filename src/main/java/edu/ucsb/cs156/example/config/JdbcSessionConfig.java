@@ -0,0 +1,97 @@
+package edu.ucsb.cs156.example.config;
+
+import jakarta.servlet.DispatcherType;
+import java.time.Duration;
+import java.util.EnumSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.FlushMode;
+import org.springframework.session.SaveMode;
+import org.springframework.session.config.SessionRepositoryCustomizer;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.session.jdbc.config.annotation.web.http.EnableJdbcHttpSession;
+import org.springframework.session.web.http.SessionRepositoryFilter;
+
+/**
+ * The `JdbcSessionConfig` class stores HTTP sessions, and with them the OAuth2 login, in the
+ * spring_session tables of the app's own database (see Sessions.json), so that any node behind a
+ * load balancer can serve any request and a restart does not log users out. Only active when
+ * app.sessions.jdbc is true; otherwise sessions stay in Tomcat memory.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sessions.jdbc", havingValue = "true")
+@EnableJdbcHttpSession
+@Slf4j
+public class JdbcSessionConfig {
+  static final String ON_CHANGE = "on-change";
+  static final String WRITE_THROUGH = "write-through";
+
+  @Value("${app.sessions.writePolicy:" + ON_CHANGE + "}")
+  private String writePolicy;
+
+  @Value("${server.servlet.session.timeout:30m}")
+  private Duration timeout;
+
+  @Autowired @Lazy private JdbcIndexedSessionRepository sessionRepository;
+
+  /**
+   * Applies app.sessions.writePolicy and the session timeout to the session repository, and turns
+   * off its own cleanup in favor of {@link #cleanUpExpiredSessions()}.
+   *
+   * <p>With "on-change", an attribute is written when it is set, and only at the end of the
+   * request; a request that sets nothing only updates the session's last access time. With
+   * "write-through", every attribute that is read or set is written, as soon as it happens, so that
+   * changes made to mutable attributes in place are not lost and other nodes see them immediately.
+   *
+   * @return the customizer
+   * @throws IllegalArgumentException if the write policy is neither "on-change" nor "write-through"
+   */
+  @Bean
+  public SessionRepositoryCustomizer<JdbcIndexedSessionRepository> sessionRepositoryCustomizer() {
+    if (!ON_CHANGE.equals(writePolicy) && !WRITE_THROUGH.equals(writePolicy)) {
+      throw new IllegalArgumentException("Unknown app.sessions.writePolicy " + writePolicy);
+    }
+    log.info("JDBC sessions writePolicy={} timeout={}", writePolicy, timeout);
+    boolean writeThrough = WRITE_THROUGH.equals(writePolicy);
+    return repository -> {
+      repository.setFlushMode(writeThrough ? FlushMode.IMMEDIATE : FlushMode.ON_SAVE);
+      repository.setSaveMode(writeThrough ? SaveMode.ALWAYS : SaveMode.ON_SET_ATTRIBUTE);
+      repository.setDefaultMaxInactiveInterval(timeout);
+      repository.setCleanupCron(Scheduled.CRON_DISABLED);
+    };
+  }
+
+  /**
+   * Registers the session filter ahead of Spring Security, for the same dispatches as Spring Boot
+   * would, so that async and error dispatches see the session too.
+   *
+   * @param filter the session filter defined by EnableJdbcHttpSession
+   * @return the filter registration
+   */
+  @Bean
+  public FilterRegistrationBean<SessionRepositoryFilter<?>> sessionRepositoryFilterRegistration(
+      SessionRepositoryFilter<?> filter) {
+    FilterRegistrationBean<SessionRepositoryFilter<?>> registration =
+        new FilterRegistrationBean<>(filter);
+    registration.setDispatcherTypes(
+        EnumSet.of(DispatcherType.ASYNC, DispatcherType.ERROR, DispatcherType.REQUEST));
+    registration.setOrder(SessionRepositoryFilter.DEFAULT_ORDER);
+    return registration;
+  }
+
+  /**
+   * Removes the sessions that have expired. Every node runs this; deleting a session that another
+   * node has already removed is harmless.
+   */
+  @Scheduled(fixedDelayString = "${app.sessions.cleanupIntervalMs:60000}")
+  public void cleanUpExpiredSessions() {
+    sessionRepository.cleanUpExpiredSessions();
+  }
+}
@@ -0,0 +1,91 @@
+package edu.ucsb.cs156.example.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * The `JobExecutorConfig` class defines the executor that runs jobs launched through JobService, so
+ * that job concurrency and queue depth are bounded independently of other async work.
+ */
+@Configuration
+@Slf4j
+public class JobExecutorConfig {
+
+  @Value("${app.jobs.executorMode:platform}")
+  private String executorMode;
+
+  @Value("${app.jobs.executorPoolSize:4}")
+  private int executorPoolSize;
+
+  @Value("${app.jobs.executorQueueCapacity:100}")
+  private int executorQueueCapacity;
+
+  @Value("${app.jobs.logStreamSenderThreads:64}")
+  private int logStreamSenderThreads;
+
+  @Value("${app.jobs.nodeId}")
+  private String nodeId;
+
+  /**
+   * The id this node claims, heartbeats and leases jobs under. app.jobs.nodeId defaults to
+   * ${random.uuid}, which resolves to a new value every time it is injected, so JobService,
+   * JobQueueWorker and JobSchedules read it from this bean to agree on one id.
+   *
+   * @return the id of this node
+   */
+  @Bean(name = "jobNodeId")
+  public String jobNodeId() {
+    log.info("job node id={}", nodeId);
+    return nodeId;
+  }
+
+  /**
+   * The executor used by JobService.runJobAsync. At most executorPoolSize jobs run at once and at
+   * most executorQueueCapacity wait; further submissions are rejected.
+   *
+   * <p>In "platform" mode jobs run on a fixed pool of platform threads. In "virtual" mode every
+   * worker is a virtual thread, so executorPoolSize can be set far higher for jobs that mostly wait
+   * on I/O.
+   *
+   * @return the job executor
+   */
+  @Bean(name = "jobExecutor")
+  public ThreadPoolTaskExecutor jobExecutor() {
+    log.info(
+        "job executor mode={} poolSize={} queueCapacity={}",
+        executorMode,
+        executorPoolSize,
+        executorQueueCapacity);
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(executorPoolSize);
+    executor.setMaxPoolSize(executorPoolSize);
+    executor.setQueueCapacity(executorQueueCapacity);
+    executor.setAllowCoreThreadTimeOut(true);
+    executor.setThreadNamePrefix("job-");
+    executor.setVirtualThreads("virtual".equals(executorMode));
+    return executor;
+  }
+
+  /**
+   * The executor JobLogBroadcaster sends log lines to Server-Sent Events subscribers on, so that a
+   * slow client never holds up the job that logs them. A subscriber only takes a thread while it
+   * has lines to send. There is no queue: when all logStreamSenderThreads threads are busy, further
+   * streams are closed and their clients reconnect.
+   *
+   * @return the log stream executor
+   */
+  @Bean(name = "logStreamExecutor")
+  public ThreadPoolTaskExecutor logStreamExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(logStreamSenderThreads);
+    executor.setMaxPoolSize(logStreamSenderThreads);
+    executor.setQueueCapacity(0);
+    executor.setAllowCoreThreadTimeOut(true);
+    executor.setThreadNamePrefix("log-stream-");
+    executor.setVirtualThreads("virtual".equals(executorMode));
+    return executor;
+  }
+}
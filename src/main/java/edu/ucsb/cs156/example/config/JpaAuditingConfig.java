@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * Fills in @CreatedDate and @LastModifiedDate fields, such as Job.createdAt and Job.updatedAt.
+ *
+ * <p>The default provider returns a LocalDateTime, which cannot be converted to the ZonedDateTime
+ * fields our entities use, so we provide the current time as a ZonedDateTime.
+ */
+@Configuration
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider")
+public class JpaAuditingConfig {
+  @Bean
+  public DateTimeProvider auditingDateTimeProvider() {
+    return () -> Optional.of(ZonedDateTime.now());
+  }
+}
@@ -2,23 +2,18 @@ package edu.ucsb.cs156.example.config;
 
 import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
 
-import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminDirectory;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
@@ -38,10 +33,12 @@ import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 import org.springframework.security.web.csrf.CsrfToken;
 import org.springframework.security.web.csrf.CsrfTokenRequestAttributeHandler;
 import org.springframework.security.web.csrf.CsrfTokenRequestHandler;
+import org.springframework.security.web.csrf.DeferredCsrfToken;
 import org.springframework.security.web.csrf.XorCsrfTokenRequestAttributeHandler;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
 
 /**
  * The `SecurityConfig` class in Java configures web security with OAuth2 login, CSRF protection,
@@ -53,10 +50,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Slf4j
 public class SecurityConfig {
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<>();
-
-  @Autowired UserRepository userRepository;
+  @Autowired AdminDirectory adminDirectory;
 
   /**
    * The `filterChain` method in this Java code configures various security settings for an HTTP
@@ -97,7 +91,13 @@ public class SecurityConfig {
     return web -> web.ignoring().requestMatchers(antMatcher("/h2-console/**"));
   }
 
-  private GrantedAuthoritiesMapper userAuthoritiesMapper() {
+  /**
+   * This method returns the mapper that adds the ROLE_USER, ROLE_ADMIN and ROLE_MEMBER authorities
+   * to an OAuth2 login.
+   *
+   * @return the authorities mapper
+   */
+  public GrantedAuthoritiesMapper userAuthoritiesMapper() {
     return (authorities) -> {
       Set<GrantedAuthority> mappedAuthorities = new HashSet<>();
       log.info("********** authorities={}", authorities);
@@ -129,17 +129,13 @@ public class SecurityConfig {
 
   /**
    * This method checks if the given email belongs to an admin user either from a predefined list or
-   * by querying the user repository.
+   * by querying the user repository (see AdminDirectory, which caches the result).
    *
    * @param email email address of the user
    * @return whether the user with the given email is an admin
    */
   public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
-      return true;
-    }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return adminDirectory.isAdmin(email);
   }
 
   @Bean
@@ -188,15 +184,44 @@ final class SpaCsrfTokenRequestHandler extends CsrfTokenRequestAttributeHandler
   }
 }
 
+/**
+ * Writes the CSRF token cookie that the frontend echoes in the X-XSRF-TOKEN header.
+ *
+ * <p>The token is only loaded, and generated and written to the cookie, when the request has no
+ * XSRF-TOKEN cookie and is not for a subresource such as a script, stylesheet or image. Requests
+ * that already carry the cookie leave it alone. The token is rotated on login and logout by
+ * clearing the cookie, so the page load that follows writes a new one.
+ */
 final class CsrfCookieFilter extends OncePerRequestFilter {
+  // the default cookie name of CookieCsrfTokenRepository
+  static final String COOKIE_NAME = "XSRF-TOKEN";
 
   @Override
   protected void doFilterInternal(
       HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
-    CsrfToken csrfToken = (CsrfToken) request.getAttribute("_csrf");
-    // Render the token value to a cookie by causing the deferred token to be loaded
-    csrfToken.getToken();
+    if (needsToken(request)
+        && request.getAttribute(DeferredCsrfToken.class.getName())
+            instanceof DeferredCsrfToken deferredCsrfToken) {
+      // Render the token value to a cookie by causing the deferred token to be loaded
+      deferredCsrfToken.get();
+    }
     filterChain.doFilter(request, response);
   }
+
+  /**
+   * Returns whether the response should carry a CSRF token cookie: the request has none, and is a
+   * page load or a fetch by the frontend rather than a request for a subresource. Requests without
+   * a Sec-Fetch-Dest header, e.g. from older browsers, get the cookie if they lack it.
+   *
+   * @param request the request
+   * @return whether to load or generate the token
+   */
+  static boolean needsToken(HttpServletRequest request) {
+    if (WebUtils.getCookie(request, COOKIE_NAME) != null) {
+      return false;
+    }
+    String destination = request.getHeader("Sec-Fetch-Dest");
+    return destination == null || "document".equals(destination) || "empty".equals(destination);
+  }
 }
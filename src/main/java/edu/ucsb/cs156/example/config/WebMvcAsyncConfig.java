@@ -0,0 +1,51 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configures the executor and default timeout of async requests, such as the /export endpoints.
+ *
+ * <p>Spring Boot only defines its applicationTaskExecutor when there is no other Executor bean, and
+ * JobExecutorConfig defines two; without this, Spring MVC would fall back to a
+ * SimpleAsyncTaskExecutor, which starts a new thread for every async request.
+ */
+@Configuration
+public class WebMvcAsyncConfig implements WebMvcConfigurer {
+
+  @Value("${app.mvc.asyncPoolSize:16}")
+  private int asyncPoolSize;
+
+  @Value("${app.mvc.asyncQueueCapacity:100}")
+  private int asyncQueueCapacity;
+
+  @Value("${app.mvc.asyncTimeoutMs:30000}")
+  private long asyncTimeoutMs;
+
+  /**
+   * The executor async requests run on. At most asyncPoolSize run at once and at most
+   * asyncQueueCapacity wait; further requests are rejected.
+   *
+   * @return the MVC async executor
+   */
+  @Bean(name = "mvcAsyncExecutor")
+  public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(asyncPoolSize);
+    executor.setMaxPoolSize(asyncPoolSize);
+    executor.setQueueCapacity(asyncQueueCapacity);
+    executor.setAllowCoreThreadTimeOut(true);
+    executor.setThreadNamePrefix("mvc-async-");
+    return executor;
+  }
+
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.setTaskExecutor(mvcAsyncExecutor());
+    configurer.setDefaultTimeout(asyncTimeoutMs);
+  }
+}
@@ -1,20 +1,43 @@
 package edu.ucsb.cs156.example.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.errors.BulkRequestTooLargeException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.IdempotencyKeyConflictException;
+import edu.ucsb.cs156.example.errors.InvalidPageRequestException;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.KeysetPageRequest;
+import edu.ucsb.cs156.example.repositories.KeysetSpecification;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.http.HttpStatus;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 /** This is an abstract class that provides common functionality for all API controllers. */
 @Slf4j
 public abstract class ApiController {
+  /** maximum number of items in a page returned by keysetPage */
+  public static final int MAX_PAGE_LIMIT = 500;
+
   @Autowired private CurrentUserService currentUserService;
 
+  @Autowired private ObjectMapper objectMapper;
+
   /**
    * This method returns the current user.
    *
@@ -34,6 +57,103 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method returns a page of a list of entities, ordered by a sort field and then by id. The
+   * page after it is read by passing the returned next cursor as after; unlike an offset, the
+   * cursor is a condition on the sort field and id, so deep pages are as cheap as the first.
+   *
+   * @param <T> type of the entities
+   * @param repository repository of the entities
+   * @param entityClass class of the entities
+   * @param request the sort field, direction, cursor and limit; a missing direction is asc, and the
+   *     limit is capped at MAX_PAGE_LIMIT
+   * @param idField name of the id field
+   * @param sortFields names of the fields the list may also be sorted by
+   * @return the page
+   * @throws InvalidPageRequestException if the sort field is not allowed, the direction is neither
+   *     asc nor desc, or the cursor is not one returned by this list
+   */
+  protected <T> KeysetPage<T> keysetPage(
+      JpaSpecificationExecutor<T> repository,
+      Class<T> entityClass,
+      KeysetPageRequest request,
+      String idField,
+      Set<String> sortFields) {
+    String sortField = request.getSort() == null ? idField : request.getSort();
+    if (!sortField.equals(idField) && !sortFields.contains(sortField)) {
+      throw new InvalidPageRequestException(
+          "Cannot sort by %s; sort by %s or one of %s"
+              .formatted(sortField, idField, sortFields.stream().sorted().toList()));
+    }
+    String direction =
+        request.getDirection() == null || request.getDirection().isBlank()
+            ? "asc"
+            : request.getDirection();
+    boolean ascending =
+        switch (direction) {
+          case "asc" -> true;
+          case "desc" -> false;
+          default -> throw new InvalidPageRequestException("Unknown direction " + direction);
+        };
+    int limit = Math.max(1, Math.min(request.getLimit(), MAX_PAGE_LIMIT));
+
+    KeysetSpecification<T> specification;
+    if (request.getAfter() == null) {
+      specification = new KeysetSpecification<>(idField, sortField, ascending);
+    } else {
+      Object[] cursor = decodeCursor(request.getAfter(), entityClass, sortField, idField);
+      specification =
+          new KeysetSpecification<>(idField, sortField, ascending, cursor[0], cursor[1]);
+    }
+
+    // one extra row tells us whether there is a next page
+    List<T> items = repository.findBy(specification, query -> query.limit(limit + 1).all());
+    String next = null;
+    if (items.size() > limit) {
+      items = items.subList(0, limit);
+      next = encodeCursor(items.get(limit - 1), sortField, idField);
+    }
+    return KeysetPage.<T>builder().items(items).next(next).build();
+  }
+
+  private String encodeCursor(Object item, String sortField, String idField) {
+    PropertyAccessor fields = PropertyAccessorFactory.forDirectFieldAccess(item);
+    try {
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(
+              objectMapper.writeValueAsBytes(
+                  Arrays.asList(
+                      fields.getPropertyValue(sortField), fields.getPropertyValue(idField))));
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot encode cursor", e);
+    }
+  }
+
+  private Object[] decodeCursor(
+      String cursor, Class<?> entityClass, String sortField, String idField) {
+    try {
+      JsonNode values = objectMapper.readTree(Base64.getUrlDecoder().decode(cursor));
+      if (values == null || !values.isArray() || values.size() != 2 || values.get(1).isNull()) {
+        throw new InvalidPageRequestException("Invalid cursor " + cursor);
+      }
+      return new Object[] {
+        objectMapper.treeToValue(values.get(0), fieldType(entityClass, sortField)),
+        objectMapper.treeToValue(values.get(1), fieldType(entityClass, idField))
+      };
+    } catch (IllegalArgumentException | IOException e) {
+      throw new InvalidPageRequestException("Invalid cursor " + cursor);
+    }
+  }
+
+  private static Class<?> fieldType(Class<?> entityClass, String name) {
+    Field field = ReflectionUtils.findField(entityClass, name);
+    if (field == null) {
+      throw new IllegalStateException("No field " + name + " in " + entityClass.getSimpleName());
+    }
+    return field.getType();
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    *
@@ -47,4 +167,32 @@ public abstract class ApiController {
         "type", e.getClass().getSimpleName(),
         "message", e.getMessage());
   }
+
+  /**
+   * This method handles the IdempotencyKeyConflictException.
+   *
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({IdempotencyKeyConflictException.class})
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleConflictException(Throwable e) {
+    return Map.of(
+        "type", e.getClass().getSimpleName(),
+        "message", e.getMessage());
+  }
+
+  /**
+   * This method handles the InvalidPageRequestException and BulkRequestTooLargeException.
+   *
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({InvalidPageRequestException.class, BulkRequestTooLargeException.class})
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequestException(Throwable e) {
+    return Map.of(
+        "type", e.getClass().getSimpleName(),
+        "message", e.getMessage());
+  }
 }
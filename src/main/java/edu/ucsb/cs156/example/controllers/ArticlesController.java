@@ -3,6 +3,8 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.KeysetPageRequest;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,7 +12,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -30,6 +34,9 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class ArticlesController extends ApiController {
 
+  /** fields, besides id, that /page may sort by */
+  static final Set<String> SORT_FIELDS = Set.of("title", "email", "dateAdded");
+
   @Autowired ArticlesRepository articlesRepository;
 
   /**
@@ -44,6 +51,19 @@ public class ArticlesController extends ApiController {
     return articlesRepository.findAll();
   }
 
+  /**
+   * List a page of articles, sorted by a field and then by id
+   *
+   * @param request the sort field, direction, cursor and page size
+   * @return the page, with the cursor of the next page
+   */
+  @Operation(summary = "List a page of articles")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<Articles> pageArticles(@ParameterObject KeysetPageRequest request) {
+    return keysetPage(articlesRepository, Articles.class, request, "id", SORT_FIELDS);
+  }
+
   /**
    * Create a new article
    *
@@ -106,31 +126,20 @@ public class ArticlesController extends ApiController {
   @PutMapping("")
   public Articles updateArticle(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid Articles incoming) {
-
-    Articles articles =
-        articlesRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
-
-    articles.setTitle(incoming.getTitle());
-    articles.setUrl(incoming.getUrl());
-    articles.setExplanation(incoming.getExplanation());
-    articles.setEmail(incoming.getEmail());
-    articles.setDateAdded(incoming.getDateAdded());
-
-    return articlesRepository.save(articles);
+    if (articlesRepository.updateOne(id, incoming) == 0) {
+      throw new EntityNotFoundException(Articles.class, id);
+    }
+    incoming.setId(id);
+    return incoming;
   }
 
   @Operation(summary = "Delete a single article")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Map<String, String> deleteArticle(@Parameter(name = "id") @RequestParam Long id) {
-    Articles articles =
-        articlesRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
-
-    articlesRepository.delete(articles);
+    if (articlesRepository.deleteOne(id) == 0) {
+      throw new EntityNotFoundException(Articles.class, id);
+    }
     return Map.of("message", String.format("Articles with id %d deleted", id));
   }
 }
@@ -3,15 +3,22 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.KeysetPageRequest;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.NdjsonExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +28,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "HelpRequest")
 @RequestMapping("/api/helprequest")
@@ -28,8 +36,14 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class HelpRequestController extends ApiController {
 
+  /** fields, besides id, that /page may sort by */
+  static final Set<String> SORT_FIELDS =
+      Set.of("requestTime", "requesterEmail", "teamId", "solved");
+
   @Autowired HelpRequestRepository helpRequestRepository;
 
+  @Autowired NdjsonExporter ndjsonExporter;
+
   /**
    * List all UCSB dates
    *
@@ -43,6 +57,34 @@ public class HelpRequestController extends ApiController {
     return helprequest;
   }
 
+  /**
+   * List a page of help requests, sorted by a field and then by id
+   *
+   * @param request the sort field, direction, cursor and page size
+   * @return the page, with the cursor of the next page
+   */
+  @Operation(summary = "List a page of help requests")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<HelpRequest> pageHelpRequests(@ParameterObject KeysetPageRequest request) {
+    return keysetPage(helpRequestRepository, HelpRequest.class, request, "id", SORT_FIELDS);
+  }
+
+  /**
+   * Export all help requests as newline-delimited JSON, one per line in id order. The rows are
+   * streamed from the database as they are written, so unlike /all this works for tables of any
+   * size.
+   *
+   * @return the response streaming the help requests
+   */
+  @Operation(summary = "Export all help requests as newline-delimited JSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping(value = "/export", produces = "application/x-ndjson")
+  public ResponseEntity<StreamingResponseBody> exportHelpRequests() {
+    return ndjsonExporter.export(
+        "helprequests.ndjson", helpRequestRepository::streamAllByOrderByIdAsc);
+  }
+
   /**
    * Get a single request by id
    *
@@ -117,15 +159,34 @@ public class HelpRequestController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteHelpRequest(@Parameter(name = "id") @RequestParam Long id) {
-    HelpRequest helpRequest =
-        helpRequestRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-    helpRequestRepository.delete(helpRequest);
+    if (helpRequestRepository.deleteOne(id) == 0) {
+      throw new EntityNotFoundException(HelpRequest.class, id);
+    }
     return genericMessage("HelpRequest with id %s deleted".formatted(id));
   }
 
+  /**
+   * Delete all help requests, or only those matching the given filters, in a single statement
+   *
+   * @param requestedBefore only help requests with a requestTime before this
+   * @param solved only help requests with this solved flag
+   * @return a message and the number of help requests deleted
+   */
+  @Operation(summary = "Delete all help requests, or only those matching the filters")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/all")
+  public Object deleteHelpRequests(
+      @Parameter(name = "requestedBefore", description = "only requests made before this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime requestedBefore,
+      @Parameter(name = "solved", description = "only requests with this solved flag")
+          @RequestParam(required = false)
+          Boolean solved) {
+    int deleted = helpRequestRepository.deleteInBulk(requestedBefore, solved);
+    return Map.of("message", "%d help requests deleted".formatted(deleted), "deleted", deleted);
+  }
+
   /**
    * Update a single help request
    *
@@ -138,21 +199,11 @@ public class HelpRequestController extends ApiController {
   @PutMapping("")
   public HelpRequest updateHelpRequest(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid HelpRequest incoming) {
+    if (helpRequestRepository.updateOne(id, incoming) == 0) {
+      throw new EntityNotFoundException(HelpRequest.class, id);
+    }
 
-    HelpRequest helpRequest =
-        helpRequestRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-    helpRequest.setRequesterEmail(incoming.getRequesterEmail());
-    helpRequest.setTeamId(incoming.getTeamId());
-    helpRequest.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom());
-    helpRequest.setRequestTime(incoming.getRequestTime());
-    helpRequest.setExplanation(incoming.getExplanation());
-    helpRequest.setSolved(incoming.getSolved());
-
-    helpRequestRepository.save(helpRequest);
-
-    return helpRequest;
+    incoming.setId(id);
+    return incoming;
   }
 }
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import edu.ucsb.cs156.example.services.jobs.JobSchedules;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Job Schedules")
+@RequestMapping("/api/jobs/schedules")
+@RestController
+public class JobSchedulesController extends ApiController {
+
+  @Autowired private JobSchedulesRepository jobSchedulesRepository;
+
+  @Autowired private JobSchedules jobSchedules;
+
+  @Operation(summary = "List all recurring jobs with their next and last runs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("")
+  public Iterable<JobSchedule> allSchedules() {
+    return jobSchedulesRepository.findAll();
+  }
+
+  @Operation(summary = "Pause a recurring job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/{id}/pause")
+  public JobSchedule pauseSchedule(
+      @Parameter(name = "id", description = "Schedule ID") @PathVariable Long id) {
+    return jobSchedules.setPaused(id, true);
+  }
+
+  @Operation(summary = "Resume a paused recurring job at its next scheduled time")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/{id}/resume")
+  public JobSchedule resumeSchedule(
+      @Parameter(name = "id", description = "Schedule ID") @PathVariable Long id) {
+    return jobSchedules.setPaused(id, false);
+  }
+
+  @Operation(summary = "Run a recurring job now, without changing its next scheduled time")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/{id}/trigger")
+  public Job triggerSchedule(
+      @Parameter(name = "id", description = "Schedule ID") @PathVariable Long id) {
+    return jobSchedules.trigger(id);
+  }
+}
@@ -4,33 +4,56 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.jobs.NormalizeMenuItemReviewsJob;
 import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.models.JobLogSlice;
+import edu.ucsb.cs156.example.models.JobProgress;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobSummaryPage;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogBroadcaster;
+import edu.ucsb.cs156.example.services.jobs.JobPipeline;
 import edu.ucsb.cs156.example.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Tag(name = "Jobs")
 @RequestMapping("/api/jobs")
 @RestController
 @Slf4j
 public class JobsController extends ApiController {
+  static final String TOTAL_LINES_HEADER = "X-Total-Lines";
+  static final String OFFSET_HEADER = "X-Offset";
+  static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  static final int MAX_SUMMARY_PAGE_SIZE = 500;
+  static final int MAX_TEST_PIPELINE_WIDTH = 16;
+
   @Autowired private JobsRepository jobsRepository;
 
   @Autowired private JobService jobService;
 
+  @Autowired private JobLogBroadcaster jobLogBroadcaster;
+
   @Autowired ObjectMapper mapper;
 
   @Operation(summary = "List all jobs")
@@ -41,12 +64,67 @@ public class JobsController extends ApiController {
     return jobs;
   }
 
-  @Operation(summary = "Delete all job records")
+  @Operation(
+      summary =
+          "List jobs without their logs, newest first; pass next from the response as before to"
+              + " get the following page")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/summary")
+  public JobSummaryPage jobSummaries(
+      @Parameter(name = "status", description = "only jobs with this status")
+          @RequestParam(required = false)
+          String status,
+      @Parameter(name = "createdAfter", description = "only jobs created at or after this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdAfter,
+      @Parameter(name = "createdBefore", description = "only jobs created before this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdBefore,
+      @Parameter(name = "before", description = "only jobs with a smaller id")
+          @RequestParam(required = false)
+          Long before,
+      @Parameter(name = "size", description = "maximum number of jobs, at most 500")
+          @RequestParam(defaultValue = "50")
+          int size) {
+    int limit = Math.max(1, Math.min(size, MAX_SUMMARY_PAGE_SIZE));
+
+    // one extra row tells us whether there is a next page
+    List<JobSummary> jobs =
+        jobsRepository.findSummaries(status, createdAfter, createdBefore, before, limit + 1);
+    Long next = null;
+    if (jobs.size() > limit) {
+      jobs = jobs.subList(0, limit);
+      next = jobs.get(limit - 1).getId();
+    }
+    return JobSummaryPage.builder().jobs(jobs).next(next).build();
+  }
+
+  @Operation(summary = "Get active, queued and completed counts of the job executor")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/executor")
+  public JobExecutorStatus getExecutorStatus() {
+    return jobService.getExecutorStatus();
+  }
+
+  @Operation(summary = "Delete all job records, or only those matching status and createdBefore")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("/all")
-  public Map<String, String> deleteAllJobs() {
-    jobsRepository.deleteAll();
-    return Map.of("message", "All jobs deleted");
+  public Map<String, Object> deleteAllJobs(
+      @Parameter(name = "status", description = "only jobs with this status")
+          @RequestParam(required = false)
+          String status,
+      @Parameter(name = "createdBefore", description = "only jobs created before this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdBefore) {
+    int deleted = jobsRepository.deleteInBulk(status, createdBefore);
+    String message =
+        status == null && createdBefore == null
+            ? "All jobs deleted"
+            : "%d jobs deleted".formatted(deleted);
+    return Map.of("message", message, "deleted", deleted);
   }
 
   @Operation(summary = "Get a specific Job Log by ID if it is in the database")
@@ -73,22 +151,157 @@ public class JobsController extends ApiController {
     return Map.of("message", String.format("Job with id %d deleted", id));
   }
 
+  @Operation(summary = "Cancel a queued or running job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/{id}/run")
+  public Map<String, String> cancelJob(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+    if (!jobsRepository.existsById(id)) {
+      throw new EntityNotFoundException(Job.class, id);
+    }
+    if (!jobService.cancel(id)) {
+      return Map.of("message", String.format("Job with id %d is not queued or running", id));
+    }
+    return Map.of("message", String.format("Cancellation of job with id %d requested", id));
+  }
+
+  @Operation(
+      summary =
+          "Run a job that failed, was cancelled, timed out or was rejected again; a chunk job"
+              + " continues after its last committed chunk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/{id}/retry")
+  public Map<String, String> retryJob(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+    if (!jobsRepository.existsById(id)) {
+      throw new EntityNotFoundException(Job.class, id);
+    }
+    if (!jobService.retry(id)) {
+      return Map.of("message", String.format("Job with id %d cannot be retried", id));
+    }
+    return Map.of("message", String.format("Job with id %d retried", id));
+  }
+
+  @Operation(summary = "List the stages of a pipeline with their status")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/{id}/stages")
+  public List<Job> getPipelineStages(
+      @Parameter(name = "id", description = "Job ID of the pipeline") @PathVariable Long id) {
+    if (!jobsRepository.existsById(id)) {
+      throw new EntityNotFoundException(Job.class, id);
+    }
+    return jobsRepository.findByParentIdOrderByIdAsc(id);
+  }
+
   @Operation(summary = "Launch Test Job (click fail if you want to test exception handling)")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/launch/testjob")
   public Job launchTestJob(
       @Parameter(name = "fail") @RequestParam Boolean fail,
-      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs) {
+      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs,
+      @Parameter(
+              name = IDEMPOTENCY_KEY_HEADER,
+              description = "while a job launched with this key is queued or running, return it")
+          @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+          String idempotencyKey) {
 
     TestJob testJob = TestJob.builder().fail(fail).sleepMs(sleepMs).build();
-    return jobService.runAsJob(testJob);
+    return jobService.runAsJob(testJob, idempotencyKey);
+  }
+
+  @Operation(
+      summary =
+          "Launch a pipeline of test jobs: a first stage, then width stages in parallel, then a"
+              + " last stage (click fail to make one of the parallel stages fail)")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/launch/testpipeline")
+  public Job launchTestPipeline(
+      @Parameter(name = "fail") @RequestParam Boolean fail,
+      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs,
+      @Parameter(name = "width", description = "number of parallel stages, at most 16")
+          @RequestParam(defaultValue = "4")
+          int width) {
+    int parallel = Math.max(1, Math.min(width, MAX_TEST_PIPELINE_WIDTH));
+    JobPipeline pipeline =
+        new JobPipeline().stage("first", TestJob.builder().fail(false).sleepMs(sleepMs).build());
+    String[] middle = new String[parallel];
+    for (int i = 0; i < parallel; i++) {
+      middle[i] = "parallel-" + (i + 1);
+      boolean failStage = fail && i == parallel - 1;
+      pipeline.stage(
+          middle[i], TestJob.builder().fail(failStage).sleepMs(sleepMs).build(), "first");
+    }
+    pipeline.stage("last", TestJob.builder().fail(false).sleepMs(sleepMs).build(), middle);
+    return jobService.runPipeline(pipeline);
+  }
+
+  @Operation(
+      summary =
+          "Launch a job that trims and lowercases reviewer emails and trims comments of all menu"
+              + " item reviews, chunkSize reviews per transaction")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/launch/normalizeMenuItemReviews")
+  public Job launchNormalizeMenuItemReviewsJob(
+      @Parameter(name = "chunkSize") @RequestParam(defaultValue = "500") int chunkSize,
+      @Parameter(
+              name = IDEMPOTENCY_KEY_HEADER,
+              description = "while a job launched with this key is queued or running, return it")
+          @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+          String idempotencyKey) {
+
+    NormalizeMenuItemReviewsJob job =
+        NormalizeMenuItemReviewsJob.builder().chunkSize(Math.max(1, chunkSize)).build();
+    return jobService.runAsJob(job, idempotencyKey);
   }
 
-  @Operation(summary = "Get long job logs")
+  @Operation(
+      summary =
+          "Get long job logs, optionally a range of lines; the X-Total-Lines header has the total"
+              + " line count and X-Offset the number of the first line returned")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/logs/{id}")
-  public String getJobLogs(@Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+  public ResponseEntity<String> getJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "offset", description = "number of the first line, counting from 0")
+          @RequestParam(defaultValue = "0")
+          int offset,
+      @Parameter(name = "limit", description = "maximum number of lines")
+          @RequestParam(required = false)
+          Integer limit,
+      @Parameter(name = "tail", description = "return this many lines from the end instead")
+          @RequestParam(required = false)
+          Integer tail) {
 
-    return jobService.getJobLogs(id);
+    JobLogSlice slice = jobService.getJobLogs(id, offset, limit, tail);
+    return ResponseEntity.ok()
+        .header(TOTAL_LINES_HEADER, String.valueOf(slice.getTotalLines()))
+        .header(OFFSET_HEADER, String.valueOf(slice.getOffset()))
+        .body(slice.getText());
+  }
+
+  @Operation(summary = "Get the status, progress, rate and estimated time left of a job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/progress/{id}")
+  public JobProgress getJobProgress(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+    return jobsRepository
+        .findProgressById(id)
+        .orElseThrow(() -> new EntityNotFoundException(Job.class, id));
+  }
+
+  @Operation(
+      summary =
+          "Stream job log lines as Server-Sent Events; reconnect with Last-Event-ID to resume")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping(value = "/logs/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "Last-Event-ID", description = "seq of the last line already received")
+          @RequestHeader(name = "Last-Event-ID", defaultValue = "-1")
+          int lastEventId) {
+    if (!jobsRepository.existsById(id)) {
+      throw new EntityNotFoundException(Job.class, id);
+    }
+    return jobLogBroadcaster.subscribe(id, lastEventId);
   }
 }
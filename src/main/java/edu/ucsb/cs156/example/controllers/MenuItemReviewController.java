@@ -3,15 +3,22 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.KeysetPageRequest;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.NdjsonExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +28,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for MenuItemReview */
 @Tag(name = "MenuItemReview")
@@ -29,8 +37,13 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class MenuItemReviewController extends ApiController {
 
+  /** fields, besides id, that /page may sort by */
+  static final Set<String> SORT_FIELDS = Set.of("itemId", "stars", "dateReviewed", "reviewerEmail");
+
   @Autowired MenuItemReviewRepository menuItemReviewRepository;
 
+  @Autowired NdjsonExporter ndjsonExporter;
+
   /**
    * List all Menu Item Reviews
    *
@@ -44,6 +57,34 @@ public class MenuItemReviewController extends ApiController {
     return review;
   }
 
+  /**
+   * List a page of menu item reviews, sorted by a field and then by id
+   *
+   * @param request the sort field, direction, cursor and page size
+   * @return the page, with the cursor of the next page
+   */
+  @Operation(summary = "List a page of menu item reviews")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<MenuItemReview> pageMenuItemReview(@ParameterObject KeysetPageRequest request) {
+    return keysetPage(menuItemReviewRepository, MenuItemReview.class, request, "id", SORT_FIELDS);
+  }
+
+  /**
+   * Export all menu item reviews as newline-delimited JSON, one per line in id order. The rows are
+   * streamed from the database as they are written, so unlike /all this works for tables of any
+   * size.
+   *
+   * @return the response streaming the menu item reviews
+   */
+  @Operation(summary = "Export all menu item reviews as newline-delimited JSON")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping(value = "/export", produces = "application/x-ndjson")
+  public ResponseEntity<StreamingResponseBody> exportMenuItemReviews() {
+    return ndjsonExporter.export(
+        "menuitemreviews.ndjson", menuItemReviewRepository::streamAllByOrderByIdAsc);
+  }
+
   /**
    * Get a single menu item review by id
    *
@@ -113,15 +154,30 @@ public class MenuItemReviewController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteMenuItemReview(@Parameter(name = "id") @RequestParam Long id) {
-    MenuItemReview menuItemReview =
-        menuItemReviewRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-
-    menuItemReviewRepository.delete(menuItemReview);
+    if (menuItemReviewRepository.deleteOne(id) == 0) {
+      throw new EntityNotFoundException(MenuItemReview.class, id);
+    }
     return genericMessage("MenuItemReview with id %s deleted".formatted(id));
   }
 
+  /**
+   * Delete all menu item reviews, or only those reviewed before a given time, in a single statement
+   *
+   * @param reviewedBefore only reviews with a dateReviewed before this
+   * @return a message and the number of reviews deleted
+   */
+  @Operation(summary = "Delete all menu item reviews, or only those reviewed before a time")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/all")
+  public Object deleteMenuItemReviews(
+      @Parameter(name = "reviewedBefore", description = "only reviews made before this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime reviewedBefore) {
+    int deleted = menuItemReviewRepository.deleteInBulk(reviewedBefore);
+    return Map.of("message", "%d menu item reviews deleted".formatted(deleted), "deleted", deleted);
+  }
+
   /**
    * Update a single menu item review
    *
@@ -134,20 +190,11 @@ public class MenuItemReviewController extends ApiController {
   @PutMapping("")
   public MenuItemReview updateMenuItemReview(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid MenuItemReview incoming) {
+    if (menuItemReviewRepository.updateOne(id, incoming) == 0) {
+      throw new EntityNotFoundException(MenuItemReview.class, id);
+    }
 
-    MenuItemReview menuItemReview =
-        menuItemReviewRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-
-    menuItemReview.setItemId(incoming.getItemId());
-    menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
-    menuItemReview.setStars(incoming.getStars());
-    menuItemReview.setDateReviewed(incoming.getDateReviewed());
-    menuItemReview.setComments(incoming.getComments());
-
-    menuItemReviewRepository.save(menuItemReview);
-
-    return menuItemReview;
+    incoming.setId(id);
+    return incoming;
   }
 }
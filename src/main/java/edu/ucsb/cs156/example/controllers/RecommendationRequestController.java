@@ -3,13 +3,17 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.KeysetPageRequest;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -29,6 +33,10 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class RecommendationRequestController extends ApiController {
 
+  /** fields, besides id, that /page may sort by */
+  static final Set<String> SORT_FIELDS =
+      Set.of("dateRequested", "dateNeeded", "requesterEmail", "professorEmail", "done");
+
   @Autowired RecommendationRequestRepository recommendationrequestRepository;
 
   @Operation(summary = "List all recommendation requests")
@@ -38,6 +46,21 @@ public class RecommendationRequestController extends ApiController {
     return recommendationrequestRepository.findAll();
   }
 
+  /**
+   * List a page of recommendation requests, sorted by a field and then by id
+   *
+   * @param request the sort field, direction, cursor and page size
+   * @return the page, with the cursor of the next page
+   */
+  @Operation(summary = "List a page of recommendation requests")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<RecommendationRequest> pageRecommendationRequests(
+      @ParameterObject KeysetPageRequest request) {
+    return keysetPage(
+        recommendationrequestRepository, RecommendationRequest.class, request, "id", SORT_FIELDS);
+  }
+
   /**
    * Create a new request
    *
@@ -106,34 +129,21 @@ public class RecommendationRequestController extends ApiController {
   public RecommendationRequest updateRecommendationRequest(
       @Parameter(name = "id") @RequestParam Long id,
       @RequestBody @Valid RecommendationRequest incoming) {
+    if (recommendationrequestRepository.updateOne(id, incoming) == 0) {
+      throw new EntityNotFoundException(RecommendationRequest.class, id);
+    }
 
-    RecommendationRequest request =
-        recommendationrequestRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-    request.setRequesterEmail(incoming.getRequesterEmail());
-    request.setProfessorEmail(incoming.getProfessorEmail());
-    request.setExplanation(incoming.getExplanation());
-    request.setDateRequested(incoming.getDateRequested());
-    request.setDateNeeded(incoming.getDateNeeded());
-    request.setDone(incoming.getDone());
-
-    recommendationrequestRepository.save(request);
-
-    return request;
+    incoming.setId(id);
+    return incoming;
   }
 
   @Operation(summary = "Delete a request")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteRequest(@Parameter(name = "id") @RequestParam Long id) {
-    RecommendationRequest request =
-        recommendationrequestRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-    recommendationrequestRepository.delete(request);
+    if (recommendationrequestRepository.deleteOne(id) == 0) {
+      throw new EntityNotFoundException(RecommendationRequest.class, id);
+    }
     return genericMessage("request with id %s deleted".formatted(id));
   }
 }
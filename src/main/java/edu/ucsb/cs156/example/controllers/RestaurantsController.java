@@ -2,11 +2,15 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.KeysetPageRequest;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.Set;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -24,6 +28,9 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class RestaurantsController extends ApiController {
 
+  /** fields, besides id, that /page may sort by */
+  static final Set<String> SORT_FIELDS = Set.of("name");
+
   @Autowired RestaurantRepository restaurantRepository;
 
   /**
@@ -39,6 +46,19 @@ public class RestaurantsController extends ApiController {
     return restaurants;
   }
 
+  /**
+   * List a page of restaurants, sorted by a field and then by id
+   *
+   * @param request the sort field, direction, cursor and page size
+   * @return the page, with the cursor of the next page
+   */
+  @Operation(summary = "List a page of restaurants")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<Restaurant> pageRestaurants(@ParameterObject KeysetPageRequest request) {
+    return keysetPage(restaurantRepository, Restaurant.class, request, "id", SORT_FIELDS);
+  }
+
   /**
    * This method returns a single restaurant.
    *
@@ -89,12 +109,9 @@ public class RestaurantsController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteRestaurant(@Parameter(name = "id") @RequestParam Long id) {
-    Restaurant restaurant =
-        restaurantRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
-
-    restaurantRepository.delete(restaurant);
+    if (restaurantRepository.deleteOne(id) == 0) {
+      throw new EntityNotFoundException(Restaurant.class, id);
+    }
     return genericMessage("Restaurant with id %s deleted".formatted(id));
   }
 
@@ -110,17 +127,11 @@ public class RestaurantsController extends ApiController {
   @PutMapping("")
   public Restaurant updateRestaurant(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid Restaurant incoming) {
+    if (restaurantRepository.updateOne(id, incoming) == 0) {
+      throw new EntityNotFoundException(Restaurant.class, id);
+    }
 
-    Restaurant restaurant =
-        restaurantRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
-
-    restaurant.setName(incoming.getName());
-    restaurant.setDescription(incoming.getDescription());
-
-    restaurantRepository.save(restaurant);
-
-    return restaurant;
+    incoming.setId(id);
+    return incoming;
   }
 }
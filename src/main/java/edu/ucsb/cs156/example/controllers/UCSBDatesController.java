@@ -3,15 +3,25 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.KeysetPageRequest;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.TableVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +31,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /** This is a REST controller for UCSBDates */
 @Tag(name = "UCSBDates")
@@ -29,37 +40,63 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
+  /** fields, besides id, that /page may sort by */
+  static final Set<String> SORT_FIELDS = Set.of("quarterYYYYQ", "name", "localDateTime");
+
+  /** name of the table, whose version gives the ETag of /all and of single items */
+  static final String TABLE = "ucsbdates";
+
   @Autowired UCSBDateRepository ucsbDateRepository;
 
+  @Autowired TableVersions tableVersions;
+
+  @Autowired BulkInserter bulkInserter;
+
   /**
    * List all UCSB dates
    *
-   * @return an iterable of UCSBDate
+   * @param request the request, whose If-None-Match is checked against the table's ETag
+   * @return an iterable of UCSBDate, or 304 if the client's copy is current
    */
   @Operation(summary = "List all ucsb dates")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDate> allUCSBDates() {
-    Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-    return dates;
+  public ResponseEntity<Iterable<UCSBDate>> allUCSBDates(WebRequest request) {
+    return tableVersions.conditionalGet(request, TABLE, ucsbDateRepository::findAll);
+  }
+
+  /**
+   * List a page of ucsb dates, sorted by a field and then by id
+   *
+   * @param request the sort field, direction, cursor and page size
+   * @return the page, with the cursor of the next page
+   */
+  @Operation(summary = "List a page of ucsb dates")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<UCSBDate> pageUCSBDates(@ParameterObject KeysetPageRequest request) {
+    return keysetPage(ucsbDateRepository, UCSBDate.class, request, "id", SORT_FIELDS);
   }
 
   /**
    * Get a single date by id
    *
    * @param id the id of the date
-   * @return a UCSBDate
+   * @param request the request, whose If-None-Match is checked against the table's ETag
+   * @return a UCSBDate, or 304 if the client's copy is current
    */
   @Operation(summary = "Get a single date")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBDate getById(@Parameter(name = "id") @RequestParam Long id) {
-    UCSBDate ucsbDate =
-        ucsbDateRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-    return ucsbDate;
+  public ResponseEntity<UCSBDate> getById(
+      @Parameter(name = "id") @RequestParam Long id, WebRequest request) {
+    return tableVersions.conditionalGet(
+        request,
+        TABLE,
+        () ->
+            ucsbDateRepository
+                .findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id)));
   }
 
   /**
@@ -96,10 +133,41 @@ public class UCSBDatesController extends ApiController {
     ucsbDate.setLocalDateTime(localDateTime);
 
     UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+    tableVersions.changed(TABLE);
 
     return savedUcsbDate;
   }
 
+  /**
+   * Create many dates at once, inserted as JDBC batches
+   *
+   * @param incoming the new dates; their ids are ignored
+   * @return the result of every date, in order: "created" with its id, or "rejected" with the
+   *     reason
+   */
+  @Operation(summary = "Create many dates at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public List<BulkItemResult> postUCSBDates(@RequestBody List<UCSBDate> incoming) {
+    List<UCSBDate> dates =
+        incoming.stream()
+            .map(
+                date ->
+                    date == null
+                        ? null
+                        : UCSBDate.builder()
+                            .quarterYYYYQ(date.getQuarterYYYYQ())
+                            .name(date.getName())
+                            .localDateTime(date.getLocalDateTime())
+                            .build())
+            .toList();
+
+    List<BulkItemResult> results =
+        bulkInserter.insertAll(dates, UCSBDatesController::missingFields, UCSBDate::getId);
+    tableVersions.changed(TABLE);
+    return results;
+  }
+
   /**
    * Delete a UCSBDate
    *
@@ -110,12 +178,10 @@ public class UCSBDatesController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteUCSBDate(@Parameter(name = "id") @RequestParam Long id) {
-    UCSBDate ucsbDate =
-        ucsbDateRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-    ucsbDateRepository.delete(ucsbDate);
+    if (ucsbDateRepository.deleteOne(id) == 0) {
+      throw new EntityNotFoundException(UCSBDate.class, id);
+    }
+    tableVersions.changed(TABLE);
     return genericMessage("UCSBDate with id %s deleted".formatted(id));
   }
 
@@ -131,18 +197,26 @@ public class UCSBDatesController extends ApiController {
   @PutMapping("")
   public UCSBDate updateUCSBDate(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid UCSBDate incoming) {
+    if (ucsbDateRepository.updateOne(id, incoming) == 0) {
+      throw new EntityNotFoundException(UCSBDate.class, id);
+    }
+    tableVersions.changed(TABLE);
 
-    UCSBDate ucsbDate =
-        ucsbDateRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-    ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
-    ucsbDate.setName(incoming.getName());
-    ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
-
-    ucsbDateRepository.save(ucsbDate);
+    incoming.setId(id);
+    return incoming;
+  }
 
-    return ucsbDate;
+  private static String missingFields(UCSBDate date) {
+    List<String> missing = new ArrayList<>();
+    if (date.getQuarterYYYYQ() == null) {
+      missing.add("quarterYYYYQ");
+    }
+    if (date.getName() == null) {
+      missing.add("name");
+    }
+    if (date.getLocalDateTime() == null) {
+      missing.add("localDateTime");
+    }
+    return missing.isEmpty() ? null : "Missing " + String.join(", ", missing);
   }
 }
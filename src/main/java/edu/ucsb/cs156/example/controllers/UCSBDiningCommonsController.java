@@ -2,13 +2,19 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.KeysetPageRequest;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.TableVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +24,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /** This is a REST controller for UCSBDiningCommons */
 @Tag(name = "UCSBDiningCommons")
@@ -26,37 +33,63 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class UCSBDiningCommonsController extends ApiController {
 
+  /** fields, besides code, that /page may sort by */
+  static final Set<String> SORT_FIELDS = Set.of("name");
+
+  /** name of the table, whose version gives the ETag of /all and of single items */
+  static final String TABLE = "ucsbdiningcommons";
+
   @Autowired UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+  @Autowired TableVersions tableVersions;
+
   /**
    * THis method returns a list of all ucsbdiningcommons.
    *
-   * @return a list of all ucsbdiningcommons
+   * @param request the request, whose If-None-Match is checked against the table's ETag
+   * @return a list of all ucsbdiningcommons, or 304 if the client's copy is current
    */
   @Operation(summary = "List all ucsb dining commons")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDiningCommons> allCommonss() {
-    Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-    return commons;
+  public ResponseEntity<Iterable<UCSBDiningCommons>> allCommonss(WebRequest request) {
+    return tableVersions.conditionalGet(request, TABLE, ucsbDiningCommonsRepository::findAll);
+  }
+
+  /**
+   * List a page of ucsb dining commons, sorted by a field and then by code
+   *
+   * @param request the sort field, direction, cursor and page size
+   * @return the page, with the cursor of the next page
+   */
+  @Operation(summary = "List a page of ucsb dining commons")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<UCSBDiningCommons> pageUCSBDiningCommons(
+      @ParameterObject KeysetPageRequest request) {
+    return keysetPage(
+        ucsbDiningCommonsRepository, UCSBDiningCommons.class, request, "code", SORT_FIELDS);
   }
 
   /**
    * This method returns a single diningcommons.
    *
    * @param code code of the diningcommons
-   * @return a single diningcommons
+   * @param request the request, whose If-None-Match is checked against the table's ETag
+   * @return a single diningcommons, or 304 if the client's copy is current
    */
   @Operation(summary = "Get a single commons")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBDiningCommons getById(@Parameter(name = "code") @RequestParam String code) {
-    UCSBDiningCommons commons =
-        ucsbDiningCommonsRepository
-            .findById(code)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-    return commons;
+  public ResponseEntity<UCSBDiningCommons> getById(
+      @Parameter(name = "code") @RequestParam String code, WebRequest request) {
+    return tableVersions.conditionalGet(
+        request,
+        TABLE,
+        () ->
+            ucsbDiningCommonsRepository
+                .findById(code)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code)));
   }
 
   /**
@@ -93,6 +126,7 @@ public class UCSBDiningCommonsController extends ApiController {
     commons.setLongitude(longitude);
 
     UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+    tableVersions.changed(TABLE);
 
     return savedCommons;
   }
@@ -107,12 +141,10 @@ public class UCSBDiningCommonsController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteCommons(@Parameter(name = "code") @RequestParam String code) {
-    UCSBDiningCommons commons =
-        ucsbDiningCommonsRepository
-            .findById(code)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-    ucsbDiningCommonsRepository.delete(commons);
+    if (ucsbDiningCommonsRepository.deleteOne(code) == 0) {
+      throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+    }
+    tableVersions.changed(TABLE);
     return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
   }
 
@@ -129,21 +161,12 @@ public class UCSBDiningCommonsController extends ApiController {
   public UCSBDiningCommons updateCommons(
       @Parameter(name = "code") @RequestParam String code,
       @RequestBody @Valid UCSBDiningCommons incoming) {
+    if (ucsbDiningCommonsRepository.updateOne(code, incoming) == 0) {
+      throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+    }
+    tableVersions.changed(TABLE);
 
-    UCSBDiningCommons commons =
-        ucsbDiningCommonsRepository
-            .findById(code)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-    commons.setName(incoming.getName());
-    commons.setHasSackMeal(incoming.getHasSackMeal());
-    commons.setHasTakeOutMeal(incoming.getHasTakeOutMeal());
-    commons.setHasDiningCam(incoming.getHasDiningCam());
-    commons.setLatitude(incoming.getLatitude());
-    commons.setLongitude(incoming.getLongitude());
-
-    ucsbDiningCommonsRepository.save(commons);
-
-    return commons;
+    incoming.setCode(code);
+    return incoming;
   }
 }
@@ -3,12 +3,20 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.KeysetPageRequest;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -27,8 +35,13 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class UCSBDiningCommonsMenuItemController extends ApiController {
 
+  /** fields, besides id, that /page may sort by */
+  static final Set<String> SORT_FIELDS = Set.of("diningCommonsCode", "name", "station");
+
   @Autowired UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+  @Autowired BulkInserter bulkInserter;
+
   /**
    * List all UCSB Dining Commons Menu Items
    *
@@ -42,6 +55,25 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     return items;
   }
 
+  /**
+   * List a page of ucsb dining commons menu items, sorted by a field and then by id
+   *
+   * @param request the sort field, direction, cursor and page size
+   * @return the page, with the cursor of the next page
+   */
+  @Operation(summary = "List a page of ucsb dining commons menu items")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<UCSBDiningCommonsMenuItem> pageUCSBDiningCommonsMenuItem(
+      @ParameterObject KeysetPageRequest request) {
+    return keysetPage(
+        ucsbDiningCommonsMenuItemRepository,
+        UCSBDiningCommonsMenuItem.class,
+        request,
+        "id",
+        SORT_FIELDS);
+  }
+
   /**
    * Get a single menu item by id
    *
@@ -93,6 +125,37 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     return savedUcsbDiningCommonsMenuItem;
   }
 
+  /**
+   * Create many menu items at once, inserted as JDBC batches
+   *
+   * @param incoming the new menu items; their ids are ignored
+   * @return the result of every menu item, in order: "created" with its id, or "rejected" with the
+   *     reason
+   */
+  @Operation(summary = "Create many menu items at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public List<BulkItemResult> postUCSBDiningCommonsMenuItems(
+      @RequestBody List<UCSBDiningCommonsMenuItem> incoming) {
+    List<UCSBDiningCommonsMenuItem> items =
+        incoming.stream()
+            .map(
+                item ->
+                    item == null
+                        ? null
+                        : UCSBDiningCommonsMenuItem.builder()
+                            .diningCommonsCode(item.getDiningCommonsCode())
+                            .name(item.getName())
+                            .station(item.getStation())
+                            .build())
+            .toList();
+
+    return bulkInserter.insertAll(
+        items,
+        UCSBDiningCommonsMenuItemController::missingFields,
+        UCSBDiningCommonsMenuItem::getId);
+  }
+
   /**
    * Update an existing menu item
    *
@@ -106,17 +169,11 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
   public UCSBDiningCommonsMenuItem updateUCSBDiningCommonsMenuItem(
       @Parameter(name = "id") @RequestParam Long id,
       @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
-    UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem =
-        ucsbDiningCommonsMenuItemRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-    ucsbDiningCommonsMenuItem.setDiningCommonsCode(incoming.getDiningCommonsCode());
-    ucsbDiningCommonsMenuItem.setName(incoming.getName());
-    ucsbDiningCommonsMenuItem.setStation(incoming.getStation());
-
-    ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonsMenuItem);
-    return ucsbDiningCommonsMenuItem;
+    if (ucsbDiningCommonsMenuItemRepository.updateOne(id, incoming) == 0) {
+      throw new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id);
+    }
+    incoming.setId(id);
+    return incoming;
   }
 
   /**
@@ -129,12 +186,23 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteUCSBDiningCommonsMenuItem(@Parameter(name = "id") @RequestParam Long id) {
-    UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem =
-        ucsbDiningCommonsMenuItemRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-    ucsbDiningCommonsMenuItemRepository.delete(ucsbDiningCommonsMenuItem);
+    if (ucsbDiningCommonsMenuItemRepository.deleteOne(id) == 0) {
+      throw new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id);
+    }
     return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
   }
+
+  private static String missingFields(UCSBDiningCommonsMenuItem item) {
+    List<String> missing = new ArrayList<>();
+    if (item.getDiningCommonsCode() == null) {
+      missing.add("diningCommonsCode");
+    }
+    if (item.getName() == null) {
+      missing.add("name");
+    }
+    if (item.getStation() == null) {
+      missing.add("station");
+    }
+    return missing.isEmpty() ? null : "Missing " + String.join(", ", missing);
+  }
 }
@@ -2,13 +2,19 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.KeysetPageRequest;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.TableVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +24,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /** This is a REST controller for UCSBOrganization */
 @Tag(name = "UCSBOrganization")
@@ -25,19 +32,43 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 @Slf4j
 public class UCSBOrganizationController extends ApiController {
+  /** fields, besides orgCode, that /page may sort by */
+  static final Set<String> SORT_FIELDS =
+      Set.of("orgTranslationShort", "orgTranslation", "inactive");
+
+  /** name of the table, whose version gives the ETag of /all and of single items */
+  static final String TABLE = "ucsborganizations";
+
   @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
 
+  @Autowired TableVersions tableVersions;
+
   /**
    * THis method returns a list of all ucsborganizations.
    *
-   * @return a list of all ucsborganizations
+   * @param request the request, whose If-None-Match is checked against the table's ETag
+   * @return a list of all ucsborganizations, or 304 if the client's copy is current
    */
   @Operation(summary = "List all ucsb organizations")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBOrganization> allOrganization() {
-    Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
-    return organizations;
+  public ResponseEntity<Iterable<UCSBOrganization>> allOrganization(WebRequest request) {
+    return tableVersions.conditionalGet(request, TABLE, ucsbOrganizationRepository::findAll);
+  }
+
+  /**
+   * List a page of ucsb organizations, sorted by a field and then by orgCode
+   *
+   * @param request the sort field, direction, cursor and page size
+   * @return the page, with the cursor of the next page
+   */
+  @Operation(summary = "List a page of ucsb organizations")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public KeysetPage<UCSBOrganization> pageUCSBOrganization(
+      @ParameterObject KeysetPageRequest request) {
+    return keysetPage(
+        ucsbOrganizationRepository, UCSBOrganization.class, request, "orgCode", SORT_FIELDS);
   }
 
   /**
@@ -65,6 +96,7 @@ public class UCSBOrganizationController extends ApiController {
     organization.setInactive(inactive);
 
     UCSBOrganization savedOrganization = ucsbOrganizationRepository.save(organization);
+    tableVersions.changed(TABLE);
 
     return savedOrganization;
   }
@@ -73,18 +105,21 @@ public class UCSBOrganizationController extends ApiController {
    * This method returns a single organization.
    *
    * @param orgCode code of the organization
-   * @return a single organization
+   * @param request the request, whose If-None-Match is checked against the table's ETag
+   * @return a single organization, or 304 if the client's copy is current
    */
   @Operation(summary = "Get a single organization")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBOrganization getById(@Parameter(name = "orgCode") @RequestParam String orgCode) {
-    UCSBOrganization organization =
-        ucsbOrganizationRepository
-            .findById(orgCode)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-    return organization;
+  public ResponseEntity<UCSBOrganization> getById(
+      @Parameter(name = "orgCode") @RequestParam String orgCode, WebRequest request) {
+    return tableVersions.conditionalGet(
+        request,
+        TABLE,
+        () ->
+            ucsbOrganizationRepository
+                .findById(orgCode)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode)));
   }
 
   /**
@@ -100,19 +135,13 @@ public class UCSBOrganizationController extends ApiController {
   public UCSBOrganization updateOrganization(
       @Parameter(name = "orgCode") @RequestParam String orgCode,
       @RequestBody @Valid UCSBOrganization incoming) {
+    if (ucsbOrganizationRepository.updateOne(orgCode, incoming) == 0) {
+      throw new EntityNotFoundException(UCSBOrganization.class, orgCode);
+    }
+    tableVersions.changed(TABLE);
 
-    UCSBOrganization organization =
-        ucsbOrganizationRepository
-            .findById(orgCode)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-    organization.setOrgTranslationShort(incoming.getOrgTranslationShort());
-    organization.setOrgTranslation(incoming.getOrgTranslation());
-    organization.setInactive(incoming.getInactive());
-
-    ucsbOrganizationRepository.save(organization);
-
-    return organization;
+    incoming.setOrgCode(orgCode);
+    return incoming;
   }
 
   /**
@@ -125,12 +154,10 @@ public class UCSBOrganizationController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Object deleteOrganization(@Parameter(name = "orgCode") @RequestParam String orgCode) {
-    UCSBOrganization organization =
-        ucsbOrganizationRepository
-            .findById(orgCode)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-    ucsbOrganizationRepository.delete(organization);
+    if (ucsbOrganizationRepository.deleteOne(orgCode) == 0) {
+      throw new EntityNotFoundException(UCSBOrganization.class, orgCode);
+    }
+    tableVersions.changed(TABLE);
     return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
   }
 }
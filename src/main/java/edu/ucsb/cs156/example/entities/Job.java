@@ -11,6 +11,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import java.time.ZonedDateTime;
+import java.util.List;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -27,6 +28,17 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @Entity(name = "jobs")
 @EntityListeners(AuditingEntityListener.class)
 public class Job {
+  /**
+   * Statuses of jobs that have finished and will not change any more: "pending", "queued" and
+   * "running" are the only others.
+   */
+  public static final List<String> TERMINAL_STATUSES =
+      List.of("complete", "error", "cancelled", "timed_out", "rejected", "skipped");
+
+  /** Terminal statuses of jobs that did not complete and can be retried (see JobService.retry). */
+  public static final List<String> RETRYABLE_STATUSES =
+      List.of("error", "cancelled", "timed_out", "rejected");
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private long id;
@@ -47,4 +59,37 @@ public class Job {
       length = 1048576) // needed for long strings, i.e. log entries longer than 255
   // characters
   private String log;
+
+  // Set for jobs that go through the persistent job queue (see JobQueue), and for other jobs of a
+  // type registered in JobFactory, so that they can be retried
+  private String jobType;
+
+  @Column(columnDefinition = "TEXT")
+  private String parameters;
+
+  private ZonedDateTime queuedAt;
+  private String claimedBy;
+  private ZonedDateTime heartbeatAt;
+  private int attempts;
+
+  // Set when the job was launched with an idempotency key; at most one queued or running job may
+  // have a given key (see JobService.runAsJob)
+  private String idempotencyKey;
+
+  // Set to ask the node running a persistent queue job to cancel it (see JobService.cancel)
+  private boolean cancelRequested;
+
+  // Reported by the job through JobContext; see JobProgress
+  private Long progressTotal;
+  private Long progressCompleted;
+  private Double progressRate;
+  private ZonedDateTime progressUpdatedAt;
+
+  // Last chunk committed by a ChunkJob; a restarted job continues after it
+  private String checkpoint;
+
+  // Set for the stages of a pipeline: the id of the pipeline's job and the stage name (see
+  // JobPipeline)
+  private Long parentId;
+  private String stage;
 }
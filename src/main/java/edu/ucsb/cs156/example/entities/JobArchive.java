@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents a job removed from the jobs table by the retention sweeper.
+ *
+ * <p>The job's full log is kept gzip-compressed in logGzip.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "job_archives")
+public class JobArchive {
+  @Id private long jobId;
+
+  private Long createdById;
+  private ZonedDateTime createdAt;
+  private ZonedDateTime updatedAt;
+  private String status;
+  private ZonedDateTime archivedAt;
+
+  /** number of bytes of the log before compression */
+  private long logBytes;
+
+  private byte[] logGzip;
+}
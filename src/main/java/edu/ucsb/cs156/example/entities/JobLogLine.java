@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.ZonedDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents a single line of a Job's log.
+ *
+ * <p>Lines are append-only; the full log of a job is the concatenation of its lines ordered by seq.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "job_log_lines")
+@Table(indexes = @Index(name = "job_log_lines_job_id_seq_idx", columnList = "job_id, seq"))
+public class JobLogLine {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long id;
+
+  private long jobId;
+  private int seq;
+  private ZonedDateTime timestamp;
+
+  @Column(columnDefinition = "TEXT", length = 1048576)
+  private String message;
+}
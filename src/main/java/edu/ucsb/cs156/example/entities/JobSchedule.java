@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents a recurring job: a job type and parameters (as stored on
+ * queued jobs, see JobFactory) that is launched whenever its cron expression fires.
+ *
+ * <p>A node fires a schedule only while it holds the schedule's lease (leaseOwner, leaseUntil), so
+ * that each run is launched by one node however many are running.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "job_schedules")
+public class JobSchedule {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long id;
+
+  private String name;
+
+  /** Spring cron expression, e.g. "0 0 3 * * *" for 3am every day */
+  private String cron;
+
+  private String jobType;
+
+  @Column(columnDefinition = "TEXT")
+  private String parameters;
+
+  private boolean paused;
+  private ZonedDateTime nextRunAt;
+  private ZonedDateTime lastRunAt;
+  private Long lastJobId;
+
+  private String leaseOwner;
+  private ZonedDateTime leaseUntil;
+}
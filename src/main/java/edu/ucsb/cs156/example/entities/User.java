@@ -1,22 +1,33 @@
 package edu.ucsb.cs156.example.entities;
 
+import edu.ucsb.cs156.example.services.UserChanges;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import java.io.Serializable;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-/** This is a JPA entity that represents a user. */
+/**
+ * This is a JPA entity that represents a user.
+ *
+ * <p>It is Serializable because the logged-in user is cached in the HTTP session (see
+ * UserSessionCache).
+ */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Builder
 @Entity(name = "users")
-public class User {
+@EntityListeners(UserChanges.Listener.class)
+public class User implements Serializable {
+  private static final long serialVersionUID = 1L;
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private long id;
@@ -0,0 +1,17 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate that a bulk
+ * create was requested with more items than app.bulk.maxItems.
+ */
+public class BulkRequestTooLargeException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param items number of items requested
+   * @param maxItems maximum number of items allowed
+   */
+  public BulkRequestTooLargeException(int items, int maxItems) {
+    super("Bulk request has %d items; at most %d are allowed".formatted(items, maxItems));
+  }
+}
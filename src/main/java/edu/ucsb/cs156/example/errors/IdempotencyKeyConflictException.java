@@ -0,0 +1,20 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate that a job
+ * was launched with the idempotency key of a queued or running job that has a different type or
+ * different parameters.
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param idempotencyKey the idempotency key
+   * @param jobId id of the job already using the key
+   */
+  public IdempotencyKeyConflictException(String idempotencyKey, long jobId) {
+    super(
+        "Idempotency key %s is in use by job %d with different parameters"
+            .formatted(idempotencyKey, jobId));
+  }
+}
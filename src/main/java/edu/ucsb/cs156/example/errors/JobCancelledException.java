@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is thrown inside a running job
+ * once the job has been cancelled or has run past its timeout.
+ */
+public class JobCancelledException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param status the status the job ends with, e.g. "cancelled" or "timed_out"
+   */
+  public JobCancelledException(String status) {
+    super("Job stopped: %s".formatted(status));
+  }
+}
@@ -0,0 +1,130 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A job that works through a large dataset in chunks.
+ *
+ * <p>Each chunk of at most chunkSize items is read with {@link #read(String, int)}, every item is
+ * passed through {@link #process(Object)}, and the results are written with {@link #write(List)}.
+ * The write and a checkpoint naming the last item read are committed in one transaction, so a job
+ * that fails and is retried (POST /api/jobs/{id}/retry, or a requeue after its node died when the
+ * persistent job queue is enabled) continues after its last committed chunk instead of starting
+ * over.
+ *
+ * <p>Subclasses are queued like any other job: they must be registered in JobFactory, and their
+ * parameters (including chunkSize) must be (de)serializable by Jackson.
+ *
+ * @param <T> type of the items read
+ * @param <R> type of the items written
+ */
+public abstract class ChunkJob<T, R> implements JobContextConsumer {
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  /**
+   * Returns the number of items read per chunk, which is also the number of items committed per
+   * transaction.
+   *
+   * @return the chunk size
+   */
+  public abstract int getChunkSize();
+
+  /**
+   * Counts the items left after a checkpoint, for progress reporting.
+   *
+   * @param checkpoint the checkpoint, or null to count all items
+   * @return the number of items, or null if unknown
+   */
+  protected Long count(String checkpoint) {
+    return null;
+  }
+
+  /**
+   * Reads the next chunk of items.
+   *
+   * @param checkpoint checkpoint of the last item already processed, or null to start at the first
+   *     item
+   * @param chunkSize maximum number of items to read
+   * @return the items after the checkpoint, in checkpoint order; fewer than chunkSize items means
+   *     there are no more
+   */
+  protected abstract List<T> read(String checkpoint, int chunkSize);
+
+  /**
+   * Returns the checkpoint of an item, i.e. the value read continues after.
+   *
+   * @param item an item returned by read
+   * @return the checkpoint
+   */
+  protected abstract String checkpointOf(T item);
+
+  /**
+   * Processes one item.
+   *
+   * @param item the item
+   * @return the item to write, or null to write nothing for it
+   */
+  protected abstract R process(T item);
+
+  /**
+   * Writes the processed items of one chunk; called inside the chunk's transaction.
+   *
+   * @param items the items to write, never empty
+   */
+  protected abstract void write(List<R> items);
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    String checkpoint = ctx.getCheckpoint();
+    if (checkpoint != null) {
+      ctx.log("Restarting after checkpoint " + checkpoint);
+    }
+    Long total = count(checkpoint);
+    if (total != null) {
+      ctx.setProgressTotal(total);
+    }
+
+    int chunkSize = getChunkSize();
+    long readCount = 0;
+    long writeCount = 0;
+    int chunks = 0;
+    List<T> items;
+    do {
+      ctx.checkCancelled();
+      items = read(checkpoint, chunkSize);
+      if (items.isEmpty()) {
+        break;
+      }
+      List<R> output = new ArrayList<>();
+      for (T item : items) {
+        R result = process(item);
+        if (result != null) {
+          output.add(result);
+        }
+      }
+      String next = checkpointOf(items.get(items.size() - 1));
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            if (!output.isEmpty()) {
+              write(output);
+            }
+            ctx.saveCheckpoint(next);
+          });
+      checkpoint = next;
+      chunks++;
+      readCount += items.size();
+      writeCount += output.size();
+      ctx.addProgress(items.size());
+    } while (items.size() == chunkSize);
+
+    ctx.log(
+        "Read %d items in %d chunks, wrote %d; last checkpoint %s"
+            .formatted(readCount, chunks, writeCount, checkpoint));
+  }
+}
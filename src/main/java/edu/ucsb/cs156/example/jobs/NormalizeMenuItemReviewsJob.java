@@ -0,0 +1,70 @@
+package edu.ucsb.cs156.example.jobs;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.jackson.Jacksonized;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+
+/**
+ * Trims and lowercases the reviewer emails of all menu item reviews and trims their comments.
+ *
+ * <p>Reviews are read in id order; the checkpoint is the id of the last review of a chunk. Only
+ * reviews that change are written.
+ */
+@Builder
+@Jacksonized
+@Getter
+public class NormalizeMenuItemReviewsJob extends ChunkJob<MenuItemReview, MenuItemReview> {
+
+  @Builder.Default private int chunkSize = 500;
+
+  @JsonIgnore @Autowired private MenuItemReviewRepository menuItemReviewRepository;
+
+  @Override
+  protected Long count(String checkpoint) {
+    return menuItemReviewRepository.countByIdGreaterThan(idOf(checkpoint));
+  }
+
+  @Override
+  protected List<MenuItemReview> read(String checkpoint, int chunkSize) {
+    return menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(
+        idOf(checkpoint), Limit.of(chunkSize));
+  }
+
+  @Override
+  protected String checkpointOf(MenuItemReview review) {
+    return Long.toString(review.getId());
+  }
+
+  @Override
+  protected MenuItemReview process(MenuItemReview review) {
+    String email =
+        review.getReviewerEmail() == null
+            ? null
+            : review.getReviewerEmail().strip().toLowerCase(Locale.ROOT);
+    String comments = review.getComments() == null ? null : review.getComments().strip();
+    if (Objects.equals(email, review.getReviewerEmail())
+        && Objects.equals(comments, review.getComments())) {
+      return null;
+    }
+    review.setReviewerEmail(email);
+    review.setComments(comments);
+    return review;
+  }
+
+  @Override
+  protected void write(List<MenuItemReview> reviews) {
+    menuItemReviewRepository.updateAll(reviews);
+  }
+
+  private static long idOf(String checkpoint) {
+    return checkpoint == null ? 0 : Long.parseLong(checkpoint);
+  }
+}
@@ -3,8 +3,12 @@ package edu.ucsb.cs156.example.jobs;
 import edu.ucsb.cs156.example.services.jobs.JobContext;
 import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
 import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.jackson.Jacksonized;
 
 @Builder
+@Jacksonized
+@Getter
 public class TestJob implements JobContextConsumer {
 
   private boolean fail;
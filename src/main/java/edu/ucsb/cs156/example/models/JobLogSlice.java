@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** This is a model class that represents a range of lines of a job log. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobLogSlice {
+  /** number of the first line in the slice, counting from 0 */
+  private long offset;
+
+  /** number of lines in the whole log */
+  private long totalLines;
+
+  /** the lines of the slice, separated by \n */
+  private String text;
+}
@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** This is a model class that represents how far a running job has gotten. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobProgress {
+  private String status;
+
+  /** number of units of work the job will do, null if the job has not said */
+  private Long total;
+
+  /** number of units of work done so far */
+  private Long completed;
+
+  /** units completed per second, over the recent sliding window */
+  private Double rate;
+
+  private ZonedDateTime updatedAt;
+
+  /**
+   * The estimated number of seconds until the job is done, from the remaining units and the current
+   * rate.
+   *
+   * @return the estimate, or null if the total or the rate is unknown
+   */
+  public Long getEtaSeconds() {
+    if (total == null || completed == null || rate == null || rate <= 0) {
+      return null;
+    }
+    return (long) Math.ceil(Math.max(0, total - completed) / rate);
+  }
+}
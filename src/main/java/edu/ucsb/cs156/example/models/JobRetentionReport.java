@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** This is a model class that represents what a retention sweep removed from the jobs tables. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobRetentionReport {
+  /** number of jobs rows deleted */
+  private int jobs;
+
+  /** number of job_log_lines rows deleted */
+  private int logLines;
+
+  /** number of bytes of log text deleted */
+  private long logBytes;
+
+  /** number of compressed bytes written to job_archives */
+  private long archivedBytes;
+}
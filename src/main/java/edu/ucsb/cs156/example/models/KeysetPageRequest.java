@@ -0,0 +1,20 @@
+package edu.ucsb.cs156.example.models;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import lombok.Data;
+
+/** This is a model class that holds the query parameters of a keyset-paginated list endpoint. */
+@Data
+public class KeysetPageRequest {
+  @Parameter(description = "field to sort by, then by id; id if not given")
+  private String sort;
+
+  @Parameter(description = "asc or desc; asc if not given")
+  private String direction = "asc";
+
+  @Parameter(description = "next from the previous page; the first page if not given")
+  private String after;
+
+  @Parameter(description = "maximum number of items, at most 500")
+  private int limit = 50;
+}
@@ -1,9 +1,43 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Articles;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The ArticlesRepository is a repository for Articles entities. */
 @Repository
-public interface ArticlesRepository extends CrudRepository<Articles, Long> {}
+public interface ArticlesRepository
+    extends CrudRepository<Articles, Long>, JpaSpecificationExecutor<Articles> {
+  /**
+   * This method deletes an article in a single statement, without loading it first.
+   *
+   * @param id id of the article
+   * @return the number of articles deleted; 0 if there is no article with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM articles a WHERE a.id = :id")
+  int deleteOne(@Param("id") long id);
+
+  /**
+   * This method sets every column of an article except its id in a single statement, without
+   * loading it first.
+   *
+   * @param id id of the article
+   * @param incoming the new contents of the article; its id is ignored
+   * @return the number of articles updated; 0 if there is no article with that id, and otherwise 1,
+   *     after which the row equals incoming with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE articles a SET a.title = :#{#incoming.title}, a.url ="
+          + " :#{#incoming.url}, a.explanation = :#{#incoming.explanation}, a.email ="
+          + " :#{#incoming.email}, a.dateAdded = :#{#incoming.dateAdded} WHERE a.id = :id")
+  int updateOne(@Param("id") long id, @Param("incoming") Articles incoming);
+}
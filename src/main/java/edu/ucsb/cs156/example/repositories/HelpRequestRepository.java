@@ -1,9 +1,79 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The HelpRequestRepository is a repository for HelpRequest entities */
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {}
+public interface HelpRequestRepository
+    extends CrudRepository<HelpRequest, Long>, JpaSpecificationExecutor<HelpRequest> {
+  /**
+   * This method deletes help requests, optionally only those requested before a given time or with
+   * a given solved flag, in a single statement without loading them.
+   *
+   * @param requestedBefore only requests with a requestTime before this, or null for any time
+   * @param solved only requests with this solved flag, or null for both
+   * @return the number of help requests deleted
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "DELETE FROM helprequests h WHERE (:requestedBefore IS NULL OR h.requestTime <"
+          + " :requestedBefore) AND (:solved IS NULL OR h.solved = :solved)")
+  int deleteInBulk(
+      @Param("requestedBefore") LocalDateTime requestedBefore, @Param("solved") Boolean solved);
+
+  /**
+   * This method streams all help requests in id order through a forward-only cursor, fetching 500
+   * rows (NdjsonExporter.BATCH_SIZE) per round trip. It must be called in a transaction and the
+   * stream closed after use.
+   *
+   * @return the help requests
+   */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<HelpRequest> streamAllByOrderByIdAsc();
+
+  /**
+   * This method deletes a help request in a single statement, without loading it first.
+   *
+   * @param id id of the help request
+   * @return the number of help requests deleted; 0 if there is no help request with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM helprequests h WHERE h.id = :id")
+  int deleteOne(@Param("id") long id);
+
+  /**
+   * This method sets every column of a help request except its id in a single statement, without
+   * loading it first.
+   *
+   * @param id id of the help request
+   * @param incoming the new contents of the help request; its id is ignored
+   * @return the number of help requests updated; 0 if there is no help request with that id, and
+   *     otherwise 1, after which the row equals incoming with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE helprequests h SET h.requesterEmail = :#{#incoming.requesterEmail},"
+          + " h.teamId = :#{#incoming.teamId}, h.tableOrBreakoutRoom ="
+          + " :#{#incoming.tableOrBreakoutRoom}, h.requestTime = :#{#incoming.requestTime},"
+          + " h.explanation = :#{#incoming.explanation}, h.solved = :#{#incoming.solved}"
+          + " WHERE h.id = :id")
+  int updateOne(@Param("id") long id, @Param("incoming") HelpRequest incoming);
+}
@@ -0,0 +1,9 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobArchive;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+/** The JobArchivesRepository is a repository for JobArchive entities. */
+@Repository
+public interface JobArchivesRepository extends CrudRepository<JobArchive, Long> {}
@@ -0,0 +1,14 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.List;
+
+/** Repository fragment for writing many JobLogLine rows in a single JDBC batch. */
+public interface JobLogLinesBatchRepository {
+  /**
+   * This method inserts all of the given log lines as one JDBC batch.
+   *
+   * @param lines the log lines to insert
+   */
+  void insertAll(List<JobLogLine> lines);
+}
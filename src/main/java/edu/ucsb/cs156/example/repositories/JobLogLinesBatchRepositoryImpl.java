@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of JobLogLinesBatchRepository.
+ *
+ * <p>JobLogLine uses an IDENTITY id, which disables Hibernate's insert batching, so the batch is
+ * written directly with JdbcTemplate.
+ */
+public class JobLogLinesBatchRepositoryImpl implements JobLogLinesBatchRepository {
+  static final String INSERT_SQL =
+      "INSERT INTO job_log_lines (job_id, seq, timestamp, message) VALUES (?, ?, ?, ?)";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Override
+  public void insertAll(List<JobLogLine> lines) {
+    jdbcTemplate.batchUpdate(
+        INSERT_SQL,
+        lines,
+        lines.size(),
+        (ps, line) -> {
+          ps.setLong(1, line.getJobId());
+          ps.setInt(2, line.getSeq());
+          ps.setObject(3, line.getTimestamp().toOffsetDateTime());
+          ps.setString(4, line.getMessage());
+        });
+  }
+}
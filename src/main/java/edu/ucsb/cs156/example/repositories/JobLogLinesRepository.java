@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The JobLogLinesRepository is a repository for JobLogLine entities. */
+@Repository
+public interface JobLogLinesRepository
+    extends CrudRepository<JobLogLine, Long>, JobLogLinesBatchRepository {
+  /**
+   * This method returns all log lines of a job in the order they were written.
+   *
+   * @param jobId id of the job
+   * @return the log lines of the job, ordered by seq
+   */
+  List<JobLogLine> findAllByJobIdOrderBySeqAsc(long jobId);
+
+  /**
+   * This method returns the log lines of a job written after a given line.
+   *
+   * @param jobId id of the job
+   * @param seq seq of the last line already seen
+   * @return the log lines of the job with a greater seq, ordered by seq
+   */
+  List<JobLogLine> findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(long jobId, int seq);
+
+  /**
+   * This method returns the log lines of a job in a range of seq values.
+   *
+   * @param jobId id of the job
+   * @param fromSeq first seq to return
+   * @param toSeq seq after the last one to return
+   * @return the log lines of the job with fromSeq &lt;= seq &lt; toSeq, ordered by seq
+   */
+  List<JobLogLine> findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+      long jobId, int fromSeq, int toSeq);
+
+  /**
+   * This method returns the number of log lines of a job.
+   *
+   * @param jobId id of the job
+   * @return the number of log lines of the job
+   */
+  long countByJobId(long jobId);
+
+  /**
+   * This method returns the total size of the log lines of some jobs.
+   *
+   * @param jobIds ids of the jobs
+   * @return the number of bytes in the messages of their log lines
+   */
+  @Query(
+      value =
+          "SELECT COALESCE(SUM(OCTET_LENGTH(message)), 0) FROM job_log_lines"
+              + " WHERE job_id IN (:jobIds)",
+      nativeQuery = true)
+  long sumMessageBytesByJobIdIn(@Param("jobIds") Collection<Long> jobIds);
+
+  /**
+   * This method deletes the log lines of some jobs in a single statement.
+   *
+   * @param jobIds ids of the jobs
+   * @return the number of log lines deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM job_log_lines l WHERE l.jobId IN :jobIds")
+  int deleteByJobIdIn(@Param("jobIds") Collection<Long> jobIds);
+}
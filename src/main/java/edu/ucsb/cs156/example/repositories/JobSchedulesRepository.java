@@ -0,0 +1,117 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The JobSchedulesRepository is a repository for JobSchedule entities. */
+@Repository
+public interface JobSchedulesRepository extends CrudRepository<JobSchedule, Long> {
+  /**
+   * This method returns a schedule by its name.
+   *
+   * @param name name of the schedule
+   * @return the schedule, or empty if there is none with that name
+   */
+  Optional<JobSchedule> findByName(String name);
+
+  /**
+   * This method returns the ids of the schedules that are due, i.e. not paused and with a next run
+   * at or before the given time.
+   *
+   * @param now the current time
+   * @return the ids of the due schedules
+   */
+  @Query(
+      "SELECT s.id FROM job_schedules s WHERE s.paused = false AND s.nextRunAt <= :now"
+          + " ORDER BY s.nextRunAt")
+  List<Long> findDueIds(@Param("now") ZonedDateTime now);
+
+  /**
+   * This method takes the lease of a due schedule for a node, unless another node holds an
+   * unexpired lease on it. Since this is a single conditional UPDATE, at most one node gets the
+   * lease.
+   *
+   * @param id id of the schedule
+   * @param owner id of the node
+   * @param now the current time
+   * @param until the time the lease expires if it is not released
+   * @return 1 if the node got the lease, 0 otherwise
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE job_schedules s SET s.leaseOwner = :owner, s.leaseUntil = :until"
+          + " WHERE s.id = :id AND s.paused = false AND s.nextRunAt <= :now"
+          + " AND (s.leaseUntil IS NULL OR s.leaseUntil < :now)")
+  int acquireLease(
+      @Param("id") long id,
+      @Param("owner") String owner,
+      @Param("now") ZonedDateTime now,
+      @Param("until") ZonedDateTime until);
+
+  /**
+   * This method records a run of a schedule fired by a node and releases the node's lease.
+   *
+   * @param id id of the schedule
+   * @param owner id of the node holding the lease
+   * @param nextRunAt the next time the schedule is due
+   * @param lastRunAt the time of the run
+   * @param lastJobId id of the job launched, or null if the launch failed
+   * @return the number of schedules updated; 0 if the node no longer held the lease
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE job_schedules s SET s.nextRunAt = :nextRunAt, s.lastRunAt = :lastRunAt,"
+          + " s.lastJobId = :lastJobId, s.leaseOwner = NULL, s.leaseUntil = NULL"
+          + " WHERE s.id = :id AND s.leaseOwner = :owner")
+  int completeRun(
+      @Param("id") long id,
+      @Param("owner") String owner,
+      @Param("nextRunAt") ZonedDateTime nextRunAt,
+      @Param("lastRunAt") ZonedDateTime lastRunAt,
+      @Param("lastJobId") Long lastJobId);
+
+  /**
+   * This method pauses or resumes a schedule without touching its lease.
+   *
+   * @param id id of the schedule
+   * @param paused whether the schedule is paused
+   * @param nextRunAt the next time the schedule is due
+   * @return the number of schedules updated
+   */
+  @Transactional
+  @Modifying
+  @Query("UPDATE job_schedules s SET s.paused = :paused, s.nextRunAt = :nextRunAt WHERE s.id = :id")
+  int updatePaused(
+      @Param("id") long id,
+      @Param("paused") boolean paused,
+      @Param("nextRunAt") ZonedDateTime nextRunAt);
+
+  /**
+   * This method records a run of a schedule triggered by hand, without touching its lease or its
+   * next run.
+   *
+   * @param id id of the schedule
+   * @param lastRunAt the time of the run
+   * @param lastJobId id of the job launched
+   * @return the number of schedules updated
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE job_schedules s SET s.lastRunAt = :lastRunAt, s.lastJobId = :lastJobId"
+          + " WHERE s.id = :id")
+  int recordRun(
+      @Param("id") long id,
+      @Param("lastRunAt") ZonedDateTime lastRunAt,
+      @Param("lastJobId") Long lastJobId);
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.models.JobSummary;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/** Repository fragment for listing jobs without loading their logs. */
+public interface JobSummaryRepository {
+  /**
+   * This method returns summaries of the jobs matching the given filters, newest (highest id)
+   * first. Null filters are left out of the query.
+   *
+   * @param status only jobs with this status
+   * @param createdAfter only jobs created at or after this time
+   * @param createdBefore only jobs created before this time
+   * @param beforeId only jobs with an id less than this one, i.e. the page after this job
+   * @param limit maximum number of summaries to return
+   * @return the job summaries, ordered by id descending
+   */
+  List<JobSummary> findSummaries(
+      String status,
+      ZonedDateTime createdAfter,
+      ZonedDateTime createdBefore,
+      Long beforeId,
+      int limit);
+}
@@ -0,0 +1,62 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.models.JobSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JPQL implementation of JobSummaryRepository.
+ *
+ * <p>The query selects only the summary columns, so the log TEXT column is never read. Only the
+ * filters that are given become conditions, which avoids binding null parameters. Pages are keyed
+ * and ordered by id, so a status filter reads the (status, id) index backwards from beforeId and
+ * stops after limit rows; without one the primary key is read the same way.
+ */
+public class JobSummaryRepositoryImpl implements JobSummaryRepository {
+  static final String SELECT_JPQL =
+      "SELECT new edu.ucsb.cs156.example.models.JobSummary("
+          + "j.id, j.status, j.createdAt, j.updatedAt, j.createdBy.id) FROM jobs j";
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Override
+  public List<JobSummary> findSummaries(
+      String status,
+      ZonedDateTime createdAfter,
+      ZonedDateTime createdBefore,
+      Long beforeId,
+      int limit) {
+    List<String> conditions = new ArrayList<>();
+    Map<String, Object> parameters = new LinkedHashMap<>();
+    if (status != null) {
+      conditions.add("j.status = :status");
+      parameters.put("status", status);
+    }
+    if (createdAfter != null) {
+      conditions.add("j.createdAt >= :createdAfter");
+      parameters.put("createdAfter", createdAfter);
+    }
+    if (createdBefore != null) {
+      conditions.add("j.createdAt < :createdBefore");
+      parameters.put("createdBefore", createdBefore);
+    }
+    if (beforeId != null) {
+      conditions.add("j.id < :beforeId");
+      parameters.put("beforeId", beforeId);
+    }
+
+    String jpql =
+        SELECT_JPQL
+            + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+            + " ORDER BY j.id DESC";
+    TypedQuery<JobSummary> query = entityManager.createQuery(jpql, JobSummary.class);
+    parameters.forEach(query::setParameter);
+    return query.setMaxResults(limit).getResultList();
+  }
+}
@@ -1,8 +1,358 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.models.JobProgress;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+/** The JobsRepository is a repository for Job entities. */
 @Repository
-public interface JobsRepository extends CrudRepository<Job, Long> {}
+public interface JobsRepository extends CrudRepository<Job, Long>, JobSummaryRepository {
+  /**
+   * This method locks and returns the oldest queued jobs, skipping rows already locked by another
+   * worker. It must be called inside a transaction; the locks are held until it commits.
+   *
+   * <p>PostgreSQL reads the rows in order from the (status, queued_at) index and locks only those
+   * it returns. H2 locks every matching row before applying the LIMIT, so on H2 use
+   * findQueuedForUpdateSkipLocked instead.
+   *
+   * @param limit maximum number of jobs to return
+   * @return the locked queued jobs, oldest first
+   */
+  @Query(
+      value =
+          "SELECT * FROM jobs WHERE status = 'queued' ORDER BY queued_at, id"
+              + " LIMIT :limit FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<Job> findOldestQueuedForUpdateSkipLocked(@Param("limit") int limit);
+
+  /**
+   * This method locks and returns queued jobs, skipping rows already locked by another worker. It
+   * must be called inside a transaction; the locks are held until it commits.
+   *
+   * <p>There is deliberately no ORDER BY, for H2: with one, H2 locks every matching row before
+   * applying the LIMIT, so concurrent workers would block each other. Scanning the (status,
+   * queued_at) index still returns roughly the oldest jobs first, but not strictly.
+   *
+   * @param limit maximum number of jobs to return
+   * @return the locked queued jobs
+   */
+  @Query(
+      value = "SELECT * FROM jobs WHERE status = 'queued' LIMIT :limit FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<Job> findQueuedForUpdateSkipLocked(@Param("limit") int limit);
+
+  /**
+   * This method records a heartbeat for every running job claimed by the given node.
+   *
+   * @param claimedBy id of the node
+   * @param now the heartbeat time
+   * @return the number of jobs updated
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.heartbeatAt = :now"
+          + " WHERE j.claimedBy = :claimedBy AND j.status = 'running'")
+  int updateHeartbeats(@Param("claimedBy") String claimedBy, @Param("now") ZonedDateTime now);
+
+  /**
+   * This method stores the final status of an attempt at a job, unless the job has meanwhile been
+   * given up on, put back on the queue or claimed again, e.g. because its node missed heartbeats.
+   * Only the status is written, so progress, checkpoint and cancellation requests stored by others
+   * are kept.
+   *
+   * @param id id of the job
+   * @param claimedBy id of the node that ran the attempt, or null for a job that was never claimed
+   * @param attempts the attempt, as counted by the job's attempts when it was claimed
+   * @param status the final status
+   * @param now the time of the update
+   * @return the number of jobs updated, 0 if the attempt no longer owns the job
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = :status, j.updatedAt = :now"
+          + " WHERE j.id = :id AND j.status = 'running' AND j.attempts = :attempts"
+          + " AND (j.claimedBy = :claimedBy OR (:claimedBy IS NULL AND j.claimedBy IS NULL))")
+  int finishAttempt(
+      @Param("id") long id,
+      @Param("claimedBy") String claimedBy,
+      @Param("attempts") int attempts,
+      @Param("status") String status,
+      @Param("now") ZonedDateTime now);
+
+  /**
+   * This method puts a job claimed by the given node back on the queue, unless it has meanwhile
+   * been given up on or claimed again.
+   *
+   * @param id id of the job
+   * @param claimedBy id of the node that claimed the job
+   * @param attempts the attempt, as counted by the job's attempts when it was claimed
+   * @param now the time of the update
+   * @return the number of jobs requeued, 0 if the attempt no longer owns the job
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = 'queued', j.claimedBy = null, j.updatedAt = :now"
+          + " WHERE j.id = :id AND j.status = 'running' AND j.attempts = :attempts"
+          + " AND j.claimedBy = :claimedBy")
+  int requeueAttempt(
+      @Param("id") long id,
+      @Param("claimedBy") String claimedBy,
+      @Param("attempts") int attempts,
+      @Param("now") ZonedDateTime now);
+
+  /**
+   * This method starts another attempt at a finished job on the given node, unless the job has
+   * changed since it was read, e.g. because another request retried it first. Log, progress and
+   * checkpoint are kept, so that the new attempt continues where the last one stopped.
+   *
+   * @param id id of the job
+   * @param fromStatus the status the job was read with
+   * @param fromAttempts the attempts the job was read with
+   * @param claimedBy id of the node that runs the new attempt
+   * @param attempts the number of the new attempt
+   * @param now the time of the update, also the first heartbeat
+   * @return the number of jobs updated, 0 if the job has changed
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = 'running', j.claimedBy = :claimedBy, j.heartbeatAt = :now,"
+          + " j.attempts = :attempts, j.cancelRequested = false, j.updatedAt = :now"
+          + " WHERE j.id = :id AND j.status = :fromStatus AND j.attempts = :fromAttempts")
+  int retryInProcess(
+      @Param("id") long id,
+      @Param("fromStatus") String fromStatus,
+      @Param("fromAttempts") int fromAttempts,
+      @Param("claimedBy") String claimedBy,
+      @Param("attempts") int attempts,
+      @Param("now") ZonedDateTime now);
+
+  /**
+   * This method puts a finished job back on the queue, unless the job has changed since it was
+   * read. Log, progress and checkpoint are kept; the node that claims the job counts the attempt.
+   *
+   * @param id id of the job
+   * @param fromStatus the status the job was read with
+   * @param fromAttempts the attempts the job was read with
+   * @param attempts the attempts before the job is claimed again
+   * @param now the time of the update, also the time the job is queued
+   * @return the number of jobs updated, 0 if the job has changed
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = 'queued', j.claimedBy = null, j.queuedAt = :now,"
+          + " j.attempts = :attempts, j.cancelRequested = false, j.updatedAt = :now"
+          + " WHERE j.id = :id AND j.status = :fromStatus AND j.attempts = :fromAttempts")
+  int retryQueued(
+      @Param("id") long id,
+      @Param("fromStatus") String fromStatus,
+      @Param("fromAttempts") int fromAttempts,
+      @Param("attempts") int attempts,
+      @Param("now") ZonedDateTime now);
+
+  /**
+   * This method puts claimed jobs whose heartbeat is older than staleBefore back on the queue,
+   * unless they have already been attempted maxAttempts times. Jobs launched in-process, which were
+   * never queued, are not requeued.
+   *
+   * @param staleBefore heartbeats before this time are stale
+   * @param maxAttempts jobs with this many attempts are not requeued
+   * @return the number of jobs requeued
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = 'queued', j.claimedBy = null"
+          + " WHERE j.status = 'running' AND j.claimedBy IS NOT NULL"
+          + " AND j.heartbeatAt < :staleBefore AND j.attempts < :maxAttempts"
+          + " AND j.queuedAt IS NOT NULL")
+  int requeueStale(
+      @Param("staleBefore") ZonedDateTime staleBefore, @Param("maxAttempts") int maxAttempts);
+
+  /**
+   * This method marks claimed jobs whose heartbeat is older than staleBefore as errored once they
+   * have been attempted maxAttempts times, and stale jobs launched in-process right away, since
+   * only their node could have run them.
+   *
+   * @param staleBefore heartbeats before this time are stale
+   * @param maxAttempts number of attempts after which a stale queued job is given up on
+   * @return the number of jobs marked as errored
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = 'error'"
+          + " WHERE j.status = 'running' AND j.claimedBy IS NOT NULL"
+          + " AND j.heartbeatAt < :staleBefore"
+          + " AND (j.attempts >= :maxAttempts OR j.queuedAt IS NULL)")
+  int failStale(
+      @Param("staleBefore") ZonedDateTime staleBefore, @Param("maxAttempts") int maxAttempts);
+
+  /**
+   * This method locks and returns jobs with one of the given statuses last updated before cutoff,
+   * skipping rows locked by another node. It must be called inside a transaction.
+   *
+   * <p>Jobs written before the jobs table had timestamps have neither updated_at nor created_at;
+   * they are older than any cutoff and are returned too. Jobs without updated_at fall back to
+   * created_at; the columns are compared separately rather than through COALESCE, so that the
+   * (status, updated_at) index can be used.
+   *
+   * @param statuses statuses of the jobs to return, usually Job.TERMINAL_STATUSES
+   * @param cutoff jobs last updated before this time are returned
+   * @param limit maximum number of jobs to return
+   * @return the locked jobs
+   */
+  @Query(
+      value =
+          "SELECT * FROM jobs WHERE status IN (:statuses)"
+              + " AND (updated_at < :cutoff"
+              + " OR (updated_at IS NULL AND (created_at IS NULL OR created_at < :cutoff)))"
+              + " LIMIT :limit FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<Job> findExpiredForUpdateSkipLocked(
+      @Param("statuses") Collection<String> statuses,
+      @Param("cutoff") ZonedDateTime cutoff,
+      @Param("limit") int limit);
+
+  /**
+   * This method deletes the jobs with the given ids in a single statement.
+   *
+   * @param ids ids of the jobs
+   * @return the number of jobs deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM jobs j WHERE j.id IN :ids")
+  int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method deletes jobs, optionally only those with a given status or created before a given
+   * time, in a single statement without loading them. Their log lines are removed by the database's
+   * ON DELETE CASCADE.
+   *
+   * @param status only jobs with this status, or null for any status
+   * @param createdBefore only jobs created before this time, or null for any time
+   * @return the number of jobs deleted
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "DELETE FROM jobs j WHERE (:status IS NULL OR j.status = :status)"
+          + " AND (:createdBefore IS NULL OR j.createdAt < :createdBefore)")
+  int deleteInBulk(
+      @Param("status") String status, @Param("createdBefore") ZonedDateTime createdBefore);
+
+  /**
+   * This method stores the progress of a job without touching its other columns.
+   *
+   * @param id id of the job
+   * @param total number of units of work, or null if unknown
+   * @param completed number of units done
+   * @param rate units done per second
+   * @param updatedAt time the progress was measured
+   * @return the number of jobs updated
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.progressTotal = :total, j.progressCompleted = :completed,"
+          + " j.progressRate = :rate, j.progressUpdatedAt = :updatedAt WHERE j.id = :id")
+  int updateProgress(
+      @Param("id") long id,
+      @Param("total") Long total,
+      @Param("completed") Long completed,
+      @Param("rate") Double rate,
+      @Param("updatedAt") ZonedDateTime updatedAt);
+
+  /**
+   * This method returns the status and progress of a job without loading its log.
+   *
+   * @param id id of the job
+   * @return the progress, or empty if there is no such job
+   */
+  @Query(
+      "SELECT new edu.ucsb.cs156.example.models.JobProgress(j.status, j.progressTotal,"
+          + " j.progressCompleted, j.progressRate, j.progressUpdatedAt) FROM jobs j WHERE j.id = :id")
+  Optional<JobProgress> findProgressById(@Param("id") long id);
+
+  /**
+   * This method returns the queued or running job launched with an idempotency key.
+   *
+   * @param idempotencyKey the idempotency key
+   * @return the job, or empty if no queued or running job has the key
+   */
+  @Query(
+      "SELECT j FROM jobs j WHERE j.idempotencyKey = :idempotencyKey"
+          + " AND j.status IN ('queued', 'running')")
+  Optional<Job> findActiveByIdempotencyKey(@Param("idempotencyKey") String idempotencyKey);
+
+  /**
+   * This method stores the checkpoint of a job without touching its other columns. Called inside
+   * the transaction that writes the chunk the checkpoint covers.
+   *
+   * @param id id of the job
+   * @param checkpoint the checkpoint
+   * @return the number of jobs updated
+   */
+  @Transactional
+  @Modifying
+  @Query("UPDATE jobs j SET j.checkpoint = :checkpoint WHERE j.id = :id")
+  int updateCheckpoint(@Param("id") long id, @Param("checkpoint") String checkpoint);
+
+  /**
+   * This method marks a job as cancelled if no node has claimed it yet.
+   *
+   * @param id id of the job
+   * @return the number of jobs cancelled
+   */
+  @Transactional
+  @Modifying
+  @Query("UPDATE jobs j SET j.status = 'cancelled' WHERE j.id = :id AND j.status = 'queued'")
+  int cancelQueued(@Param("id") long id);
+
+  /**
+   * This method asks the node running a job to cancel it.
+   *
+   * @param id id of the job
+   * @return the number of jobs updated
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.cancelRequested = true"
+          + " WHERE j.id = :id AND j.status = 'running' AND j.claimedBy IS NOT NULL")
+  int requestCancel(@Param("id") long id);
+
+  /**
+   * This method returns the ids of running jobs claimed by the given node that have been asked to
+   * cancel.
+   *
+   * @param claimedBy id of the node
+   * @return the ids of the jobs
+   */
+  @Query(
+      "SELECT j.id FROM jobs j WHERE j.claimedBy = :claimedBy AND j.status = 'running'"
+          + " AND j.cancelRequested = true")
+  List<Long> findCancelRequested(@Param("claimedBy") String claimedBy);
+
+  /**
+   * This method returns the stage jobs of a pipeline.
+   *
+   * @param parentId id of the pipeline's job
+   * @return the stage jobs, in the order they were created
+   */
+  List<Job> findByParentIdOrderByIdAsc(long parentId);
+}
@@ -0,0 +1,109 @@
+package edu.ucsb.cs156.example.repositories;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Specification of a page of a keyset-paginated list: the rows after a cursor, ordered by a sort
+ * field and then by id, which makes the order total. Rows whose sort field is null come first in
+ * ascending order and last in descending order.
+ *
+ * <p>Unlike an OFFSET, the cursor condition lets the database seek directly to the page, so every
+ * page costs the same however deep it is, and rows inserted or deleted meanwhile do not shift the
+ * following pages.
+ *
+ * @param <T> type of the entity
+ */
+public class KeysetSpecification<T> implements Specification<T> {
+  private final String idField;
+  private final String sortField;
+  private final boolean ascending;
+  private final boolean afterCursor;
+  private final Object afterValue;
+  private final Object afterId;
+
+  /**
+   * Specification of the first page.
+   *
+   * @param idField name of the id field
+   * @param sortField name of the field to sort by, which may be the id field
+   * @param ascending whether to sort in ascending order
+   */
+  public KeysetSpecification(String idField, String sortField, boolean ascending) {
+    this(idField, sortField, ascending, false, null, null);
+  }
+
+  /**
+   * Specification of the page after a cursor.
+   *
+   * @param idField name of the id field
+   * @param sortField name of the field to sort by, which may be the id field
+   * @param ascending whether to sort in ascending order
+   * @param afterValue value of the sort field in the last row of the previous page; may be null
+   * @param afterId id of the last row of the previous page
+   */
+  public KeysetSpecification(
+      String idField, String sortField, boolean ascending, Object afterValue, Object afterId) {
+    this(idField, sortField, ascending, true, afterValue, afterId);
+  }
+
+  private KeysetSpecification(
+      String idField,
+      String sortField,
+      boolean ascending,
+      boolean afterCursor,
+      Object afterValue,
+      Object afterId) {
+    this.idField = idField;
+    this.sortField = sortField;
+    this.ascending = ascending;
+    this.afterCursor = afterCursor;
+    this.afterValue = afterValue;
+    this.afterId = afterId;
+  }
+
+  @Override
+  public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+    HibernateCriteriaBuilder hcb = (HibernateCriteriaBuilder) cb;
+    Path<Comparable<Object>> id = root.get(idField);
+    boolean byId = sortField.equals(idField);
+    Path<Comparable<Object>> sort = byId ? id : root.get(sortField);
+
+    List<Order> orders = new ArrayList<>();
+    if (!byId) {
+      orders.add(ascending ? hcb.asc(sort, true) : hcb.desc(sort, false));
+    }
+    orders.add(ascending ? cb.asc(id) : cb.desc(id));
+    query.orderBy(orders);
+
+    if (!afterCursor) {
+      return null;
+    }
+    Predicate afterIdPredicate = after(cb, id, afterId);
+    if (byId) {
+      return afterIdPredicate;
+    }
+    if (afterValue == null) {
+      Predicate nullAfterId = cb.and(cb.isNull(sort), afterIdPredicate);
+      // in ascending order the rows with a value follow the null ones; in descending order none do
+      return ascending ? cb.or(nullAfterId, cb.isNotNull(sort)) : nullAfterId;
+    }
+    Predicate afterRow =
+        cb.or(after(cb, sort, afterValue), cb.and(cb.equal(sort, afterValue), afterIdPredicate));
+    return ascending ? afterRow : cb.or(afterRow, cb.isNull(sort));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Predicate after(CriteriaBuilder cb, Path<Comparable<Object>> path, Object value) {
+    Comparable<Object> comparable = (Comparable<Object>) value;
+    return ascending ? cb.greaterThan(path, comparable) : cb.lessThan(path, comparable);
+  }
+}
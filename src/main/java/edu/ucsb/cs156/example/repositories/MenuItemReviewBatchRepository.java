@@ -0,0 +1,14 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import java.util.List;
+
+/** Repository fragment for updating many MenuItemReview rows in a single JDBC batch. */
+public interface MenuItemReviewBatchRepository {
+  /**
+   * This method writes all columns of the given reviews, matched by id, as one JDBC batch.
+   *
+   * @param reviews the reviews to update
+   */
+  void updateAll(List<MenuItemReview> reviews);
+}
@@ -0,0 +1,36 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of MenuItemReviewBatchRepository.
+ *
+ * <p>Updating through CrudRepository.saveAll would merge each review separately; the batch is
+ * written directly with JdbcTemplate instead.
+ */
+public class MenuItemReviewBatchRepositoryImpl implements MenuItemReviewBatchRepository {
+  static final String UPDATE_SQL =
+      "UPDATE menuitemreview SET item_id = ?, reviewer_email = ?, stars = ?, date_reviewed = ?,"
+          + " comments = ? WHERE id = ?";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Override
+  public void updateAll(List<MenuItemReview> reviews) {
+    jdbcTemplate.batchUpdate(
+        UPDATE_SQL,
+        reviews,
+        reviews.size(),
+        (ps, review) -> {
+          ps.setLong(1, review.getItemId());
+          ps.setString(2, review.getReviewerEmail());
+          ps.setInt(3, review.getStars());
+          ps.setObject(4, review.getDateReviewed());
+          ps.setString(5, review.getComments());
+          ps.setLong(6, review.getId());
+        });
+  }
+}
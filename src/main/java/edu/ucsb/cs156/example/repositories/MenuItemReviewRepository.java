@@ -1,9 +1,97 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The UCSBDateRepository is a repository for MenuItemReview entities. */
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {}
+public interface MenuItemReviewRepository
+    extends CrudRepository<MenuItemReview, Long>,
+        JpaSpecificationExecutor<MenuItemReview>,
+        MenuItemReviewBatchRepository {
+  /**
+   * This method returns the reviews with an id greater than the given one, in id order.
+   *
+   * @param id only reviews with an id greater than this
+   * @param limit maximum number of reviews to return
+   * @return the reviews
+   */
+  List<MenuItemReview> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+  /**
+   * This method counts the reviews with an id greater than the given one.
+   *
+   * @param id only reviews with an id greater than this
+   * @return the number of reviews
+   */
+  long countByIdGreaterThan(long id);
+
+  /**
+   * This method deletes menu item reviews, optionally only those reviewed before a given time, in a
+   * single statement without loading them.
+   *
+   * @param reviewedBefore only reviews with a dateReviewed before this, or null for any time
+   * @return the number of reviews deleted
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "DELETE FROM menuitemreview r"
+          + " WHERE (:reviewedBefore IS NULL OR r.dateReviewed < :reviewedBefore)")
+  int deleteInBulk(@Param("reviewedBefore") LocalDateTime reviewedBefore);
+
+  /**
+   * This method streams all reviews in id order through a forward-only cursor, fetching 500 rows
+   * (NdjsonExporter.BATCH_SIZE) per round trip. It must be called in a transaction and the stream
+   * closed after use.
+   *
+   * @return the reviews
+   */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<MenuItemReview> streamAllByOrderByIdAsc();
+
+  /**
+   * This method deletes a review in a single statement, without loading it first.
+   *
+   * @param id id of the review
+   * @return the number of reviews deleted; 0 if there is no review with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM menuitemreview r WHERE r.id = :id")
+  int deleteOne(@Param("id") long id);
+
+  /**
+   * This method sets every column of a review except its id in a single statement, without loading
+   * it first.
+   *
+   * @param id id of the review
+   * @param incoming the new contents of the review; its id is ignored
+   * @return the number of reviews updated; 0 if there is no review with that id, and otherwise 1,
+   *     after which the row equals incoming with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE menuitemreview r SET r.itemId = :#{#incoming.itemId}, r.reviewerEmail ="
+          + " :#{#incoming.reviewerEmail}, r.stars = :#{#incoming.stars}, r.dateReviewed ="
+          + " :#{#incoming.dateReviewed}, r.comments = :#{#incoming.comments} WHERE r.id ="
+          + " :id")
+  int updateOne(@Param("id") long id, @Param("incoming") MenuItemReview incoming);
+}
@@ -1,10 +1,47 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The UCSBDateRepository is a repository for UCSBDate entities. */
 @Repository
 public interface RecommendationRequestRepository
-    extends CrudRepository<RecommendationRequest, Long> {}
+    extends CrudRepository<RecommendationRequest, Long>,
+        JpaSpecificationExecutor<RecommendationRequest> {
+  /**
+   * This method deletes a recommendation request in a single statement, without loading it first.
+   *
+   * @param id id of the recommendation request
+   * @return the number of recommendation requests deleted; 0 if there is no recommendation request
+   *     with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM recommendationrequest r WHERE r.id = :id")
+  int deleteOne(@Param("id") long id);
+
+  /**
+   * This method sets every column of a recommendation request except its id in a single statement,
+   * without loading it first.
+   *
+   * @param id id of the recommendation request
+   * @param incoming the new contents of the recommendation request; its id is ignored
+   * @return the number of recommendation requests updated; 0 if there is no recommendation request
+   *     with that id, and otherwise 1, after which the row equals incoming with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE recommendationrequest r SET r.requesterEmail ="
+          + " :#{#incoming.requesterEmail}, r.professorEmail ="
+          + " :#{#incoming.professorEmail}, r.explanation = :#{#incoming.explanation},"
+          + " r.dateRequested = :#{#incoming.dateRequested}, r.dateNeeded ="
+          + " :#{#incoming.dateNeeded}, r.done = :#{#incoming.done} WHERE r.id = :id")
+  int updateOne(@Param("id") long id, @Param("incoming") RecommendationRequest incoming);
+}
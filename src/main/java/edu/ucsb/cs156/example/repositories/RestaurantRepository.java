@@ -1,9 +1,42 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The RestaurantRepository is a repository for Restaurant entities */
 @Repository
-public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {}
+public interface RestaurantRepository
+    extends CrudRepository<Restaurant, Long>, JpaSpecificationExecutor<Restaurant> {
+  /**
+   * This method deletes a restaurant in a single statement, without loading it first.
+   *
+   * @param id id of the restaurant
+   * @return the number of restaurants deleted; 0 if there is no restaurant with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM restaurants r WHERE r.id = :id")
+  int deleteOne(@Param("id") long id);
+
+  /**
+   * This method sets every column of a restaurant except its id in a single statement, without
+   * loading it first.
+   *
+   * @param id id of the restaurant
+   * @param incoming the new contents of the restaurant; its id is ignored
+   * @return the number of restaurants updated; 0 if there is no restaurant with that id, and
+   *     otherwise 1, after which the row equals incoming with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE restaurants r SET r.name = :#{#incoming.name}, r.description ="
+          + " :#{#incoming.description} WHERE r.id = :id")
+  int updateOne(@Param("id") long id, @Param("incoming") Restaurant incoming);
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.TableVersion;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The TableVersionsRepository is a repository for TableVersion entities. */
+@Repository
+public interface TableVersionsRepository extends CrudRepository<TableVersion, String> {
+  /**
+   * This method increments the version of a table in a single statement, so that concurrent
+   * increments are not lost.
+   *
+   * @param name name of the table
+   * @return the number of versions updated; 0 if the table has no version
+   */
+  @Transactional
+  @Modifying
+  @Query("UPDATE table_versions v SET v.version = v.version + 1 WHERE v.name = :name")
+  int increment(@Param("name") String name);
+}
@@ -1,12 +1,18 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The UCSBDateRepository is a repository for UCSBDate entities. */
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository
+    extends CrudRepository<UCSBDate, Long>, JpaSpecificationExecutor<UCSBDate> {
   /**
    * This method returns all UCSBDate entities with a given quarterYYYYQ.
    *
@@ -15,4 +21,32 @@ public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
    * @return all UCSBDate entities with a given quarterYYYYQ
    */
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
+
+  /**
+   * This method deletes a date in a single statement, without loading it first.
+   *
+   * @param id id of the date
+   * @return the number of dates deleted; 0 if there is no date with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM ucsbdates d WHERE d.id = :id")
+  int deleteOne(@Param("id") long id);
+
+  /**
+   * This method sets every column of a date except its id in a single statement, without loading it
+   * first.
+   *
+   * @param id id of the date
+   * @param incoming the new contents of the date; its id is ignored
+   * @return the number of dates updated; 0 if there is no date with that id, and otherwise 1, after
+   *     which the row equals incoming with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE ucsbdates d SET d.quarterYYYYQ = :#{#incoming.quarterYYYYQ}, d.name ="
+          + " :#{#incoming.name}, d.localDateTime = :#{#incoming.localDateTime} WHERE d.id"
+          + " = :id")
+  int updateOne(@Param("id") long id, @Param("incoming") UCSBDate incoming);
 }
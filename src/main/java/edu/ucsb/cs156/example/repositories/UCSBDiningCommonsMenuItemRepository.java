@@ -1,9 +1,43 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface UCSBDiningCommonsMenuItemRepository
-    extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {}
+    extends CrudRepository<UCSBDiningCommonsMenuItem, Long>,
+        JpaSpecificationExecutor<UCSBDiningCommonsMenuItem> {
+  /**
+   * This method deletes a menu item in a single statement, without loading it first.
+   *
+   * @param id id of the menu item
+   * @return the number of menu items deleted; 0 if there is no menu item with that id
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM ucsbdiningcommonsmenuitem m WHERE m.id = :id")
+  int deleteOne(@Param("id") long id);
+
+  /**
+   * This method sets every column of a menu item except its id in a single statement, without
+   * loading it first.
+   *
+   * @param id id of the menu item
+   * @param incoming the new contents of the menu item; its id is ignored
+   * @return the number of menu items updated; 0 if there is no menu item with that id, and
+   *     otherwise 1, after which the row equals incoming with that id
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE ucsbdiningcommonsmenuitem m SET m.diningCommonsCode ="
+          + " :#{#incoming.diningCommonsCode}, m.name = :#{#incoming.name}, m.station ="
+          + " :#{#incoming.station} WHERE m.id = :id")
+  int updateOne(@Param("id") long id, @Param("incoming") UCSBDiningCommonsMenuItem incoming);
+}
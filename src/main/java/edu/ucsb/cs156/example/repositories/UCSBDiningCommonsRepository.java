@@ -1,9 +1,45 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities */
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {}
+public interface UCSBDiningCommonsRepository
+    extends CrudRepository<UCSBDiningCommons, String>, JpaSpecificationExecutor<UCSBDiningCommons> {
+  /**
+   * This method deletes a dining commons in a single statement, without loading it first.
+   *
+   * @param code code of the dining commons
+   * @return the number of dining commons deleted; 0 if there is no dining commons with that code
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM ucsbdiningcommons c WHERE c.code = :code")
+  int deleteOne(@Param("code") String code);
+
+  /**
+   * This method sets every column of a dining commons except its code in a single statement,
+   * without loading it first.
+   *
+   * @param code code of the dining commons
+   * @param incoming the new contents of the dining commons; its code is ignored
+   * @return the number of dining commons updated; 0 if there is no dining commons with that code,
+   *     and otherwise 1, after which the row equals incoming with that code
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE ucsbdiningcommons c SET c.name = :#{#incoming.name}, c.hasSackMeal ="
+          + " :#{#incoming.hasSackMeal}, c.hasTakeOutMeal = :#{#incoming.hasTakeOutMeal},"
+          + " c.hasDiningCam = :#{#incoming.hasDiningCam}, c.latitude ="
+          + " :#{#incoming.latitude}, c.longitude = :#{#incoming.longitude} WHERE c.code ="
+          + " :code")
+  int updateOne(@Param("code") String code, @Param("incoming") UCSBDiningCommons incoming);
+}
@@ -1,9 +1,44 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** The UCSBOrganizationRepository is a repository for UCSBOrganizations entities */
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {}
+public interface UCSBOrganizationRepository
+    extends CrudRepository<UCSBOrganization, String>, JpaSpecificationExecutor<UCSBOrganization> {
+  /**
+   * This method deletes an organization in a single statement, without loading it first.
+   *
+   * @param orgCode orgCode of the organization
+   * @return the number of organizations deleted; 0 if there is no organization with that orgCode
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM ucsborganizations o WHERE o.orgCode = :orgCode")
+  int deleteOne(@Param("orgCode") String orgCode);
+
+  /**
+   * This method sets every column of an organization except its orgCode in a single statement,
+   * without loading it first.
+   *
+   * @param orgCode orgCode of the organization
+   * @param incoming the new contents of the organization; its orgCode is ignored
+   * @return the number of organizations updated; 0 if there is no organization with that orgCode,
+   *     and otherwise 1, after which the row equals incoming with that orgCode
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE ucsborganizations o SET o.orgTranslationShort ="
+          + " :#{#incoming.orgTranslationShort}, o.orgTranslation ="
+          + " :#{#incoming.orgTranslation}, o.inactive = :#{#incoming.inactive} WHERE"
+          + " o.orgCode = :orgCode")
+  int updateOne(@Param("orgCode") String orgCode, @Param("incoming") UCSBOrganization incoming);
+}
@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.User;
+
+/** Upsert of the User who logs in, implemented with native SQL in UserUpsertRepositoryImpl. */
+public interface UserUpsertRepository {
+  /**
+   * This method stores the User who logs in with a single statement: the user is inserted if there
+   * is no user with the same email, and otherwise the existing user is returned with its admin flag
+   * set if the given user's is. The other fields of an existing user are left unchanged. An
+   * existing user whose admin flag needs no change is not written, only read back by email.
+   *
+   * <p>Relies on the unique index on users.email. Two concurrent first logins with the same email
+   * on PostgreSQL both return the same row; on H2 the second may fail with a
+   * DataIntegrityViolationException and should be retried.
+   *
+   * @param user the user who logs in, without an id
+   * @return the stored user
+   */
+  User upsertOnLogin(User user);
+}
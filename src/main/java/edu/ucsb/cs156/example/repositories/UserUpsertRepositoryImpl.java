@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.services.UserChanges;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.DatabaseMetaData;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Implements UserUpsertRepository with INSERT ... ON CONFLICT ... RETURNING on PostgreSQL and with
+ * MERGE read back through a FINAL TABLE on H2, which has neither ON CONFLICT DO UPDATE nor
+ * RETURNING. The update only matches a user whose admin flag is to be set, so the login of a known
+ * user writes no row version; the statement then returns nothing and the user is read by email.
+ *
+ * <p>JPA does not see the native statement, so a user it inserts or promotes is recorded in {@link
+ * UserChanges} explicitly.
+ */
+public class UserUpsertRepositoryImpl implements UserUpsertRepository {
+  static final String COLUMNS =
+      "email, google_sub, picture_url, full_name, given_name, family_name, email_verified,"
+          + " locale, hosted_domain, admin";
+
+  static final String VALUES =
+      ":email, :googleSub, :pictureUrl, :fullName, :givenName, :familyName, :emailVerified,"
+          + " :locale, :hostedDomain, :admin";
+
+  static final String POSTGRES_UPSERT =
+      "INSERT INTO users ("
+          + COLUMNS
+          + ") VALUES ("
+          + VALUES
+          + ") ON CONFLICT (email) DO UPDATE SET admin = TRUE"
+          + " WHERE EXCLUDED.admin AND NOT users.admin"
+          + " RETURNING *";
+
+  static final String H2_UPSERT =
+      "SELECT * FROM FINAL TABLE (MERGE INTO users u"
+          + " USING (SELECT CAST(:email AS VARCHAR(255)) AS email) v ON u.email = v.email"
+          + " WHEN MATCHED AND CAST(:admin AS BOOLEAN) AND NOT u.admin"
+          + " THEN UPDATE SET admin = TRUE"
+          + " WHEN NOT MATCHED THEN INSERT ("
+          + COLUMNS
+          + ") VALUES ("
+          + VALUES
+          + "))";
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Autowired private DataSource dataSource;
+
+  private String upsertSql;
+
+  @Override
+  @Transactional
+  public User upsertOnLogin(User user) {
+    List<?> written =
+        entityManager
+            .createNativeQuery(upsertSql(), User.class)
+            .setParameter("email", user.getEmail())
+            .setParameter("googleSub", user.getGoogleSub())
+            .setParameter("pictureUrl", user.getPictureUrl())
+            .setParameter("fullName", user.getFullName())
+            .setParameter("givenName", user.getGivenName())
+            .setParameter("familyName", user.getFamilyName())
+            .setParameter("emailVerified", user.getEmailVerified())
+            .setParameter("locale", user.getLocale())
+            .setParameter("hostedDomain", user.getHostedDomain())
+            .setParameter("admin", user.getAdmin())
+            .getResultList();
+    if (written.isEmpty()) {
+      // the user exists and its admin flag needs no change, so nothing was written
+      return entityManager
+          .createQuery("SELECT u FROM users u WHERE u.email = :email", User.class)
+          .setParameter("email", user.getEmail())
+          .getSingleResult();
+    }
+    // the native upsert bypasses the entity listener, and inserted the user or set its admin flag
+    UserChanges.changed(user.getEmail());
+    return (User) written.get(0);
+  }
+
+  private String upsertSql() {
+    if (upsertSql == null) {
+      try {
+        String product =
+            JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        upsertSql = "PostgreSQL".equals(product) ? POSTGRES_UPSERT : H2_UPSERT;
+      } catch (MetaDataAccessException e) {
+        throw new IllegalStateException("Cannot determine the database product", e);
+      }
+    }
+    return upsertSql;
+  }
+}
@@ -0,0 +1,107 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides whether an email belongs to an admin, for SecurityConfig when it maps the authorities of
+ * a login and for CurrentUserServiceImpl when it stores a user.
+ *
+ * <p>The emails in app.admin.emails are kept in a hash set. The admin flag of other users is read
+ * from the users table and cached in a bounded LRU map of app.admin.cacheMaxEntries entries, each
+ * of which expires after app.admin.cacheTtlSeconds. A change to a user on this node, through JPA or
+ * UserRepository.upsertOnLogin, invalidates the entry of that user (see {@link UserChanges});
+ * changes made directly in the database, or on another node, are picked up when the entry expires.
+ */
+@Component
+public class AdminDirectory {
+  @Autowired private UserRepository userRepository;
+
+  @Value("${app.admin.emails}")
+  private Set<String> adminEmails = new HashSet<>();
+
+  @Value("${app.admin.cacheMaxEntries:10000}")
+  private int cacheMaxEntries;
+
+  @Value("${app.admin.cacheTtlSeconds:300}")
+  private long cacheTtlSeconds;
+
+  /** A cached admin flag with the generation it was read at and the time it expires. */
+  private record Entry(boolean admin, long generation, long expiresAtMillis) {}
+
+  private final Map<String, Entry> cache =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+          return size() > cacheMaxEntries;
+        }
+      };
+
+  /**
+   * Returns whether an email is listed in app.admin.emails.
+   *
+   * @param email email address of the user
+   * @return whether the email is a configured admin email
+   */
+  public boolean isConfiguredAdmin(String email) {
+    return email != null && adminEmails.contains(email);
+  }
+
+  /**
+   * Returns whether an email belongs to an admin, i.e. it is listed in app.admin.emails or the user
+   * with that email has the admin flag set.
+   *
+   * @param email email address of the user
+   * @return whether the user with the given email is an admin
+   */
+  public boolean isAdmin(String email) {
+    if (email == null) {
+      return false;
+    }
+    if (adminEmails.contains(email)) {
+      return true;
+    }
+    long generation = UserChanges.generation();
+    long now = System.currentTimeMillis();
+    synchronized (cache) {
+      Entry entry = cache.get(email);
+      if (entry != null
+          && !UserChanges.changedSince(email, entry.generation())
+          && entry.expiresAtMillis() > now) {
+        return entry.admin();
+      }
+    }
+    boolean admin = userRepository.findByEmail(email).map(User::getAdmin).orElse(false);
+    if (cacheMaxEntries > 0 && cacheTtlSeconds > 0) {
+      synchronized (cache) {
+        cache.put(email, new Entry(admin, generation, now + cacheTtlSeconds * 1000));
+      }
+    }
+    return admin;
+  }
+
+  /**
+   * Forgets the cached admin flag of a user.
+   *
+   * @param email email address of the user
+   */
+  public void invalidate(String email) {
+    synchronized (cache) {
+      cache.remove(email);
+    }
+  }
+
+  /** Forgets every cached admin flag. */
+  public void invalidateAll() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.BulkRequestTooLargeException;
+import edu.ucsb.cs156.example.models.BulkItemResult;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Inserts many new entities in one transaction, as JDBC batches of app.bulk.batchSize rows.
+ *
+ * <p>Hibernate only batches inserts of entities whose ids it knows before the insert, i.e. ids that
+ * come from a sequence; with IDENTITY ids every row is a separate statement. The entities inserted
+ * here must therefore use a pooled sequence, which also hands out a block of ids per round trip.
+ */
+@Slf4j
+@Service
+public class BulkInserter {
+  @PersistenceContext private EntityManager entityManager;
+
+  @Value("${app.bulk.batchSize:50}")
+  private int batchSize;
+
+  @Value("${app.bulk.maxItems:10000}")
+  private int maxItems;
+
+  /**
+   * This method inserts the items that pass a check, and reports the result of every item.
+   *
+   * @param <T> type of the entities
+   * @param items the new entities; their ids are assigned here
+   * @param check returns why an item cannot be inserted, or null if it can
+   * @param id returns the id of an inserted entity
+   * @return the result of every item, in the order of the items
+   * @throws BulkRequestTooLargeException if there are more than app.bulk.maxItems items
+   */
+  @Transactional
+  public <T> List<BulkItemResult> insertAll(
+      List<T> items, Function<T, String> check, ToLongFunction<T> id) {
+    if (items.size() > maxItems) {
+      throw new BulkRequestTooLargeException(items.size(), maxItems);
+    }
+    entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+
+    List<BulkItemResult> results = new ArrayList<>(items.size());
+    int created = 0;
+    for (int index = 0; index < items.size(); index++) {
+      T item = items.get(index);
+      String problem = item == null ? "Item is null" : check.apply(item);
+      if (problem != null) {
+        results.add(
+            BulkItemResult.builder().index(index).status("rejected").message(problem).build());
+        continue;
+      }
+      entityManager.persist(item);
+      results.add(
+          BulkItemResult.builder().index(index).status("created").id(id.applyAsLong(item)).build());
+      if (++created % batchSize == 0) {
+        // write the batch and forget its entities, so memory does not grow with the request
+        entityManager.flush();
+        entityManager.clear();
+      }
+    }
+    entityManager.flush();
+    entityManager.clear();
+    log.info("Bulk inserted {} of {} items", created, items.size());
+    return results;
+  }
+}
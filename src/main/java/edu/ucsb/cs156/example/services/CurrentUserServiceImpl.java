@@ -3,14 +3,12 @@ package edu.ucsb.cs156.example.services;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
-import java.util.ArrayList;
+import jakarta.servlet.http.HttpSession;
 import java.util.Collection;
-import java.util.List;
-import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
@@ -18,6 +16,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 /**
  * This is a service that provides information about the current user.
@@ -32,8 +32,9 @@ public class CurrentUserServiceImpl extends CurrentUserService {
 
   @Autowired GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<String>();
+  @Autowired private UserSessionCache userSessionCache;
+
+  @Autowired private AdminDirectory adminDirectory;
 
   /**
    * This method returns the current user as a User object.
@@ -51,7 +52,8 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    * automatically injected by Spring.
    *
    * <p>This method also has a side effect of storing the user in the database if they are not
-   * already there.
+   * already there, and of setting their admin flag if their email is in app.admin.emails. Both are
+   * done with a single upsert (see UserRepository.upsertOnLogin).
    *
    * @param securityContext the security context (provided by Spring)
    * @param authentication the authentication token (provided by Spring)
@@ -73,16 +75,6 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     java.util.Map<java.lang.String, java.lang.Object> attrs = oAuthUser.getAttributes();
     log.info("attrs={}", attrs);
 
-    Optional<User> ou = userRepository.findByEmail(email);
-    if (ou.isPresent()) {
-      User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
-        u.setAdmin(true);
-        userRepository.save(u);
-      }
-      return u;
-    }
-
     User u =
         User.builder()
             .googleSub(googleSub)
@@ -94,23 +86,52 @@ public class CurrentUserServiceImpl extends CurrentUserService {
             .emailVerified(emailVerified)
             .locale(locale)
             .hostedDomain(hostedDomain)
-            .admin(adminEmails.contains(email))
+            .admin(adminDirectory.isConfiguredAdmin(email))
             .build();
-    userRepository.save(u);
-    return u;
+    User stored;
+    try {
+      stored = userRepository.upsertOnLogin(u);
+    } catch (DataIntegrityViolationException e) {
+      // a concurrent first login with the same email inserted the user first
+      stored = userRepository.upsertOnLogin(u);
+    }
+    return stored;
   }
 
   /**
    * This method returns the current user as a User object.
    *
+   * <p>The user is looked up in the database on the first request of a session and then cached in
+   * the session (see UserSessionCache).
+   *
    * @return the current user
    */
   public User getUser() {
     SecurityContext securityContext = SecurityContextHolder.getContext();
     Authentication authentication = securityContext.getAuthentication();
 
-    if (authentication instanceof OAuth2AuthenticationToken) {
-      return getOAuth2AuthenticatedUser(securityContext, authentication);
+    if (authentication instanceof OAuth2AuthenticationToken token) {
+      HttpSession session = currentSession();
+      String email = token.getPrincipal().getAttribute("email");
+      User cached = userSessionCache.get(session, email);
+      if (cached != null) {
+        return cached;
+      }
+      User user = getOAuth2AuthenticatedUser(securityContext, authentication);
+      userSessionCache.put(session, user);
+      return user;
+    }
+    return null;
+  }
+
+  /**
+   * This method returns the session of the current request, without creating one.
+   *
+   * @return the session, or null outside of a request or if the request has no session
+   */
+  private HttpSession currentSession() {
+    if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs) {
+      return attrs.getRequest().getSession(false);
     }
     return null;
   }
@@ -0,0 +1,130 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Writes the rows of a query as newline-delimited JSON, one JSON object per line.
+ *
+ * <p>The rows are read from a stream, i.e. a forward-only database cursor, in a read-only
+ * transaction, and written to the response as they are read. Every BATCH_SIZE rows the output is
+ * flushed and the persistence context cleared, so the memory used does not grow with the number of
+ * rows.
+ *
+ * <p>An export may run far longer than other async requests, so its request alone gets the timeout
+ * app.export.timeoutMs.
+ */
+@Slf4j
+@Service
+public class NdjsonExporter {
+  /** media type of newline-delimited JSON */
+  public static final MediaType APPLICATION_NDJSON =
+      MediaType.parseMediaType("application/x-ndjson");
+
+  /** rows written between flushes; the export queries fetch this many rows per round trip */
+  public static final int BATCH_SIZE = 500;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Value("${app.export.timeoutMs:3600000}")
+  private long timeoutMs;
+
+  /**
+   * This method returns a response that streams rows as a newline-delimited JSON attachment.
+   *
+   * @param <T> type of the rows
+   * @param filename name of the attachment
+   * @param rows opens the stream of rows; called once the response is being written
+   * @return the response
+   */
+  public <T> ResponseEntity<StreamingResponseBody> export(
+      String filename, Supplier<Stream<T>> rows) {
+    extendAsyncTimeout();
+    return ResponseEntity.ok()
+        .contentType(APPLICATION_NDJSON)
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename(filename).build().toString())
+        .body(out -> write(rows, out));
+  }
+
+  /** Sets the timeout of the current request, which is about to go async, to timeoutMs. */
+  private void extendAsyncTimeout() {
+    if (RequestContextHolder.getRequestAttributes()
+        instanceof ServletRequestAttributes attributes) {
+      AsyncWebRequest asyncRequest =
+          WebAsyncUtils.getAsyncManager(attributes.getRequest()).getAsyncWebRequest();
+      if (asyncRequest != null) {
+        asyncRequest.setTimeout(timeoutMs);
+      }
+    }
+  }
+
+  /**
+   * This method writes rows as newline-delimited JSON.
+   *
+   * @param <T> type of the rows
+   * @param rows opens the stream of rows; the stream is closed once written
+   * @param out where the rows are written; it is flushed but not closed
+   * @return the number of rows written
+   * @throws IOException if the rows cannot be written
+   */
+  public <T> long write(Supplier<Stream<T>> rows, OutputStream out) throws IOException {
+    TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+    try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      long count = readOnly.execute(status -> writeRows(rows, generator));
+      log.info("Exported {} rows", count);
+      return count;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private <T> long writeRows(Supplier<Stream<T>> rows, JsonGenerator generator) {
+    long count = 0;
+    try (Stream<T> stream = rows.get()) {
+      for (Iterator<T> it = stream.iterator(); it.hasNext(); ) {
+        generator.writeObject(it.next());
+        generator.writeRaw('\n');
+        if (++count % BATCH_SIZE == 0) {
+          generator.flush();
+          // the rows written so far are not needed again
+          entityManager.clear();
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return count;
+  }
+}
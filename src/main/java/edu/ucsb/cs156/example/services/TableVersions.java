@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.TableVersion;
+import edu.ucsb.cs156.example.repositories.TableVersionsRepository;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Gives slowly changing tables (ucsbdates, ucsbdiningcommons, ucsborganizations) strong ETags, so
+ * that clients can revalidate them with If-None-Match instead of downloading them again.
+ *
+ * <p>The ETag of a table is its version in the table_versions table, which the controller writing
+ * the table increments after every change (see {@link #changed(String)}). Versions are cached for
+ * app.etags.versionCacheMs, so a request whose If-None-Match matches is answered with 304 without
+ * reading or serializing the table. A change on this node is seen at once; a change on another node
+ * once the cached version expires.
+ */
+@Component
+public class TableVersions {
+  @Autowired private TableVersionsRepository tableVersionsRepository;
+
+  @Value("${app.etags.versionCacheMs:1000}")
+  private long versionCacheMs;
+
+  /** A cached version and the time it expires. */
+  private record Entry(long version, long expiresAtMillis) {}
+
+  private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the strong ETag of the current version of a table.
+   *
+   * @param table name of the table
+   * @return the quoted ETag
+   * @throws IllegalArgumentException if the table has no version
+   */
+  public String etag(String table) {
+    Entry entry = cache.get(table);
+    long version =
+        entry != null && entry.expiresAtMillis() > System.currentTimeMillis()
+            ? entry.version()
+            : load(table);
+    return "\"%s-%d\"".formatted(table, version);
+  }
+
+  /**
+   * Records a change to a table, so that its ETag changes. It must be called after the change is
+   * committed, otherwise a client could store the old rows under the new ETag.
+   *
+   * @param table name of the table
+   */
+  public void changed(String table) {
+    tableVersionsRepository.increment(table);
+    load(table);
+  }
+
+  /**
+   * Answers a GET of a table: 304 if the request's If-None-Match matches the table's ETag, and the
+   * body otherwise. Either way the response carries the ETag and "Cache-Control: no-cache", so that
+   * clients store it and revalidate it before every use.
+   *
+   * @param <T> type of the body
+   * @param request the request
+   * @param table name of the table the body is read from
+   * @param body reads the body; not called when the response is 304
+   * @return the response
+   */
+  public <T> ResponseEntity<T> conditionalGet(WebRequest request, String table, Supplier<T> body) {
+    // the ETag is read before the body, so the body is never older than its ETag
+    String etag = etag(table);
+    if (request.checkNotModified(etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(etag)
+          .cacheControl(CacheControl.noCache())
+          .build();
+    }
+    return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(body.get());
+  }
+
+  private long load(String table) {
+    long version =
+        tableVersionsRepository
+            .findById(table)
+            .map(TableVersion::getVersion)
+            .orElseThrow(() -> new IllegalArgumentException("No version for table " + table));
+    // versions only grow, so a slower concurrent load never replaces a newer version
+    cache.merge(
+        table,
+        new Entry(version, System.currentTimeMillis() + versionCacheMs),
+        (cached, loaded) -> loaded.version() >= cached.version() ? loaded : cached);
+    return version;
+  }
+}
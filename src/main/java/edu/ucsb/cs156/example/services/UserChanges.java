@@ -0,0 +1,113 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Records the changes to users made on this node, so that caches of users and their admin flags
+ * (UserSessionCache, AdminDirectory) can tell that an entry is stale: an entry cached at some
+ * generation is valid until its user, or every user, changes at a later generation.
+ *
+ * <p>Updates and removals through JPA are recorded by {@link Listener}. Writes that JPA does not
+ * see, such as the native upsert of UserRepository.upsertOnLogin, must call {@link
+ * #changed(String)} or {@link #changedAll()} themselves. A change made in a transaction is recorded
+ * again when the transaction commits, so that a value read and cached before the commit is not
+ * kept.
+ */
+public final class UserChanges {
+  /** The number of emails whose latest change is kept before they are folded into one change. */
+  static final int MAX_TRACKED_EMAILS = 10000;
+
+  private static final AtomicLong generation = new AtomicLong();
+
+  private static final Map<String, Long> changedAt = new ConcurrentHashMap<>();
+
+  private static final AtomicLong allChangedAt = new AtomicLong();
+
+  private UserChanges() {}
+
+  /**
+   * Returns the current generation.
+   *
+   * @return the number of changes so far
+   */
+  public static long generation() {
+    return generation.get();
+  }
+
+  /**
+   * Returns whether the user with an email has changed since a generation.
+   *
+   * @param email email address of the user
+   * @param since the generation a cache entry was read at
+   * @return whether the entry is stale
+   */
+  public static boolean changedSince(String email, long since) {
+    if (allChangedAt.get() > since) {
+      return true;
+    }
+    Long at = email == null ? null : changedAt.get(email);
+    return at != null && at > since;
+  }
+
+  /**
+   * Records a change to the user with an email, invalidating what was cached for that user.
+   *
+   * @param email email address of the user, or null if it is not known
+   */
+  public static void changed(String email) {
+    if (email == null) {
+      changedAll();
+      return;
+    }
+    record(email);
+    afterCommit(() -> record(email));
+  }
+
+  /** Records a change that may affect any user, invalidating everything cached so far. */
+  public static void changedAll() {
+    recordAll();
+    afterCommit(UserChanges::recordAll);
+  }
+
+  private static void record(String email) {
+    changedAt.merge(email, generation.incrementAndGet(), Math::max);
+    if (changedAt.size() > MAX_TRACKED_EMAILS) {
+      recordAll();
+    }
+  }
+
+  private static void recordAll() {
+    long at = generation.incrementAndGet();
+    allChangedAt.accumulateAndGet(at, Math::max);
+    // entries up to the watermark are covered by it; later ones were recorded concurrently
+    changedAt.values().removeIf(entryAt -> entryAt <= at);
+  }
+
+  private static void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              action.run();
+            }
+          });
+    }
+  }
+
+  /** JPA entity listener on User that records every update or removal, e.g. of an admin flag. */
+  public static class Listener {
+    @PostUpdate
+    @PostRemove
+    void userChanged(User user) {
+      changed(user.getEmail());
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import jakarta.servlet.http.HttpSession;
+import java.io.Serializable;
+import java.util.Objects;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches the logged-in User in the HTTP session, so that it is read from the users table once per
+ * session rather than on every request.
+ *
+ * <p>An entry expires after app.users.sessionCacheTtlSeconds. A change to a user on this node,
+ * through JPA or UserRepository.upsertOnLogin, invalidates the entries of that user (see {@link
+ * UserChanges}); changes made directly in the database, or on another node, are picked up when the
+ * entry expires.
+ */
+@Component
+public class UserSessionCache {
+  static final String SESSION_ATTRIBUTE = UserSessionCache.class.getName() + ".user";
+
+  @Value("${app.users.sessionCacheTtlSeconds:300}")
+  private long ttlSeconds;
+
+  /** A cached User with the generation and time it was cached at. */
+  static class Entry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final User user;
+    final long generation;
+    final long expiresAtMillis;
+
+    Entry(User user, long generation, long expiresAtMillis) {
+      this.user = user;
+      this.generation = generation;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+  }
+
+  /**
+   * Returns the User cached in a session.
+   *
+   * @param session the session, or null if there is none
+   * @param email email of the logged-in user; an entry for another email is ignored
+   * @return the cached User, or null if there is none or it is no longer valid
+   */
+  public User get(HttpSession session, String email) {
+    if (session == null || ttlSeconds <= 0) {
+      return null;
+    }
+    if (!(session.getAttribute(SESSION_ATTRIBUTE) instanceof Entry entry)) {
+      return null;
+    }
+    if (UserChanges.changedSince(entry.user.getEmail(), entry.generation)
+        || entry.expiresAtMillis <= System.currentTimeMillis()
+        || !Objects.equals(entry.user.getEmail(), email)) {
+      session.removeAttribute(SESSION_ATTRIBUTE);
+      return null;
+    }
+    return entry.user;
+  }
+
+  /**
+   * Caches a User in a session.
+   *
+   * @param session the session, or null if there is none
+   * @param user the logged-in User
+   */
+  public void put(HttpSession session, User user) {
+    if (session == null || ttlSeconds <= 0 || user == null) {
+      return;
+    }
+    session.setAttribute(
+        SESSION_ATTRIBUTE,
+        new Entry(user, UserChanges.generation(), System.currentTimeMillis() + ttlSeconds * 1000));
+  }
+}
@@ -1,20 +1,387 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
-import edu.ucsb.cs156.example.repositories.JobsRepository;
-import lombok.AllArgsConstructor;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import edu.ucsb.cs156.example.models.JobProgress;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 
-@AllArgsConstructor
+/**
+ * The context passed to a running job.
+ *
+ * <p>Log lines are buffered in memory and written to the database as one batch once flushMaxLines
+ * lines are pending or flushIntervalMs has passed since the last write. The job runner must call
+ * {@link #flush()} when the job finishes.
+ *
+ * <p>Each line is also handed to a listener as soon as it is logged, which is how the lines reach
+ * live log streams before they are written.
+ *
+ * <p>A job can also report structured progress with {@link #setProgressTotal(long)} and {@link
+ * #addProgress(long)}. The rate is measured over the last progressWindowMs up to now, and progress
+ * is handed to a progress listener at most once per progressIntervalMs; the job runner must call
+ * {@link #flushProgressIfDue()} periodically, so that the rate of a stalled job falls, and {@link
+ * #flushProgress()} when the job finishes.
+ *
+ * <p>A job that works through its data in chunks can {@link #saveCheckpoint(String)} after each
+ * chunk; if the job is retried, {@link #getCheckpoint()} returns the last one saved.
+ *
+ * <p>A context can be cancelled from another thread. Cancelling interrupts the thread running the
+ * job, and from then on {@link #log(String)} and {@link #checkCancelled()} throw a
+ * JobCancelledException, so that jobs stop at their next log line even if they swallow the
+ * interrupt.
+ */
 @Slf4j
 public class JobContext {
-  private JobsRepository jobsRepository;
-  private Job job;
+  private final JobLogLinesRepository jobLogLinesRepository;
+  private final Job job;
+  private final int flushMaxLines;
+  private final long flushIntervalMs;
+  private final Consumer<JobLogLine> listener;
+  private final List<JobLogLine> pendingLines = new ArrayList<>();
+  private int nextSeq;
+  private long lastFlushMillis = System.currentTimeMillis();
 
-  public void log(String message) {
+  private Consumer<JobProgress> progressListener = progress -> {};
+  private long progressIntervalMs;
+  private long progressWindowMs = 10000;
+  private final ArrayDeque<long[]> progressSamples = new ArrayDeque<>();
+  private Long progressTotal;
+  private long progressCompleted;
+  private boolean progressPending;
+  private long lastProgressReportMillis;
+  private double lastReportedRate;
+
+  private Consumer<String> checkpointListener = checkpoint -> {};
+
+  private final long startedMillis = System.currentTimeMillis();
+  private volatile String cancelStatus;
+  private Thread worker;
+
+  /**
+   * Creates an unbuffered context: every call to log is written immediately.
+   *
+   * @param jobLogLinesRepository repository the log lines are written to (may be null)
+   * @param job the job being run
+   */
+  public JobContext(JobLogLinesRepository jobLogLinesRepository, Job job) {
+    this(jobLogLinesRepository, job, 0, 1, 0);
+  }
+
+  /**
+   * Creates a buffered context.
+   *
+   * @param jobLogLinesRepository repository the log lines are written to (may be null)
+   * @param job the job being run
+   * @param firstSeq seq of the first line written, i.e. the number of lines the job already has
+   * @param flushMaxLines number of pending lines that triggers a write
+   * @param flushIntervalMs time since the last write after which pending lines are written
+   */
+  public JobContext(
+      JobLogLinesRepository jobLogLinesRepository,
+      Job job,
+      int firstSeq,
+      int flushMaxLines,
+      long flushIntervalMs) {
+    this(jobLogLinesRepository, job, firstSeq, flushMaxLines, flushIntervalMs, line -> {});
+  }
+
+  /**
+   * Creates a buffered context whose lines are also passed to a listener as they are logged.
+   *
+   * @param jobLogLinesRepository repository the log lines are written to (may be null)
+   * @param job the job being run
+   * @param firstSeq seq of the first line written, i.e. the number of lines the job already has
+   * @param flushMaxLines number of pending lines that triggers a write
+   * @param flushIntervalMs time since the last write after which pending lines are written
+   * @param listener called with every line when it is logged, before it is written
+   */
+  public JobContext(
+      JobLogLinesRepository jobLogLinesRepository,
+      Job job,
+      int firstSeq,
+      int flushMaxLines,
+      long flushIntervalMs,
+      Consumer<JobLogLine> listener) {
+    this.jobLogLinesRepository = jobLogLinesRepository;
+    this.job = job;
+    this.nextSeq = firstSeq;
+    this.flushMaxLines = flushMaxLines;
+    this.flushIntervalMs = flushIntervalMs;
+    this.listener = listener;
+  }
+
+  /**
+   * Logs a line, unless the job has been cancelled.
+   *
+   * @param message the line to log
+   * @throws JobCancelledException if the job has been cancelled or has timed out
+   */
+  public synchronized void log(String message) {
+    checkCancelled();
+    append(message);
+  }
+
+  /**
+   * Logs a line even if the job has been cancelled; used by the job runner to record why a job
+   * ended.
+   *
+   * @param message the line to log
+   */
+  synchronized void append(String message) {
     log.info("Job %s: %s".formatted(job.getId(), message));
-    String previousLog = job.getLog() == null ? "" : (job.getLog() + "\n");
-    job.setLog(previousLog + message);
-    if (jobsRepository != null) jobsRepository.save(job);
+    JobLogLine line =
+        JobLogLine.builder()
+            .jobId(job.getId())
+            .seq(nextSeq++)
+            .timestamp(ZonedDateTime.now())
+            .message(message)
+            .build();
+    pendingLines.add(line);
+    listener.accept(line);
+    if (pendingLines.size() >= flushMaxLines) {
+      flush();
+    } else {
+      flushIfDue();
+    }
+  }
+
+  /** Writes the pending lines if flushIntervalMs has passed since the last write. */
+  public synchronized void flushIfDue() {
+    if (System.currentTimeMillis() - lastFlushMillis >= flushIntervalMs) {
+      flush();
+    }
+  }
+
+  /** Writes all pending lines to the database as one batch. */
+  public synchronized void flush() {
+    lastFlushMillis = System.currentTimeMillis();
+    if (pendingLines.isEmpty()) {
+      return;
+    }
+    if (jobLogLinesRepository != null) jobLogLinesRepository.insertAll(List.copyOf(pendingLines));
+    pendingLines.clear();
+  }
+
+  /**
+   * Sets where progress is reported to.
+   *
+   * @param progressListener called with the current progress, at most once per progressIntervalMs
+   * @param progressIntervalMs minimum time between calls to progressListener
+   * @param progressWindowMs the rate is measured over this much recent time
+   */
+  public synchronized void reportProgressTo(
+      Consumer<JobProgress> progressListener, long progressIntervalMs, long progressWindowMs) {
+    this.progressListener = progressListener;
+    this.progressIntervalMs = progressIntervalMs;
+    this.progressWindowMs = progressWindowMs;
+  }
+
+  /**
+   * Sets the number of units of work the job will do.
+   *
+   * @param total number of units
+   */
+  public synchronized void setProgressTotal(long total) {
+    progressTotal = total;
+    progressChanged(System.currentTimeMillis());
+  }
+
+  /**
+   * Records that more units of work are done.
+   *
+   * @param units number of units just completed
+   */
+  public synchronized void addProgress(long units) {
+    setProgress(progressCompleted + units);
+  }
+
+  /**
+   * Records the number of units of work done so far.
+   *
+   * @param completed number of units completed
+   */
+  public synchronized void setProgress(long completed) {
+    setProgress(completed, System.currentTimeMillis());
+  }
+
+  synchronized void setProgress(long completed, long nowMillis) {
+    progressCompleted = completed;
+    progressSamples.addLast(new long[] {nowMillis, completed});
+    // keep one sample at or before the start of the window, so the rate spans the whole window
+    while (progressSamples.size() > 1) {
+      long[] first = progressSamples.removeFirst();
+      if (progressSamples.getFirst()[0] > nowMillis - progressWindowMs) {
+        progressSamples.addFirst(first);
+        break;
+      }
+    }
+    progressChanged(nowMillis);
+  }
+
+  private void progressChanged(long nowMillis) {
+    progressPending = true;
+    if (nowMillis - lastProgressReportMillis >= progressIntervalMs) {
+      reportProgress(nowMillis);
+    }
+  }
+
+  /**
+   * Returns the progress reported so far.
+   *
+   * @return the job's status, total and completed units, and recent rate
+   */
+  public synchronized JobProgress getProgress() {
+    return getProgress(System.currentTimeMillis());
+  }
+
+  synchronized JobProgress getProgress(long nowMillis) {
+    // the rate runs from the last sample at or before the start of the window up to now, so that
+    // it falls toward 0, and the ETA grows, while the job makes no progress
+    double rate = 0;
+    long[] from = progressSamples.peekFirst();
+    for (long[] sample : progressSamples) {
+      if (sample[0] > nowMillis - progressWindowMs) {
+        break;
+      }
+      from = sample;
+    }
+    if (from != null && nowMillis > from[0]) {
+      rate = (progressCompleted - from[1]) * 1000.0 / (nowMillis - from[0]);
+    }
+    return JobProgress.builder()
+        .status(job.getStatus())
+        .total(progressTotal)
+        .completed(progressCompleted)
+        .rate(rate)
+        .updatedAt(ZonedDateTime.now())
+        .build();
+  }
+
+  /** Reports progress not yet passed to the progress listener. */
+  public synchronized void flushProgress() {
+    if (progressPending) {
+      reportProgress(System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * Reports progress not yet passed to the progress listener, and, at most once per
+   * progressIntervalMs, reports again while the last rate reported is above 0, so that the rate of
+   * a job that has stopped making progress falls.
+   */
+  public synchronized void flushProgressIfDue() {
+    long now = System.currentTimeMillis();
+    if (progressPending
+        || (lastReportedRate > 0 && now - lastProgressReportMillis >= progressIntervalMs)) {
+      reportProgress(now);
+    }
+  }
+
+  private void reportProgress(long nowMillis) {
+    lastProgressReportMillis = nowMillis;
+    progressPending = false;
+    JobProgress progress = getProgress(nowMillis);
+    lastReportedRate = progress.getRate();
+    job.setProgressTotal(progress.getTotal());
+    job.setProgressCompleted(progress.getCompleted());
+    job.setProgressRate(progress.getRate());
+    job.setProgressUpdatedAt(progress.getUpdatedAt());
+    progressListener.accept(progress);
+  }
+
+  /**
+   * Sets where checkpoints are saved to.
+   *
+   * @param checkpointListener called with every checkpoint saved
+   */
+  public synchronized void checkpointTo(Consumer<String> checkpointListener) {
+    this.checkpointListener = checkpointListener;
+  }
+
+  /**
+   * Returns the last checkpoint saved by this job, including by an earlier attempt of it.
+   *
+   * @return the checkpoint, or null if the job has not saved one
+   */
+  public synchronized String getCheckpoint() {
+    return job.getCheckpoint();
+  }
+
+  /**
+   * Saves a checkpoint. Call it inside the transaction that writes the work the checkpoint covers,
+   * so that the work and the checkpoint are committed together.
+   *
+   * @param checkpoint the checkpoint
+   */
+  public synchronized void saveCheckpoint(String checkpoint) {
+    checkpointListener.accept(checkpoint);
+    job.setCheckpoint(checkpoint);
+  }
+
+  /**
+   * Throws if the job has been cancelled; long-running jobs that rarely log can call this in their
+   * loops.
+   *
+   * @throws JobCancelledException if the job has been cancelled or has timed out
+   */
+  public void checkCancelled() {
+    String status = cancelStatus;
+    if (status != null) {
+      throw new JobCancelledException(status);
+    }
+  }
+
+  /**
+   * Returns the status the job was stopped with.
+   *
+   * @return "cancelled" or "timed_out", or null if the job has not been stopped
+   */
+  public String getCancelStatus() {
+    return cancelStatus;
+  }
+
+  /**
+   * Stops the job: interrupts the thread running it and makes later log calls throw.
+   *
+   * @param status the status the job should end with, e.g. "cancelled" or "timed_out"
+   */
+  public synchronized void cancel(String status) {
+    if (cancelStatus != null) {
+      return;
+    }
+    cancelStatus = status;
+    if (worker != null) {
+      worker.interrupt();
+    }
+  }
+
+  /**
+   * Returns how long the job has been running.
+   *
+   * @param nowMillis the current time
+   * @return milliseconds since the context was created
+   */
+  long runningMillis(long nowMillis) {
+    return nowMillis - startedMillis;
+  }
+
+  /**
+   * Records the thread running the job, so that cancel can interrupt it; pass null once the job has
+   * finished. Detaching clears any interrupt left over from a cancel, since the thread goes back to
+   * the executor.
+   *
+   * @param thread the thread running the job, or null
+   */
+  synchronized void runOn(Thread thread) {
+    if (thread == null && worker != null) {
+      Thread.interrupted();
+    }
+    worker = thread;
   }
 }
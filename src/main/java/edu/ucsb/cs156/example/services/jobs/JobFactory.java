@@ -0,0 +1,103 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.jobs.NormalizeMenuItemReviewsJob;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Converts jobs to and from a job type name and JSON parameters, so that a job can be stored in the
+ * jobs table and started later, possibly on another node.
+ *
+ * <p>Every job that may be queued must be listed in JOB_TYPES and be (de)serializable by Jackson.
+ * Jobs that need beans, such as repositories, declare them as @Autowired fields marked @JsonIgnore;
+ * they are injected by {@link #autowire(JobContextConsumer)} before the job runs.
+ */
+@Service
+public class JobFactory {
+  static final Map<String, Class<? extends JobContextConsumer>> JOB_TYPES =
+      Map.of(
+          "TestJob",
+          TestJob.class,
+          "NormalizeMenuItemReviewsJob",
+          NormalizeMenuItemReviewsJob.class);
+
+  @Autowired ObjectMapper mapper;
+
+  @Autowired AutowireCapableBeanFactory beanFactory;
+
+  /**
+   * This method returns whether a job is of a registered job type, i.e. whether it can be stored
+   * and recreated.
+   *
+   * @param jobFunction the job
+   * @return true if the job type is registered
+   */
+  public boolean isRegistered(JobContextConsumer jobFunction) {
+    return JOB_TYPES.containsKey(jobFunction.getClass().getSimpleName());
+  }
+
+  /**
+   * This method returns the job type name of a job.
+   *
+   * @param jobFunction the job
+   * @return the job type name
+   * @throws IllegalArgumentException if the job type is not registered
+   */
+  public String typeOf(JobContextConsumer jobFunction) {
+    String jobType = jobFunction.getClass().getSimpleName();
+    if (!JOB_TYPES.containsKey(jobType)) {
+      throw new IllegalArgumentException("Unknown job type " + jobType);
+    }
+    return jobType;
+  }
+
+  /**
+   * This method serializes the parameters of a job.
+   *
+   * @param jobFunction the job
+   * @return the job parameters as JSON
+   * @throws IllegalArgumentException if the job cannot be serialized
+   */
+  public String parametersOf(JobContextConsumer jobFunction) {
+    try {
+      return mapper.writeValueAsString(jobFunction);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Cannot serialize job " + typeOf(jobFunction), e);
+    }
+  }
+
+  /**
+   * This method recreates a job from its type name and parameters.
+   *
+   * @param jobType the job type name
+   * @param parameters the job parameters as JSON
+   * @return the job
+   * @throws IllegalArgumentException if the job type is not registered or the parameters cannot be
+   *     deserialized
+   */
+  public JobContextConsumer create(String jobType, String parameters) {
+    Class<? extends JobContextConsumer> jobClass = JOB_TYPES.get(jobType);
+    if (jobClass == null) {
+      throw new IllegalArgumentException("Unknown job type " + jobType);
+    }
+    try {
+      return mapper.readValue(parameters, jobClass);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Cannot read parameters of job type " + jobType, e);
+    }
+  }
+
+  /**
+   * This method injects the @Autowired fields of a job.
+   *
+   * @param jobFunction the job
+   */
+  public void autowire(JobContextConsumer jobFunction) {
+    beanFactory.autowireBean(jobFunction);
+  }
+}
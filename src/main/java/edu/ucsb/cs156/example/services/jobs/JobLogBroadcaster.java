@@ -0,0 +1,426 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Sends the log lines of jobs to Server-Sent Events subscribers.
+ *
+ * <p>Every line is sent as an event whose id is the seq of the line, so a client that reconnects
+ * with a Last-Event-ID header only receives the lines it has not seen. When the job has finished an
+ * "end" event carrying the job status is sent and the stream is closed.
+ *
+ * <p>While a job is running its most recent lines are kept in memory and new lines are pushed to
+ * all of its subscribers as they are logged, so watchers of a running job only read the database
+ * once, for the lines older than that buffer. The buffer (app.jobs.logStreamBufferLines) must hold
+ * at least app.jobs.logFlushMaxLines lines, so that every line is either in the buffer or already
+ * written to the database.
+ *
+ * <p>Pushed lines are queued per subscriber and sent on the log stream executor, never on the job's
+ * thread. A subscriber that falls app.jobs.logStreamSubscriberQueueLines lines behind has its
+ * stream closed without an "end" event; its client reconnects and catches up from the database.
+ *
+ * <p>Watchers of a job that is not running on this node, e.g. one queued or running on another
+ * node, are sent its saved lines every app.jobs.logStreamPollIntervalMs until it has finished.
+ */
+@Service
+@Slf4j
+public class JobLogBroadcaster {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired
+  @Qualifier("logStreamExecutor")
+  private Executor logStreamExecutor;
+
+  @Value("${app.jobs.logStreamBufferLines:1000}")
+  private int bufferLines;
+
+  @Value("${app.jobs.logStreamSubscriberQueueLines:1000}")
+  private int subscriberQueueLines;
+
+  @Value("${app.jobs.logStreamTimeoutMs:1800000}")
+  private long timeoutMs;
+
+  @Value("${app.jobs.logStreamPollIntervalMs:1000}")
+  private long pollIntervalMs;
+
+  /** Only times polls; the polls themselves run on the log stream executor. */
+  private TaskScheduler pollScheduler;
+
+  private final Map<Long, JobLogStream> streams = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  void startPollScheduler() {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setThreadNamePrefix("log-stream-poll-");
+    scheduler.setDaemon(true);
+    scheduler.initialize();
+    pollScheduler = scheduler;
+  }
+
+  @PreDestroy
+  void stopPollScheduler() {
+    if (pollScheduler instanceof ThreadPoolTaskScheduler scheduler) {
+      scheduler.shutdown();
+    }
+  }
+
+  /**
+   * Starts buffering and pushing the lines of a job that is about to run.
+   *
+   * @param jobId id of the job
+   */
+  public void open(long jobId) {
+    streams.put(jobId, new JobLogStream(bufferLines, subscriberQueueLines, logStreamExecutor));
+  }
+
+  /**
+   * Pushes a line to the subscribers of its job. Only queues the line, so it never waits for a
+   * client.
+   *
+   * @param line the line that was just logged
+   */
+  public void publish(JobLogLine line) {
+    JobLogStream stream = streams.get(line.getJobId());
+    if (stream != null) {
+      stream.publish(line);
+    }
+  }
+
+  /**
+   * Ends the streams of a finished job. Must be called after its lines and status are saved.
+   *
+   * @param jobId id of the job
+   * @param status final status of the job
+   */
+  public void close(long jobId, String status) {
+    JobLogStream stream = streams.remove(jobId);
+    if (stream != null) {
+      stream.close(status);
+    }
+  }
+
+  /**
+   * Opens a stream of the lines of a job.
+   *
+   * @param jobId id of the job
+   * @param lastSeq seq of the last line the client has already received, -1 for none
+   * @return the emitter the lines are sent to
+   */
+  public SseEmitter subscribe(long jobId, int lastSeq) {
+    SseEmitter emitter = new SseEmitter(timeoutMs);
+    emitter.onTimeout(emitter::complete);
+    attach(emitter, jobId, lastSeq);
+    return emitter;
+  }
+
+  void attach(SseEmitter emitter, long jobId, int lastSeq) {
+    LogPoll poll = new LogPoll(emitter, jobId, lastSeq);
+    emitter.onCompletion(poll::stop);
+    poll.run();
+  }
+
+  /**
+   * Sends the saved lines of a job to one subscriber until the job has finished, or until it starts
+   * running on this node and the subscriber can be pushed its lines instead.
+   */
+  private class LogPoll implements Runnable {
+    private final SseEmitter emitter;
+    private final long jobId;
+    private int lastSeq;
+    private volatile boolean stopped;
+    private volatile ScheduledFuture<?> next;
+
+    LogPoll(SseEmitter emitter, long jobId, int lastSeq) {
+      this.emitter = emitter;
+      this.jobId = jobId;
+      this.lastSeq = lastSeq;
+    }
+
+    @Override
+    public synchronized void run() {
+      if (stopped) {
+        return;
+      }
+      try {
+        lastSeq =
+            sendLines(
+                emitter,
+                jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(jobId, lastSeq),
+                lastSeq);
+        JobLogStream stream = streams.get(jobId);
+        if (stream != null && stream.subscribe(emitter, lastSeq)) {
+          return;
+        }
+        // a job saves its lines before its status, so once the status read here is final, every
+        // line is saved
+        String status = jobsRepository.findById(jobId).map(Job::getStatus).orElse("deleted");
+        lastSeq =
+            sendLines(
+                emitter,
+                jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(jobId, lastSeq),
+                lastSeq);
+        if ("deleted".equals(status) || Job.TERMINAL_STATUSES.contains(status)) {
+          sendEnd(emitter, status);
+          emitter.complete();
+          return;
+        }
+        next =
+            pollScheduler.schedule(this::runOnExecutor, Instant.now().plusMillis(pollIntervalMs));
+      } catch (IOException | IllegalStateException e) {
+        log.debug("Log stream of job {} closed: {}", jobId, e.getMessage());
+        emitter.completeWithError(e);
+      }
+    }
+
+    private void runOnExecutor() {
+      try {
+        logStreamExecutor.execute(this);
+      } catch (RejectedExecutionException e) {
+        // the client reconnects and is polled again
+        emitter.complete();
+      }
+    }
+
+    void stop() {
+      stopped = true;
+      ScheduledFuture<?> scheduled = next;
+      if (scheduled != null) {
+        scheduled.cancel(false);
+      }
+    }
+  }
+
+  static int sendLines(SseEmitter emitter, Iterable<JobLogLine> lines, int lastSeq)
+      throws IOException {
+    for (JobLogLine line : lines) {
+      if (line.getSeq() > lastSeq) {
+        sendLine(emitter, line);
+        lastSeq = line.getSeq();
+      }
+    }
+    return lastSeq;
+  }
+
+  static void sendLine(SseEmitter emitter, JobLogLine line) throws IOException {
+    SseEmitter.SseEventBuilder event = SseEmitter.event().id(String.valueOf(line.getSeq()));
+    // a data field cannot contain a line break; the client joins consecutive data fields with \n
+    for (String part : String.valueOf(line.getMessage()).split("\n", -1)) {
+      event.data(part);
+    }
+    emitter.send(event);
+  }
+
+  static void sendEnd(SseEmitter emitter, String status) throws IOException {
+    emitter.send(SseEmitter.event().name("end").data(String.valueOf(status)));
+  }
+
+  /** The buffered lines and subscribers of one running job. */
+  static class JobLogStream {
+    private final int capacity;
+    private final int subscriberCapacity;
+    private final Executor executor;
+    private final Deque<JobLogLine> recentLines = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private boolean closed;
+
+    JobLogStream(int capacity, int subscriberCapacity, Executor executor) {
+      this.capacity = capacity;
+      this.subscriberCapacity = subscriberCapacity;
+      this.executor = executor;
+    }
+
+    synchronized void publish(JobLogLine line) {
+      if (recentLines.size() >= capacity) {
+        recentLines.removeFirst();
+      }
+      recentLines.addLast(line);
+      for (Subscriber subscriber : List.copyOf(subscribers)) {
+        if (!subscriber.offer(line)) {
+          subscribers.remove(subscriber);
+        }
+      }
+    }
+
+    synchronized boolean subscribe(SseEmitter emitter, int lastSeq) {
+      if (closed) {
+        return false;
+      }
+      Subscriber subscriber =
+          new Subscriber(emitter, subscriberCapacity, executor, () -> unsubscribe(emitter));
+      for (JobLogLine line : recentLines) {
+        if (line.getSeq() > lastSeq && !subscriber.offer(line)) {
+          return true;
+        }
+      }
+      subscribers.add(subscriber);
+      emitter.onCompletion(() -> unsubscribe(emitter));
+      return true;
+    }
+
+    synchronized void unsubscribe(SseEmitter emitter) {
+      subscribers.removeIf(subscriber -> subscriber.emitter == emitter);
+    }
+
+    synchronized void close(String status) {
+      closed = true;
+      for (Subscriber subscriber : List.copyOf(subscribers)) {
+        subscriber.end(status);
+      }
+      subscribers.clear();
+    }
+
+    synchronized int subscriberCount() {
+      return subscribers.size();
+    }
+  }
+
+  /**
+   * One subscriber of a running job, with the lines not yet sent to it. The lines are sent by a
+   * task on the executor that runs while there are lines to send, so the thread publishing them
+   * only ever queues them.
+   */
+  static class Subscriber {
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final Executor executor;
+    private final Runnable onClosed;
+    private final Deque<JobLogLine> pending = new ArrayDeque<>();
+    private String endStatus;
+    private boolean sending;
+    private boolean dropped;
+    private boolean closed;
+
+    Subscriber(SseEmitter emitter, int capacity, Executor executor, Runnable onClosed) {
+      this.emitter = emitter;
+      this.capacity = Math.max(1, capacity);
+      this.executor = executor;
+      this.onClosed = onClosed;
+    }
+
+    /**
+     * Queues a line.
+     *
+     * @param line the line
+     * @return false if the subscriber is closed, or has fallen too far behind and is being closed
+     */
+    boolean offer(JobLogLine line) {
+      synchronized (this) {
+        if (closed || endStatus != null) {
+          return false;
+        }
+        if (pending.size() >= capacity) {
+          // the sending task, which is still busy with this subscriber, completes the emitter
+          dropped = true;
+          closed = true;
+          pending.clear();
+          return false;
+        }
+        pending.addLast(line);
+        if (sending) {
+          return true;
+        }
+        sending = true;
+      }
+      return startSending();
+    }
+
+    /**
+     * Queues the "end" event, after which the emitter is completed.
+     *
+     * @param status final status of the job
+     */
+    void end(String status) {
+      synchronized (this) {
+        if (closed || endStatus != null) {
+          return;
+        }
+        endStatus = status;
+        if (sending) {
+          return;
+        }
+        sending = true;
+      }
+      startSending();
+    }
+
+    private boolean startSending() {
+      try {
+        executor.execute(this::send);
+        return true;
+      } catch (RejectedExecutionException e) {
+        // nothing is being sent, so completing the emitter here cannot wait on a client
+        synchronized (this) {
+          closed = true;
+          sending = false;
+          pending.clear();
+        }
+        emitter.complete();
+        onClosed.run();
+        return false;
+      }
+    }
+
+    private void send() {
+      while (true) {
+        JobLogLine line;
+        String status = null;
+        synchronized (this) {
+          line = dropped ? null : pending.pollFirst();
+          if (line == null) {
+            sending = false;
+            if (!dropped && endStatus == null) {
+              return;
+            }
+            closed = true;
+            status = dropped ? null : endStatus;
+          }
+        }
+        try {
+          if (line != null) {
+            sendLine(emitter, line);
+            continue;
+          }
+          if (status != null) {
+            sendEnd(emitter, status);
+          }
+          emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+          synchronized (this) {
+            closed = true;
+            sending = false;
+            pending.clear();
+          }
+          emitter.completeWithError(e);
+        }
+        onClosed.run();
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A pipeline of jobs: named stages, each of which starts once the stages it depends on have
+ * completed. Stages that do not depend on each other run concurrently on the job executor.
+ *
+ * <p>For example, an import followed by one aggregation per dining commons and a final publish:
+ *
+ * <pre>
+ * new JobPipeline()
+ *     .stage("import", importJob)
+ *     .stage("aggregate-dlg", aggregateDlg, "import")
+ *     .stage("aggregate-ortega", aggregateOrtega, "import")
+ *     .stage("publish", publishJob, "aggregate-dlg", "aggregate-ortega");
+ * </pre>
+ *
+ * See {@link JobService#runPipeline(JobPipeline)}.
+ */
+public class JobPipeline {
+
+  /** A stage of a pipeline. */
+  @Getter
+  @AllArgsConstructor
+  public static class Stage {
+    private final String name;
+    private final JobContextConsumer jobFunction;
+    private final List<String> dependsOn;
+  }
+
+  private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+  /**
+   * Adds a stage.
+   *
+   * @param name name of the stage, unique within the pipeline
+   * @param jobFunction the job the stage runs
+   * @param dependsOn names of the stages that must complete before this one starts
+   * @return this pipeline
+   * @throws IllegalArgumentException if the pipeline already has a stage with this name
+   */
+  public JobPipeline stage(String name, JobContextConsumer jobFunction, String... dependsOn) {
+    if (stages.containsKey(name)) {
+      throw new IllegalArgumentException("Duplicate stage " + name);
+    }
+    stages.put(
+        name, new Stage(name, jobFunction, List.copyOf(new LinkedHashSet<>(List.of(dependsOn)))));
+    return this;
+  }
+
+  /**
+   * Returns the stages so that every stage comes after the stages it depends on.
+   *
+   * @return the stages in dependency order
+   * @throws IllegalArgumentException if the pipeline is empty, a stage depends on an unknown stage,
+   *     or the dependencies form a cycle
+   */
+  public List<Stage> inDependencyOrder() {
+    if (stages.isEmpty()) {
+      throw new IllegalArgumentException("Pipeline has no stages");
+    }
+    Map<String, Integer> unresolved = new LinkedHashMap<>();
+    for (Stage stage : stages.values()) {
+      for (String dependency : stage.getDependsOn()) {
+        if (!stages.containsKey(dependency)) {
+          throw new IllegalArgumentException(
+              "Stage " + stage.getName() + " depends on unknown stage " + dependency);
+        }
+      }
+      unresolved.put(stage.getName(), stage.getDependsOn().size());
+    }
+
+    List<Stage> ordered = new ArrayList<>();
+    addReady(unresolved, ordered);
+    for (int i = 0; i < ordered.size(); i++) {
+      String done = ordered.get(i).getName();
+      for (Stage stage : stages.values()) {
+        if (stage.getDependsOn().contains(done)) {
+          unresolved.computeIfPresent(stage.getName(), (name, count) -> count - 1);
+        }
+      }
+      addReady(unresolved, ordered);
+    }
+    if (ordered.size() < stages.size()) {
+      throw new IllegalArgumentException(
+          "Pipeline stages " + unresolved.keySet() + " form a cycle");
+    }
+    return ordered;
+  }
+
+  private void addReady(Map<String, Integer> unresolved, List<Stage> ordered) {
+    unresolved
+        .entrySet()
+        .removeIf(
+            entry -> {
+              if (entry.getValue() > 0) {
+                return false;
+              }
+              ordered.add(stages.get(entry.getKey()));
+              return true;
+            });
+  }
+}
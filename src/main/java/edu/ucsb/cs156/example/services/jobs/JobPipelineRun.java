@@ -0,0 +1,193 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * The state of a running pipeline on this node: which stages have finished and which are waiting.
+ * Stages report back through {@link #stageFinished(Job)} from the executor threads that ran them;
+ * every method is synchronized, so stages finishing at the same time see a consistent state.
+ *
+ * <p>When a stage completes, the stages waiting only on it are launched. When a stage fails, is
+ * cancelled, or is rejected by the job executor, the stages that depend on it, directly or not, are
+ * marked "skipped". The pipeline's own job is "complete" once all stages complete, "cancelled" if
+ * it was cancelled, and "error" otherwise.
+ */
+@Slf4j
+class JobPipelineRun {
+  private final Job pipelineJob;
+  private final JobContext pipelineContext;
+  private final List<JobPipeline.Stage> stages;
+  private final Map<String, Job> stageJobs;
+  private final Map<String, Integer> waitingOn = new HashMap<>();
+  private final JobsRepository jobsRepository;
+  private final JobService jobService;
+  private int finished;
+  private boolean cancelled;
+  private boolean done;
+
+  /**
+   * @param pipelineJob the saved job of the pipeline
+   * @param pipelineContext context used to write the pipeline job's log
+   * @param stages the stages in dependency order
+   * @param stageJobs the saved "pending" job of every stage, by stage name
+   * @param jobsRepository repository used to save status changes
+   * @param jobService service (proxy) used to launch and cancel stage jobs
+   */
+  JobPipelineRun(
+      Job pipelineJob,
+      JobContext pipelineContext,
+      List<JobPipeline.Stage> stages,
+      Map<String, Job> stageJobs,
+      JobsRepository jobsRepository,
+      JobService jobService) {
+    this.pipelineJob = pipelineJob;
+    this.pipelineContext = pipelineContext;
+    this.stages = stages;
+    this.stageJobs = stageJobs;
+    this.jobsRepository = jobsRepository;
+    this.jobService = jobService;
+    stages.forEach(stage -> waitingOn.put(stage.getName(), stage.getDependsOn().size()));
+  }
+
+  Job getPipelineJob() {
+    return pipelineJob;
+  }
+
+  /**
+   * Launches the stages that depend on no other stage.
+   *
+   * @return true if the pipeline has already finished, i.e. every stage was rejected
+   */
+  synchronized boolean start() {
+    pipelineContext.append("Pipeline started with %d stages".formatted(stages.size()));
+    for (JobPipeline.Stage stage : stages) {
+      if (stage.getDependsOn().isEmpty()) {
+        launch(stage);
+      }
+    }
+    return finishIfDone();
+  }
+
+  /**
+   * Records that a stage job has finished, and launches or skips the stages that depend on it.
+   *
+   * @param stageJob the job of the stage, with its final status
+   * @return true if this was the last stage to finish
+   */
+  synchronized boolean stageFinished(Job stageJob) {
+    recordFinished(stageJob);
+    return finishIfDone();
+  }
+
+  /**
+   * Cancels the pipeline: stages that have not started are marked "cancelled" and stages running on
+   * this node are interrupted.
+   *
+   * @return true if the pipeline has finished, i.e. no stage was running
+   */
+  synchronized boolean cancel() {
+    cancelled = true;
+    for (JobPipeline.Stage stage : stages) {
+      Job stageJob = stageJobs.get(stage.getName());
+      if ("pending".equals(stageJob.getStatus())) {
+        stageJob.setStatus("cancelled");
+        jobsRepository.save(stageJob);
+        finished++;
+      } else if ("running".equals(stageJob.getStatus())) {
+        jobService.cancelLocal(stageJob.getId());
+      }
+    }
+    return finishIfDone();
+  }
+
+  private void recordFinished(Job stageJob) {
+    String name = stageJob.getStage();
+    finished++;
+    pipelineContext.append("Stage %s %s".formatted(name, stageJob.getStatus()));
+    boolean complete = "complete".equals(stageJob.getStatus());
+    for (JobPipeline.Stage stage : stages) {
+      if (!stage.getDependsOn().contains(name)) {
+        continue;
+      }
+      if (!complete) {
+        skip(stage);
+      } else if (waitingOn.merge(stage.getName(), -1, Integer::sum) == 0 && !cancelled) {
+        launch(stage);
+      }
+    }
+  }
+
+  private void launch(JobPipeline.Stage stage) {
+    Job stageJob = stageJobs.get(stage.getName());
+    stageJob.setStatus("running");
+    stageJob.setHeartbeatAt(ZonedDateTime.now());
+    jobsRepository.save(stageJob);
+    try {
+      jobService.submit(stageJob, stage.getJobFunction());
+    } catch (TaskRejectedException e) {
+      log.warn("Stage {} of pipeline {} rejected", stage.getName(), pipelineJob.getId());
+      stageJob.setStatus("rejected");
+      jobsRepository.save(stageJob);
+      recordFinished(stageJob);
+    }
+  }
+
+  private void skip(JobPipeline.Stage stage) {
+    Job stageJob = stageJobs.get(stage.getName());
+    if (!"pending".equals(stageJob.getStatus())) {
+      return;
+    }
+    stageJob.setStatus("skipped");
+    jobsRepository.save(stageJob);
+    recordFinished(stageJob);
+  }
+
+  /**
+   * Stores the pipeline's progress, and its final status once every stage has finished. The status
+   * is written only while the pipeline's job is still running on this node, so a job given up on by
+   * another node is not overwritten.
+   *
+   * @return true if every stage has finished and the pipeline job was not already finished
+   */
+  private boolean finishIfDone() {
+    pipelineJob.setProgressCompleted((long) finished);
+    pipelineJob.setProgressUpdatedAt(ZonedDateTime.now());
+    jobsRepository.updateProgress(
+        pipelineJob.getId(),
+        pipelineJob.getProgressTotal(),
+        pipelineJob.getProgressCompleted(),
+        null,
+        pipelineJob.getProgressUpdatedAt());
+    if (finished < stages.size() || done) {
+      return false;
+    }
+    done = true;
+    boolean allComplete =
+        stageJobs.values().stream().allMatch(job -> "complete".equals(job.getStatus()));
+    pipelineJob.setStatus(allComplete ? "complete" : cancelled ? "cancelled" : "error");
+    pipelineContext.append("Pipeline " + pipelineJob.getStatus());
+    pipelineContext.flush();
+    int updated =
+        jobsRepository.finishAttempt(
+            pipelineJob.getId(),
+            pipelineJob.getClaimedBy(),
+            pipelineJob.getAttempts(),
+            pipelineJob.getStatus(),
+            ZonedDateTime.now());
+    if (updated == 0) {
+      log.warn(
+          "Pipeline {} is no longer running on {}, not marking it {}",
+          pipelineJob.getId(),
+          pipelineJob.getClaimedBy(),
+          pipelineJob.getStatus());
+    }
+    return true;
+  }
+}
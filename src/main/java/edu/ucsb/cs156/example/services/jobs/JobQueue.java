@@ -0,0 +1,107 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.sql.DatabaseMetaData;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The persistent job queue, stored in the jobs table.
+ *
+ * <p>Queued jobs have status "queued". A node claims a job by locking its row with SELECT ... FOR
+ * UPDATE SKIP LOCKED and setting status "running" and claimedBy, so concurrent nodes never claim
+ * the same job. While a job runs its node keeps heartbeatAt current; jobs whose node stops
+ * heartbeating are put back on the queue. Jobs launched in-process are claimed by their node when
+ * they are saved, and are marked as errored once their node stops heartbeating.
+ *
+ * <p>On PostgreSQL jobs are claimed oldest first, by queuedAt and id. On H2, which would lock every
+ * queued row to sort them, they are claimed in index order, which is only roughly oldest first.
+ */
+@Service
+public class JobQueue {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private DataSource dataSource;
+
+  private Boolean postgres;
+
+  /**
+   * This method claims up to limit queued jobs for the given node.
+   *
+   * @param nodeId id of the claiming node
+   * @param limit maximum number of jobs to claim
+   * @return the claimed jobs
+   */
+  @Transactional
+  public List<Job> claim(String nodeId, int limit) {
+    List<Job> jobs =
+        postgres()
+            ? jobsRepository.findOldestQueuedForUpdateSkipLocked(limit)
+            : jobsRepository.findQueuedForUpdateSkipLocked(limit);
+    ZonedDateTime now = ZonedDateTime.now();
+    for (Job job : jobs) {
+      job.setStatus("running");
+      job.setClaimedBy(nodeId);
+      job.setHeartbeatAt(now);
+      job.setAttempts(job.getAttempts() + 1);
+    }
+    jobsRepository.saveAll(jobs);
+    return jobs;
+  }
+
+  /**
+   * This method records a heartbeat for the running jobs claimed by the given node.
+   *
+   * @param nodeId id of the node
+   * @return the number of jobs updated
+   */
+  public int heartbeat(String nodeId) {
+    return jobsRepository.updateHeartbeats(nodeId, ZonedDateTime.now());
+  }
+
+  /**
+   * This method puts jobs whose node has not sent a heartbeat within staleAfterMs back on the
+   * queue, or marks them as errored once they have been attempted maxAttempts times or if they were
+   * launched in-process.
+   *
+   * @param staleAfterMs age after which a heartbeat is stale
+   * @param maxAttempts maximum number of attempts per job
+   * @return the number of jobs requeued
+   */
+  public int reclaimStale(long staleAfterMs, int maxAttempts) {
+    ZonedDateTime staleBefore = ZonedDateTime.now().minus(Duration.ofMillis(staleAfterMs));
+    jobsRepository.failStale(staleBefore, maxAttempts);
+    return jobsRepository.requeueStale(staleBefore, maxAttempts);
+  }
+
+  /**
+   * This method returns the running jobs of the given node that have been asked to cancel.
+   *
+   * @param nodeId id of the node
+   * @return ids of the jobs to cancel
+   */
+  public List<Long> cancelRequested(String nodeId) {
+    return jobsRepository.findCancelRequested(nodeId);
+  }
+
+  private boolean postgres() {
+    if (postgres == null) {
+      try {
+        String product =
+            JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        postgres = "PostgreSQL".equals(product);
+      } catch (MetaDataAccessException e) {
+        throw new IllegalStateException("Cannot determine the database product", e);
+      }
+    }
+    return postgres;
+  }
+}
@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs jobs from the persistent job queue on this node, and keeps the heartbeats of the jobs
+ * running on this node current. Only nodes with app.jobs.persistentQueue set to true claim queued
+ * jobs. Jobs launched in-process are claimed by the node that launched them, so every node
+ * heartbeats its jobs and gives up on jobs whose node has stopped heartbeating, whatever the mode.
+ *
+ * <p>Heartbeats and reclaims run on a scheduler thread of their own, so that a long task on the
+ * shared scheduler, such as a retention sweep, cannot hold back a heartbeat until other nodes take
+ * this node's jobs for stale.
+ */
+@Slf4j
+@Service
+public class JobQueueWorker {
+  @Autowired private JobQueue jobQueue;
+
+  @Autowired private JobService jobService;
+
+  @Autowired
+  @Qualifier("jobExecutor")
+  private ThreadPoolTaskExecutor jobExecutor;
+
+  @Value("${app.jobs.persistentQueue:false}")
+  private boolean persistentQueue;
+
+  @Value("#{jobNodeId}")
+  private String nodeId;
+
+  @Value("${app.jobs.heartbeatIntervalMs:10000}")
+  private long heartbeatIntervalMs;
+
+  @Value("${app.jobs.staleHeartbeatMs:60000}")
+  private long staleHeartbeatMs;
+
+  @Value("${app.jobs.maxAttempts:3}")
+  private int maxAttempts;
+
+  private ThreadPoolTaskScheduler heartbeatScheduler;
+
+  @PostConstruct
+  void startHeartbeatScheduler() {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setThreadNamePrefix("job-heartbeat-");
+    scheduler.setDaemon(true);
+    scheduler.initialize();
+    Duration interval = Duration.ofMillis(heartbeatIntervalMs);
+    scheduler.scheduleWithFixedDelay(this::heartbeat, interval);
+    scheduler.scheduleWithFixedDelay(this::reclaimStaleJobs, interval);
+    heartbeatScheduler = scheduler;
+  }
+
+  @PreDestroy
+  void stopHeartbeatScheduler() {
+    if (heartbeatScheduler != null) {
+      heartbeatScheduler.shutdown();
+    }
+  }
+
+  /** Claims as many queued jobs as this node's job executor has free threads for. */
+  @Scheduled(fixedDelayString = "${app.jobs.queuePollIntervalMs:1000}")
+  public void pollQueue() {
+    if (!persistentQueue) {
+      return;
+    }
+    int freeThreads =
+        jobExecutor.getMaxPoolSize() - jobExecutor.getActiveCount() - jobExecutor.getQueueSize();
+    if (freeThreads <= 0) {
+      return;
+    }
+    for (Job job : jobQueue.claim(nodeId, freeThreads)) {
+      log.info("Node {} claimed job {} (attempt {})", nodeId, job.getId(), job.getAttempts());
+      jobService.runQueuedJob(job);
+    }
+  }
+
+  /**
+   * Records a heartbeat for the jobs running on this node, and cancels those that have been asked
+   * to cancel.
+   */
+  public void heartbeat() {
+    jobQueue.heartbeat(nodeId);
+    for (Long jobId : jobQueue.cancelRequested(nodeId)) {
+      log.info("Node {} cancelling job {} on request", nodeId, jobId);
+      jobService.cancelLocal(jobId);
+    }
+  }
+
+  /**
+   * Requeues jobs whose node has stopped sending heartbeats, or marks them as errored if they were
+   * launched in-process or have used up their attempts.
+   */
+  public void reclaimStaleJobs() {
+    int requeued = jobQueue.reclaimStale(staleHeartbeatMs, maxAttempts);
+    if (requeued > 0) {
+      log.warn("Requeued {} jobs with stale heartbeats", requeued);
+    }
+  }
+}
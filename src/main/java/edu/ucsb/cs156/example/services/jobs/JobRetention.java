@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobArchive;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import edu.ucsb.cs156.example.repositories.JobArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Removes old finished jobs, i.e. jobs with one of Job.TERMINAL_STATUSES, together with their log
+ * lines, from the jobs tables.
+ *
+ * <p>Each call handles one small batch in its own transaction, so row locks are only held briefly.
+ * Rows locked by another node are skipped. In archive mode each job's log is gzip-compressed into
+ * job_archives before the job is deleted.
+ */
+@Service
+public class JobRetention {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private JobArchivesRepository jobArchivesRepository;
+
+  /**
+   * This method deletes up to batchSize jobs last updated before cutoff.
+   *
+   * @param cutoff jobs last updated before this time are removed
+   * @param batchSize maximum number of jobs to remove
+   * @param archive whether to archive the jobs before deleting them
+   * @return what was removed
+   */
+  @Transactional
+  public JobRetentionReport sweepBatch(ZonedDateTime cutoff, int batchSize, boolean archive) {
+    List<Job> jobs =
+        jobsRepository.findExpiredForUpdateSkipLocked(Job.TERMINAL_STATUSES, cutoff, batchSize);
+    if (jobs.isEmpty()) {
+      return JobRetentionReport.builder().build();
+    }
+
+    List<Long> ids = jobs.stream().map(Job::getId).toList();
+    long logBytes = jobLogLinesRepository.sumMessageBytesByJobIdIn(ids);
+    long archivedBytes = 0;
+    for (Job job : jobs) {
+      if (job.getLog() != null) {
+        logBytes += job.getLog().getBytes(StandardCharsets.UTF_8).length;
+      }
+      if (archive) {
+        JobArchive jobArchive = jobArchivesRepository.save(archiveOf(job));
+        archivedBytes += jobArchive.getLogGzip().length;
+      }
+    }
+
+    int logLines = jobLogLinesRepository.deleteByJobIdIn(ids);
+    int deleted = jobsRepository.deleteByIdIn(ids);
+    return JobRetentionReport.builder()
+        .jobs(deleted)
+        .logLines(logLines)
+        .logBytes(logBytes)
+        .archivedBytes(archivedBytes)
+        .build();
+  }
+
+  private JobArchive archiveOf(Job job) {
+    List<String> lines = new ArrayList<>();
+    if (job.getLog() != null) {
+      lines.add(job.getLog());
+    }
+    for (JobLogLine line : jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(job.getId())) {
+      lines.add(line.getMessage());
+    }
+    byte[] log = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+
+    return JobArchive.builder()
+        .jobId(job.getId())
+        .createdById(job.getCreatedBy() == null ? null : job.getCreatedBy().getId())
+        .createdAt(job.getCreatedAt())
+        .updatedAt(job.getUpdatedAt())
+        .status(job.getStatus())
+        .archivedAt(ZonedDateTime.now())
+        .logBytes(log.length)
+        .logGzip(gzip(log))
+        .build();
+  }
+
+  static byte[] gzip(byte[] bytes) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+}
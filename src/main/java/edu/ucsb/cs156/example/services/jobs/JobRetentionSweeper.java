@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Periodically removes finished jobs, whatever their terminal status (see Job.TERMINAL_STATUSES),
+ * older than app.jobs.retentionDays. Only active when app.jobs.retentionEnabled is true.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.jobs.retentionEnabled", havingValue = "true")
+public class JobRetentionSweeper {
+  @Autowired private JobRetention jobRetention;
+
+  @Value("${app.jobs.retentionDays:30}")
+  private long retentionDays;
+
+  @Value("${app.jobs.retentionMode:archive}")
+  private String retentionMode;
+
+  @Value("${app.jobs.retentionBatchSize:100}")
+  private int retentionBatchSize;
+
+  @Value("${app.jobs.retentionMaxBatches:100}")
+  private int retentionMaxBatches;
+
+  /**
+   * Removes expired jobs one batch at a time, until a batch comes back short or retentionMaxBatches
+   * batches have run; the rest is left for the next sweep.
+   *
+   * @return what the sweep removed
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.retentionSweepIntervalMs:3600000}")
+  public JobRetentionReport sweep() {
+    ZonedDateTime cutoff = ZonedDateTime.now().minus(Duration.ofDays(retentionDays));
+    boolean archive = "archive".equals(retentionMode);
+
+    int jobs = 0;
+    int logLines = 0;
+    long logBytes = 0;
+    long archivedBytes = 0;
+    for (int batch = 0; batch < retentionMaxBatches; batch++) {
+      JobRetentionReport report = jobRetention.sweepBatch(cutoff, retentionBatchSize, archive);
+      jobs += report.getJobs();
+      logLines += report.getLogLines();
+      logBytes += report.getLogBytes();
+      archivedBytes += report.getArchivedBytes();
+      if (report.getJobs() < retentionBatchSize) {
+        break;
+      }
+    }
+
+    if (jobs > 0) {
+      log.info(
+          "Retention sweep removed {} jobs and {} log lines ({} bytes of log, {} bytes archived)",
+          jobs,
+          logLines,
+          logBytes,
+          archivedBytes);
+    }
+    return JobRetentionReport.builder()
+        .jobs(jobs)
+        .logLines(logLines)
+        .logBytes(logBytes)
+        .archivedBytes(archivedBytes)
+        .build();
+  }
+}
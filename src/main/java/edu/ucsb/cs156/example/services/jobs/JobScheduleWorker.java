@@ -0,0 +1,46 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.jobs.NormalizeMenuItemReviewsJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Registers the app's recurring jobs and fires the due ones from this node. Only active when
+ * app.jobs.schedulesEnabled is true; nodes running with that setting share the schedules, each run
+ * being fired by one of them.
+ */
+@Service
+@ConditionalOnProperty(name = "app.jobs.schedulesEnabled", havingValue = "true")
+public class JobScheduleWorker {
+  static final String NORMALIZE_MENU_ITEM_REVIEWS = "normalizeMenuItemReviews";
+
+  @Autowired private JobSchedules jobSchedules;
+
+  @Value("${app.jobs.normalizeMenuItemReviewsCron:" + Scheduled.CRON_DISABLED + "}")
+  private String normalizeMenuItemReviewsCron;
+
+  /**
+   * Registers the recurring jobs configured in application properties. A schedule whose cron
+   * expression is "-" is left as it is, so it can still be paused, resumed and triggered.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void registerSchedules() {
+    if (!Scheduled.CRON_DISABLED.equals(normalizeMenuItemReviewsCron)) {
+      jobSchedules.register(
+          NORMALIZE_MENU_ITEM_REVIEWS,
+          normalizeMenuItemReviewsCron,
+          NormalizeMenuItemReviewsJob.builder().build());
+    }
+  }
+
+  /** Fires the schedules that are due. */
+  @Scheduled(fixedDelayString = "${app.jobs.schedulePollIntervalMs:10000}")
+  public void fireDueSchedules() {
+    jobSchedules.fireDueSchedules();
+  }
+}
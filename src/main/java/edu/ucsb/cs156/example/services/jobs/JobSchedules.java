@@ -0,0 +1,178 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+/**
+ * The registry of recurring jobs.
+ *
+ * <p>Schedules are stored in the job_schedules table, so they survive restarts and are shared by
+ * all nodes. Every node polls for due schedules (see JobScheduleWorker), but a node only fires a
+ * schedule after taking its lease with a conditional UPDATE, so each run is launched once. A node
+ * that dies while holding a lease blocks the schedule only until the lease expires.
+ *
+ * <p>Runs are launched through {@link JobService#runAsJob(JobContextConsumer, String)} with the
+ * idempotency key "schedule:" + name, so a run that is due while the previous run is still going
+ * returns the previous run's job instead of starting a second copy.
+ */
+@Slf4j
+@Service
+public class JobSchedules {
+  static final String IDEMPOTENCY_KEY_PREFIX = "schedule:";
+
+  @Autowired private JobSchedulesRepository jobSchedulesRepository;
+
+  @Autowired private JobFactory jobFactory;
+
+  @Autowired private JobService jobService;
+
+  @Value("#{jobNodeId}")
+  private String nodeId;
+
+  @Value("${app.jobs.scheduleLeaseMs:300000}")
+  private long scheduleLeaseMs;
+
+  /**
+   * Creates a schedule, or updates the cron expression and job of the schedule with the same name.
+   * A paused schedule stays paused.
+   *
+   * @param name name of the schedule
+   * @param cron Spring cron expression
+   * @param jobFunction the job to launch; its type must be registered in JobFactory
+   * @return the schedule
+   * @throws IllegalArgumentException if the cron expression is invalid or the job type is not
+   *     registered
+   */
+  public JobSchedule register(String name, String cron, JobContextConsumer jobFunction) {
+    CronExpression cronExpression = CronExpression.parse(cron);
+    String jobType = jobFactory.typeOf(jobFunction);
+    String parameters = jobFactory.parametersOf(jobFunction);
+
+    Optional<JobSchedule> existing = jobSchedulesRepository.findByName(name);
+    JobSchedule schedule = existing.orElseGet(() -> JobSchedule.builder().name(name).build());
+    if (existing.isPresent()
+        && cron.equals(schedule.getCron())
+        && jobType.equals(schedule.getJobType())
+        && parameters.equals(schedule.getParameters())) {
+      return schedule;
+    }
+    if (!cron.equals(schedule.getCron())) {
+      schedule.setNextRunAt(cronExpression.next(ZonedDateTime.now()));
+    }
+    schedule.setCron(cron);
+    schedule.setJobType(jobType);
+    schedule.setParameters(parameters);
+    try {
+      return jobSchedulesRepository.save(schedule);
+    } catch (DataIntegrityViolationException e) {
+      // another node registered the same schedule at the same time
+      log.info("Schedule {} was registered concurrently", name);
+      return jobSchedulesRepository.findByName(name).orElseThrow(() -> e);
+    }
+  }
+
+  /**
+   * Pauses or resumes a schedule. A resumed schedule is next due at the first time its cron
+   * expression fires after now; runs missed while it was paused are skipped.
+   *
+   * @param id id of the schedule
+   * @param paused true to pause, false to resume
+   * @return the schedule
+   * @throws EntityNotFoundException if there is no schedule with the id
+   */
+  public JobSchedule setPaused(long id, boolean paused) {
+    JobSchedule schedule =
+        jobSchedulesRepository
+            .findById(id)
+            .orElseThrow(() -> new EntityNotFoundException(JobSchedule.class, id));
+    ZonedDateTime nextRunAt =
+        paused ? schedule.getNextRunAt() : nextRun(schedule, ZonedDateTime.now());
+    jobSchedulesRepository.updatePaused(id, paused, nextRunAt);
+    schedule.setPaused(paused);
+    schedule.setNextRunAt(nextRunAt);
+    return schedule;
+  }
+
+  /**
+   * Launches a schedule's job now, whether or not the schedule is paused or due. Its next run is
+   * not affected.
+   *
+   * @param id id of the schedule
+   * @return the job launched, or the schedule's previous job if it is still queued or running
+   * @throws EntityNotFoundException if there is no schedule with the id
+   */
+  public Job trigger(long id) {
+    JobSchedule schedule =
+        jobSchedulesRepository
+            .findById(id)
+            .orElseThrow(() -> new EntityNotFoundException(JobSchedule.class, id));
+    Job job = launch(schedule);
+    jobSchedulesRepository.recordRun(id, ZonedDateTime.now(), job.getId());
+    return job;
+  }
+
+  /**
+   * Fires the schedules that are due and whose lease this node gets.
+   *
+   * @return the number of jobs launched
+   */
+  public int fireDueSchedules() {
+    ZonedDateTime now = ZonedDateTime.now();
+    ZonedDateTime leaseUntil = now.plus(Duration.ofMillis(scheduleLeaseMs));
+    int launched = 0;
+    for (Long id : jobSchedulesRepository.findDueIds(now)) {
+      if (jobSchedulesRepository.acquireLease(id, nodeId, now, leaseUntil) == 0) {
+        continue;
+      }
+      Optional<JobSchedule> schedule = jobSchedulesRepository.findById(id);
+      if (schedule.isEmpty()) {
+        continue;
+      }
+      Long jobId = null;
+      try {
+        jobId = launch(schedule.get()).getId();
+        launched++;
+      } catch (RuntimeException e) {
+        log.error("Schedule {} could not launch its job", schedule.get().getName(), e);
+      } finally {
+        jobSchedulesRepository.completeRun(id, nodeId, nextRun(schedule.get(), now), now, jobId);
+      }
+    }
+    return launched;
+  }
+
+  private Job launch(JobSchedule schedule) {
+    JobContextConsumer jobFunction =
+        jobFactory.create(schedule.getJobType(), schedule.getParameters());
+    Job job = jobService.runAsJob(jobFunction, IDEMPOTENCY_KEY_PREFIX + schedule.getName());
+    if (Objects.equals(job.getId(), schedule.getLastJobId())) {
+      log.warn(
+          "Schedule {} is due but its job {} is still running", schedule.getName(), job.getId());
+    } else {
+      log.info("Schedule {} launched job {}", schedule.getName(), job.getId());
+    }
+    return job;
+  }
+
+  private static ZonedDateTime nextRun(JobSchedule schedule, ZonedDateTime after) {
+    try {
+      return CronExpression.parse(schedule.getCron()).next(after);
+    } catch (IllegalArgumentException e) {
+      log.error(
+          "Schedule {} has an invalid cron expression {}", schedule.getName(), schedule.getCron());
+      return null;
+    }
+  }
+}
@@ -1,53 +1,601 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.IdempotencyKeyConflictException;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.models.JobLogSlice;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
 @Service
+@Slf4j
 public class JobService {
   @Autowired private JobsRepository jobsRepository;
 
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
   @Autowired private CurrentUserService currentUserService;
 
+  @Autowired private JobFactory jobFactory;
+
+  @Autowired private JobLogBroadcaster jobLogBroadcaster;
+
   @Lazy @Autowired private JobService self;
 
+  @Autowired
+  @Qualifier("jobExecutor")
+  private ThreadPoolTaskExecutor jobExecutor;
+
+  @Value("${app.jobs.logFlushMaxLines:1}")
+  private int logFlushMaxLines;
+
+  @Value("${app.jobs.logFlushIntervalMs:1000}")
+  private long logFlushIntervalMs;
+
+  @Value("${app.jobs.progressIntervalMs:1000}")
+  private long progressIntervalMs;
+
+  @Value("${app.jobs.progressWindowMs:10000}")
+  private long progressWindowMs;
+
+  @Value("${app.jobs.timeoutMs:0}")
+  private long timeoutMs;
+
+  @Value("${app.jobs.persistentQueue:false}")
+  private boolean persistentQueue;
+
+  @Value("#{jobNodeId}")
+  private String nodeId;
+
+  private final Map<Long, JobContext> runningContexts = new ConcurrentHashMap<>();
+
+  /** Jobs submitted to the job executor that have not started yet, and whether to cancel them. */
+  private final Map<Long, Boolean> waitingJobs = new ConcurrentHashMap<>();
+
+  private final Map<Long, JobPipelineRun> pipelineRuns = new ConcurrentHashMap<>();
+
   public Job runAsJob(JobContextConsumer jobFunction) {
-    Job job = Job.builder().createdBy(currentUserService.getUser()).status("running").build();
+    return runAsJob(jobFunction, null);
+  }
+
+  /**
+   * Launches a job, unless a job launched with the same idempotency key is still queued or running.
+   *
+   * <p>Jobs launched with a key store their type and parameters, and the jobs table has a unique
+   * index on the key of queued and running jobs, so that launches racing each other on different
+   * nodes end up with one job. A key can be reused once its job has finished.
+   *
+   * @param jobFunction the job to run
+   * @param idempotencyKey the idempotency key, or null to always launch a new job
+   * @return the new job, or the queued or running job with the same key
+   * @throws IdempotencyKeyConflictException if the queued or running job with the same key has a
+   *     different type or different parameters
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, String idempotencyKey) {
+    Job job = persistentQueue ? newQueuedJob(jobFunction) : newInProcessJob(jobFunction);
+
+    if (idempotencyKey == null) {
+      jobsRepository.save(job);
+    } else {
+      job.setIdempotencyKey(idempotencyKey);
+      job.setJobType(jobFactory.typeOf(jobFunction));
+      job.setParameters(jobFactory.parametersOf(jobFunction));
+      Optional<Job> active = saveUnlessKeyActive(job);
+      if (active.isPresent()) {
+        log.info(
+            "Job launch with key {} coalesced into job {}", idempotencyKey, active.get().getId());
+        return active.get();
+      }
+    }
+
+    if (persistentQueue) {
+      return job;
+    }
+    try {
+      submit(job, jobFunction);
+    } catch (TaskRejectedException e) {
+      log.warn("Job {} rejected: {}", job.getId(), e.getMessage());
+      job.setStatus("rejected");
+      jobsRepository.save(job);
+    }
+
+    return job;
+  }
 
-    jobsRepository.save(job);
-    self.runJobAsync(job, jobFunction);
+  /**
+   * Saves a job launched with an idempotency key, unless a queued or running job already has the
+   * key.
+   *
+   * @param job the new job
+   * @return the queued or running job with the same key, or empty if the new job was saved
+   */
+  private Optional<Job> saveUnlessKeyActive(Job job) {
+    String key = job.getIdempotencyKey();
+    Optional<Job> active = jobsRepository.findActiveByIdempotencyKey(key);
+    if (active.isEmpty()) {
+      try {
+        jobsRepository.save(job);
+        return Optional.empty();
+      } catch (DataIntegrityViolationException e) {
+        // another launch with the same key, possibly on another node, saved its job first
+        active = jobsRepository.findActiveByIdempotencyKey(key);
+        if (active.isEmpty()) {
+          throw e;
+        }
+      }
+    }
+    Job existing = active.get();
+    if (!Objects.equals(existing.getJobType(), job.getJobType())
+        || !Objects.equals(existing.getParameters(), job.getParameters())) {
+      throw new IdempotencyKeyConflictException(key, existing.getId());
+    }
+    return active;
+  }
 
+  /**
+   * Builds a job that runs on this node right away. It is claimed by this node, so that its
+   * heartbeat is kept current and other nodes mark it as errored, releasing its idempotency key, if
+   * this node dies while running it. A job of a type registered in JobFactory also stores its type
+   * and parameters, so that it can be retried.
+   *
+   * @param jobFunction the job to run
+   * @return the running job, not yet saved
+   */
+  private Job newInProcessJob(JobContextConsumer jobFunction) {
+    Job job =
+        Job.builder()
+            .createdBy(currentUserService.getUser())
+            .status("running")
+            .claimedBy(nodeId)
+            .heartbeatAt(ZonedDateTime.now())
+            .attempts(1)
+            .build();
+    if (jobFactory.isRegistered(jobFunction)) {
+      job.setJobType(jobFactory.typeOf(jobFunction));
+      job.setParameters(jobFactory.parametersOf(jobFunction));
+    }
     return job;
   }
 
-  @Async
+  /**
+   * Builds a job for the persistent job queue; once saved, a JobQueueWorker on some node will run
+   * it.
+   *
+   * @param jobFunction the job to run
+   * @return the queued job, not yet saved
+   */
+  private Job newQueuedJob(JobContextConsumer jobFunction) {
+    return Job.builder()
+        .createdBy(currentUserService.getUser())
+        .status("queued")
+        .jobType(jobFactory.typeOf(jobFunction))
+        .parameters(jobFactory.parametersOf(jobFunction))
+        .queuedAt(ZonedDateTime.now())
+        .build();
+  }
+
+  /**
+   * Launches a pipeline. Every stage gets its own job, linked to the pipeline's job through its
+   * parentId, and starts on the job executor as soon as the stages it depends on have completed;
+   * stages whose dependencies are met run concurrently. The pipeline's job stays "running" until
+   * every stage has finished, and its progress counts the finished stages.
+   *
+   * <p>Pipelines are coordinated in memory, so their stages run on this node even when the
+   * persistent job queue is enabled.
+   *
+   * @param pipeline the pipeline
+   * @return the pipeline's job
+   * @throws IllegalArgumentException if the stages do not form a directed acyclic graph
+   */
+  public Job runPipeline(JobPipeline pipeline) {
+    List<JobPipeline.Stage> stages = pipeline.inDependencyOrder();
+    User user = currentUserService.getUser();
+    Job pipelineJob =
+        jobsRepository.save(
+            Job.builder()
+                .createdBy(user)
+                .status("running")
+                .claimedBy(nodeId)
+                .heartbeatAt(ZonedDateTime.now())
+                .attempts(1)
+                .progressTotal((long) stages.size())
+                .progressCompleted(0L)
+                .build());
+    Map<String, Job> stageJobs = new LinkedHashMap<>();
+    for (JobPipeline.Stage stage : stages) {
+      stageJobs.put(
+          stage.getName(),
+          jobsRepository.save(
+              Job.builder()
+                  .createdBy(user)
+                  .status("pending")
+                  .claimedBy(nodeId)
+                  .attempts(1)
+                  .parentId(pipelineJob.getId())
+                  .stage(stage.getName())
+                  .build()));
+    }
+
+    JobContext pipelineContext =
+        new JobContext(jobLogLinesRepository, pipelineJob, 0, 1, 0, jobLogBroadcaster::publish);
+    JobPipelineRun run =
+        new JobPipelineRun(pipelineJob, pipelineContext, stages, stageJobs, jobsRepository, self);
+    jobLogBroadcaster.open(pipelineJob.getId());
+    pipelineRuns.put(pipelineJob.getId(), run);
+    if (run.start()) {
+      pipelineFinished(run);
+    }
+    return pipelineJob;
+  }
+
+  private void pipelineFinished(JobPipelineRun run) {
+    Job pipelineJob = run.getPipelineJob();
+    pipelineRuns.remove(pipelineJob.getId());
+    jobLogBroadcaster.close(pipelineJob.getId(), pipelineJob.getStatus());
+  }
+
+  /**
+   * Starts a job claimed from the persistent job queue on this node's job executor.
+   *
+   * @param job the claimed job
+   */
+  public void runQueuedJob(Job job) {
+    JobContextConsumer jobFunction;
+    try {
+      jobFunction = jobFactory.create(job.getJobType(), job.getParameters());
+    } catch (IllegalArgumentException e) {
+      job.setStatus("error");
+      new JobContext(jobLogLinesRepository, job).log(e.getMessage());
+      finishAttempt(job);
+      return;
+    }
+
+    try {
+      submit(job, jobFunction);
+    } catch (TaskRejectedException e) {
+      log.warn("Queued job {} rejected, returning it to the queue", job.getId());
+      if (jobsRepository.requeueAttempt(
+              job.getId(), job.getClaimedBy(), job.getAttempts(), ZonedDateTime.now())
+          == 0) {
+        log.warn(
+            "Job {} is no longer claimed by {}, not requeueing it",
+            job.getId(),
+            job.getClaimedBy());
+      }
+      job.setStatus("queued");
+      job.setClaimedBy(null);
+    }
+  }
+
+  /**
+   * Runs a job that did not complete (see Job.RETRYABLE_STATUSES) again, as another attempt of the
+   * same job: the job is recreated from its stored type and parameters, its log continues, and a
+   * ChunkJob continues after its last committed chunk. The attempt runs on this node right away, or
+   * goes through the persistent job queue when that is enabled.
+   *
+   * @param jobId id of the job
+   * @return true if the job was retried; false if it has not finished without completing, was not
+   *     stored with a type and parameters, was retried by someone else first, or has an idempotency
+   *     key that a queued or running job now uses
+   */
+  public boolean retry(long jobId) {
+    Job job = jobsRepository.findById(jobId).orElse(null);
+    if (job == null
+        || job.getJobType() == null
+        || job.getParentId() != null
+        || !Job.RETRYABLE_STATUSES.contains(job.getStatus())) {
+      return false;
+    }
+    JobContextConsumer jobFunction;
+    try {
+      jobFunction = jobFactory.create(job.getJobType(), job.getParameters());
+    } catch (IllegalArgumentException e) {
+      log.warn("Job {} cannot be retried: {}", jobId, e.getMessage());
+      return false;
+    }
+
+    // jobs stored before attempts were counted have 0; their retry must still continue the log
+    int attempts = Math.max(job.getAttempts(), 1);
+    ZonedDateTime now = ZonedDateTime.now();
+    int updated;
+    try {
+      updated =
+          persistentQueue
+              ? jobsRepository.retryQueued(jobId, job.getStatus(), job.getAttempts(), attempts, now)
+              : jobsRepository.retryInProcess(
+                  jobId, job.getStatus(), job.getAttempts(), nodeId, attempts + 1, now);
+    } catch (DataIntegrityViolationException e) {
+      log.warn("Job {} cannot be retried while its idempotency key is in use", jobId);
+      return false;
+    }
+    if (updated == 0 || persistentQueue) {
+      return updated > 0;
+    }
+
+    job.setStatus("running");
+    job.setClaimedBy(nodeId);
+    job.setHeartbeatAt(now);
+    job.setAttempts(attempts + 1);
+    job.setCancelRequested(false);
+    try {
+      submit(job, jobFunction);
+    } catch (TaskRejectedException e) {
+      log.warn("Retry of job {} rejected: {}", jobId, e.getMessage());
+      job.setStatus("rejected");
+      finishAttempt(job);
+    }
+    return true;
+  }
+
+  /**
+   * Stores the final status of a job. Only the status is written, and only while the job is still
+   * running as this attempt: a job given up on or claimed again by another node keeps the state
+   * stored since.
+   *
+   * @param job the job, with its final status
+   */
+  private void finishAttempt(Job job) {
+    int updated =
+        jobsRepository.finishAttempt(
+            job.getId(),
+            job.getClaimedBy(),
+            job.getAttempts(),
+            job.getStatus(),
+            ZonedDateTime.now());
+    if (updated == 0) {
+      log.warn(
+          "Job {} is no longer running as attempt {} of {}, not marking it {}",
+          job.getId(),
+          job.getAttempts(),
+          job.getClaimedBy(),
+          job.getStatus());
+    }
+  }
+
+  /**
+   * Submits a saved job to the job executor. Until a thread picks it up, the job can be cancelled
+   * through cancelLocal, and then ends "cancelled" without running.
+   *
+   * @param job the saved job, with status "running"
+   * @param jobFunction the job to run
+   * @throws TaskRejectedException if the job executor is full
+   */
+  public void submit(Job job, JobContextConsumer jobFunction) {
+    waitingJobs.put(job.getId(), false);
+    try {
+      self.runJobAsync(job, jobFunction);
+    } catch (TaskRejectedException e) {
+      waitingJobs.remove(job.getId());
+      throw e;
+    }
+  }
+
+  @Async("jobExecutor")
   public void runJobAsync(Job job, JobContextConsumer jobFunction) {
-    JobContext context = new JobContext(jobsRepository, job);
+    // a job retried from the persistent queue continues the log of its earlier attempts
+    int firstSeq =
+        job.getAttempts() > 1 ? (int) jobLogLinesRepository.countByJobId(job.getId()) : 0;
+    JobContext context =
+        new JobContext(
+            jobLogLinesRepository,
+            job,
+            firstSeq,
+            logFlushMaxLines,
+            logFlushIntervalMs,
+            jobLogBroadcaster::publish);
+    context.reportProgressTo(
+        progress ->
+            jobsRepository.updateProgress(
+                job.getId(),
+                progress.getTotal(),
+                progress.getCompleted(),
+                progress.getRate(),
+                progress.getUpdatedAt()),
+        progressIntervalMs,
+        progressWindowMs);
+    context.checkpointTo(checkpoint -> jobsRepository.updateCheckpoint(job.getId(), checkpoint));
+    jobLogBroadcaster.open(job.getId());
+    runningContexts.put(job.getId(), context);
+    // only now, with the context registered, stop accepting cancellations of the waiting job
+    if (Boolean.TRUE.equals(waitingJobs.remove(job.getId()))) {
+      context.cancel("cancelled");
+    }
+    context.runOn(Thread.currentThread());
 
     try {
+      context.checkCancelled();
+      jobFactory.autowire(jobFunction);
       jobFunction.accept(context);
+      job.setStatus("complete");
     } catch (Exception e) {
-      job.setStatus("error");
-      context.log(e.getMessage());
+      if (context.getCancelStatus() != null) {
+        job.setStatus(context.getCancelStatus());
+        context.append("Job stopped: " + context.getCancelStatus());
+      } else {
+        job.setStatus("error");
+        context.append(e.getMessage());
+      }
+    } finally {
+      context.runOn(null);
+      runningContexts.remove(job.getId());
+    }
+
+    // a failed write of the last log lines or progress must not leave the job running
+    try {
+      context.flush();
+    } catch (RuntimeException e) {
+      log.error("Cannot write the last log lines of job {}", job.getId(), e);
+    }
+    try {
+      context.flushProgress();
+    } catch (RuntimeException e) {
+      log.error("Cannot write the last progress of job {}", job.getId(), e);
+    }
+
+    try {
+      finishAttempt(job);
+    } finally {
+      jobLogBroadcaster.close(job.getId(), job.getStatus());
+      JobPipelineRun run = job.getParentId() == null ? null : pipelineRuns.get(job.getParentId());
+      if (run != null && run.stageFinished(job)) {
+        pipelineFinished(run);
+      }
+    }
+  }
+
+  /**
+   * Writes buffered log lines of running jobs that have not logged for a while, and progress they
+   * reported since their last progress write or, for jobs that have stopped making progress, their
+   * falling rate.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.logFlushIntervalMs:1000}")
+  public void flushRunningJobLogs() {
+    runningContexts.values().forEach(JobContext::flushIfDue);
+    runningContexts.values().forEach(JobContext::flushProgressIfDue);
+  }
+
+  /** Stops jobs on this node that have been running longer than app.jobs.timeoutMs. */
+  @Scheduled(fixedDelayString = "${app.jobs.timeoutCheckIntervalMs:1000}")
+  public void stopTimedOutJobs() {
+    if (timeoutMs <= 0) {
       return;
     }
+    long now = System.currentTimeMillis();
+    runningContexts.forEach(
+        (jobId, context) -> {
+          if (context.runningMillis(now) > timeoutMs) {
+            log.warn("Job {} ran longer than {} ms, stopping it", jobId, timeoutMs);
+            context.cancel("timed_out");
+          }
+        });
+  }
+
+  /**
+   * Cancels a job. A pipeline running on this node cancels its stages, a job running on this node
+   * is interrupted, a job waiting for a thread of this node's job executor ends without running, a
+   * queued job is marked cancelled before any node claims it, and for a job running on another node
+   * a cancellation request is stored for that node to pick up with its next heartbeat.
+   *
+   * @param jobId id of the job
+   * @return true if the job was cancelled or a cancellation was requested, false if the job is not
+   *     queued or running
+   */
+  public boolean cancel(long jobId) {
+    if (cancelLocal(jobId)) {
+      return true;
+    }
+    return jobsRepository.cancelQueued(jobId) > 0 || jobsRepository.requestCancel(jobId) > 0;
+  }
+
+  /**
+   * Cancels a job if it is running, or waiting to run, on this node. A pipeline running on this
+   * node cancels its stages.
+   *
+   * @param jobId id of the job
+   * @return true if the job was running or waiting to run on this node
+   */
+  public boolean cancelLocal(long jobId) {
+    JobPipelineRun run = pipelineRuns.get(jobId);
+    if (run != null) {
+      if (run.cancel()) {
+        pipelineFinished(run);
+      }
+      return true;
+    }
+    if (waitingJobs.replace(jobId, false, true)) {
+      return true;
+    }
+    JobContext context = runningContexts.get(jobId);
+    if (context == null) {
+      return false;
+    }
+    context.cancel("cancelled");
+    return true;
+  }
 
-    job.setStatus("complete");
-    jobsRepository.save(job);
+  public JobExecutorStatus getExecutorStatus() {
+    return JobExecutorStatus.builder()
+        .poolSize(jobExecutor.getMaxPoolSize())
+        .queueCapacity(jobExecutor.getQueueCapacity())
+        .active(jobExecutor.getActiveCount())
+        .queued(jobExecutor.getQueueSize())
+        .completed(jobExecutor.getThreadPoolExecutor().getCompletedTaskCount())
+        .build();
   }
 
   public String getJobLogs(Long jobId) {
+    return getJobLogs(jobId, 0, null, null).getText();
+  }
+
+  /**
+   * Reads a range of lines of a job log. Only the requested lines are read from the database.
+   *
+   * <p>Lines are numbered from 0. Since a job writes its lines with consecutive seq values starting
+   * at 0, line n of the log is the line with seq n, and a range is read through the (job_id, seq)
+   * index. Jobs written before log lines were stored separately keep their log in the jobs table;
+   * its lines come first.
+   *
+   * @param jobId id of the job
+   * @param offset number of the first line to return
+   * @param limit maximum number of lines to return, null for all lines after offset
+   * @param tail if not null, return this many lines from the end of the log instead of offset
+   * @return the requested lines with their position and the total number of lines
+   */
+  public JobLogSlice getJobLogs(Long jobId, int offset, Integer limit, Integer tail) {
     Job job =
         jobsRepository
             .findById(jobId)
             .orElseThrow(() -> new IllegalArgumentException("Job not found"));
 
-    String log = job.getLog();
-    return log != null ? log : "";
+    List<String> legacyLines =
+        job.getLog() == null ? List.of() : List.of(job.getLog().split("\n", -1));
+    long total = legacyLines.size() + jobLogLinesRepository.countByJobId(jobId);
+    long from =
+        tail == null
+            ? Math.min(total, Math.max(0, offset))
+            : total - Math.min(total, Math.max(0, tail));
+    long to = limit == null ? total : Math.min(total, from + Math.max(0, limit));
+
+    List<String> lines = new ArrayList<>();
+    for (long i = from; i < Math.min(to, legacyLines.size()); i++) {
+      lines.add(legacyLines.get((int) i));
+    }
+    long firstLine = Math.max(from, legacyLines.size());
+    if (to > firstLine) {
+      int fromSeq = (int) (firstLine - legacyLines.size());
+      int toSeq = (int) (to - legacyLines.size());
+      for (JobLogLine line :
+          jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+              jobId, fromSeq, toSeq)) {
+        lines.add(line.getMessage());
+      }
+    }
+    return JobLogSlice.builder()
+        .offset(from)
+        .totalLines(total)
+        .text(String.join("\n", lines))
+        .build();
   }
 }
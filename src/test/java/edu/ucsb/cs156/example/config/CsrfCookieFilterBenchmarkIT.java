@@ -0,0 +1,95 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.Cookie;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.csrf.CsrfFilter;
+import org.springframework.security.web.csrf.CsrfToken;
+
+/**
+ * Compares the per-request overhead of the CSRF filters with the previous cookie filter, which
+ * loaded the token on every request, and with CsrfCookieFilter, for page loads and fetches that
+ * carry the token cookie and for static assets requested without it.
+ */
+@Slf4j
+public class CsrfCookieFilterBenchmarkIT {
+  private static final int WARMUP = 20_000;
+  private static final int REQUESTS = 100_000;
+
+  private static final Filter EAGER_COOKIE_FILTER =
+      (request, response, chain) -> {
+        ((CsrfToken) request.getAttribute("_csrf")).getToken();
+        chain.doFilter(request, response);
+      };
+
+  private record Result(long nanosPerRequest, int cookiesWritten) {}
+
+  private static Result run(Supplier<Filter> cookieFilter, Supplier<MockHttpServletRequest> request)
+      throws Exception {
+    CsrfFilter csrfFilter = new CsrfFilter(CookieCsrfTokenRepository.withHttpOnlyFalse());
+    csrfFilter.setRequestHandler(new SpaCsrfTokenRequestHandler());
+    Filter filter = cookieFilter.get();
+    for (int i = 0; i < WARMUP; i++) {
+      new MockFilterChain(CsrfCookieFilterTests.NO_CONTENT, csrfFilter, filter)
+          .doFilter(request.get(), new MockHttpServletResponse());
+    }
+    int cookiesWritten = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < REQUESTS; i++) {
+      MockHttpServletResponse response = new MockHttpServletResponse();
+      new MockFilterChain(CsrfCookieFilterTests.NO_CONTENT, csrfFilter, filter)
+          .doFilter(request.get(), response);
+      if (response.getCookie("XSRF-TOKEN") != null) {
+        cookiesWritten++;
+      }
+    }
+    return new Result((System.nanoTime() - start) / REQUESTS, cookiesWritten);
+  }
+
+  private static MockHttpServletRequest fetchWithCookie() {
+    MockHttpServletRequest request = CsrfCookieFilterTests.get("/api/currentUser", "empty");
+    request.setCookies(new Cookie("XSRF-TOKEN", "existing-token"));
+    return request;
+  }
+
+  private static MockHttpServletRequest assetWithoutCookie() {
+    return CsrfCookieFilterTests.get("/static/js/main.js", "script");
+  }
+
+  @Test
+  public void compare_eager_and_lazy_csrf_cookie_filters() throws Exception {
+    Result eagerFetch =
+        run(() -> EAGER_COOKIE_FILTER, CsrfCookieFilterBenchmarkIT::fetchWithCookie);
+    Result lazyFetch = run(CsrfCookieFilter::new, CsrfCookieFilterBenchmarkIT::fetchWithCookie);
+    Result eagerAsset =
+        run(() -> EAGER_COOKIE_FILTER, CsrfCookieFilterBenchmarkIT::assetWithoutCookie);
+    Result lazyAsset = run(CsrfCookieFilter::new, CsrfCookieFilterBenchmarkIT::assetWithoutCookie);
+
+    log.info(
+        "CSRF filters per request, fetch with cookie: eager {} ns, lazy {} ns;"
+            + " asset without cookie: eager {} ns / {} cookies, lazy {} ns / {} cookies",
+        eagerFetch.nanosPerRequest(),
+        lazyFetch.nanosPerRequest(),
+        eagerAsset.nanosPerRequest(),
+        eagerAsset.cookiesWritten(),
+        lazyAsset.nanosPerRequest(),
+        lazyAsset.cookiesWritten());
+
+    assertEquals(0, eagerFetch.cookiesWritten());
+    assertEquals(0, lazyFetch.cookiesWritten());
+    assertEquals(REQUESTS, eagerAsset.cookiesWritten());
+    assertEquals(0, lazyAsset.cookiesWritten());
+    // only the direction of the difference is checked
+    assertTrue(lazyFetch.nanosPerRequest() < eagerFetch.nanosPerRequest());
+    assertTrue(lazyAsset.nanosPerRequest() < eagerAsset.nanosPerRequest());
+  }
+}
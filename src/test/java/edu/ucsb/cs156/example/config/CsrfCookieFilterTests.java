@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.csrf.CsrfFilter;
+
+public class CsrfCookieFilterTests {
+
+  static final HttpServlet NO_CONTENT =
+      new HttpServlet() {
+        @Override
+        protected void service(HttpServletRequest request, HttpServletResponse response) {
+          response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        }
+      };
+
+  /** Runs a request through the CSRF filters configured in SecurityConfig. */
+  static MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+    CsrfFilter csrfFilter = new CsrfFilter(CookieCsrfTokenRepository.withHttpOnlyFalse());
+    csrfFilter.setRequestHandler(new SpaCsrfTokenRequestHandler());
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    new MockFilterChain(NO_CONTENT, csrfFilter, new CsrfCookieFilter()).doFilter(request, response);
+    return response;
+  }
+
+  static MockHttpServletRequest get(String uri, String secFetchDest) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+    if (secFetchDest != null) {
+      request.addHeader("Sec-Fetch-Dest", secFetchDest);
+    }
+    return request;
+  }
+
+  @Test
+  public void page_load_without_cookie_gets_token_cookie() throws Exception {
+    assertNotNull(perform(get("/", "document")).getCookie(CsrfCookieFilter.COOKIE_NAME));
+  }
+
+  @Test
+  public void fetch_and_request_without_sec_fetch_headers_get_token_cookie() throws Exception {
+    assertNotNull(perform(get("/api/currentUser", "empty")).getCookie("XSRF-TOKEN"));
+    assertNotNull(perform(get("/api/currentUser", null)).getCookie("XSRF-TOKEN"));
+  }
+
+  @Test
+  public void request_with_cookie_does_not_rewrite_it() throws Exception {
+    MockHttpServletRequest request = get("/", "document");
+    request.setCookies(new Cookie("XSRF-TOKEN", "existing-token"));
+
+    assertNull(perform(request).getCookie("XSRF-TOKEN"));
+  }
+
+  @Test
+  public void subresource_without_cookie_gets_no_token_cookie() throws Exception {
+    assertNull(perform(get("/static/js/main.js", "script")).getCookie("XSRF-TOKEN"));
+    assertNull(perform(get("/logo.png", "image")).getCookie("XSRF-TOKEN"));
+  }
+}
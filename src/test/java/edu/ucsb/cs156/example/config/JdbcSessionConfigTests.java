@@ -0,0 +1,50 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.session.FlushMode;
+import org.springframework.session.SaveMode;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JdbcSessionConfigTests {
+
+  private JdbcIndexedSessionRepository customize(String writePolicy) {
+    JdbcSessionConfig config = new JdbcSessionConfig();
+    ReflectionTestUtils.setField(config, "writePolicy", writePolicy);
+    ReflectionTestUtils.setField(config, "timeout", Duration.ofMinutes(30));
+    JdbcIndexedSessionRepository repository = mock(JdbcIndexedSessionRepository.class);
+    config.sessionRepositoryCustomizer().customize(repository);
+    return repository;
+  }
+
+  @Test
+  public void on_change_policy_saves_set_attributes_at_end_of_request() {
+    JdbcIndexedSessionRepository repository = customize("on-change");
+
+    verify(repository).setFlushMode(FlushMode.ON_SAVE);
+    verify(repository).setSaveMode(SaveMode.ON_SET_ATTRIBUTE);
+    verify(repository).setDefaultMaxInactiveInterval(Duration.ofMinutes(30));
+    verify(repository).setCleanupCron("-");
+  }
+
+  @Test
+  public void write_through_policy_saves_every_attribute_immediately() {
+    JdbcIndexedSessionRepository repository = customize("write-through");
+
+    verify(repository).setFlushMode(FlushMode.IMMEDIATE);
+    verify(repository).setSaveMode(SaveMode.ALWAYS);
+  }
+
+  @Test
+  public void unknown_policy_is_rejected() {
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> customize("sometimes"));
+    assertEquals("Unknown app.sessions.writePolicy sometimes", e.getMessage());
+  }
+}
@@ -1,8 +1,10 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -21,13 +23,16 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -190,18 +195,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void admin_can_edit_an_existing_article() throws Exception {
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
     LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-    Articles articlesOrig =
-        Articles.builder()
-            .title("Test Article")
-            .url("https://example.com")
-            .explanation("Test explanation")
-            .email("test@ucsb.edu")
-            .dateAdded(ldt1)
-            .build();
-
     // client payload
     Articles articlesEdited =
         Articles.builder()
@@ -214,8 +209,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(articlesEdited);
 
-    when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articlesOrig));
-    when(articlesRepository.save(any(Articles.class))).thenAnswer(inv -> inv.getArgument(0));
+    when(articlesRepository.updateOne(eq(67L), any(Articles.class))).thenReturn(1);
 
     MvcResult response =
         mockMvc
@@ -228,10 +222,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
             .andExpect(status().isOk())
             .andReturn();
 
-    verify(articlesRepository, times(1)).findById(67L);
-
     ArgumentCaptor<Articles> captor = ArgumentCaptor.forClass(Articles.class);
-    verify(articlesRepository, times(1)).save(captor.capture());
+    verify(articlesRepository, times(1)).updateOne(eq(67L), captor.capture());
     Articles saved = captor.getValue();
 
     assertEquals("Second Article", saved.getTitle());
@@ -239,6 +231,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
     assertEquals("Second explanation", saved.getExplanation());
     assertEquals("test2@ucsb.edu", saved.getEmail());
     assertEquals(ldt2, saved.getDateAdded());
+    assertEquals(67L, saved.getId());
 
     String responseString = response.getResponse().getContentAsString();
     assertEquals(mapper.writeValueAsString(saved), responseString);
@@ -260,7 +253,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(articlesEdited);
 
-    when(articlesRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(articlesRepository.updateOne(eq(67L), any(Articles.class))).thenReturn(0);
 
     MvcResult response =
         mockMvc
@@ -273,7 +266,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
             .andExpect(status().isNotFound())
             .andReturn();
 
-    verify(articlesRepository, times(1)).findById(67L);
+    verify(articlesRepository, times(1)).updateOne(eq(67L), any(Articles.class));
     Map<String, Object> json = responseToJson(response);
     assertEquals("Articles with id 67 not found", json.get("message"));
   }
@@ -285,16 +278,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
   public void admin_can_delete_an_article() throws Exception {
     LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
 
-    Articles article1 =
-        Articles.builder()
-            .title("Test Article")
-            .url("https://example.com")
-            .explanation("Test explanation")
-            .email("test@ucsb.edu")
-            .dateAdded(ldt1)
-            .build();
-
-    when(articlesRepository.findById(eq(15L))).thenReturn(Optional.of(article1));
+    when(articlesRepository.deleteOne(eq(15L))).thenReturn(1);
 
     MvcResult response =
         mockMvc
@@ -302,8 +286,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
             .andExpect(status().isOk())
             .andReturn();
 
-    verify(articlesRepository, times(1)).findById(15L);
-    verify(articlesRepository, times(1)).delete(any());
+    verify(articlesRepository, times(1)).deleteOne(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("Articles with id 15 deleted", json.get("message"));
@@ -314,7 +297,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
   public void admin_tries_to_delete_nonexistent_article_gets_right_error_message()
       throws Exception {
 
-    when(articlesRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(articlesRepository.deleteOne(eq(15L))).thenReturn(0);
 
     MvcResult response =
         mockMvc
@@ -322,8 +305,72 @@ public class ArticlesControllerTests extends ControllerTestCase {
             .andExpect(status().isNotFound())
             .andReturn();
 
-    verify(articlesRepository, times(1)).findById(15L);
+    verify(articlesRepository, times(1)).deleteOne(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("Articles with id 15 not found", json.get("message"));
   }
+
+  // Tests for GET /api/articles/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/articles/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_and_the_next_one() throws Exception {
+
+    // arrange
+
+    List<Articles> rows =
+        new ArrayList<>(
+            List.of(
+                Articles.builder().id(1).title("t1").build(),
+                Articles.builder().id(2).title("t2").build(),
+                Articles.builder().id(3).title("t3").build()));
+    when(articlesRepository.findBy(ArgumentMatchers.<Specification<Articles>>any(), any()))
+        .thenReturn(rows);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles/page?sort=title&direction=desc&limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        mapper.readValue(mapper.writeValueAsString(rows.subList(0, 2)), List.class),
+        json.get("items"));
+    assertNotNull(json.get("next"));
+
+    mockMvc
+        .perform(
+            get("/api/articles/page?sort=title&direction=desc&limit=2&after=" + json.get("next")))
+        .andExpect(status().isOk());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_sort_a_page_by_an_unknown_field() throws Exception {
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/articles/page?sort=nonexistent"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+
+    verify(articlesRepository, never())
+        .findBy(ArgumentMatchers.<Specification<Articles>>any(), any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidPageRequestException", json.get("type"));
+  }
 }
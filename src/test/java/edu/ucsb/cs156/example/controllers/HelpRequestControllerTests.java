@@ -1,34 +1,48 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.NdjsonExporter;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = HelpRequestController.class)
 @Import(TestConfig.class)
@@ -38,6 +52,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
   @MockBean UserRepository userRepository;
 
+  @MockBean NdjsonExporter ndjsonExporter;
+
   // Authorization Tests
 
   @Test
@@ -193,18 +209,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void admin_can_delete_help_request() throws Exception {
-    LocalDateTime t = LocalDateTime.parse("2022-01-03T00:00:00");
-    HelpRequest help =
-        HelpRequest.builder()
-            .requesterEmail("del@ucsb.edu")
-            .teamId("f25-14")
-            .tableOrBreakoutRoom("table")
-            .requestTime(t)
-            .explanation("delete me")
-            .solved(false)
-            .build();
-
-    when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.of(help));
+    when(helpRequestRepository.deleteOne(eq(15L))).thenReturn(1);
 
     MvcResult response =
         mockMvc
@@ -212,8 +217,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             .andExpect(status().is(200))
             .andReturn();
 
-    verify(helpRequestRepository, times(1)).findById(15L);
-    verify(helpRequestRepository, times(1)).delete(eq(help));
+    verify(helpRequestRepository, times(1)).deleteOne(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("HelpRequest with id 15 deleted", json.get("message"));
@@ -222,7 +226,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void delete_not_found_returns_404() throws Exception {
-    when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(helpRequestRepository.deleteOne(eq(15L))).thenReturn(0);
 
     MvcResult response =
         mockMvc
@@ -230,33 +234,70 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             .andExpect(status().isNotFound())
             .andReturn();
 
-    verify(helpRequestRepository, times(1)).findById(15L);
+    verify(helpRequestRepository, times(1)).deleteOne(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("HelpRequest with id 15 not found", json.get("message"));
   }
 
+  // DELETE /api/helprequest/all
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_bulk_delete_all_help_requests() throws Exception {
+    when(helpRequestRepository.deleteInBulk(null, null)).thenReturn(12);
+
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/helprequest/all").with(csrf()))
+            .andExpect(status().is(200))
+            .andReturn();
+
+    verify(helpRequestRepository, times(1)).deleteInBulk(null, null);
+    verify(helpRequestRepository, never()).deleteAll();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("12 help requests deleted", json.get("message"));
+    assertEquals(12, json.get("deleted"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_bulk_delete_solved_help_requests_before_a_time() throws Exception {
+    LocalDateTime t = LocalDateTime.parse("2022-01-03T00:00:00");
+    when(helpRequestRepository.deleteInBulk(t, true)).thenReturn(2);
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/helprequest/all")
+                    .param("requestedBefore", "2022-01-03T00:00:00")
+                    .param("solved", "true")
+                    .with(csrf()))
+            .andExpect(status().is(200))
+            .andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("2 help requests deleted", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_bulk_delete_help_requests() throws Exception {
+    mockMvc.perform(delete("/api/helprequest/all").with(csrf())).andExpect(status().is(403));
+  }
+
   // Put /api/helprequest?id=
 
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void admin_can_edit_an_existing_help_request() throws Exception {
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2023-05-03T00:00:00");
     LocalDateTime ldt2 = LocalDateTime.parse("2024-03-03T00:00:00");
 
-    HelpRequest helpRequestOrig =
-        HelpRequest.builder()
-            .requesterEmail("a@ucsb.edu")
-            .teamId("f25-14")
-            .tableOrBreakoutRoom("Table")
-            .requestTime(ldt1)
-            .explanation("test a")
-            .solved(false)
-            .build();
-
     HelpRequest helpRequestEdited =
         HelpRequest.builder()
+            .id(67L)
             .requesterEmail("fv@ucsb.edu")
             .teamId("f25-99")
             .tableOrBreakoutRoom("Breakout")
@@ -266,7 +307,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             .build();
 
     String requestBody = mapper.writeValueAsString(helpRequestEdited);
-    when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(helpRequestOrig));
+    when(helpRequestRepository.updateOne(eq(67L), any(HelpRequest.class))).thenReturn(1);
 
     MvcResult response =
         mockMvc
@@ -279,8 +320,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             .andExpect(status().is(200))
             .andReturn();
 
-    verify(helpRequestRepository, times(1)).findById(67L);
-    verify(helpRequestRepository, times(1)).save(helpRequestEdited);
+    verify(helpRequestRepository, times(1)).updateOne(67L, helpRequestEdited);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(requestBody, responseString);
   }
@@ -302,7 +342,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(edited);
 
-    when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(helpRequestRepository.updateOne(eq(67L), any(HelpRequest.class))).thenReturn(0);
 
     MvcResult response =
         mockMvc
@@ -315,9 +355,116 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             .andExpect(status().isNotFound())
             .andReturn();
 
-    verify(helpRequestRepository, times(1)).findById(67L);
+    verify(helpRequestRepository, times(1)).updateOne(eq(67L), any(HelpRequest.class));
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("HelpRequest with id 67 not found", json.get("message"));
   }
+
+  // Tests for GET /api/helprequest/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/helprequest/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_and_the_next_one() throws Exception {
+
+    // arrange
+
+    List<HelpRequest> rows =
+        new ArrayList<>(
+            List.of(
+                HelpRequest.builder().id(1).teamId("t1").build(),
+                HelpRequest.builder().id(2).teamId("t2").build(),
+                HelpRequest.builder().id(3).teamId("t3").build()));
+    when(helpRequestRepository.findBy(ArgumentMatchers.<Specification<HelpRequest>>any(), any()))
+        .thenReturn(rows);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/helprequest/page?sort=teamId&direction=desc&limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        mapper.readValue(mapper.writeValueAsString(rows.subList(0, 2)), List.class),
+        json.get("items"));
+    assertNotNull(json.get("next"));
+
+    mockMvc
+        .perform(
+            get(
+                "/api/helprequest/page?sort=teamId&direction=desc&limit=2&after="
+                    + json.get("next")))
+        .andExpect(status().isOk());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_sort_a_page_by_an_unknown_field() throws Exception {
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/helprequest/page?sort=nonexistent"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+
+    verify(helpRequestRepository, never())
+        .findBy(ArgumentMatchers.<Specification<HelpRequest>>any(), any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidPageRequestException", json.get("type"));
+  }
+
+  // Tests for GET /api/helprequest/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/helprequest/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/helprequest/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_can_export_and_the_rows_are_streamed_from_the_repository() throws Exception {
+
+    // arrange
+
+    ArgumentCaptor<Supplier<Stream<HelpRequest>>> rows = ArgumentCaptor.captor();
+    StreamingResponseBody body = out -> out.write("{\"id\":1}\n".getBytes());
+    when(ndjsonExporter.export(eq("helprequests.ndjson"), rows.capture()))
+        .thenReturn(ResponseEntity.ok().contentType(NdjsonExporter.APPLICATION_NDJSON).body(body));
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/helprequest/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc.perform(asyncDispatch(response)).andExpect(status().isOk());
+
+    // assert
+
+    assertEquals("{\"id\":1}\n", response.getResponse().getContentAsString());
+    assertEquals("application/x-ndjson", response.getResponse().getContentType());
+    rows.getValue().get();
+    verify(helpRequestRepository, times(1)).streamAllByOrderByIdAsc();
+  }
 }
@@ -0,0 +1,132 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobSchedules;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+
+@WebMvcTest(controllers = JobSchedulesController.class)
+@Import(TestConfig.class)
+public class JobSchedulesControllerTests extends ControllerTestCase {
+
+  @MockitoBean JobSchedulesRepository jobSchedulesRepository;
+
+  @MockitoBean JobSchedules jobSchedules;
+
+  @MockitoBean UserRepository userRepository;
+
+  private JobSchedule schedule(boolean paused) {
+    return JobSchedule.builder()
+        .id(1L)
+        .name("nightly")
+        .cron("0 0 3 * * *")
+        .jobType("TestJob")
+        .parameters("{}")
+        .paused(paused)
+        .build();
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_list_schedules() throws Exception {
+    List<JobSchedule> schedules = List.of(schedule(false));
+    when(jobSchedulesRepository.findAll()).thenReturn(schedules);
+
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/schedules")).andExpect(status().isOk()).andReturn();
+
+    assertEquals(mapper.writeValueAsString(schedules), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_user_cannot_list_schedules() throws Exception {
+    mockMvc.perform(get("/api/jobs/schedules")).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_pause_schedule() throws Exception {
+    when(jobSchedules.setPaused(1L, true)).thenReturn(schedule(true));
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/schedules/{id}/pause", 1L).with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    assertEquals(true, responseToJson(response).get("paused"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_resume_schedule() throws Exception {
+    when(jobSchedules.setPaused(1L, false)).thenReturn(schedule(false));
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/schedules/{id}/resume", 1L).with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    assertEquals(false, responseToJson(response).get("paused"));
+    verify(jobSchedules).setPaused(1L, false);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void pausing_missing_schedule_is_not_found() throws Exception {
+    when(jobSchedules.setPaused(7L, true))
+        .thenThrow(new EntityNotFoundException(JobSchedule.class, 7L));
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/schedules/{id}/pause", 7L).with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    assertEquals("JobSchedule with id 7 not found", responseToJson(response).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_trigger_schedule() throws Exception {
+    Job job = Job.builder().id(17L).status("running").build();
+    when(jobSchedules.trigger(1L)).thenReturn(job);
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/schedules/{id}/trigger", 1L).with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    assertEquals(mapper.writeValueAsString(job), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_user_cannot_trigger_schedule() throws Exception {
+    mockMvc
+        .perform(post("/api/jobs/schedules/{id}/trigger", 1L).with(csrf()))
+        .andExpect(status().isForbidden());
+  }
+}
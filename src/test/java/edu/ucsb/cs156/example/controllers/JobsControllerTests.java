@@ -4,48 +4,76 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
 import edu.ucsb.cs156.example.entities.Job;
-import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobProgress;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.models.JobSummaryPage;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobFactory;
+import edu.ucsb.cs156.example.services.jobs.JobLogBroadcaster;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Slf4j
 @WebMvcTest(controllers = JobsController.class)
-@Import(JobService.class)
+@Import({JobService.class, JobFactory.class, JobLogBroadcaster.class, JobExecutorConfig.class})
 @AutoConfigureDataJpa
 public class JobsControllerTests extends ControllerTestCase {
 
   @MockitoBean JobsRepository jobsRepository;
 
+  @MockitoBean JobLogLinesRepository jobLogLinesRepository;
+
+  @MockitoBean MenuItemReviewRepository menuItemReviewRepository;
+
+  @MockitoBean TransactionTemplate transactionTemplate;
+
   @MockitoBean UserRepository userRepository;
 
   @Autowired JobService jobService;
@@ -78,6 +106,94 @@ public class JobsControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_job_summaries_with_next_page() throws Exception {
+
+    // arrange
+
+    ZonedDateTime createdAt = ZonedDateTime.parse("2022-01-03T00:00:00Z");
+    JobSummary job9 =
+        JobSummary.builder().id(9L).status("complete").createdAt(createdAt).createdById(1L).build();
+    JobSummary job8 = JobSummary.builder().id(8L).status("complete").createdAt(createdAt).build();
+    JobSummary job7 = JobSummary.builder().id(7L).status("complete").createdAt(createdAt).build();
+
+    when(jobsRepository.findSummaries("complete", null, null, null, 3))
+        .thenReturn(List.of(job9, job8, job7));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/summary").param("status", "complete").param("size", "2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    String expectedJson =
+        mapper.writeValueAsString(
+            JobSummaryPage.builder().jobs(List.of(job9, job8)).next(8L).build());
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+    verify(jobsRepository, never()).findAll();
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_last_page_of_job_summaries_in_date_range() throws Exception {
+
+    // arrange
+
+    ZonedDateTime after = ZonedDateTime.parse("2022-01-01T00:00:00Z");
+    ZonedDateTime before = ZonedDateTime.parse("2022-02-01T00:00:00Z");
+    JobSummary job3 = JobSummary.builder().id(3L).status("error").build();
+
+    when(jobsRepository.findSummaries(null, after, before, 5L, 51)).thenReturn(List.of(job3));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/jobs/summary")
+                    .param("createdAfter", "2022-01-01T00:00:00Z")
+                    .param("createdBefore", "2022-02-01T00:00:00Z")
+                    .param("before", "5"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    String expectedJson =
+        mapper.writeValueAsString(JobSummaryPage.builder().jobs(List.of(job3)).build());
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void job_summary_page_size_is_capped() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.findSummaries(null, null, null, null, 501)).thenReturn(List.of());
+    when(jobsRepository.findSummaries(null, null, null, null, 2)).thenReturn(List.of());
+
+    // act
+
+    mockMvc.perform(get("/api/jobs/summary").param("size", "100000")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/jobs/summary").param("size", "0")).andExpect(status().isOk());
+
+    // assert
+
+    verify(jobsRepository).findSummaries(null, null, null, null, 501);
+    verify(jobsRepository).findSummaries(null, null, null, null, 2);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void user_cannot_get_job_summaries() throws Exception {
+    mockMvc.perform(get("/api/jobs/summary")).andExpect(status().isForbidden());
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void api_getJobLogById__admin_logged_in__returns_job_by_id() throws Exception {
@@ -123,11 +239,33 @@ public class JobsControllerTests extends ControllerTestCase {
     assertEquals("Job with id 2 not found", json.get("message"));
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void non_admin_cannot_get_executor_status() throws Exception {
+    mockMvc.perform(get("/api/jobs/executor")).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_executor_status() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/executor")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(4, json.get("poolSize"));
+    assertEquals(100, json.get("queueCapacity"));
+    assertEquals(0, json.get("active"));
+    assertEquals(0, json.get("queued"));
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_delete_all_jobs() throws Exception {
 
-    doNothing().when(jobsRepository).deleteAll();
+    when(jobsRepository.deleteInBulk(null, null)).thenReturn(3);
 
     // act
     MvcResult response =
@@ -138,10 +276,214 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, times(1)).deleteAll();
-    String expectedJson = mapper.writeValueAsString(Map.of("message", "All jobs deleted"));
-    String responseString = response.getResponse().getContentAsString();
-    assertEquals(expectedJson, responseString);
+    verify(jobsRepository, times(1)).deleteInBulk(null, null);
+    verify(jobsRepository, never()).deleteAll();
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("All jobs deleted", json.get("message"));
+    assertEquals(3, json.get("deleted"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_delete_jobs_by_status_and_creation_time() throws Exception {
+
+    ZonedDateTime createdBefore = ZonedDateTime.parse("2022-01-03T00:00:00Z");
+    when(jobsRepository.deleteInBulk("error", createdBefore)).thenReturn(2);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/jobs/all")
+                    .param("status", "error")
+                    .param("createdBefore", "2022-01-03T00:00:00Z")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("2 jobs deleted", json.get("message"));
+    assertEquals(2, json.get("deleted"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_job_progress() throws Exception {
+
+    // arrange
+
+    JobProgress progress =
+        JobProgress.builder().status("running").total(100L).completed(40L).rate(2.0).build();
+    when(jobsRepository.findProgressById(3L)).thenReturn(Optional.of(progress));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/progress/{id}", 3L)).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("running", json.get("status"));
+    assertEquals(100, json.get("total"));
+    assertEquals(40, json.get("completed"));
+    assertEquals(2.0, json.get("rate"));
+    assertEquals(30, json.get("etaSeconds"));
+    verify(jobsRepository, never()).findById(3L);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void job_progress_of_missing_job_is_not_found() throws Exception {
+
+    when(jobsRepository.findProgressById(4L)).thenReturn(Optional.empty());
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/progress/{id}", 4L))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    assertEquals("Job with id 4 not found", responseToJson(response).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_cancel_queued_job() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.existsById(5L)).thenReturn(true);
+    when(jobsRepository.cancelQueued(5L)).thenReturn(1);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/jobs/{id}/run", 5L).with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    assertEquals(
+        "Cancellation of job with id 5 requested", responseToJson(response).get("message"));
+    verify(jobsRepository, never()).requestCancel(5L);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_cancelling_finished_job_is_told_it_is_not_running() throws Exception {
+
+    when(jobsRepository.existsById(6L)).thenReturn(true);
+
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/jobs/{id}/run", 6L).with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    assertEquals("Job with id 6 is not queued or running", responseToJson(response).get("message"));
+    verify(jobsRepository).requestCancel(6L);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancelling_missing_job_is_not_found() throws Exception {
+
+    when(jobsRepository.existsById(7L)).thenReturn(false);
+
+    MvcResult response =
+        mockMvc
+            .perform(delete("/api/jobs/{id}/run", 7L).with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    assertEquals("Job with id 7 not found", responseToJson(response).get("message"));
+    verify(jobsRepository, never()).cancelQueued(7L);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_user_cannot_cancel_job() throws Exception {
+    mockMvc
+        .perform(delete("/api/jobs/{id}/run", 5L).with(csrf()))
+        .andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_retry_failed_job() throws Exception {
+
+    // arrange
+
+    Job job =
+        Job.builder()
+            .id(8L)
+            .status("error")
+            .jobType("TestJob")
+            .parameters("{\"fail\":false,\"sleepMs\":0}")
+            .attempts(1)
+            .build();
+    when(jobsRepository.existsById(8L)).thenReturn(true);
+    when(jobsRepository.findById(8L)).thenReturn(Optional.of(job));
+    when(jobsRepository.retryInProcess(eq(8L), eq("error"), eq(1), anyString(), eq(2), any()))
+        .thenReturn(1);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/{id}/retry", 8L).with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    assertEquals("Job with id 8 retried", responseToJson(response).get("message"));
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobsRepository)
+                    .finishAttempt(eq(8L), anyString(), eq(2), eq("complete"), any()));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_retrying_completed_job_is_told_it_cannot_be_retried() throws Exception {
+
+    Job job = Job.builder().id(9L).status("complete").jobType("TestJob").parameters("{}").build();
+    when(jobsRepository.existsById(9L)).thenReturn(true);
+    when(jobsRepository.findById(9L)).thenReturn(Optional.of(job));
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/{id}/retry", 9L).with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    assertEquals("Job with id 9 cannot be retried", responseToJson(response).get("message"));
+    verify(jobsRepository, never())
+        .retryInProcess(anyLong(), any(), anyInt(), any(), anyInt(), any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void retrying_missing_job_is_not_found() throws Exception {
+
+    when(jobsRepository.existsById(10L)).thenReturn(false);
+
+    mockMvc
+        .perform(post("/api/jobs/{id}/retry", 10L).with(csrf()))
+        .andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_user_cannot_retry_job() throws Exception {
+    mockMvc
+        .perform(post("/api/jobs/{id}/retry", 8L).with(csrf()))
+        .andExpect(status().isForbidden());
   }
 
   @WithMockUser(roles = {"ADMIN"})
@@ -177,6 +519,92 @@ public class JobsControllerTests extends ControllerTestCase {
         .andExpect(content().string(""));
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_tail_of_job_log_with_total_line_count() throws Exception {
+    // Arrange
+    Long jobId = 5L;
+    when(jobsRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(100L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            jobId, 98, 100))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(jobId).seq(98).message("line 98").build(),
+                JobLogLine.builder().jobId(jobId).seq(99).message("line 99").build()));
+
+    // Act & Assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", jobId).param("tail", "2"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("X-Total-Lines", "100"))
+        .andExpect(header().string("X-Offset", "98"))
+        .andExpect(content().string("line 98\nline 99"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_page_of_job_log() throws Exception {
+    // Arrange
+    Long jobId = 5L;
+    when(jobsRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(100L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            jobId, 20, 21))
+        .thenReturn(List.of(JobLogLine.builder().jobId(jobId).seq(20).message("line 20").build()));
+
+    // Act & Assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", jobId).param("offset", "20").param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("X-Total-Lines", "100"))
+        .andExpect(header().string("X-Offset", "20"))
+        .andExpect(content().string("line 20"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_log_of_finished_job_from_last_event_id() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(3L).status("complete").build();
+    when(jobsRepository.existsById(3L)).thenReturn(true);
+    when(jobsRepository.findById(3L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(3L, 0))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(3L).seq(1).message("second").build(),
+                JobLogLine.builder().jobId(3L).seq(2).message("third").build()));
+
+    // Act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/jobs/logs/{id}/stream", 3L).header("Last-Event-ID", "0"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // Assert
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(
+            content()
+                .string("id:1\ndata:second\n\nid:2\ndata:third\n\nevent:end\ndata:complete\n\n"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_of_missing_job_returns_404() throws Exception {
+    when(jobsRepository.existsById(4L)).thenReturn(false);
+
+    mockMvc.perform(get("/api/jobs/logs/{id}/stream", 4L)).andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_user_cannot_stream_job_log() throws Exception {
+    mockMvc.perform(get("/api/jobs/logs/{id}/stream", 3L)).andExpect(status().is(403));
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_delete_specific_job() throws Exception {
@@ -230,29 +658,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    User user = currentUserService.getUser();
-
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
-
-    Job jobCompleted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("complete")
-            .log("Hello World! from test job!\nGoodbye from test job!")
-            .build();
-
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobCompleted);
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
     // act
     MvcResult response =
@@ -268,42 +674,211 @@ public class JobsControllerTests extends ControllerTestCase {
     assertEquals("running", jobReturned.getStatus());
 
     await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobsRepository)
+                    .finishAttempt(anyLong(), anyString(), eq(1), eq("complete"), any()));
+    verify(jobsRepository, times(1)).save(any(Job.class));
+
+    List<JobLogLine> lines = writtenLogLines();
+    assertEquals(2, lines.size());
+    assertEquals("Hello World! from test job!", lines.get(0).getMessage());
+    assertEquals("Goodbye from test job!", lines.get(1).getMessage());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_pipeline() throws Exception {
+
+    // arrange
+
+    List<String> saves = Collections.synchronizedList(new ArrayList<>());
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              saves.add(job.getStage() + " " + job.getStatus());
+              return job;
+            });
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testpipeline?fail=false&sleepMs=200&width=2").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals("running", jobReturned.getStatus());
+    assertEquals(4L, jobReturned.getProgressTotal());
+
+    // the four stages and then the pipeline itself finish through the fenced update
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(4)).save(eq(jobCompleted)));
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(5))
+                    .finishAttempt(anyLong(), anyString(), eq(1), eq("complete"), any()));
+    assertEquals(
+        List.of(
+            "null running",
+            "first pending",
+            "parallel-1 pending",
+            "parallel-2 pending",
+            "last pending",
+            "first running"),
+        saves.subList(0, 6));
+    assertEquals("last running", saves.get(saves.size() - 1));
   }
 
   @WithMockUser(roles = {"ADMIN"})
   @Test
-  public void admin_can_launch_test_job_that_fails() throws Exception {
+  public void admin_can_get_pipeline_stages() throws Exception {
 
     // arrange
 
-    User user = currentUserService.getUser();
+    List<Job> stages =
+        List.of(
+            Job.builder().id(8L).parentId(7L).stage("first").status("complete").build(),
+            Job.builder().id(9L).parentId(7L).stage("last").status("running").build());
+    when(jobsRepository.existsById(7L)).thenReturn(true);
+    when(jobsRepository.findByParentIdOrderByIdAsc(7L)).thenReturn(stages);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/{id}/stages", 7L)).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(
+        objectMapper.writeValueAsString(stages), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void getting_stages_of_missing_job_is_not_found() throws Exception {
+    when(jobsRepository.existsById(7L)).thenReturn(false);
+
+    mockMvc.perform(get("/api/jobs/{id}/stages", 7L)).andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launching_test_job_again_with_same_key_returns_running_job() throws Exception {
+
+    // arrange
 
-    Job jobStarted =
+    Job running =
         Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
+            .id(12L)
             .status("running")
-            .log("Hello World! from test job!")
+            .idempotencyKey("launch-1")
+            .jobType("TestJob")
+            .parameters("{\"fail\":false,\"sleepMs\":2000}")
             .build();
+    when(jobsRepository.findActiveByIdempotencyKey("launch-1")).thenReturn(Optional.of(running));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=2000")
+                    .header("Idempotency-Key", "launch-1")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals(12L, jobReturned.getId());
+    verify(jobsRepository, never()).save(any(Job.class));
+  }
 
-    Job jobFailed =
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launching_test_job_with_key_of_different_job_is_a_conflict() throws Exception {
+
+    Job running =
         Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("error")
-            .log("Hello World! from test job!\nFail!")
+            .id(12L)
+            .status("running")
+            .idempotencyKey("launch-1")
+            .jobType("TestJob")
+            .parameters("{\"fail\":true,\"sleepMs\":2000}")
             .build();
+    when(jobsRepository.findActiveByIdempotencyKey("launch-1")).thenReturn(Optional.of(running));
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/jobs/launch/testjob?fail=false&sleepMs=2000")
+                    .header("Idempotency-Key", "launch-1")
+                    .with(csrf()))
+            .andExpect(status().isConflict())
+            .andReturn();
+
+    assertEquals(
+        "Idempotency key launch-1 is in use by job 12 with different parameters",
+        responseToJson(response).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_normalize_menu_item_reviews_job() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(100)))
+        .thenReturn(List.of());
+    // keep the job running until the response has been checked
+    CountDownLatch responseChecked = new CountDownLatch(1);
+    when(menuItemReviewRepository.countByIdGreaterThan(0L))
+        .thenAnswer(
+            invocation -> {
+              responseChecked.await(10, SECONDS);
+              return 0L;
+            });
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/normalizeMenuItemReviews?chunkSize=100").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals("running", jobReturned.getStatus());
+    responseChecked.countDown();
+
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobsRepository)
+                    .finishAttempt(anyLong(), anyString(), eq(1), eq("complete"), any()));
+    verify(jobsRepository, times(1)).save(any(Job.class));
+    verify(menuItemReviewRepository).countByIdGreaterThan(0L);
+
+    List<JobLogLine> lines = writtenLogLines();
+    assertEquals(1, lines.size());
+    assertEquals(
+        "Read 0 items in 0 chunks, wrote 0; last checkpoint null", lines.get(0).getMessage());
+  }
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobFailed);
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job_that_fails() throws Exception {
+
+    // arrange
+
+    when(jobsRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
     // act
     MvcResult response =
@@ -317,12 +892,24 @@ public class JobsControllerTests extends ControllerTestCase {
 
     assertEquals("running", jobReturned.getStatus());
 
-    await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
-
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(3)).save(eq(jobFailed)));
+        .untilAsserted(
+            () ->
+                verify(jobsRepository)
+                    .finishAttempt(anyLong(), anyString(), eq(1), eq("error"), any()));
+    verify(jobsRepository, times(1)).save(any(Job.class));
+
+    List<JobLogLine> lines = writtenLogLines();
+    assertEquals(2, lines.size());
+    assertEquals("Hello World! from test job!", lines.get(0).getMessage());
+    assertEquals("Fail!", lines.get(1).getMessage());
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<JobLogLine> writtenLogLines() {
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(jobLogLinesRepository, atLeastOnce()).insertAll(captor.capture());
+    return captor.getAllValues().stream().flatMap(List::stream).toList();
   }
 }
@@ -1,35 +1,48 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.NdjsonExporter;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @WebMvcTest(controllers = MenuItemReviewController.class)
 @Import(TestConfig.class)
@@ -39,6 +52,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
   @MockBean UserRepository userRepository;
 
+  @MockBean NdjsonExporter ndjsonExporter;
+
   // Authorization tests for /api/menuitemreview/admin/all
   @Test
   public void logged_out_users_cannot_get_all() throws Exception {
@@ -212,18 +227,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
   public void admin_can_delete_a_menuitemreview() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-    MenuItemReview menuItemReview1 =
-        MenuItemReview.builder()
-            .itemId(1)
-            .reviewerEmail("testEmail1@gmail.com")
-            .stars(4)
-            .dateReviewed(ldt1)
-            .comments("reviewed")
-            .build();
-
-    when(menuItemReviewRepository.findById(eq(123L))).thenReturn(Optional.of(menuItemReview1));
+    when(menuItemReviewRepository.deleteOne(eq(123L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -233,8 +237,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(menuItemReviewRepository, times(1)).findById(123L);
-    verify(menuItemReviewRepository, times(1)).delete(any());
+    verify(menuItemReviewRepository, times(1)).deleteOne(123L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("MenuItemReview with id 123 deleted", json.get("message"));
@@ -246,7 +249,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(menuItemReviewRepository.findById(eq(123L))).thenReturn(Optional.empty());
+    when(menuItemReviewRepository.deleteOne(eq(123L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -256,30 +259,53 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(menuItemReviewRepository, times(1)).findById(123L);
+    verify(menuItemReviewRepository, times(1)).deleteOne(123L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("MenuItemReview with id 123 not found", json.get("message"));
   }
 
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_bulk_delete_menuitemreviews_before_a_time() throws Exception {
+    LocalDateTime t = LocalDateTime.parse("2022-01-03T00:00:00");
+    when(menuItemReviewRepository.deleteInBulk(t)).thenReturn(4);
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/menuitemreview/all")
+                    .param("reviewedBefore", "2022-01-03T00:00:00")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    verify(menuItemReviewRepository, times(1)).deleteInBulk(t);
+    verify(menuItemReviewRepository, never()).deleteAll();
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("4 menu item reviews deleted", json.get("message"));
+    assertEquals(4, json.get("deleted"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_bulk_delete_all_menuitemreviews() throws Exception {
+    when(menuItemReviewRepository.deleteInBulk(null)).thenReturn(0);
+
+    mockMvc.perform(delete("/api/menuitemreview/all").with(csrf())).andExpect(status().isOk());
+
+    verify(menuItemReviewRepository, times(1)).deleteInBulk(null);
+  }
+
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
   public void admin_can_edit_an_existing_menuitemreview() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
     LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-    MenuItemReview menuItemReviewOrig =
-        MenuItemReview.builder()
-            .itemId(1)
-            .reviewerEmail("original@gmail.com")
-            .stars(1)
-            .dateReviewed(ldt1)
-            .comments("Not Bad")
-            .build();
-
     MenuItemReview menuItemReviewEdited =
         MenuItemReview.builder()
+            .id(123L)
             .itemId(11)
             .reviewerEmail("edited@gmail.com")
             .stars(5)
@@ -289,7 +315,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(menuItemReviewEdited);
 
-    when(menuItemReviewRepository.findById(eq(123L))).thenReturn(Optional.of(menuItemReviewOrig));
+    when(menuItemReviewRepository.updateOne(eq(123L), any(MenuItemReview.class))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -304,9 +330,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(menuItemReviewRepository, times(1)).findById(123L);
-    verify(menuItemReviewRepository, times(1))
-        .save(menuItemReviewEdited); // should be saved with correct user
+    verify(menuItemReviewRepository, times(1)).updateOne(123L, menuItemReviewEdited);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(requestBody, responseString);
   }
@@ -329,7 +353,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(menuItemReviewEdited);
 
-    when(menuItemReviewRepository.findById(eq(123L))).thenReturn(Optional.empty());
+    when(menuItemReviewRepository.updateOne(eq(123L), any(MenuItemReview.class))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -344,8 +368,116 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(menuItemReviewRepository, times(1)).findById(123L);
+    verify(menuItemReviewRepository, times(1)).updateOne(eq(123L), any(MenuItemReview.class));
     Map<String, Object> json = responseToJson(response);
     assertEquals("MenuItemReview with id 123 not found", json.get("message"));
   }
+
+  // Tests for GET /api/menuitemreview/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_and_the_next_one() throws Exception {
+
+    // arrange
+
+    List<MenuItemReview> rows =
+        new ArrayList<>(
+            List.of(
+                MenuItemReview.builder().id(1).stars(1).build(),
+                MenuItemReview.builder().id(2).stars(2).build(),
+                MenuItemReview.builder().id(3).stars(3).build()));
+    when(menuItemReviewRepository.findBy(
+            ArgumentMatchers.<Specification<MenuItemReview>>any(), any()))
+        .thenReturn(rows);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/page?sort=stars&direction=desc&limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        mapper.readValue(mapper.writeValueAsString(rows.subList(0, 2)), List.class),
+        json.get("items"));
+    assertNotNull(json.get("next"));
+
+    mockMvc
+        .perform(
+            get(
+                "/api/menuitemreview/page?sort=stars&direction=desc&limit=2&after="
+                    + json.get("next")))
+        .andExpect(status().isOk());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_sort_a_page_by_an_unknown_field() throws Exception {
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/page?sort=nonexistent"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+
+    verify(menuItemReviewRepository, never())
+        .findBy(ArgumentMatchers.<Specification<MenuItemReview>>any(), any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidPageRequestException", json.get("type"));
+  }
+
+  // Tests for GET /api/menuitemreview/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/export")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_can_export_and_the_rows_are_streamed_from_the_repository() throws Exception {
+
+    // arrange
+
+    ArgumentCaptor<Supplier<Stream<MenuItemReview>>> rows = ArgumentCaptor.captor();
+    StreamingResponseBody body = out -> out.write("{\"id\":1}\n".getBytes());
+    when(ndjsonExporter.export(eq("menuitemreviews.ndjson"), rows.capture()))
+        .thenReturn(ResponseEntity.ok().contentType(NdjsonExporter.APPLICATION_NDJSON).body(body));
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc.perform(asyncDispatch(response)).andExpect(status().isOk());
+
+    // assert
+
+    assertEquals("{\"id\":1}\n", response.getResponse().getContentAsString());
+    assertEquals("application/x-ndjson", response.getResponse().getContentType());
+    rows.getValue().get();
+    verify(menuItemReviewRepository, times(1)).streamAllByOrderByIdAsc();
+  }
 }
@@ -1,8 +1,10 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -20,12 +22,15 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -210,21 +215,9 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
     LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
     LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:10");
 
-    RecommendationRequest request1 =
-        RecommendationRequest.builder()
-            .requesterEmail("user@ucsb.edu")
-            .professorEmail("professor@ucsb.edu")
-            .explanation("explanation")
-            .dateRequested(ldt1)
-            .dateNeeded(ldt2)
-            .done(false)
-            .build();
-
-    LocalDateTime ldt3 = LocalDateTime.parse("2022-01-03T00:00:10");
-    LocalDateTime ldt4 = LocalDateTime.parse("2023-01-03T00:00:10");
-
     RecommendationRequest request2 =
         RecommendationRequest.builder()
+            .id(67L)
             .requesterEmail("newuser@ucsb.edu")
             .professorEmail("newprofessor@ucsb.edu")
             .explanation("explanation1")
@@ -235,7 +228,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(request2);
 
-    when(recommendationrequestRepository.findById(eq(67L))).thenReturn(Optional.of(request1));
+    when(recommendationrequestRepository.updateOne(eq(67L), any(RecommendationRequest.class)))
+        .thenReturn(1);
 
     // act
     MvcResult response =
@@ -250,9 +244,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(recommendationrequestRepository, times(1)).findById(67L);
-    verify(recommendationrequestRepository, times(1))
-        .save(request2); // should be saved with correct user
+    verify(recommendationrequestRepository, times(1)).updateOne(67L, request2);
 
     String responseString = response.getResponse().getContentAsString();
     assertEquals(requestBody, responseString);
@@ -278,7 +270,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(request);
 
-    when(recommendationrequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(recommendationrequestRepository.updateOne(eq(67L), any(RecommendationRequest.class)))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -293,7 +286,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(recommendationrequestRepository, times(1)).findById(67L);
+    verify(recommendationrequestRepository, times(1))
+        .updateOne(eq(67L), any(RecommendationRequest.class));
     Map<String, Object> json = responseToJson(response);
     assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
   }
@@ -303,19 +297,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
   public void admin_can_delete_a_request() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-    LocalDateTime ldt2 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-    RecommendationRequest request =
-        RecommendationRequest.builder()
-            .requesterEmail("user@ucsb.edu")
-            .professorEmail("professor@ucsb.edu")
-            .dateRequested(ldt1)
-            .dateNeeded(ldt2)
-            .done(true)
-            .build();
-
-    when(recommendationrequestRepository.findById(eq(15L))).thenReturn(Optional.of(request));
+    when(recommendationrequestRepository.deleteOne(eq(15L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -325,8 +307,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(recommendationrequestRepository, times(1)).findById(15L);
-    verify(recommendationrequestRepository, times(1)).delete(any());
+    verify(recommendationrequestRepository, times(1)).deleteOne(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("request with id 15 deleted", json.get("message"));
@@ -338,7 +319,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(recommendationrequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(recommendationrequestRepository.deleteOne(eq(15L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -348,8 +329,76 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(recommendationrequestRepository, times(1)).findById(15L);
+    verify(recommendationrequestRepository, times(1)).deleteOne(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
   }
+
+  // Tests for GET /api/recommendationrequests/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/recommendationrequests/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_and_the_next_one() throws Exception {
+
+    // arrange
+
+    List<RecommendationRequest> rows =
+        new ArrayList<>(
+            List.of(
+                RecommendationRequest.builder().id(1L).professorEmail("p1@ucsb.edu").build(),
+                RecommendationRequest.builder().id(2L).professorEmail("p2@ucsb.edu").build(),
+                RecommendationRequest.builder().id(3L).professorEmail("p3@ucsb.edu").build()));
+    when(recommendationrequestRepository.findBy(
+            ArgumentMatchers.<Specification<RecommendationRequest>>any(), any()))
+        .thenReturn(rows);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/recommendationrequests/page?sort=professorEmail&direction=desc&limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        mapper.readValue(mapper.writeValueAsString(rows.subList(0, 2)), List.class),
+        json.get("items"));
+    assertNotNull(json.get("next"));
+
+    mockMvc
+        .perform(
+            get(
+                "/api/recommendationrequests/page?sort=professorEmail&direction=desc&limit=2&after="
+                    + json.get("next")))
+        .andExpect(status().isOk());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_sort_a_page_by_an_unknown_field() throws Exception {
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/recommendationrequests/page?sort=nonexistent"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+
+    verify(recommendationrequestRepository, never())
+        .findBy(ArgumentMatchers.<Specification<RecommendationRequest>>any(), any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidPageRequestException", json.get("type"));
+  }
 }
@@ -1,8 +1,11 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -20,12 +23,15 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -176,9 +182,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
   public void admin_can_delete_a_restaurant() throws Exception {
     // arrange
 
-    Restaurant restaurant = Restaurant.builder().name("Taco Bell").description("Mexican").build();
-
-    when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.of(restaurant));
+    when(restaurantRepository.deleteOne(eq(15L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -188,8 +192,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(restaurantRepository, times(1)).findById(15L);
-    verify(restaurantRepository, times(1)).delete(any());
+    verify(restaurantRepository, times(1)).deleteOne(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("Restaurant with id 15 deleted", json.get("message"));
@@ -201,7 +204,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(restaurantRepository.deleteOne(eq(15L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -211,7 +214,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(restaurantRepository, times(1)).findById(15L);
+    verify(restaurantRepository, times(1)).deleteOne(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("Restaurant with id 15 not found", json.get("message"));
   }
@@ -221,15 +224,12 @@ public class RestaurantsControllerTests extends ControllerTestCase {
   public void admin_can_edit_an_existing_restaurant() throws Exception {
     // arrange
 
-    Restaurant restaurantOrig =
-        Restaurant.builder().id(67L).name("Chipotle").description("Mexican").build();
-
     Restaurant restaurantEdited =
         Restaurant.builder().id(67L).name("Taco Bell").description("American").build();
 
     String requestBody = mapper.writeValueAsString(restaurantEdited);
 
-    when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(restaurantOrig));
+    when(restaurantRepository.updateOne(eq(67L), any(Restaurant.class))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -244,9 +244,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(restaurantRepository, times(1)).findById(67L);
-    verify(restaurantRepository, times(1))
-        .save(restaurantEdited); // should be saved with correct user
+    verify(restaurantRepository, times(1)).updateOne(67L, restaurantEdited);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(requestBody, responseString);
   }
@@ -261,7 +259,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(editedRestaurant);
 
-    when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(restaurantRepository.updateOne(eq(67L), any(Restaurant.class))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -276,8 +274,115 @@ public class RestaurantsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(restaurantRepository, times(1)).findById(67L);
+    verify(restaurantRepository, times(1)).updateOne(eq(67L), any(Restaurant.class));
     Map<String, Object> json = responseToJson(response);
     assertEquals("Restaurant with id 67 not found", json.get("message"));
   }
+
+  // Tests for GET /api/restaurants/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/restaurants/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_and_the_next_one() throws Exception {
+
+    // arrange
+
+    List<Restaurant> rows =
+        new ArrayList<>(
+            List.of(
+                Restaurant.builder().id(1).name("r1").build(),
+                Restaurant.builder().id(2).name("r2").build(),
+                Restaurant.builder().id(3).name("r3").build()));
+    when(restaurantRepository.findBy(ArgumentMatchers.<Specification<Restaurant>>any(), any()))
+        .thenReturn(rows);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/page?sort=name&direction=desc&limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        mapper.readValue(mapper.writeValueAsString(rows.subList(0, 2)), List.class),
+        json.get("items"));
+    assertNotNull(json.get("next"));
+
+    mockMvc
+        .perform(
+            get("/api/restaurants/page?sort=name&direction=desc&limit=2&after=" + json.get("next")))
+        .andExpect(status().isOk());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_sort_a_page_by_an_unknown_field() throws Exception {
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/page?sort=nonexistent"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+
+    verify(restaurantRepository, never())
+        .findBy(ArgumentMatchers.<Specification<Restaurant>>any(), any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidPageRequestException", json.get("type"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_get_a_page_in_an_unknown_direction() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/page?direction=sideways"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Unknown direction sideways", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_get_a_page_after_an_invalid_cursor() throws Exception {
+    mockMvc
+        .perform(get("/api/restaurants/page?after=not-a-cursor"))
+        .andExpect(status().isBadRequest());
+    mockMvc
+        .perform(get("/api/restaurants/page?sort=name&after=WyJyMiJd"))
+        .andExpect(status().isBadRequest());
+    verify(restaurantRepository, never())
+        .findBy(ArgumentMatchers.<Specification<Restaurant>>any(), any());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void a_short_last_page_has_no_next_cursor() throws Exception {
+    when(restaurantRepository.findBy(ArgumentMatchers.<Specification<Restaurant>>any(), any()))
+        .thenReturn(List.of(Restaurant.builder().id(1).name("r1").build()));
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/page?limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(1, ((List<?>) json.get("items")).size());
+    assertNull(json.get("next"));
+  }
 }
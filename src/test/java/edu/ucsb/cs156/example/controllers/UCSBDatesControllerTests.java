@@ -1,8 +1,11 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -14,31 +17,52 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.TableVersion;
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.BulkItemResult;
+import edu.ucsb.cs156.example.repositories.TableVersionsRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.services.TableVersions;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(controllers = UCSBDatesController.class)
-@Import(TestConfig.class)
+@Import({TestConfig.class, TableVersions.class})
 public class UCSBDatesControllerTests extends ControllerTestCase {
 
   @MockBean UCSBDateRepository ucsbDateRepository;
 
   @MockBean UserRepository userRepository;
 
+  @MockBean BulkInserter bulkInserter;
+
+  @MockBean TableVersionsRepository tableVersionsRepository;
+
+  @BeforeEach
+  public void setup() {
+    when(tableVersionsRepository.findById("ucsbdates"))
+        .thenReturn(Optional.of(TableVersion.builder().name("ucsbdates").version(3).build()));
+  }
+
   // Authorization tests for /api/ucsbdates/admin/all
 
   @Test
@@ -193,6 +217,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
+    verify(tableVersionsRepository, times(1)).increment("ucsbdates");
     verify(ucsbDateRepository, times(1)).save(ucsbDate1);
     String expectedJson = mapper.writeValueAsString(ucsbDate1);
     String responseString = response.getResponse().getContentAsString();
@@ -204,16 +229,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
   public void admin_can_delete_a_date() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-    UCSBDate ucsbDate1 =
-        UCSBDate.builder()
-            .name("firstDayOfClasses")
-            .quarterYYYYQ("20222")
-            .localDateTime(ldt1)
-            .build();
-
-    when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+    when(ucsbDateRepository.deleteOne(eq(15L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -223,8 +239,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDateRepository, times(1)).findById(15L);
-    verify(ucsbDateRepository, times(1)).delete(any());
+    verify(tableVersionsRepository, times(1)).increment("ucsbdates");
+    verify(ucsbDateRepository, times(1)).deleteOne(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -236,7 +252,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(ucsbDateRepository.deleteOne(eq(15L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -246,7 +262,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDateRepository, times(1)).findById(15L);
+    verify(tableVersionsRepository, never()).increment("ucsbdates");
+    verify(ucsbDateRepository, times(1)).deleteOne(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDate with id 15 not found", json.get("message"));
   }
@@ -256,18 +273,11 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
   public void admin_can_edit_an_existing_ucsbdate() throws Exception {
     // arrange
 
-    LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
     LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-    UCSBDate ucsbDateOrig =
-        UCSBDate.builder()
-            .name("firstDayOfClasses")
-            .quarterYYYYQ("20222")
-            .localDateTime(ldt1)
-            .build();
-
     UCSBDate ucsbDateEdited =
         UCSBDate.builder()
+            .id(67L)
             .name("firstDayOfFestivus")
             .quarterYYYYQ("20232")
             .localDateTime(ldt2)
@@ -275,7 +285,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(ucsbDateEdited);
 
-    when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+    when(ucsbDateRepository.updateOne(eq(67L), any(UCSBDate.class))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -290,8 +300,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDateRepository, times(1)).findById(67L);
-    verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+    verify(tableVersionsRepository, times(1)).increment("ucsbdates");
+    verify(ucsbDateRepository, times(1)).updateOne(67L, ucsbDateEdited);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(requestBody, responseString);
   }
@@ -312,7 +322,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(ucsbEditedDate);
 
-    when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(ucsbDateRepository.updateOne(eq(67L), any(UCSBDate.class))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -327,8 +337,200 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDateRepository, times(1)).findById(67L);
+    verify(tableVersionsRepository, never()).increment("ucsbdates");
+    verify(ucsbDateRepository, times(1)).updateOne(eq(67L), any(UCSBDate.class));
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDate with id 67 not found", json.get("message"));
   }
+
+  // Tests for GET /api/ucsbdates/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/ucsbdates/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_and_the_next_one() throws Exception {
+
+    // arrange
+
+    List<UCSBDate> rows =
+        new ArrayList<>(
+            List.of(
+                UCSBDate.builder().id(1).name("d1").build(),
+                UCSBDate.builder().id(2).name("d2").build(),
+                UCSBDate.builder().id(3).name("d3").build()));
+    when(ucsbDateRepository.findBy(ArgumentMatchers.<Specification<UCSBDate>>any(), any()))
+        .thenReturn(rows);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/page?sort=name&direction=desc&limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        mapper.readValue(mapper.writeValueAsString(rows.subList(0, 2)), List.class),
+        json.get("items"));
+    assertNotNull(json.get("next"));
+
+    mockMvc
+        .perform(
+            get("/api/ucsbdates/page?sort=name&direction=desc&limit=2&after=" + json.get("next")))
+        .andExpect(status().isOk());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_sort_a_page_by_an_unknown_field() throws Exception {
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/page?sort=nonexistent"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+
+    verify(ucsbDateRepository, never())
+        .findBy(ArgumentMatchers.<Specification<UCSBDate>>any(), any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidPageRequestException", json.get("type"));
+  }
+
+  // Tests for conditional GETs
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_the_table_etag() throws Exception {
+    MvcResult response =
+        mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk()).andReturn();
+
+    assertEquals("\"ucsbdates-3\"", response.getResponse().getHeader("ETag"));
+    assertEquals("no-cache", response.getResponse().getHeader("Cache-Control"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_with_the_current_etag_returns_304_without_reading_the_table()
+      throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/all").header("If-None-Match", "\"ucsbdates-3\""))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    verify(ucsbDateRepository, never()).findAll();
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_with_an_old_etag_returns_the_table() throws Exception {
+    when(ucsbDateRepository.findAll()).thenReturn(new ArrayList<>());
+
+    mockMvc
+        .perform(get("/api/ucsbdates/all").header("If-None-Match", "\"ucsbdates-2\""))
+        .andExpect(status().isOk());
+
+    verify(ucsbDateRepository, times(1)).findAll();
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_with_the_current_etag_returns_304_without_reading_the_table()
+      throws Exception {
+    when(ucsbDateRepository.findById(eq(7L)))
+        .thenReturn(Optional.of(UCSBDate.builder().id(7L).name("firstDayOfClasses").build()));
+
+    MvcResult response =
+        mockMvc.perform(get("/api/ucsbdates?id=7")).andExpect(status().isOk()).andReturn();
+    String etag = response.getResponse().getHeader("ETag");
+    mockMvc
+        .perform(get("/api/ucsbdates?id=7").header("If-None-Match", etag))
+        .andExpect(status().isNotModified());
+
+    verify(ucsbDateRepository, times(1)).findById(eq(7L));
+  }
+
+  // Tests for POST /api/ucsbdates/bulk
+
+  @Test
+  public void logged_out_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdates/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdates/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_in_bulk() throws Exception {
+
+    // arrange
+
+    List<BulkItemResult> results =
+        List.of(
+            BulkItemResult.builder().index(0).status("created").id(1L).build(),
+            BulkItemResult.builder()
+                .index(1)
+                .status("rejected")
+                .message("Missing name, localDateTime")
+                .build(),
+            BulkItemResult.builder().index(2).status("rejected").message("Item is null").build());
+    ArgumentCaptor<List<UCSBDate>> items = ArgumentCaptor.captor();
+    ArgumentCaptor<Function<UCSBDate, String>> check = ArgumentCaptor.captor();
+    when(bulkInserter.insertAll(items.capture(), check.capture(), any())).thenReturn(results);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdates/bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        "[{\"id\":99,\"quarterYYYYQ\":\"20222\",\"name\":\"firstDayOfClasses\",\"localDateTime\":\"2022-01-03T00:00:00\"},{\"quarterYYYYQ\":\"20222\"},null]")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(tableVersionsRepository, times(1)).increment("ucsbdates");
+    assertEquals(mapper.writeValueAsString(results), response.getResponse().getContentAsString());
+    UCSBDate expected =
+        UCSBDate.builder()
+            .quarterYYYYQ("20222")
+            .name("firstDayOfClasses")
+            .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .build();
+    assertEquals(expected, items.getValue().get(0));
+    assertNull(items.getValue().get(2));
+    assertNull(check.getValue().apply(items.getValue().get(0)));
+    assertEquals("Missing name, localDateTime", check.getValue().apply(items.getValue().get(1)));
+  }
 }
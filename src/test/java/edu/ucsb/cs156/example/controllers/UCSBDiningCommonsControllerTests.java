@@ -1,8 +1,10 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -14,30 +16,46 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.TableVersion;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.repositories.TableVersionsRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.TableVersions;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(controllers = UCSBDiningCommonsController.class)
-@Import(TestConfig.class)
+@Import({TestConfig.class, TableVersions.class})
 public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
   @MockBean UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
   @MockBean UserRepository userRepository;
 
+  @MockBean TableVersionsRepository tableVersionsRepository;
+
+  @BeforeEach
+  public void setup() {
+    when(tableVersionsRepository.findById("ucsbdiningcommons"))
+        .thenReturn(
+            Optional.of(TableVersion.builder().name("ucsbdiningcommons").version(3).build()));
+  }
+
   // Authorization tests for /api/ucsbdiningcommons/admin/all
 
   @Test
@@ -208,6 +226,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
+    verify(tableVersionsRepository, times(1)).increment("ucsbdiningcommons");
     verify(ucsbDiningCommonsRepository, times(1)).save(ortega);
     String expectedJson = mapper.writeValueAsString(ortega);
     String responseString = response.getResponse().getContentAsString();
@@ -219,18 +238,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
   public void admin_can_delete_a_date() throws Exception {
     // arrange
 
-    UCSBDiningCommons portola =
-        UCSBDiningCommons.builder()
-            .name("Portola")
-            .code("portola")
-            .hasSackMeal(true)
-            .hasTakeOutMeal(true)
-            .hasDiningCam(true)
-            .latitude(34.417723)
-            .longitude(-119.867427)
-            .build();
-
-    when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+    when(ucsbDiningCommonsRepository.deleteOne(eq("portola"))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -240,8 +248,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-    verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+    verify(tableVersionsRepository, times(1)).increment("ucsbdiningcommons");
+    verify(ucsbDiningCommonsRepository, times(1)).deleteOne("portola");
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -253,7 +261,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsRepository.deleteOne(eq("munger-hall"))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -263,7 +271,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+    verify(tableVersionsRepository, never()).increment("ucsbdiningcommons");
+    verify(ucsbDiningCommonsRepository, times(1)).deleteOne("munger-hall");
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
   }
@@ -273,17 +282,6 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
   public void admin_can_edit_an_existing_commons() throws Exception {
     // arrange
 
-    UCSBDiningCommons carrilloOrig =
-        UCSBDiningCommons.builder()
-            .name("Carrillo")
-            .code("carrillo")
-            .hasSackMeal(false)
-            .hasTakeOutMeal(false)
-            .hasDiningCam(true)
-            .latitude(34.409953)
-            .longitude(-119.85277)
-            .build();
-
     UCSBDiningCommons carrilloEdited =
         UCSBDiningCommons.builder()
             .name("Carrillo Dining Hall")
@@ -297,8 +295,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(carrilloEdited);
 
-    when(ucsbDiningCommonsRepository.findById(eq("carrillo")))
-        .thenReturn(Optional.of(carrilloOrig));
+    when(ucsbDiningCommonsRepository.updateOne(eq("carrillo"), any(UCSBDiningCommons.class)))
+        .thenReturn(1);
 
     // act
     MvcResult response =
@@ -313,9 +311,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
-    verify(ucsbDiningCommonsRepository, times(1))
-        .save(carrilloEdited); // should be saved with updated info
+    verify(tableVersionsRepository, times(1)).increment("ucsbdiningcommons");
+    verify(ucsbDiningCommonsRepository, times(1)).updateOne("carrillo", carrilloEdited);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(requestBody, responseString);
   }
@@ -338,7 +335,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(editedCommons);
 
-    when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsRepository.updateOne(eq("munger-hall"), any(UCSBDiningCommons.class)))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -353,8 +351,139 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+    verify(tableVersionsRepository, never()).increment("ucsbdiningcommons");
+    verify(ucsbDiningCommonsRepository, times(1))
+        .updateOne(eq("munger-hall"), any(UCSBDiningCommons.class));
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
   }
+
+  // Tests for GET /api/ucsbdiningcommons/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/ucsbdiningcommons/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_and_the_next_one() throws Exception {
+
+    // arrange
+
+    List<UCSBDiningCommons> rows =
+        new ArrayList<>(
+            List.of(
+                UCSBDiningCommons.builder().code("c1").name("n1").build(),
+                UCSBDiningCommons.builder().code("c2").name("n2").build(),
+                UCSBDiningCommons.builder().code("c3").name("n3").build()));
+    when(ucsbDiningCommonsRepository.findBy(
+            ArgumentMatchers.<Specification<UCSBDiningCommons>>any(), any()))
+        .thenReturn(rows);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons/page?sort=name&direction=desc&limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        mapper.readValue(mapper.writeValueAsString(rows.subList(0, 2)), List.class),
+        json.get("items"));
+    assertNotNull(json.get("next"));
+
+    mockMvc
+        .perform(
+            get(
+                "/api/ucsbdiningcommons/page?sort=name&direction=desc&limit=2&after="
+                    + json.get("next")))
+        .andExpect(status().isOk());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_sort_a_page_by_an_unknown_field() throws Exception {
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons/page?sort=nonexistent"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+
+    verify(ucsbDiningCommonsRepository, never())
+        .findBy(ArgumentMatchers.<Specification<UCSBDiningCommons>>any(), any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidPageRequestException", json.get("type"));
+  }
+
+  // Tests for conditional GETs
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_the_table_etag() throws Exception {
+    MvcResult response =
+        mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk()).andReturn();
+
+    assertEquals("\"ucsbdiningcommons-3\"", response.getResponse().getHeader("ETag"));
+    assertEquals("no-cache", response.getResponse().getHeader("Cache-Control"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_with_the_current_etag_returns_304_without_reading_the_table()
+      throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/ucsbdiningcommons/all")
+                    .header("If-None-Match", "\"ucsbdiningcommons-3\""))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    verify(ucsbDiningCommonsRepository, never()).findAll();
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_with_an_old_etag_returns_the_table() throws Exception {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(new ArrayList<>());
+
+    mockMvc
+        .perform(
+            get("/api/ucsbdiningcommons/all").header("If-None-Match", "\"ucsbdiningcommons-2\""))
+        .andExpect(status().isOk());
+
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_with_the_current_etag_returns_304_without_reading_the_table()
+      throws Exception {
+    when(ucsbDiningCommonsRepository.findById(eq("carrillo")))
+        .thenReturn(
+            Optional.of(UCSBDiningCommons.builder().code("carrillo").name("Carrillo").build()));
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons?code=carrillo"))
+            .andExpect(status().isOk())
+            .andReturn();
+    String etag = response.getResponse().getHeader("ETag");
+    mockMvc
+        .perform(get("/api/ucsbdiningcommons?code=carrillo").header("If-None-Match", etag))
+        .andExpect(status().isNotModified());
+
+    verify(ucsbDiningCommonsRepository, times(1)).findById(eq("carrillo"));
+  }
 }
@@ -1,8 +1,11 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -15,17 +18,24 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.BulkItemResult;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -38,6 +48,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
   @MockBean UserRepository userRepository;
 
+  @MockBean BulkInserter bulkInserter;
+
   // Authorization tests for /api/ucsbdiningcommonsmenuitem/admin/all
 
   @Test
@@ -191,15 +203,9 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
   public void admin_can_edit_an_existing_ucsbdiningcommonsmenuitem() throws Exception {
     // arrange
 
-    UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItemOrig =
-        UCSBDiningCommonsMenuItem.builder()
-            .diningCommonsCode("ortega")
-            .name("Baked Pesto Pasta with Chicken")
-            .station("Entree Specials")
-            .build();
-
     UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItemEdited =
         UCSBDiningCommonsMenuItem.builder()
+            .id(67L)
             .diningCommonsCode("portola")
             .name("Cream of Broccoli Soup (v)")
             .station("Greens & Grains")
@@ -207,8 +213,9 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
     String requestBody = mapper.writeValueAsString(ucsbDiningCommonsMenuItemEdited);
 
-    when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L)))
-        .thenReturn(Optional.of(ucsbDiningCommonsMenuItemOrig));
+    when(ucsbDiningCommonsMenuItemRepository.updateOne(
+            eq(67L), any(UCSBDiningCommonsMenuItem.class)))
+        .thenReturn(1);
 
     // act
     MvcResult response =
@@ -223,9 +230,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(67L);
     verify(ucsbDiningCommonsMenuItemRepository, times(1))
-        .save(ucsbDiningCommonsMenuItemEdited); // should be saved with correct user
+        .updateOne(67L, ucsbDiningCommonsMenuItemEdited);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(requestBody, responseString);
   }
@@ -244,7 +250,9 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
     String requestBody = mapper.writeValueAsString(ucsbEditedDiningCommonsMenuItem);
 
-    when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L))).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsMenuItemRepository.updateOne(
+            eq(67L), any(UCSBDiningCommonsMenuItem.class)))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -259,7 +267,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(67L);
+    verify(ucsbDiningCommonsMenuItemRepository, times(1))
+        .updateOne(eq(67L), any(UCSBDiningCommonsMenuItem.class));
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommonsMenuItem with id 67 not found", json.get("message"));
   }
@@ -269,15 +278,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
   public void admin_can_delete_a_menu_item() throws Exception {
     // arrange
 
-    UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem1 =
-        UCSBDiningCommonsMenuItem.builder()
-            .diningCommonsCode("ortega")
-            .name("Baked Pesto Pasta with Chicken")
-            .station("Entree Specials")
-            .build();
-
-    when(ucsbDiningCommonsMenuItemRepository.findById(eq(15L)))
-        .thenReturn(Optional.of(ucsbDiningCommonsMenuItem1));
+    when(ucsbDiningCommonsMenuItemRepository.deleteOne(eq(15L))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -287,8 +288,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).delete(any());
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteOne(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommonsMenuItem with id 15 deleted", json.get("message"));
@@ -300,7 +300,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
       throws Exception {
     // arrange
 
-    when(ucsbDiningCommonsMenuItemRepository.findById(eq(15L))).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsMenuItemRepository.deleteOne(eq(15L))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -310,8 +310,147 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
             .andReturn();
 
     // assert
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteOne(15L);
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommonsMenuItem with id 15 not found", json.get("message"));
   }
+
+  // Tests for GET /api/ucsbdiningcommonsmenuitem/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_and_the_next_one() throws Exception {
+
+    // arrange
+
+    List<UCSBDiningCommonsMenuItem> rows =
+        new ArrayList<>(
+            List.of(
+                UCSBDiningCommonsMenuItem.builder().id(1).station("s1").build(),
+                UCSBDiningCommonsMenuItem.builder().id(2).station("s2").build(),
+                UCSBDiningCommonsMenuItem.builder().id(3).station("s3").build()));
+    when(ucsbDiningCommonsMenuItemRepository.findBy(
+            ArgumentMatchers.<Specification<UCSBDiningCommonsMenuItem>>any(), any()))
+        .thenReturn(rows);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommonsmenuitem/page?sort=station&direction=desc&limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        mapper.readValue(mapper.writeValueAsString(rows.subList(0, 2)), List.class),
+        json.get("items"));
+    assertNotNull(json.get("next"));
+
+    mockMvc
+        .perform(
+            get(
+                "/api/ucsbdiningcommonsmenuitem/page?sort=station&direction=desc&limit=2&after="
+                    + json.get("next")))
+        .andExpect(status().isOk());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_sort_a_page_by_an_unknown_field() throws Exception {
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommonsmenuitem/page?sort=nonexistent"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+
+    verify(ucsbDiningCommonsMenuItemRepository, never())
+        .findBy(ArgumentMatchers.<Specification<UCSBDiningCommonsMenuItem>>any(), any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidPageRequestException", json.get("type"));
+  }
+
+  // Tests for POST /api/ucsbdiningcommonsmenuitem/bulk
+
+  @Test
+  public void logged_out_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdiningcommonsmenuitem/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_regular_users_cannot_post_in_bulk() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdiningcommonsmenuitem/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_post_in_bulk() throws Exception {
+
+    // arrange
+
+    List<BulkItemResult> results =
+        List.of(
+            BulkItemResult.builder().index(0).status("created").id(1L).build(),
+            BulkItemResult.builder()
+                .index(1)
+                .status("rejected")
+                .message("Missing name, station")
+                .build(),
+            BulkItemResult.builder().index(2).status("rejected").message("Item is null").build());
+    ArgumentCaptor<List<UCSBDiningCommonsMenuItem>> items = ArgumentCaptor.captor();
+    ArgumentCaptor<Function<UCSBDiningCommonsMenuItem, String>> check = ArgumentCaptor.captor();
+    when(bulkInserter.insertAll(items.capture(), check.capture(), any())).thenReturn(results);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommonsmenuitem/bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        "[{\"id\":99,\"diningCommonsCode\":\"ortega\",\"name\":\"Baked Pesto Pasta\",\"station\":\"Entree Specials\"},{\"diningCommonsCode\":\"ortega\"},null]")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    assertEquals(mapper.writeValueAsString(results), response.getResponse().getContentAsString());
+    UCSBDiningCommonsMenuItem expected =
+        UCSBDiningCommonsMenuItem.builder()
+            .diningCommonsCode("ortega")
+            .name("Baked Pesto Pasta")
+            .station("Entree Specials")
+            .build();
+    assertEquals(expected, items.getValue().get(0));
+    assertNull(items.getValue().get(2));
+    assertNull(check.getValue().apply(items.getValue().get(0)));
+    assertEquals("Missing name, station", check.getValue().apply(items.getValue().get(1)));
+  }
 }
@@ -1,8 +1,10 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -14,29 +16,45 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.TableVersion;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.TableVersionsRepository;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.TableVersions;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(controllers = UCSBOrganizationController.class)
-@Import(TestConfig.class)
+@Import({TestConfig.class, TableVersions.class})
 public class UCSBOrganizationControllerTests extends ControllerTestCase {
   @MockBean UCSBOrganizationRepository ucsbOrganizationRepository;
 
   @MockBean UserRepository userRepository;
 
+  @MockBean TableVersionsRepository tableVersionsRepository;
+
+  @BeforeEach
+  public void setup() {
+    when(tableVersionsRepository.findById("ucsborganizations"))
+        .thenReturn(
+            Optional.of(TableVersion.builder().name("ucsborganizations").version(3).build()));
+  }
+
   // Authorization tests for /api/ucsborganizations/admin/all
 
   @Test
@@ -127,6 +145,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
+    verify(tableVersionsRepository, times(1)).increment("ucsborganizations");
     verify(ucsbOrganizationRepository, times(1)).save(ZPR);
     String expectedJson = mapper.writeValueAsString(ZPR);
     String responseString = response.getResponse().getContentAsString();
@@ -199,14 +218,6 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
   public void admin_can_edit_an_existing_organization() throws Exception {
     // arrange
 
-    UCSBOrganization ZPROrig =
-        UCSBOrganization.builder()
-            .orgTranslationShort("ZETA PHI RHO")
-            .orgCode("ZPR")
-            .orgTranslation("ZETA PHI RHO")
-            .inactive(false)
-            .build();
-
     UCSBOrganization ZPREdited =
         UCSBOrganization.builder()
             .orgTranslationShort("ZETA PHI RO")
@@ -217,7 +228,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(ZPREdited);
 
-    when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(ZPROrig));
+    when(ucsbOrganizationRepository.updateOne(eq("ZPR"), any(UCSBOrganization.class)))
+        .thenReturn(1);
 
     // act
     MvcResult response =
@@ -232,9 +244,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbOrganizationRepository, times(1)).findById("ZPR");
-    verify(ucsbOrganizationRepository, times(1))
-        .save(ZPREdited); // should be saved with updated info
+    verify(tableVersionsRepository, times(1)).increment("ucsborganizations");
+    verify(ucsbOrganizationRepository, times(1)).updateOne("ZPR", ZPREdited);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(requestBody, responseString);
   }
@@ -254,7 +265,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     String requestBody = mapper.writeValueAsString(editedOrganization);
 
-    when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.empty());
+    when(ucsbOrganizationRepository.updateOne(eq("SKY"), any(UCSBOrganization.class)))
+        .thenReturn(0);
 
     // act
     MvcResult response =
@@ -269,7 +281,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbOrganizationRepository, times(1)).findById("SKY");
+    verify(tableVersionsRepository, never()).increment("ucsborganizations");
+    verify(ucsbOrganizationRepository, times(1)).updateOne(eq("SKY"), any(UCSBOrganization.class));
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBOrganization with id SKY not found", json.get("message"));
   }
@@ -279,15 +292,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
   public void admin_can_delete_an_organization() throws Exception {
     // arrange
 
-    UCSBOrganization ZPR =
-        UCSBOrganization.builder()
-            .orgTranslationShort("ZETA PHI RHO")
-            .orgCode("ZPR")
-            .orgTranslation("ZETA PHI RHO")
-            .inactive(false)
-            .build();
-
-    when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(ZPR));
+    when(ucsbOrganizationRepository.deleteOne(eq("ZPR"))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -297,8 +302,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbOrganizationRepository, times(1)).findById("ZPR");
-    verify(ucsbOrganizationRepository, times(1)).delete(any());
+    verify(tableVersionsRepository, times(1)).increment("ucsborganizations");
+    verify(ucsbOrganizationRepository, times(1)).deleteOne("ZPR");
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBOrganization with id ZPR deleted", json.get("message"));
@@ -310,7 +315,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
       throws Exception {
     // arrange
 
-    when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.empty());
+    when(ucsbOrganizationRepository.deleteOne(eq("SKY"))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -320,8 +325,138 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(ucsbOrganizationRepository, times(1)).findById("SKY");
+    verify(tableVersionsRepository, never()).increment("ucsborganizations");
+    verify(ucsbOrganizationRepository, times(1)).deleteOne("SKY");
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBOrganization with id SKY not found", json.get("message"));
   }
+
+  // Tests for GET /api/ucsborganization/page
+
+  @Test
+  public void logged_out_users_cannot_get_a_page() throws Exception {
+    mockMvc.perform(get("/api/ucsborganization/page")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_and_the_next_one() throws Exception {
+
+    // arrange
+
+    List<UCSBOrganization> rows =
+        new ArrayList<>(
+            List.of(
+                UCSBOrganization.builder().orgCode("o1").orgTranslation("t1").build(),
+                UCSBOrganization.builder().orgCode("o2").orgTranslation("t2").build(),
+                UCSBOrganization.builder().orgCode("o3").orgTranslation("t3").build()));
+    when(ucsbOrganizationRepository.findBy(
+            ArgumentMatchers.<Specification<UCSBOrganization>>any(), any()))
+        .thenReturn(rows);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization/page?sort=orgTranslation&direction=desc&limit=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        mapper.readValue(mapper.writeValueAsString(rows.subList(0, 2)), List.class),
+        json.get("items"));
+    assertNotNull(json.get("next"));
+
+    mockMvc
+        .perform(
+            get(
+                "/api/ucsborganization/page?sort=orgTranslation&direction=desc&limit=2&after="
+                    + json.get("next")))
+        .andExpect(status().isOk());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_cannot_sort_a_page_by_an_unknown_field() throws Exception {
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization/page?sort=nonexistent"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+
+    verify(ucsbOrganizationRepository, never())
+        .findBy(ArgumentMatchers.<Specification<UCSBOrganization>>any(), any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidPageRequestException", json.get("type"));
+  }
+
+  // Tests for conditional GETs
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_returns_the_table_etag() throws Exception {
+    MvcResult response =
+        mockMvc.perform(get("/api/ucsborganization/all")).andExpect(status().isOk()).andReturn();
+
+    assertEquals("\"ucsborganizations-3\"", response.getResponse().getHeader("ETag"));
+    assertEquals("no-cache", response.getResponse().getHeader("Cache-Control"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_with_the_current_etag_returns_304_without_reading_the_table()
+      throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/ucsborganization/all").header("If-None-Match", "\"ucsborganizations-3\""))
+            .andExpect(status().isNotModified())
+            .andReturn();
+
+    verify(ucsbOrganizationRepository, never()).findAll();
+    assertEquals("", response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_all_with_an_old_etag_returns_the_table() throws Exception {
+    when(ucsbOrganizationRepository.findAll()).thenReturn(new ArrayList<>());
+
+    mockMvc
+        .perform(
+            get("/api/ucsborganization/all").header("If-None-Match", "\"ucsborganizations-2\""))
+        .andExpect(status().isOk());
+
+    verify(ucsbOrganizationRepository, times(1)).findAll();
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void get_by_id_with_the_current_etag_returns_304_without_reading_the_table()
+      throws Exception {
+    when(ucsbOrganizationRepository.findById(eq("ZPR")))
+        .thenReturn(
+            Optional.of(
+                UCSBOrganization.builder().orgCode("ZPR").orgTranslation("ZETA PHI RHO").build()));
+
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization?orgCode=ZPR"))
+            .andExpect(status().isOk())
+            .andReturn();
+    String etag = response.getResponse().getHeader("ETag");
+    mockMvc
+        .perform(get("/api/ucsborganization?orgCode=ZPR").header("If-None-Match", etag))
+        .andExpect(status().isNotModified());
+
+    verify(ucsbOrganizationRepository, times(1)).findById(eq("ZPR"));
+  }
 }
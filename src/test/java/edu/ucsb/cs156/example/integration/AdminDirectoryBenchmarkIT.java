@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.config.SecurityConfig;
+import edu.ucsb.cs156.example.services.AdminDirectory;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Measures the authority mapping of logins against a users table of 100,000 users, with the admin
+ * flag read from the table on every login and with the flags cached by AdminDirectory, and compares
+ * looking an email up in a long app.admin.emails list with looking it up in a hash set.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class AdminDirectoryBenchmarkIT {
+  private static final int USERS = 100_000;
+  private static final int DISTINCT_LOGINS = 50;
+  private static final int LOGINS = 500;
+
+  @Autowired SecurityConfig securityConfig;
+
+  @Autowired AdminDirectory adminDirectory;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  private static String email(int i) {
+    return "bench-" + i + "@ucsb.edu";
+  }
+
+  @BeforeEach
+  public void setup() {
+    deleteUsers();
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO users (email, admin, email_verified) VALUES (?, ?, true)",
+        IntStream.range(0, USERS).boxed().toList(),
+        1000,
+        (ps, i) -> {
+          ps.setString(1, email(i));
+          ps.setBoolean(2, i % 1000 == 0);
+        });
+    adminDirectory.invalidateAll();
+  }
+
+  @AfterEach
+  public void deleteUsers() {
+    jdbcTemplate.update("DELETE FROM users WHERE email LIKE 'bench-%'");
+    ReflectionTestUtils.setField(adminDirectory, "cacheTtlSeconds", 300L);
+  }
+
+  private long mapLogins(GrantedAuthoritiesMapper mapper) {
+    long admins = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < LOGINS; i++) {
+      // every tenth distinct login is an admin
+      String email = email((i % DISTINCT_LOGINS) * 100);
+      Collection<? extends GrantedAuthority> authorities =
+          mapper.mapAuthorities(List.of(new OAuth2UserAuthority(Map.of("email", email))));
+      if (authorities.contains(new SimpleGrantedAuthority("ROLE_ADMIN"))) {
+        admins++;
+      }
+    }
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    assertEquals(LOGINS / 10, admins);
+    return elapsedMillis;
+  }
+
+  @Test
+  public void compare_authority_mapping_with_and_without_admin_cache() {
+    GrantedAuthoritiesMapper mapper = securityConfig.userAuthoritiesMapper();
+
+    ReflectionTestUtils.setField(adminDirectory, "cacheTtlSeconds", 0L);
+    long uncached = mapLogins(mapper);
+    ReflectionTestUtils.setField(adminDirectory, "cacheTtlSeconds", 300L);
+    long cached = mapLogins(mapper);
+
+    log.info(
+        "mapping {} logins of {} users against {} users: uncached {} ms, cached {} ms",
+        LOGINS,
+        DISTINCT_LOGINS,
+        USERS,
+        uncached,
+        cached);
+
+    // only the direction of the difference is checked
+    assertTrue(cached < uncached);
+  }
+
+  @Test
+  public void compare_admin_email_lookup_in_list_and_hash_set() {
+    List<String> adminList = new ArrayList<>();
+    IntStream.range(0, 1000).forEach(i -> adminList.add("admin-" + i + "@ucsb.edu"));
+    Set<String> adminSet = new HashSet<>(adminList);
+
+    long start = System.nanoTime();
+    long listHits = IntStream.range(0, USERS).filter(i -> adminList.contains(email(i))).count();
+    long listNanos = System.nanoTime() - start;
+    start = System.nanoTime();
+    long setHits = IntStream.range(0, USERS).filter(i -> adminSet.contains(email(i))).count();
+    long setNanos = System.nanoTime() - start;
+
+    log.info(
+        "looking up {} emails in {} admin emails: list {} ms, hash set {} ms",
+        USERS,
+        adminList.size(),
+        listNanos / 1_000_000,
+        setNanos / 1_000_000);
+
+    assertEquals(listHits, setHits);
+    assertTrue(setNanos < listNanos);
+  }
+}
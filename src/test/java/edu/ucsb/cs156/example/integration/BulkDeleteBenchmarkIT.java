@@ -0,0 +1,175 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.function.IntToLongFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Compares the heap allocated by CrudRepository.deleteAll, which loads every job with its log and
+ * deletes them one by one, with the single set-based DELETE of JobsRepository.deleteInBulk, for a
+ * small and a large jobs table.
+ *
+ * <p>The database is an H2 TCP server, so that the rows the engine reads and deletes are allocated
+ * on its threads and only the application's side of each delete is counted on the test thread.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class BulkDeleteBenchmarkIT {
+  private static final int SMALL = 200;
+  private static final int LARGE = 2000;
+  private static final int RUNS = 5;
+  private static final String LOG = String.join("\n", Collections.nCopies(200, "a log line"));
+
+  private static Server server;
+
+  @DynamicPropertySource
+  static void datasource(DynamicPropertyRegistry registry) throws SQLException {
+    server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+    registry.add(
+        "spring.datasource.url",
+        () ->
+            "jdbc:h2:tcp://localhost:%d/mem:bulkdelete;DB_CLOSE_DELAY=-1"
+                .formatted(server.getPort()));
+  }
+
+  @AfterAll
+  static void stopServer() {
+    server.stop();
+  }
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired HelpRequestRepository helpRequestRepository;
+
+  @Autowired MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @MockBean UserRepository userRepository;
+
+  @BeforeEach
+  public void setup() {
+    jdbcTemplate.update("DELETE FROM jobs");
+  }
+
+  private void insertJobs(int count) {
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO jobs (status, log, attempts) VALUES ('complete', ?, 0)",
+        Collections.nCopies(count, LOG),
+        500,
+        (ps, log) -> ps.setString(1, log));
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getCurrentThreadAllocatedBytes();
+  }
+
+  private long allocatedByDeleteAll(int count) {
+    insertJobs(count);
+    long before = allocatedBytes();
+    jobsRepository.deleteAll();
+    return allocatedBytes() - before;
+  }
+
+  private long allocatedByDeleteInBulk(int count) {
+    insertJobs(count);
+    long before = allocatedBytes();
+    assertEquals(count, jobsRepository.deleteInBulk(null, null));
+    return allocatedBytes() - before;
+  }
+
+  /** Returns the least of RUNS measurements, after one warm-up run. */
+  private static long leastOf(IntToLongFunction allocatedBy, int count) {
+    allocatedBy.applyAsLong(count);
+    long least = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      least = Math.min(least, allocatedBy.applyAsLong(count));
+    }
+    return least;
+  }
+
+  @Test
+  public void compare_heap_allocated_by_entity_and_set_based_deletes() {
+    long entitySmall = leastOf(this::allocatedByDeleteAll, SMALL);
+    long entityLarge = leastOf(this::allocatedByDeleteAll, LARGE);
+    long bulkSmall = leastOf(this::allocatedByDeleteInBulk, SMALL);
+    long bulkLarge = leastOf(this::allocatedByDeleteInBulk, LARGE);
+
+    log.info(
+        "heap allocated deleting {} / {} jobs: deleteAll {} KB / {} KB, deleteInBulk {} KB / {} KB",
+        SMALL,
+        LARGE,
+        entitySmall / 1024,
+        entityLarge / 1024,
+        bulkSmall / 1024,
+        bulkLarge / 1024);
+
+    assertEquals(0, jobsRepository.count());
+    // deleteAll allocates for every row; deleteInBulk about the same for 10 times as many rows
+    assertTrue(entityLarge > 5 * entitySmall);
+    assertTrue(bulkLarge < 2 * bulkSmall + 64 * 1024);
+    assertTrue(bulkLarge < entityLarge / 10);
+  }
+
+  @Test
+  public void deleteInBulk_only_deletes_matching_jobs() {
+    jobsRepository.save(Job.builder().status("complete").build());
+    jobsRepository.save(Job.builder().status("error").build());
+    Job recent = jobsRepository.save(Job.builder().status("error").build());
+
+    assertEquals(0, jobsRepository.deleteInBulk("error", ZonedDateTime.now().minusDays(1)));
+    assertEquals(2, jobsRepository.deleteInBulk("error", null));
+    assertEquals(1, jobsRepository.count());
+    assertTrue(jobsRepository.findById(recent.getId()).isEmpty());
+  }
+
+  @Test
+  public void help_request_and_review_bulk_deletes_apply_their_filters() {
+    LocalDateTime t = LocalDateTime.parse("2022-01-03T00:00:00");
+    helpRequestRepository.deleteAll();
+    helpRequestRepository.save(
+        HelpRequest.builder().requestTime(t.minusDays(1)).solved(true).build());
+    helpRequestRepository.save(
+        HelpRequest.builder().requestTime(t.minusDays(1)).solved(false).build());
+    helpRequestRepository.save(
+        HelpRequest.builder().requestTime(t.plusDays(1)).solved(true).build());
+    menuItemReviewRepository.deleteAll();
+    menuItemReviewRepository.save(MenuItemReview.builder().dateReviewed(t.minusDays(1)).build());
+    menuItemReviewRepository.save(MenuItemReview.builder().dateReviewed(t.plusDays(1)).build());
+
+    assertEquals(1, helpRequestRepository.deleteInBulk(t, true));
+    assertEquals(2, helpRequestRepository.deleteInBulk(null, null));
+    assertEquals(1, menuItemReviewRepository.deleteInBulk(t));
+    assertEquals(1, menuItemReviewRepository.count());
+  }
+}
@@ -0,0 +1,236 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.BulkInserter;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares the rows per second of saving menu items one save() at a time in one transaction with
+ * BulkInserter, which inserts them as JDBC batches with ids from a pooled sequence, and checks the
+ * POST /bulk endpoints built on it.
+ */
+@Slf4j
+@SpringBootTest(
+    properties = {
+      "spring.jpa.properties.hibernate.generate_statistics=true",
+      "app.bulk.maxItems=5000"
+    })
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class BulkInsertBenchmarkIT {
+  private static final int ROWS = 5000;
+
+  @Autowired MockMvc mockMvc;
+
+  @Autowired ObjectMapper mapper;
+
+  @Autowired EntityManagerFactory entityManagerFactory;
+
+  @Autowired UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired UCSBDateRepository ucsbDateRepository;
+
+  @Autowired BulkInserter bulkInserter;
+
+  @Autowired TransactionTemplate transactionTemplate;
+
+  @MockBean UserRepository userRepository;
+
+  @BeforeEach
+  public void setup() {
+    ucsbDiningCommonsMenuItemRepository.deleteAll();
+  }
+
+  private static List<Map<String, Object>> items(int count) {
+    List<Map<String, Object>> items = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      items.add(Map.of("diningCommonsCode", "ortega", "name", "item " + i, "station", "entrees"));
+    }
+    return items;
+  }
+
+  private JsonNode postBulk(String url, Object body) throws Exception {
+    String response =
+        mockMvc
+            .perform(
+                post(url)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(body))
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    return mapper.readTree(response);
+  }
+
+  private static List<UCSBDiningCommonsMenuItem> newItems(int count) {
+    List<UCSBDiningCommonsMenuItem> items = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      items.add(
+          UCSBDiningCommonsMenuItem.builder()
+              .diningCommonsCode("ortega")
+              .name("item " + i)
+              .station("entrees")
+              .build());
+    }
+    return items;
+  }
+
+  private double saveRate(int count) {
+    List<UCSBDiningCommonsMenuItem> items = newItems(count);
+    long start = System.nanoTime();
+    transactionTemplate.executeWithoutResult(
+        status -> items.forEach(ucsbDiningCommonsMenuItemRepository::save));
+    return count / ((System.nanoTime() - start) / 1e9);
+  }
+
+  private double bulkRate(int count) {
+    List<UCSBDiningCommonsMenuItem> items = newItems(count);
+    long start = System.nanoTime();
+    bulkInserter.insertAll(items, item -> null, UCSBDiningCommonsMenuItem::getId);
+    return count / ((System.nanoTime() - start) / 1e9);
+  }
+
+  @Test
+  public void compare_rows_per_second_of_save_and_bulk_insert() {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    // warm up both paths, so neither pays for class loading and JIT compilation
+    saveRate(ROWS);
+    bulkRate(ROWS);
+    ucsbDiningCommonsMenuItemRepository.deleteAll();
+
+    statistics.clear();
+    double saveRate = saveRate(ROWS);
+    long saveStatements = statistics.getPrepareStatementCount();
+    statistics.clear();
+    double bulkRate = bulkRate(ROWS);
+    long bulkStatements = statistics.getPrepareStatementCount();
+
+    log.info(
+        "menu items inserted per second in one transaction: save() {} in {} statements,"
+            + " BulkInserter {} in {} statements ({}x, target 10x)",
+        Math.round(saveRate),
+        saveStatements,
+        Math.round(bulkRate),
+        bulkStatements,
+        "%.1f".formatted(bulkRate / saveRate));
+
+    assertEquals(2 * ROWS, ucsbDiningCommonsMenuItemRepository.count());
+    // the in-memory database has no network round trips to save, so timings here say little about
+    // PostgreSQL; the round trips themselves must fall at least tenfold
+    assertTrue(
+        bulkStatements * 10 <= saveStatements,
+        "%d statements instead of %d".formatted(bulkStatements, saveStatements));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void bulk_inserts_are_batched() throws Exception {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+
+    postBulk("/api/ucsbdiningcommonsmenuitem/bulk", items(1000));
+
+    log.info(
+        "1000 menu items: {} statements prepared, {} entities inserted",
+        statistics.getPrepareStatementCount(),
+        statistics.getEntityInsertCount());
+    assertEquals(1000, statistics.getEntityInsertCount());
+    // one insert per batch of 50 and one sequence call per 50 ids, instead of one per row
+    assertTrue(statistics.getPrepareStatementCount() < 100);
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void bulk_reports_every_item_and_skips_the_rejected_ones() throws Exception {
+    List<Object> body = new ArrayList<>(items(120));
+    body.add(5, Map.of("diningCommonsCode", "ortega"));
+    body.add(null);
+
+    JsonNode results = postBulk("/api/ucsbdiningcommonsmenuitem/bulk", body);
+
+    assertEquals(122, results.size());
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < results.size(); i++) {
+      JsonNode result = results.get(i);
+      assertEquals(i, result.get("index").asInt());
+      if (i == 5) {
+        assertEquals("rejected", result.get("status").asText());
+        assertEquals("Missing name, station", result.get("message").asText());
+      } else if (i == 121) {
+        assertEquals("Item is null", result.get("message").asText());
+      } else {
+        assertEquals("created", result.get("status").asText());
+        ids.add(result.get("id").asLong());
+      }
+    }
+    assertEquals(120, ids.size());
+    UCSBDiningCommonsMenuItem item =
+        ucsbDiningCommonsMenuItemRepository.findById(results.get(6).get("id").asLong()).get();
+    assertEquals("item 5", item.getName());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void bulk_dates_use_their_own_sequence() throws Exception {
+    long before = ucsbDateRepository.count();
+    List<Map<String, Object>> dates = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      dates.add(
+          Map.of(
+              "quarterYYYYQ", "20222", "name", "day " + i, "localDateTime", "2022-01-03T00:00:00"));
+    }
+
+    JsonNode results = postBulk("/api/ucsbdates/bulk", dates);
+
+    assertEquals(60, results.size());
+    assertEquals(before + 60, ucsbDateRepository.count());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void bulk_with_too_many_items_is_rejected() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/ucsbdiningcommonsmenuitem/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(items(5001)))
+                .with(csrf()))
+        .andExpect(status().isBadRequest());
+    assertEquals(0, ucsbDiningCommonsMenuItemRepository.count());
+  }
+}
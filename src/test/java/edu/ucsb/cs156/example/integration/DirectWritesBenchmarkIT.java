@@ -0,0 +1,201 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Compares concurrent updates and deletes that load the row first (findById, then save or delete)
+ * with the single UPDATE and DELETE statements the controllers now use.
+ */
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class DirectWritesBenchmarkIT {
+  private static final int THREADS = 8;
+  private static final int ROWS_PER_THREAD = 100;
+
+  @Autowired MockMvc mockMvc;
+
+  @Autowired ObjectMapper mapper;
+
+  @Autowired EntityManagerFactory entityManagerFactory;
+
+  @Autowired RestaurantRepository restaurantRepository;
+
+  @Autowired UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @MockBean UserRepository userRepository;
+
+  @BeforeEach
+  public void setup() {
+    restaurantRepository.deleteAll();
+  }
+
+  private List<Long> createRestaurants(int count) {
+    List<Restaurant> restaurants = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      restaurants.add(Restaurant.builder().name("restaurant " + i).description("old").build());
+    }
+    List<Long> ids = new ArrayList<>();
+    restaurantRepository.saveAll(restaurants).forEach(r -> ids.add(r.getId()));
+    return ids;
+  }
+
+  /** Runs a write for every id on THREADS threads, each with its own ids; returns writes/sec. */
+  private double runConcurrently(List<Long> ids, LongConsumer write) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      long start = System.nanoTime();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        List<Long> slice = ids.subList(t * ROWS_PER_THREAD, (t + 1) * ROWS_PER_THREAD);
+        futures.add(executor.submit(() -> slice.forEach(id -> write.accept(id))));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      return ids.size() / ((System.nanoTime() - start) / 1e9);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void compare_concurrent_writes_with_and_without_reading_first() throws Exception {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    int writes = THREADS * ROWS_PER_THREAD;
+    Restaurant incoming = Restaurant.builder().name("new").description("new").build();
+
+    // the former controller code
+    List<Long> ids = createRestaurants(writes);
+    statistics.clear();
+    double readFirstUpdates =
+        runConcurrently(
+            ids,
+            id -> {
+              Restaurant restaurant = restaurantRepository.findById(id).orElseThrow();
+              restaurant.setName(incoming.getName());
+              restaurant.setDescription(incoming.getDescription());
+              restaurantRepository.save(restaurant);
+            });
+    double readFirstDeletes =
+        runConcurrently(
+            ids,
+            id -> restaurantRepository.delete(restaurantRepository.findById(id).orElseThrow()));
+    long readFirstStatements = statistics.getPrepareStatementCount();
+
+    ids = createRestaurants(writes);
+    statistics.clear();
+    double directUpdates =
+        runConcurrently(ids, id -> assertEquals(1, restaurantRepository.updateOne(id, incoming)));
+    double directDeletes =
+        runConcurrently(ids, id -> assertEquals(1, restaurantRepository.deleteOne(id)));
+    long directStatements = statistics.getPrepareStatementCount();
+
+    log.info(
+        "{} threads, {} updates then {} deletes: read first {} updates/s, {} deletes/s,"
+            + " {} statements; direct {} updates/s, {} deletes/s, {} statements",
+        THREADS,
+        writes,
+        writes,
+        Math.round(readFirstUpdates),
+        Math.round(readFirstDeletes),
+        readFirstStatements,
+        Math.round(directUpdates),
+        Math.round(directDeletes),
+        directStatements);
+
+    assertEquals(0, restaurantRepository.count());
+    // timings on a shared machine vary, so only the statements are checked: one per direct write,
+    // at least two per read-first write; the statistics also count other work, e.g. job polling
+    assertTrue(directStatements >= 2 * writes);
+    assertTrue(readFirstStatements >= 2 * directStatements);
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void put_and_delete_change_the_row_and_answer_404_for_a_missing_one() throws Exception {
+    ucsbDiningCommonsRepository.save(
+        UCSBDiningCommons.builder()
+            .code("directwrites")
+            .name("Before")
+            .hasSackMeal(false)
+            .hasTakeOutMeal(false)
+            .hasDiningCam(false)
+            .latitude(1.0)
+            .longitude(2.0)
+            .build());
+    UCSBDiningCommons edited =
+        UCSBDiningCommons.builder()
+            .code("directwrites")
+            .name("After")
+            .hasSackMeal(true)
+            .hasTakeOutMeal(true)
+            .hasDiningCam(true)
+            .latitude(3.0)
+            .longitude(4.0)
+            .build();
+    String body = mapper.writeValueAsString(edited);
+
+    mockMvc
+        .perform(
+            put("/api/ucsbdiningcommons?code=directwrites")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body)
+                .with(csrf()))
+        .andExpect(status().isOk());
+    assertEquals(edited, ucsbDiningCommonsRepository.findById("directwrites").get());
+
+    mockMvc
+        .perform(delete("/api/ucsbdiningcommons?code=directwrites").with(csrf()))
+        .andExpect(status().isOk());
+    assertFalse(ucsbDiningCommonsRepository.existsById("directwrites"));
+
+    mockMvc
+        .perform(
+            put("/api/ucsbdiningcommons?code=directwrites")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body)
+                .with(csrf()))
+        .andExpect(status().isNotFound());
+    mockMvc
+        .perform(delete("/api/ucsbdiningcommons?code=directwrites").with(csrf()))
+        .andExpect(status().isNotFound());
+  }
+}
@@ -0,0 +1,71 @@
+package edu.ucsb.cs156.example.integration;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Checks idempotent job launches against the unique index on the keys of active jobs. */
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class IdempotentJobLaunchIT {
+  @Autowired JobService jobService;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @MockBean UserRepository userRepository;
+
+  @BeforeEach
+  public void setup() {
+    jobsRepository.deleteAll();
+  }
+
+  @Test
+  public void index_allows_one_active_job_per_key() {
+    jobsRepository.save(Job.builder().status("complete").idempotencyKey("k").build());
+    jobsRepository.save(Job.builder().status("running").idempotencyKey("k").build());
+    jobsRepository.save(Job.builder().status("running").build());
+    jobsRepository.save(Job.builder().status("running").build());
+
+    assertThrows(
+        DataIntegrityViolationException.class,
+        () -> jobsRepository.save(Job.builder().status("queued").idempotencyKey("k").build()));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launches_with_same_key_share_one_job_until_it_finishes() throws Exception {
+    TestJob testJob = TestJob.builder().fail(false).sleepMs(500).build();
+
+    Job first = jobService.runAsJob(testJob, "nightly");
+    Job second = jobService.runAsJob(testJob, "nightly");
+
+    assertEquals(first.getId(), second.getId());
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertEquals("complete", jobsRepository.findById(first.getId()).get().getStatus()));
+
+    Job third = jobService.runAsJob(TestJob.builder().fail(false).sleepMs(0).build(), "nightly");
+    assertNotEquals(first.getId(), third.getId());
+  }
+}
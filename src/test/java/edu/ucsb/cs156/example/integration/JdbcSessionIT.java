@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.ucsb.cs156.example.config.JdbcSessionConfig;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Checks that with app.sessions.jdbc=true sessions are stored in, and expire from, the database.
+ */
+@SpringBootTest(properties = "app.sessions.jdbc=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class JdbcSessionIT {
+  @Autowired MockMvc mockMvc;
+
+  @Autowired JdbcIndexedSessionRepository sessionRepository;
+
+  @Autowired JdbcSessionConfig jdbcSessionConfig;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @MockBean UserRepository userRepository;
+
+  @BeforeEach
+  public void deleteSessions() {
+    jdbcTemplate.update("DELETE FROM spring_session");
+  }
+
+  private long countSessions() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM spring_session", Long.class);
+  }
+
+  @Test
+  public void oauth2_login_state_is_stored_in_session_table() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get("/oauth2/authorization/google"))
+            .andExpect(status().is3xxRedirection())
+            .andReturn();
+
+    Cookie cookie = response.getResponse().getCookie("SESSION");
+    assertNotNull(cookie);
+    assertEquals(1, countSessions());
+    assertEquals(
+        1L,
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM spring_session_attributes", Long.class));
+
+    // a request carrying the session cookie, e.g. on another node, uses the stored session
+    mockMvc.perform(get("/api/currentUser").cookie(cookie));
+    assertEquals(1, countSessions());
+  }
+
+  private void insertSession(String id, long lastAccessTime) {
+    jdbcTemplate.update(
+        "INSERT INTO spring_session (primary_id, session_id, creation_time, last_access_time,"
+            + " max_inactive_interval, expiry_time) VALUES (?, ?, ?, ?, 1800, ?)",
+        id,
+        id,
+        lastAccessTime,
+        lastAccessTime,
+        lastAccessTime + 1800_000);
+  }
+
+  @Test
+  public void expired_sessions_are_cleaned_up() {
+    long now = System.currentTimeMillis();
+    insertSession("00000000-0000-0000-0000-000000000001", now - 3600_000);
+    insertSession("00000000-0000-0000-0000-000000000002", now);
+
+    jdbcSessionConfig.cleanUpExpiredSessions();
+
+    assertEquals(1, countSessions());
+    assertNotNull(sessionRepository.findById("00000000-0000-0000-0000-000000000002"));
+  }
+}
@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Compares the per-line cost of job logging: rewriting the whole jobs.log column on every line (the
+ * original implementation), writing one job_log_lines row per line, and buffered batches.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class JobLogBenchmarkIT {
+  private static final int LINES = 2000;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @MockBean UserRepository userRepository;
+
+  @Test
+  public void compare_per_line_cost_of_job_logging() {
+    Job legacyJob = jobsRepository.save(Job.builder().status("running").build());
+    long start = System.nanoTime();
+    for (int i = 0; i < LINES; i++) {
+      String previousLog = legacyJob.getLog() == null ? "" : (legacyJob.getLog() + "\n");
+      legacyJob.setLog(previousLog + "line " + i);
+      jobsRepository.save(legacyJob);
+    }
+    long legacyNanos = System.nanoTime() - start;
+
+    Job unbufferedJob = jobsRepository.save(Job.builder().status("running").build());
+    JobContext unbuffered = new JobContext(jobLogLinesRepository, unbufferedJob);
+    start = System.nanoTime();
+    for (int i = 0; i < LINES; i++) {
+      unbuffered.log("line " + i);
+    }
+    unbuffered.flush();
+    long unbufferedNanos = System.nanoTime() - start;
+
+    Job bufferedJob = jobsRepository.save(Job.builder().status("running").build());
+    JobContext buffered = new JobContext(jobLogLinesRepository, bufferedJob, 0, 50, 1000);
+    start = System.nanoTime();
+    for (int i = 0; i < LINES; i++) {
+      buffered.log("line " + i);
+    }
+    buffered.flush();
+    long bufferedNanos = System.nanoTime() - start;
+
+    log.info(
+        "job log per-line cost over {} lines: rewrite log column {} us, one row per line {} us,"
+            + " buffered batches {} us",
+        LINES,
+        legacyNanos / LINES / 1000.0,
+        unbufferedNanos / LINES / 1000.0,
+        bufferedNanos / LINES / 1000.0);
+
+    assertEquals(
+        LINES, jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(unbufferedJob.getId()).size());
+    assertEquals(
+        LINES, jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(bufferedJob.getId()).size());
+  }
+}
@@ -0,0 +1,124 @@
+package edu.ucsb.cs156.example.integration;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobPipeline;
+import edu.ucsb.cs156.example.services.jobs.JobQueueWorker;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Runs pipelines on the real job executor and jobs table. */
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class JobPipelineIT {
+  @Autowired JobService jobService;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobQueueWorker jobQueueWorker;
+
+  @MockBean UserRepository userRepository;
+
+  // deleteAll() deletes jobs one by one and fails on stages already removed by ON DELETE CASCADE,
+  // and other tests sharing the database use it, so remove all jobs in one statement afterwards
+  @BeforeEach
+  @AfterEach
+  public void deleteJobs() {
+    jobsRepository.deleteInBulk(null, null);
+  }
+
+  private TestJob sleep(int sleepMs, boolean fail) {
+    return TestJob.builder().fail(fail).sleepMs(sleepMs).build();
+  }
+
+  @Test
+  public void parallel_stages_overlap_and_pipeline_completes() {
+    JobPipeline pipeline =
+        new JobPipeline()
+            .stage("import", sleep(0, false))
+            .stage("aggregate-a", sleep(1000, false), "import")
+            .stage("aggregate-b", sleep(1000, false), "import")
+            .stage("publish", sleep(0, false), "aggregate-a", "aggregate-b");
+
+    long start = System.currentTimeMillis();
+    Job pipelineJob = jobService.runPipeline(pipeline);
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertEquals(
+                    "complete", jobsRepository.findById(pipelineJob.getId()).get().getStatus()));
+    long elapsed = System.currentTimeMillis() - start;
+
+    List<Job> stages = jobsRepository.findByParentIdOrderByIdAsc(pipelineJob.getId());
+    assertEquals(
+        List.of("import", "aggregate-a", "aggregate-b", "publish"),
+        stages.stream().map(Job::getStage).toList());
+    assertTrue(stages.stream().allMatch(stage -> "complete".equals(stage.getStatus())));
+    assertEquals(4L, jobsRepository.findById(pipelineJob.getId()).get().getProgressCompleted());
+    // the two one-second stages ran at the same time
+    assertTrue(elapsed < 1900, "pipeline took " + elapsed + " ms");
+  }
+
+  @Test
+  public void failed_stage_skips_its_dependents_and_deleting_pipeline_deletes_stages() {
+    JobPipeline pipeline =
+        new JobPipeline()
+            .stage("import", sleep(0, true))
+            .stage("publish", sleep(0, false), "import");
+
+    Job pipelineJob = jobService.runPipeline(pipeline);
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertEquals(
+                    "error", jobsRepository.findById(pipelineJob.getId()).get().getStatus()));
+
+    List<Job> stages = jobsRepository.findByParentIdOrderByIdAsc(pipelineJob.getId());
+    assertEquals(List.of("error", "skipped"), stages.stream().map(Job::getStatus).toList());
+
+    jobsRepository.deleteById(pipelineJob.getId());
+    assertEquals(List.of(), jobsRepository.findByParentIdOrderByIdAsc(pipelineJob.getId()));
+  }
+
+  @Test
+  public void pipeline_cancelled_from_another_node_is_cancelled_with_the_next_heartbeat() {
+    JobPipeline pipeline =
+        new JobPipeline()
+            .stage("import", sleep(10000, false))
+            .stage("publish", sleep(0, false), "import");
+    Job pipelineJob = jobService.runPipeline(pipeline);
+
+    // another node does not run the pipeline, so it can only store a cancellation request
+    assertEquals(0, jobsRepository.cancelQueued(pipelineJob.getId()));
+    assertEquals(1, jobsRepository.requestCancel(pipelineJob.getId()));
+    jobQueueWorker.heartbeat();
+
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertEquals(
+                    "cancelled", jobsRepository.findById(pipelineJob.getId()).get().getStatus()));
+    List<Job> stages = jobsRepository.findByParentIdOrderByIdAsc(pipelineJob.getId());
+    assertEquals(List.of("cancelled", "cancelled"), stages.stream().map(Job::getStatus).toList());
+  }
+}
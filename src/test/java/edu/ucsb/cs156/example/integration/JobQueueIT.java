@@ -0,0 +1,173 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobQueue;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Checks that concurrent workers claim disjoint sets of jobs from the persistent job queue. */
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class JobQueueIT {
+  @Autowired JobQueue jobQueue;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired TransactionTemplate transactionTemplate;
+
+  @MockBean UserRepository userRepository;
+
+  @BeforeEach
+  public void setup() {
+    jobsRepository.deleteAll();
+    for (int i = 0; i < 4; i++) {
+      jobsRepository.save(
+          Job.builder()
+              .status("queued")
+              .jobType("TestJob")
+              .parameters("{}")
+              .queuedAt(ZonedDateTime.now())
+              .build());
+    }
+  }
+
+  @Test
+  public void concurrent_claims_skip_rows_locked_by_another_worker() throws Exception {
+    CountDownLatch firstClaimed = new CountDownLatch(1);
+    CountDownLatch secondClaimed = new CountDownLatch(1);
+
+    CompletableFuture<List<Job>> first =
+        CompletableFuture.supplyAsync(
+            () ->
+                transactionTemplate.execute(
+                    status -> {
+                      List<Job> claimed = jobQueue.claim("node-1", 2);
+                      firstClaimed.countDown();
+                      await(secondClaimed);
+                      return claimed;
+                    }));
+
+    await(firstClaimed);
+    List<Job> second = jobQueue.claim("node-2", 4);
+    secondClaimed.countDown();
+
+    Set<Long> firstIds = new HashSet<>();
+    first.get(10, TimeUnit.SECONDS).forEach(job -> firstIds.add(job.getId()));
+    Set<Long> secondIds = new HashSet<>();
+    second.forEach(job -> secondIds.add(job.getId()));
+
+    assertEquals(2, firstIds.size());
+    assertEquals(2, secondIds.size());
+    assertTrue(firstIds.stream().noneMatch(secondIds::contains));
+    for (Job job : jobsRepository.findAll()) {
+      assertEquals("running", job.getStatus());
+      assertEquals(firstIds.contains(job.getId()) ? "node-1" : "node-2", job.getClaimedBy());
+      assertEquals(1, job.getAttempts());
+    }
+  }
+
+  @Test
+  public void stale_jobs_are_requeued_and_then_failed() throws Exception {
+    jobQueue.claim("node-1", 4);
+
+    assertEquals(4, jobQueue.reclaimStale(-1000, 2));
+    assertEquals(4, jobQueue.claim("node-2", 4).size());
+    assertEquals(0, jobQueue.reclaimStale(-1000, 2));
+
+    for (Job job : jobsRepository.findAll()) {
+      assertEquals("error", job.getStatus());
+      assertEquals(2, job.getAttempts());
+    }
+  }
+
+  @Test
+  public void heartbeat_updates_only_jobs_of_the_node() throws Exception {
+    jobQueue.claim("node-1", 1);
+    jobQueue.claim("node-2", 3);
+
+    assertEquals(1, jobQueue.heartbeat("node-1"));
+    assertEquals(3, jobQueue.heartbeat("node-2"));
+  }
+
+  @Test
+  public void oldest_queued_jobs_are_returned_first() throws Exception {
+    List<Long> ids = new ArrayList<>();
+    jobsRepository.findAll().forEach(job -> ids.add(job.getId()));
+    Job oldest = jobsRepository.findById(ids.get(3)).get();
+    oldest.setQueuedAt(ZonedDateTime.now().minusHours(1));
+    jobsRepository.save(oldest);
+
+    List<Job> claimed =
+        transactionTemplate.execute(
+            status -> jobsRepository.findOldestQueuedForUpdateSkipLocked(2));
+
+    assertEquals(List.of(ids.get(3), ids.get(0)), claimed.stream().map(Job::getId).toList());
+  }
+
+  @Test
+  public void finishing_an_attempt_leaves_a_job_claimed_again_alone() throws Exception {
+    Job first = jobQueue.claim("node-1", 1).get(0);
+    jobQueue.reclaimStale(-1000, 2);
+    jobQueue.claim("node-2", 4);
+
+    assertEquals(
+        0,
+        jobsRepository.finishAttempt(first.getId(), "node-1", 1, "complete", ZonedDateTime.now()));
+    assertEquals(0, jobsRepository.requeueAttempt(first.getId(), "node-1", 1, ZonedDateTime.now()));
+    Job job = jobsRepository.findById(first.getId()).get();
+    assertEquals("running", job.getStatus());
+    assertEquals("node-2", job.getClaimedBy());
+
+    assertEquals(
+        1,
+        jobsRepository.finishAttempt(first.getId(), "node-2", 2, "complete", ZonedDateTime.now()));
+    assertEquals("complete", jobsRepository.findById(first.getId()).get().getStatus());
+  }
+
+  @Test
+  public void stale_in_process_jobs_are_failed_and_release_their_key() throws Exception {
+    Job inProcess =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .claimedBy("dead-node")
+                .heartbeatAt(ZonedDateTime.now().minusHours(1))
+                .attempts(1)
+                .idempotencyKey("schedule:nightly")
+                .build());
+
+    assertEquals(0, jobQueue.reclaimStale(60000, 3));
+
+    assertEquals("error", jobsRepository.findById(inProcess.getId()).get().getStatus());
+    assertTrue(jobsRepository.findActiveByIdempotencyKey("schedule:nightly").isEmpty());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
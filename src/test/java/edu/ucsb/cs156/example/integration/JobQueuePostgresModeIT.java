@@ -0,0 +1,13 @@
+package edu.ucsb.cs156.example.integration;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the JobQueueIT checks against H2 in PostgreSQL compatibility mode, as a local stand-in for
+ * the production Postgres database.
+ */
+@TestPropertySource(
+    properties =
+        "spring.datasource.url=jdbc:h2:mem:jobqueue;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+            + "DEFAULT_NULL_ORDERING=HIGH")
+public class JobQueuePostgresModeIT extends JobQueueIT {}
@@ -0,0 +1,137 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import edu.ucsb.cs156.example.repositories.JobArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobRetention;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Runs retention batches against the real jobs, job_log_lines and job_archives tables. */
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class JobRetentionIT {
+  @Autowired JobRetention jobRetention;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired JobArchivesRepository jobArchivesRepository;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @MockBean UserRepository userRepository;
+
+  Job complete;
+  Job running;
+
+  @BeforeEach
+  public void setup() {
+    jobArchivesRepository.deleteAll();
+    jobsRepository.deleteAll();
+    complete = jobsRepository.save(Job.builder().status("complete").build());
+    running = jobsRepository.save(Job.builder().status("running").build());
+    ZonedDateTime now = ZonedDateTime.now();
+    jobLogLinesRepository.insertAll(
+        List.of(
+            JobLogLine.builder()
+                .jobId(complete.getId())
+                .seq(0)
+                .timestamp(now)
+                .message("ab")
+                .build(),
+            JobLogLine.builder()
+                .jobId(complete.getId())
+                .seq(1)
+                .timestamp(now)
+                .message("cd")
+                .build(),
+            JobLogLine.builder()
+                .jobId(running.getId())
+                .seq(0)
+                .timestamp(now)
+                .message("ef")
+                .build()));
+  }
+
+  @Test
+  public void sweepBatch_archives_and_deletes_only_finished_jobs_older_than_cutoff() {
+    JobRetentionReport report =
+        jobRetention.sweepBatch(ZonedDateTime.now().plusMinutes(1), 10, true);
+
+    assertEquals(1, report.getJobs());
+    assertEquals(2, report.getLogLines());
+    assertEquals(4, report.getLogBytes());
+    assertTrue(report.getArchivedBytes() > 0);
+    assertFalse(jobsRepository.existsById(complete.getId()));
+    assertTrue(jobsRepository.existsById(running.getId()));
+    assertEquals(0, jobLogLinesRepository.countByJobId(complete.getId()));
+    assertEquals(1, jobLogLinesRepository.countByJobId(running.getId()));
+    assertEquals(5, jobArchivesRepository.findById(complete.getId()).get().getLogBytes());
+  }
+
+  @Test
+  public void sweepBatch_deletes_jobs_with_every_terminal_status() {
+    for (String status : Job.TERMINAL_STATUSES) {
+      jobsRepository.save(Job.builder().status(status).build());
+    }
+    jobsRepository.save(Job.builder().status("queued").build());
+    jobsRepository.save(Job.builder().status("pending").build());
+
+    JobRetentionReport report =
+        jobRetention.sweepBatch(ZonedDateTime.now().plusMinutes(1), 100, false);
+
+    // plus the complete job from setup
+    assertEquals(Job.TERMINAL_STATUSES.size() + 1, report.getJobs());
+    List<String> left = new ArrayList<>();
+    jobsRepository.findAll().forEach(job -> left.add(job.getStatus()));
+    assertEquals(Set.of("running", "queued", "pending"), Set.copyOf(left));
+    assertEquals(3, left.size());
+  }
+
+  @Test
+  public void sweepBatch_leaves_jobs_updated_after_cutoff() {
+    JobRetentionReport report =
+        jobRetention.sweepBatch(ZonedDateTime.now().minusMinutes(1), 10, false);
+
+    assertEquals(0, report.getJobs());
+    assertTrue(jobsRepository.existsById(complete.getId()));
+  }
+
+  @Test
+  public void sweepBatch_removes_finished_jobs_without_timestamps() {
+    // jobs saved before the jobs table had created_at and updated_at have neither
+    jdbcTemplate.update("INSERT INTO jobs (status) VALUES ('error')");
+    jdbcTemplate.update("INSERT INTO jobs (status) VALUES ('running')");
+
+    JobRetentionReport report =
+        jobRetention.sweepBatch(ZonedDateTime.now().minusMinutes(1), 10, true);
+
+    assertEquals(1, report.getJobs());
+    assertTrue(jobsRepository.existsById(complete.getId()));
+    assertEquals(
+        List.of("complete", "running", "running"),
+        jdbcTemplate.queryForList("SELECT status FROM jobs ORDER BY status", String.class));
+  }
+}
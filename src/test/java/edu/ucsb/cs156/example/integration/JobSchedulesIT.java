@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobSchedules;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.ZonedDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Checks the schedule lease and firing against the real job_schedules table. */
+@SpringBootTest(properties = {"app.jobs.schedulesEnabled=false"})
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class JobSchedulesIT {
+  @Autowired JobSchedules jobSchedules;
+
+  @Autowired JobSchedulesRepository jobSchedulesRepository;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @MockBean UserRepository userRepository;
+
+  JobSchedule schedule;
+
+  @BeforeEach
+  public void setup() {
+    jobSchedulesRepository.deleteAll();
+    schedule =
+        jobSchedules.register(
+            "every-minute", "0 * * * * *", TestJob.builder().fail(false).sleepMs(0).build());
+    jobSchedulesRepository.updatePaused(
+        schedule.getId(), false, ZonedDateTime.now().minusMinutes(1));
+  }
+
+  @Test
+  public void only_one_node_gets_the_lease_until_it_expires() {
+    ZonedDateTime now = ZonedDateTime.now();
+
+    assertEquals(
+        1, jobSchedulesRepository.acquireLease(schedule.getId(), "a", now, now.plusMinutes(5)));
+    assertEquals(
+        0, jobSchedulesRepository.acquireLease(schedule.getId(), "b", now, now.plusMinutes(5)));
+    assertEquals(
+        1,
+        jobSchedulesRepository.acquireLease(
+            schedule.getId(), "b", now.plusMinutes(6), now.plusMinutes(10)));
+
+    // a lost its lease, so it cannot complete the run
+    assertEquals(0, jobSchedulesRepository.completeRun(schedule.getId(), "a", now, now, null));
+  }
+
+  @Test
+  public void due_schedule_fires_once_and_advances() {
+    assertEquals(1, jobSchedules.fireDueSchedules());
+    assertEquals(0, jobSchedules.fireDueSchedules());
+
+    JobSchedule fired = jobSchedulesRepository.findById(schedule.getId()).get();
+    assertNull(fired.getLeaseOwner());
+    assertNotNull(fired.getLastJobId());
+    assertTrue(fired.getNextRunAt().isAfter(ZonedDateTime.now()));
+    assertTrue(jobsRepository.findById(fired.getLastJobId()).isPresent());
+  }
+
+  @Test
+  public void paused_schedule_does_not_fire() {
+    jobSchedules.setPaused(schedule.getId(), true);
+
+    assertEquals(0, jobSchedules.fireDueSchedules());
+  }
+}
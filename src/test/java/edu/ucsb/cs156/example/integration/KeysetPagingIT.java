@@ -0,0 +1,216 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Walks the /page endpoints page by page against the real tables, with duplicate and null values in
+ * the sort field.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class KeysetPagingIT {
+  @Autowired MockMvc mockMvc;
+
+  @Autowired ObjectMapper mapper;
+
+  @Autowired MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired DataSource dataSource;
+
+  @MockBean UserRepository userRepository;
+
+  List<MenuItemReview> reviews = new ArrayList<>();
+
+  @BeforeEach
+  public void setup() {
+    menuItemReviewRepository.deleteAll();
+    LocalDateTime base = LocalDateTime.parse("2024-01-01T12:00:00");
+    for (int i = 0; i < 11; i++) {
+      // three reviews share each date, and every fourth review has none
+      LocalDateTime dateReviewed = i % 4 == 3 ? null : base.plusDays(i / 3);
+      reviews.add(
+          menuItemReviewRepository.save(
+              MenuItemReview.builder()
+                  .itemId(i)
+                  .reviewerEmail("user" + i + "@ucsb.edu")
+                  .stars(i % 2)
+                  .dateReviewed(dateReviewed)
+                  .build()));
+    }
+  }
+
+  private List<JsonNode> walk(String url) throws Exception {
+    List<JsonNode> items = new ArrayList<>();
+    String next = null;
+    int pages = 0;
+    do {
+      String response =
+          mockMvc
+              .perform(get(url + (next == null ? "" : "&after=" + next)))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      JsonNode page = mapper.readTree(response);
+      page.get("items").forEach(items::add);
+      next = page.get("next").isNull() ? null : page.get("next").asText();
+      assertTrue(++pages <= items.size() + 1, "paging does not terminate");
+    } while (next != null);
+    return items;
+  }
+
+  private List<Long> ids(List<JsonNode> items) {
+    return items.stream().map(item -> item.get("id").asLong()).toList();
+  }
+
+  private List<Long> expectedIds(Comparator<MenuItemReview> order) {
+    return reviews.stream().sorted(order).map(MenuItemReview::getId).toList();
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void pages_by_id_return_every_review_once_in_order() throws Exception {
+    assertEquals(
+        expectedIds(Comparator.comparing(MenuItemReview::getId)),
+        ids(walk("/api/menuitemreview/page?limit=2")));
+    assertEquals(
+        expectedIds(Comparator.comparing(MenuItemReview::getId).reversed()),
+        ids(walk("/api/menuitemreview/page?direction=desc&limit=3")));
+    assertEquals(
+        expectedIds(Comparator.comparing(MenuItemReview::getId)),
+        ids(walk("/api/menuitemreview/page?direction=&limit=4")));
+  }
+
+  @Test
+  public void every_sort_field_has_an_index_on_it_and_the_id() throws Exception {
+    Set<List<String>> indexed = new HashSet<>();
+    try (Connection connection = dataSource.getConnection();
+        ResultSet columns =
+            connection.getMetaData().getIndexInfo(null, null, "MENUITEMREVIEW", false, false)) {
+      Map<String, List<String>> indexes = new HashMap<>();
+      while (columns.next()) {
+        indexes
+            .computeIfAbsent(columns.getString("INDEX_NAME"), name -> new ArrayList<>())
+            .add(columns.getString("COLUMN_NAME"));
+      }
+      indexed.addAll(indexes.values());
+    }
+
+    for (String column : List.of("ITEM_ID", "STARS", "DATE_REVIEWED", "REVIEWER_EMAIL")) {
+      assertTrue(indexed.contains(List.of(column, "ID")), "no index on " + column + ", ID");
+    }
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void pages_by_a_nullable_field_ascending_put_nulls_first() throws Exception {
+    Comparator<MenuItemReview> order =
+        Comparator.comparing(
+                MenuItemReview::getDateReviewed, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(MenuItemReview::getId);
+
+    assertEquals(
+        expectedIds(order), ids(walk("/api/menuitemreview/page?sort=dateReviewed&limit=2")));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void pages_by_a_nullable_field_descending_put_nulls_last() throws Exception {
+    Comparator<MenuItemReview> order =
+        Comparator.comparing(
+                MenuItemReview::getDateReviewed,
+                Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(MenuItemReview::getId, Comparator.reverseOrder());
+
+    assertEquals(
+        expectedIds(order),
+        ids(walk("/api/menuitemreview/page?sort=dateReviewed&direction=desc&limit=2")));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void pages_by_a_field_with_duplicates_break_ties_by_id() throws Exception {
+    assertEquals(
+        expectedIds(
+            Comparator.comparing(MenuItemReview::getStars).thenComparing(MenuItemReview::getId)),
+        ids(walk("/api/menuitemreview/page?sort=stars&limit=4")));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void pages_of_entities_with_string_ids() throws Exception {
+    ucsbOrganizationRepository.deleteAll();
+    for (String code : List.of("ZPR", "SKY", "OSLI", "KRC")) {
+      ucsbOrganizationRepository.save(
+          UCSBOrganization.builder()
+              .orgCode(code)
+              .orgTranslationShort(code.toLowerCase())
+              .orgTranslation(code)
+              .inactive(code.startsWith("O"))
+              .build());
+    }
+
+    List<String> codes =
+        walk("/api/ucsborganization/page?sort=inactive&direction=desc&limit=1").stream()
+            .map(item -> item.get("orgCode").asText())
+            .toList();
+
+    assertEquals(List.of("OSLI", "ZPR", "SKY", "KRC"), codes);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void a_cursor_for_another_sort_field_is_rejected() throws Exception {
+    String next =
+        mapper
+            .readTree(
+                mockMvc
+                    .perform(get("/api/menuitemreview/page?sort=dateReviewed&limit=5"))
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString())
+            .get("next")
+            .asText();
+
+    mockMvc
+        .perform(get("/api/menuitemreview/page?sort=stars&after=" + next))
+        .andExpect(status().isBadRequest());
+  }
+}
@@ -0,0 +1,166 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.NdjsonExporter;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/** Exports the real menuitemreview and helprequests tables as newline-delimited JSON. */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class NdjsonExportIT {
+  static final int ROWS = 2 * NdjsonExporter.BATCH_SIZE + 3;
+
+  @Autowired MockMvc mockMvc;
+
+  @Autowired ObjectMapper mapper;
+
+  @Autowired NdjsonExporter ndjsonExporter;
+
+  @Autowired MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired HelpRequestRepository helpRequestRepository;
+
+  @PersistenceContext EntityManager entityManager;
+
+  @Autowired
+  @Qualifier("mvcAsyncExecutor")
+  ThreadPoolTaskExecutor mvcAsyncExecutor;
+
+  @Value("${app.export.timeoutMs}")
+  long exportTimeoutMs;
+
+  @Value("${app.mvc.asyncPoolSize}")
+  int asyncPoolSize;
+
+  @MockBean UserRepository userRepository;
+
+  List<MenuItemReview> reviews;
+
+  @BeforeEach
+  public void setup() {
+    menuItemReviewRepository.deleteAll();
+    List<MenuItemReview> rows = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) {
+      rows.add(
+          MenuItemReview.builder()
+              .itemId(i)
+              .reviewerEmail("user" + i + "@ucsb.edu")
+              .stars(i % 5)
+              .dateReviewed(LocalDateTime.parse("2024-01-01T12:00:00").plusMinutes(i))
+              .comments("comment " + i)
+              .build());
+    }
+    reviews = new ArrayList<>();
+    menuItemReviewRepository.saveAll(rows).forEach(reviews::add);
+  }
+
+  private String export(String url) throws Exception {
+    MvcResult response = mockMvc.perform(get(url)).andExpect(request().asyncStarted()).andReturn();
+    mockMvc.perform(asyncDispatch(response)).andExpect(status().isOk());
+    return response.getResponse().getContentAsString();
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void export_writes_every_review_on_its_own_line_in_id_order() throws Exception {
+    String body = export("/api/menuitemreview/export");
+
+    assertTrue(body.endsWith("\n"));
+    String[] lines = body.split("\n");
+    assertEquals(ROWS, lines.length);
+    for (int i = 0; i < ROWS; i++) {
+      MenuItemReview review = mapper.readValue(lines[i], MenuItemReview.class);
+      assertEquals(reviews.get(i), review);
+    }
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void export_of_an_empty_table_is_empty() throws Exception {
+    helpRequestRepository.deleteAll();
+
+    assertEquals("", export("/api/helprequest/export"));
+
+    helpRequestRepository.save(
+        HelpRequest.builder().requesterEmail("a@ucsb.edu").teamId("s22-5pm-3").build());
+    assertEquals(1, export("/api/helprequest/export").split("\n").length);
+  }
+
+  @Test
+  public void export_does_not_keep_the_rows_it_has_written_in_the_persistence_context()
+      throws Exception {
+    AtomicInteger mostManaged = new AtomicInteger();
+
+    long count =
+        ndjsonExporter.write(
+            () ->
+                menuItemReviewRepository
+                    .streamAllByOrderByIdAsc()
+                    .peek(
+                        review ->
+                            mostManaged.accumulateAndGet(
+                                entityManager
+                                    .unwrap(Session.class)
+                                    .getStatistics()
+                                    .getEntityCount(),
+                                Math::max)),
+            new ByteArrayOutputStream());
+
+    assertEquals(ROWS, count);
+    assertTrue(
+        mostManaged.get() <= NdjsonExporter.BATCH_SIZE,
+        "at most %d reviews managed at once, but %d were"
+            .formatted(NdjsonExporter.BATCH_SIZE, mostManaged.get()));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void only_exports_run_on_the_bounded_executor_with_the_export_timeout() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    mockMvc.perform(asyncDispatch(response)).andExpect(status().isOk());
+
+    assertEquals(exportTimeoutMs, response.getRequest().getAsyncContext().getTimeout());
+    assertEquals(asyncPoolSize, mvcAsyncExecutor.getMaxPoolSize());
+    assertTrue(mvcAsyncExecutor.getThreadPoolExecutor().getCompletedTaskCount() > 0);
+  }
+}
@@ -0,0 +1,157 @@
+package edu.ucsb.cs156.example.integration;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.jobs.NormalizeMenuItemReviewsJob;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobFactory;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Runs NormalizeMenuItemReviewsJob against the real menuitemreview and jobs tables, directly and
+ * through JobService.
+ */
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class NormalizeMenuItemReviewsJobIT {
+  @Autowired JobFactory jobFactory;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobService jobService;
+
+  @SpyBean MenuItemReviewRepository menuItemReviewRepository;
+
+  @MockBean UserRepository userRepository;
+
+  List<MenuItemReview> reviews = new ArrayList<>();
+
+  @BeforeEach
+  public void setup() {
+    menuItemReviewRepository.deleteAll();
+    for (int i = 0; i < 5; i++) {
+      reviews.add(
+          menuItemReviewRepository.save(
+              MenuItemReview.builder()
+                  .itemId(i)
+                  .reviewerEmail(" User" + i + "@UCSB.edu")
+                  .stars(i)
+                  .comments("comment " + i + " ")
+                  .build()));
+    }
+  }
+
+  private void run(Job job, int chunkSize) throws Exception {
+    NormalizeMenuItemReviewsJob normalizeJob =
+        NormalizeMenuItemReviewsJob.builder().chunkSize(chunkSize).build();
+    jobFactory.autowire(normalizeJob);
+    JobContext ctx = new JobContext(null, job);
+    ctx.checkpointTo(checkpoint -> jobsRepository.updateCheckpoint(job.getId(), checkpoint));
+    normalizeJob.accept(ctx);
+  }
+
+  @Test
+  public void job_normalizes_all_reviews_and_stores_its_checkpoint() throws Exception {
+    Job job = jobsRepository.save(Job.builder().status("running").build());
+
+    run(job, 2);
+
+    for (int i = 0; i < 5; i++) {
+      MenuItemReview review = menuItemReviewRepository.findById(reviews.get(i).getId()).get();
+      assertEquals("user" + i + "@ucsb.edu", review.getReviewerEmail());
+      assertEquals("comment " + i, review.getComments());
+      assertEquals(i, review.getStars());
+    }
+    assertEquals(
+        Long.toString(reviews.get(4).getId()),
+        jobsRepository.findById(job.getId()).get().getCheckpoint());
+  }
+
+  @Test
+  public void restarted_job_leaves_reviews_before_its_checkpoint_alone() throws Exception {
+    Job job =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .checkpoint(Long.toString(reviews.get(2).getId()))
+                .build());
+
+    run(job, 2);
+
+    assertEquals(
+        " User2@UCSB.edu",
+        menuItemReviewRepository.findById(reviews.get(2).getId()).get().getReviewerEmail());
+    assertEquals(
+        "user3@ucsb.edu",
+        menuItemReviewRepository.findById(reviews.get(3).getId()).get().getReviewerEmail());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void job_that_fails_mid_run_resumes_after_its_last_chunk_when_retried() {
+    // the second chunk, reviews 2 and 3, fails to write
+    doThrow(new IllegalStateException("disk full"))
+        .when(menuItemReviewRepository)
+        .updateAll(argThat(chunk -> chunk.get(0).getId() == reviews.get(2).getId()));
+
+    Job job = jobService.runAsJob(NormalizeMenuItemReviewsJob.builder().chunkSize(2).build());
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () -> assertEquals("error", jobsRepository.findById(job.getId()).get().getStatus()));
+    assertEquals(
+        Long.toString(reviews.get(1).getId()),
+        jobsRepository.findById(job.getId()).get().getCheckpoint());
+    assertEquals(
+        " User2@UCSB.edu",
+        menuItemReviewRepository.findById(reviews.get(2).getId()).get().getReviewerEmail());
+
+    reset(menuItemReviewRepository);
+    assertTrue(jobService.retry(job.getId()));
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () -> assertEquals("complete", jobsRepository.findById(job.getId()).get().getStatus()));
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals(
+          "user" + i + "@ucsb.edu",
+          menuItemReviewRepository.findById(reviews.get(i).getId()).get().getReviewerEmail());
+    }
+    // the retry started after the first chunk instead of at the first review
+    verify(menuItemReviewRepository, never()).findByIdGreaterThanOrderByIdAsc(eq(0L), any());
+    assertEquals(2, jobsRepository.findById(job.getId()).get().getAttempts());
+    assertTrue(
+        jobService
+            .getJobLogs(job.getId())
+            .contains("Restarting after checkpoint " + reviews.get(1).getId()));
+  }
+}
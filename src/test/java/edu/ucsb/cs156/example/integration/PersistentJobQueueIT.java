@@ -0,0 +1,51 @@
+package edu.ucsb.cs156.example.integration;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Runs a job end to end through the persistent job queue. */
+@SpringBootTest(properties = {"app.jobs.persistentQueue=true", "app.jobs.queuePollIntervalMs=100"})
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class PersistentJobQueueIT {
+  @Autowired JobService jobService;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @MockBean UserRepository userRepository;
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void queued_job_is_claimed_and_run_by_the_worker() throws Exception {
+    Job queued = jobService.runAsJob(TestJob.builder().fail(false).sleepMs(10).build());
+
+    assertEquals("queued", queued.getStatus());
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertEquals(
+                    "complete", jobsRepository.findById(queued.getId()).get().getStatus()));
+
+    Job completed = jobsRepository.findById(queued.getId()).get();
+    assertEquals(1, completed.getAttempts());
+    assertEquals(
+        "Hello World! from test job!\nGoodbye from test job!",
+        jobService.getJobLogs(queued.getId()));
+  }
+}
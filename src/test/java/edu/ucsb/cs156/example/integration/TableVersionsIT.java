@@ -0,0 +1,82 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+/** Revalidates the reference data endpoints with If-None-Match against the real table_versions. */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class TableVersionsIT {
+  @Autowired MockMvc mockMvc;
+
+  @Autowired TableVersions tableVersions;
+
+  @MockBean UserRepository userRepository;
+
+  private String etag(String url) throws Exception {
+    return mockMvc
+        .perform(get(url))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getHeader("ETag");
+  }
+
+  @Test
+  public void every_reference_data_table_has_a_version() {
+    for (String table : new String[] {"ucsbdates", "ucsbdiningcommons", "ucsborganizations"}) {
+      tableVersions.etag(table);
+    }
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void etag_stays_the_same_until_the_table_changes() throws Exception {
+    String before = etag("/api/ucsbdates/all");
+    mockMvc
+        .perform(get("/api/ucsbdates/all").header("If-None-Match", before))
+        .andExpect(status().isNotModified());
+
+    String id =
+        mockMvc
+            .perform(
+                post("/api/ucsbdates/post?name=firstDayOfClasses&quarterYYYYQ=20222&localDateTime=2022-01-03T00:00:00")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString()
+            .replaceAll(".*\"id\":(\\d+).*", "$1");
+
+    String afterPost = etag("/api/ucsbdates/all");
+    assertNotEquals(before, afterPost);
+    mockMvc
+        .perform(get("/api/ucsbdates/all").header("If-None-Match", before))
+        .andExpect(status().isOk());
+    mockMvc
+        .perform(get("/api/ucsbdates/all").header("If-None-Match", afterPost))
+        .andExpect(status().isNotModified());
+
+    mockMvc.perform(delete("/api/ucsbdates?id=" + id).with(csrf())).andExpect(status().isOk());
+    assertNotEquals(afterPost, etag("/api/ucsbdates/all"));
+  }
+}
@@ -0,0 +1,56 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserSessionCache;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Checks that changing a user in the users table invalidates the Users cached in sessions. */
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class UserSessionCacheIT {
+  @Autowired UserSessionCache userSessionCache;
+
+  @Autowired UserRepository userRepository;
+
+  @Test
+  public void changing_admin_flag_invalidates_cached_users() {
+    User user = userRepository.save(User.builder().email("cache-it@ucsb.edu").admin(false).build());
+    MockHttpSession session = new MockHttpSession();
+    userSessionCache.put(session, user);
+    assertEquals(user.getId(), userSessionCache.get(session, "cache-it@ucsb.edu").getId());
+
+    user.setAdmin(true);
+    userRepository.save(user);
+
+    assertNull(userSessionCache.get(session, "cache-it@ucsb.edu"));
+    userRepository.delete(user);
+  }
+
+  @Test
+  public void upsert_invalidates_only_the_upserted_user() {
+    User user = userRepository.upsertOnLogin(User.builder().email("cache-it-1@ucsb.edu").build());
+    User other = userRepository.upsertOnLogin(User.builder().email("cache-it-2@ucsb.edu").build());
+    MockHttpSession session = new MockHttpSession();
+    MockHttpSession otherSession = new MockHttpSession();
+    userSessionCache.put(session, user);
+    userSessionCache.put(otherSession, other);
+
+    userRepository.upsertOnLogin(User.builder().email("cache-it-1@ucsb.edu").admin(true).build());
+
+    assertNull(userSessionCache.get(session, "cache-it-1@ucsb.edu"));
+    assertEquals(other.getId(), userSessionCache.get(otherSession, "cache-it-2@ucsb.edu").getId());
+    userRepository.deleteAll(userRepository.findAllById(List.of(user.getId(), other.getId())));
+  }
+}
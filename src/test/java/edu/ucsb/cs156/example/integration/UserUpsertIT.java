@@ -0,0 +1,174 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminDirectory;
+import edu.ucsb.cs156.example.services.CurrentUserServiceImpl;
+import edu.ucsb.cs156.example.services.UserChanges;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Checks the upsert of logged-in users against the unique index on users.email. */
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class UserUpsertIT {
+  @Autowired UserRepository userRepository;
+
+  @Autowired CurrentUserServiceImpl currentUserService;
+
+  @Autowired AdminDirectory adminDirectory;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  public void deleteUsers() {
+    jdbcTemplate.update("DELETE FROM users WHERE email LIKE 'upsert-%'");
+  }
+
+  private static OAuth2AuthenticationToken login(String email) {
+    DefaultOAuth2User principal =
+        new DefaultOAuth2User(
+            List.of(new SimpleGrantedAuthority("ROLE_USER")),
+            Map.of("sub", "123", "email", email, "name", "Chris Gaucho", "email_verified", true),
+            "sub");
+    return new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google");
+  }
+
+  private long countUsers(String email) {
+    return jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM users WHERE email = ?", Long.class, email);
+  }
+
+  @Test
+  public void upsert_inserts_user_once_and_keeps_other_fields() {
+    User first =
+        userRepository.upsertOnLogin(
+            User.builder().email("upsert-1@ucsb.edu").fullName("Chris Gaucho").build());
+    User second =
+        userRepository.upsertOnLogin(
+            User.builder().email("upsert-1@ucsb.edu").fullName("Renamed").build());
+
+    assertTrue(first.getId() > 0);
+    assertEquals(first.getId(), second.getId());
+    assertEquals("Chris Gaucho", second.getFullName());
+    assertFalse(second.getAdmin());
+    assertEquals(1, countUsers("upsert-1@ucsb.edu"));
+  }
+
+  @Test
+  public void upsert_sets_but_never_clears_admin_flag() {
+    userRepository.upsertOnLogin(User.builder().email("upsert-2@ucsb.edu").build());
+
+    assertTrue(
+        userRepository
+            .upsertOnLogin(User.builder().email("upsert-2@ucsb.edu").admin(true).build())
+            .getAdmin());
+    assertTrue(
+        userRepository.upsertOnLogin(User.builder().email("upsert-2@ucsb.edu").build()).getAdmin());
+    assertTrue(userRepository.findByEmail("upsert-2@ucsb.edu").get().getAdmin());
+  }
+
+  @Test
+  public void promotion_by_upsert_is_seen_by_admin_directory_before_entry_expires() {
+    userRepository.upsertOnLogin(User.builder().email("upsert-4@ucsb.edu").build());
+    userRepository.upsertOnLogin(User.builder().email("upsert-5@ucsb.edu").build());
+    assertFalse(adminDirectory.isAdmin("upsert-4@ucsb.edu"));
+    assertFalse(adminDirectory.isAdmin("upsert-5@ucsb.edu"));
+
+    userRepository.upsertOnLogin(User.builder().email("upsert-4@ucsb.edu").admin(true).build());
+    // changed behind JPA's back, so only the expiry would reveal it
+    jdbcTemplate.update("UPDATE users SET admin = true WHERE email = 'upsert-5@ucsb.edu'");
+
+    assertTrue(adminDirectory.isAdmin("upsert-4@ucsb.edu"));
+    assertFalse(adminDirectory.isAdmin("upsert-5@ucsb.edu"));
+  }
+
+  @Test
+  public void login_that_changes_nothing_keeps_admin_directory_entry() {
+    currentUserService.getOAuth2AuthenticatedUser(null, login("upsert-6@ucsb.edu"));
+    assertFalse(adminDirectory.isAdmin("upsert-6@ucsb.edu"));
+    long cachedAt = UserChanges.generation();
+
+    currentUserService.getOAuth2AuthenticatedUser(null, login("upsert-6@ucsb.edu"));
+    userRepository.upsertOnLogin(User.builder().email("upsert-6@ucsb.edu").build());
+
+    assertFalse(UserChanges.changedSince("upsert-6@ucsb.edu", cachedAt));
+  }
+
+  @Test
+  public void login_of_existing_admin_writes_nothing_and_reads_the_user_back() {
+    User first =
+        userRepository.upsertOnLogin(
+            User.builder().email("upsert-7@ucsb.edu").fullName("Chris Gaucho").admin(true).build());
+    long storedAt = UserChanges.generation();
+
+    User second =
+        userRepository.upsertOnLogin(
+            User.builder().email("upsert-7@ucsb.edu").fullName("Renamed").admin(true).build());
+
+    assertEquals(first.getId(), second.getId());
+    assertEquals("Chris Gaucho", second.getFullName());
+    assertTrue(second.getAdmin());
+    assertFalse(UserChanges.changedSince("upsert-7@ucsb.edu", storedAt));
+  }
+
+  @Test
+  public void duplicate_email_is_rejected() {
+    userRepository.save(User.builder().email("upsert-3@ucsb.edu").build());
+
+    assertThrows(
+        DataIntegrityViolationException.class,
+        () -> userRepository.save(User.builder().email("upsert-3@ucsb.edu").build()));
+  }
+
+  @Test
+  public void concurrent_first_logins_store_one_user() throws Exception {
+    int logins = 16;
+    ExecutorService executor = Executors.newFixedThreadPool(logins);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<User>> users = new ArrayList<>();
+      for (int i = 0; i < logins; i++) {
+        users.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return currentUserService.getOAuth2AuthenticatedUser(
+                      null, login("upsert-storm@ucsb.edu"));
+                }));
+      }
+      start.countDown();
+
+      long id = users.get(0).get().getId();
+      for (Future<User> user : users) {
+        assertEquals(id, user.get().getId());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, countUsers("upsert-storm@ucsb.edu"));
+  }
+}
@@ -0,0 +1,143 @@
+package edu.ucsb.cs156.example.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class NormalizeMenuItemReviewsJobTests {
+
+  MenuItemReviewRepository menuItemReviewRepository = mock(MenuItemReviewRepository.class);
+  PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+  Job job = Job.builder().id(1L).status("running").build();
+  List<String> checkpoints = new ArrayList<>();
+  JobContext ctx = new JobContext(null, job);
+
+  @BeforeEach
+  public void setup() {
+    ctx.checkpointTo(checkpoints::add);
+  }
+
+  private NormalizeMenuItemReviewsJob job(int chunkSize) {
+    NormalizeMenuItemReviewsJob normalizeJob =
+        NormalizeMenuItemReviewsJob.builder()
+            .chunkSize(chunkSize)
+            .menuItemReviewRepository(menuItemReviewRepository)
+            .build();
+    ReflectionTestUtils.setField(
+        normalizeJob, "transactionTemplate", new TransactionTemplate(transactionManager));
+    return normalizeJob;
+  }
+
+  private static MenuItemReview review(long id, String email, String comments) {
+    return MenuItemReview.builder().id(id).reviewerEmail(email).comments(comments).build();
+  }
+
+  @Test
+  public void normalizes_reviews_chunk_by_chunk_and_writes_only_changed_ones() throws Exception {
+    // arrange
+    MenuItemReview r1 = review(1L, " Ann@UCSB.edu", "good ");
+    MenuItemReview r2 = review(2L, "bob@ucsb.edu", "fine");
+    MenuItemReview r3 = review(3L, null, null);
+    MenuItemReview r4 = review(4L, "CAT@ucsb.edu", "ok");
+    MenuItemReview r5 = review(5L, "dan@ucsb.edu", " meh");
+    when(menuItemReviewRepository.countByIdGreaterThan(0L)).thenReturn(5L);
+    when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2)))
+        .thenReturn(List.of(r1, r2));
+    when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(2L, Limit.of(2)))
+        .thenReturn(List.of(r3, r4));
+    when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(4L, Limit.of(2)))
+        .thenReturn(List.of(r5));
+
+    // act
+    job(2).accept(ctx);
+
+    // assert
+    verify(menuItemReviewRepository).updateAll(List.of(r1));
+    verify(menuItemReviewRepository).updateAll(List.of(r4));
+    verify(menuItemReviewRepository).updateAll(List.of(r5));
+    assertEquals("ann@ucsb.edu", r1.getReviewerEmail());
+    assertEquals("good", r1.getComments());
+    assertEquals("cat@ucsb.edu", r4.getReviewerEmail());
+    assertEquals("meh", r5.getComments());
+    assertEquals(List.of("2", "4", "5"), checkpoints);
+    assertEquals("5", job.getCheckpoint());
+    assertEquals(5L, ctx.getProgress().getTotal());
+    assertEquals(5L, ctx.getProgress().getCompleted());
+  }
+
+  @Test
+  public void full_last_chunk_is_followed_by_one_empty_read() throws Exception {
+    // arrange
+    MenuItemReview r1 = review(1L, "ann@ucsb.edu", "good");
+    when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1)))
+        .thenReturn(List.of(r1));
+    when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(1L, Limit.of(1)))
+        .thenReturn(List.of());
+
+    // act
+    job(1).accept(ctx);
+
+    // assert
+    verify(menuItemReviewRepository, never()).updateAll(any());
+    assertEquals(List.of("1"), checkpoints);
+  }
+
+  @Test
+  public void restarted_job_continues_after_its_checkpoint() throws Exception {
+    // arrange
+    job.setCheckpoint("4");
+    MenuItemReview r5 = review(5L, "Dan@ucsb.edu", "meh");
+    when(menuItemReviewRepository.countByIdGreaterThan(4L)).thenReturn(1L);
+    when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(4L, Limit.of(2)))
+        .thenReturn(List.of(r5));
+
+    // act
+    job(2).accept(ctx);
+
+    // assert
+    verify(menuItemReviewRepository, never()).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2));
+    verify(menuItemReviewRepository).updateAll(List.of(r5));
+    assertEquals(List.of("5"), checkpoints);
+    assertEquals(1L, ctx.getProgress().getTotal());
+  }
+
+  @Test
+  public void failed_write_rolls_back_and_keeps_last_checkpoint() throws Exception {
+    // arrange
+    MenuItemReview r1 = review(1L, "Ann@ucsb.edu", "good");
+    MenuItemReview r2 = review(2L, "Bob@ucsb.edu", "fine");
+    when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1)))
+        .thenReturn(List.of(r1));
+    when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(1L, Limit.of(1)))
+        .thenReturn(List.of(r2));
+    doThrow(new IllegalStateException("write failed"))
+        .when(menuItemReviewRepository)
+        .updateAll(List.of(r2));
+
+    // act
+    assertThrows(IllegalStateException.class, () -> job(1).accept(ctx));
+
+    // assert
+    verify(transactionManager).rollback(any());
+    assertEquals(List.of("1"), checkpoints);
+    assertEquals("1", job.getCheckpoint());
+  }
+}
@@ -0,0 +1,53 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.sql.PreparedStatement;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+@ExtendWith(MockitoExtension.class)
+public class JobLogLinesBatchRepositoryImplTests {
+
+  @Mock JdbcTemplate jdbcTemplate;
+
+  @InjectMocks JobLogLinesBatchRepositoryImpl repository;
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void insertAll_writes_all_lines_in_one_batch() throws Exception {
+    // arrange
+    ZonedDateTime timestamp = ZonedDateTime.parse("2022-01-03T00:00:00Z");
+    JobLogLine line =
+        JobLogLine.builder().jobId(5L).seq(2).timestamp(timestamp).message("hello").build();
+    List<JobLogLine> lines = List.of(line);
+
+    // act
+    repository.insertAll(lines);
+
+    // assert
+    ArgumentCaptor<ParameterizedPreparedStatementSetter<JobLogLine>> setter =
+        ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+    verify(jdbcTemplate)
+        .batchUpdate(
+            eq(JobLogLinesBatchRepositoryImpl.INSERT_SQL), eq(lines), eq(1), setter.capture());
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    setter.getValue().setValues(ps, line);
+    verify(ps).setLong(1, 5L);
+    verify(ps).setInt(2, 2);
+    verify(ps).setObject(3, timestamp.toOffsetDateTime());
+    verify(ps).setString(4, "hello");
+  }
+}
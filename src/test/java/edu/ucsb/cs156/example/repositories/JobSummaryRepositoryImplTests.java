@@ -0,0 +1,72 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.models.JobSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class JobSummaryRepositoryImplTests {
+
+  @Mock EntityManager entityManager;
+
+  @Mock TypedQuery<JobSummary> query;
+
+  @InjectMocks JobSummaryRepositoryImpl repository;
+
+  @Test
+  public void findSummaries_without_filters_only_orders_and_limits() {
+    // arrange
+    List<JobSummary> summaries = List.of(JobSummary.builder().id(1L).build());
+    when(entityManager.createQuery(
+            JobSummaryRepositoryImpl.SELECT_JPQL + " ORDER BY j.id DESC", JobSummary.class))
+        .thenReturn(query);
+    when(query.setMaxResults(10)).thenReturn(query);
+    when(query.getResultList()).thenReturn(summaries);
+
+    // act
+    List<JobSummary> result = repository.findSummaries(null, null, null, null, 10);
+
+    // assert
+    assertEquals(summaries, result);
+    verify(query, never()).setParameter(anyString(), any());
+  }
+
+  @Test
+  public void findSummaries_with_all_filters_adds_a_condition_for_each() {
+    // arrange
+    ZonedDateTime after = ZonedDateTime.parse("2022-01-01T00:00:00Z");
+    ZonedDateTime before = ZonedDateTime.parse("2022-02-01T00:00:00Z");
+    String expectedJpql =
+        JobSummaryRepositoryImpl.SELECT_JPQL
+            + " WHERE j.status = :status AND j.createdAt >= :createdAfter"
+            + " AND j.createdAt < :createdBefore AND j.id < :beforeId ORDER BY j.id DESC";
+    when(entityManager.createQuery(expectedJpql, JobSummary.class)).thenReturn(query);
+    when(query.setMaxResults(anyInt())).thenReturn(query);
+    when(query.getResultList()).thenReturn(List.of());
+
+    // act
+    repository.findSummaries("complete", after, before, 42L, 5);
+
+    // assert
+    verify(query).setParameter("status", "complete");
+    verify(query).setParameter("createdAfter", after);
+    verify(query).setParameter("createdBefore", before);
+    verify(query).setParameter("beforeId", 42L);
+    verify(query).setMaxResults(5);
+  }
+}
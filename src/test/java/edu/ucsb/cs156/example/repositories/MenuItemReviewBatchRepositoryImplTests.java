@@ -0,0 +1,62 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+@ExtendWith(MockitoExtension.class)
+public class MenuItemReviewBatchRepositoryImplTests {
+
+  @Mock JdbcTemplate jdbcTemplate;
+
+  @InjectMocks MenuItemReviewBatchRepositoryImpl repository;
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void updateAll_writes_all_reviews_in_one_batch() throws Exception {
+    // arrange
+    LocalDateTime reviewed = LocalDateTime.parse("2022-01-03T00:00:00");
+    MenuItemReview review =
+        MenuItemReview.builder()
+            .id(7L)
+            .itemId(3L)
+            .reviewerEmail("ann@ucsb.edu")
+            .stars(4)
+            .dateReviewed(reviewed)
+            .comments("good")
+            .build();
+    List<MenuItemReview> reviews = List.of(review);
+
+    // act
+    repository.updateAll(reviews);
+
+    // assert
+    ArgumentCaptor<ParameterizedPreparedStatementSetter<MenuItemReview>> setter =
+        ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+    verify(jdbcTemplate)
+        .batchUpdate(
+            eq(MenuItemReviewBatchRepositoryImpl.UPDATE_SQL), eq(reviews), eq(1), setter.capture());
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    setter.getValue().setValues(ps, review);
+    verify(ps).setLong(1, 3L);
+    verify(ps).setString(2, "ann@ucsb.edu");
+    verify(ps).setInt(3, 4);
+    verify(ps).setObject(4, reviewed);
+    verify(ps).setString(5, "good");
+    verify(ps).setLong(6, 7L);
+  }
+}
@@ -0,0 +1,122 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class AdminDirectoryTests {
+
+  @Mock UserRepository userRepository;
+
+  @InjectMocks AdminDirectory adminDirectory;
+
+  User admin = User.builder().id(1L).email("admin@ucsb.edu").admin(true).build();
+
+  User user = User.builder().id(2L).email("cgaucho@ucsb.edu").admin(false).build();
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(adminDirectory, "adminEmails", Set.of("phtcon@ucsb.edu"));
+    ReflectionTestUtils.setField(adminDirectory, "cacheMaxEntries", 2);
+    ReflectionTestUtils.setField(adminDirectory, "cacheTtlSeconds", 60L);
+  }
+
+  @Test
+  public void configured_admin_email_is_admin_without_reading_users_table() {
+    assertTrue(adminDirectory.isConfiguredAdmin("phtcon@ucsb.edu"));
+    assertTrue(adminDirectory.isAdmin("phtcon@ucsb.edu"));
+    assertFalse(adminDirectory.isConfiguredAdmin("cgaucho@ucsb.edu"));
+    assertFalse(adminDirectory.isConfiguredAdmin(null));
+    assertFalse(adminDirectory.isAdmin(null));
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  public void admin_flag_is_read_once_and_cached() {
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.of(admin));
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user));
+    when(userRepository.findByEmail("nobody@ucsb.edu")).thenReturn(Optional.empty());
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(adminDirectory.isAdmin("admin@ucsb.edu"));
+      assertFalse(adminDirectory.isAdmin("cgaucho@ucsb.edu"));
+    }
+    assertFalse(adminDirectory.isAdmin("nobody@ucsb.edu"));
+
+    verify(userRepository, times(1)).findByEmail("admin@ucsb.edu");
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  public void least_recently_used_entry_is_evicted_when_cache_is_full() {
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.of(admin));
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(user));
+    when(userRepository.findByEmail("nobody@ucsb.edu")).thenReturn(Optional.empty());
+
+    adminDirectory.isAdmin("admin@ucsb.edu");
+    adminDirectory.isAdmin("cgaucho@ucsb.edu");
+    adminDirectory.isAdmin("admin@ucsb.edu");
+    adminDirectory.isAdmin("nobody@ucsb.edu");
+    adminDirectory.isAdmin("admin@ucsb.edu");
+    adminDirectory.isAdmin("cgaucho@ucsb.edu");
+
+    verify(userRepository, times(1)).findByEmail("admin@ucsb.edu");
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  public void user_changes_and_invalidation_drop_cached_flags() {
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.of(admin));
+    adminDirectory.isAdmin("admin@ucsb.edu");
+
+    UserChanges.changed("admin@ucsb.edu");
+    adminDirectory.isAdmin("admin@ucsb.edu");
+    UserChanges.changedAll();
+    adminDirectory.isAdmin("admin@ucsb.edu");
+    adminDirectory.invalidate("admin@ucsb.edu");
+    adminDirectory.isAdmin("admin@ucsb.edu");
+    adminDirectory.invalidateAll();
+    adminDirectory.isAdmin("admin@ucsb.edu");
+
+    verify(userRepository, times(5)).findByEmail("admin@ucsb.edu");
+  }
+
+  @Test
+  public void change_to_another_user_keeps_cached_flag() {
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.of(admin));
+    adminDirectory.isAdmin("admin@ucsb.edu");
+
+    UserChanges.changed("cgaucho@ucsb.edu");
+    adminDirectory.isAdmin("admin@ucsb.edu");
+
+    verify(userRepository, times(1)).findByEmail("admin@ucsb.edu");
+  }
+
+  @Test
+  public void expired_entry_is_read_again() {
+    ReflectionTestUtils.setField(adminDirectory, "cacheTtlSeconds", 0L);
+    when(userRepository.findByEmail("admin@ucsb.edu")).thenReturn(Optional.of(admin));
+
+    adminDirectory.isAdmin("admin@ucsb.edu");
+    adminDirectory.isAdmin("admin@ucsb.edu");
+
+    verify(userRepository, times(2)).findByEmail("admin@ucsb.edu");
+  }
+}
@@ -0,0 +1,95 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.errors.BulkRequestTooLargeException;
+import edu.ucsb.cs156.example.models.BulkItemResult;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkInserterTests {
+
+  @Mock EntityManager entityManager;
+
+  @Mock Session session;
+
+  @InjectMocks BulkInserter bulkInserter;
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(bulkInserter, "batchSize", 2);
+    ReflectionTestUtils.setField(bulkInserter, "maxItems", 5);
+  }
+
+  private static String check(String item) {
+    return item.isEmpty() ? "Item is empty" : null;
+  }
+
+  @Test
+  public void valid_items_are_persisted_and_flushed_in_batches() {
+    when(entityManager.unwrap(Session.class)).thenReturn(session);
+
+    List<BulkItemResult> results =
+        bulkInserter.insertAll(
+            List.of("a", "bb", "ccc"), BulkInserterTests::check, item -> item.length());
+
+    assertEquals(
+        List.of(
+            BulkItemResult.builder().index(0).status("created").id(1L).build(),
+            BulkItemResult.builder().index(1).status("created").id(2L).build(),
+            BulkItemResult.builder().index(2).status("created").id(3L).build()),
+        results);
+    verify(session).setJdbcBatchSize(2);
+    verify(entityManager, times(3)).persist(any());
+    // once after the first batch of two, and once at the end
+    verify(entityManager, times(2)).flush();
+    verify(entityManager, times(2)).clear();
+  }
+
+  @Test
+  public void invalid_and_null_items_are_rejected_without_being_persisted() {
+    when(entityManager.unwrap(Session.class)).thenReturn(session);
+
+    List<BulkItemResult> results =
+        bulkInserter.insertAll(
+            Arrays.asList("", null, "a"), BulkInserterTests::check, item -> item.length());
+
+    assertEquals(
+        List.of(
+            BulkItemResult.builder().index(0).status("rejected").message("Item is empty").build(),
+            BulkItemResult.builder().index(1).status("rejected").message("Item is null").build(),
+            BulkItemResult.builder().index(2).status("created").id(1L).build()),
+        results);
+    verify(entityManager, times(1)).persist("a");
+  }
+
+  @Test
+  public void too_many_items_are_rejected_before_anything_is_persisted() {
+    List<String> items = new ArrayList<>(List.of("a", "b", "c", "d", "e", "f"));
+
+    BulkRequestTooLargeException e =
+        assertThrows(
+            BulkRequestTooLargeException.class,
+            () -> bulkInserter.insertAll(items, BulkInserterTests::check, item -> 0));
+
+    assertEquals("Bulk request has 6 items; at most 5 are allowed", e.getMessage());
+    verify(entityManager, never()).persist(any());
+  }
+}
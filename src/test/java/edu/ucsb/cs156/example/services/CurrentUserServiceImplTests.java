@@ -0,0 +1,166 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+@ExtendWith(MockitoExtension.class)
+public class CurrentUserServiceImplTests {
+
+  @Mock UserRepository userRepository;
+
+  @Spy UserSessionCache userSessionCache = new UserSessionCache();
+
+  @Spy AdminDirectory adminDirectory = new AdminDirectory();
+
+  @InjectMocks CurrentUserServiceImpl currentUserService;
+
+  MockHttpServletRequest request = new MockHttpServletRequest();
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(userSessionCache, "ttlSeconds", 60L);
+    ReflectionTestUtils.setField(adminDirectory, "adminEmails", Set.of());
+    request.getSession(true);
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    login("cgaucho@ucsb.edu");
+  }
+
+  @AfterEach
+  public void teardown() {
+    RequestContextHolder.resetRequestAttributes();
+    SecurityContextHolder.clearContext();
+  }
+
+  private void login(String email) {
+    DefaultOAuth2User principal =
+        new DefaultOAuth2User(
+            List.of(new SimpleGrantedAuthority("ROLE_USER")),
+            Map.of("sub", "123", "email", email, "email_verified", true),
+            "sub");
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+  }
+
+  private void upsertReturnsArgument() {
+    when(userRepository.upsertOnLogin(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+  }
+
+  @Test
+  public void getUser_reads_users_table_once_per_session() {
+    User user = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+    when(userRepository.upsertOnLogin(any(User.class))).thenReturn(user);
+
+    assertSame(user, currentUserService.getUser());
+    assertSame(user, currentUserService.getUser());
+    assertSame(user, currentUserService.getUser());
+
+    verify(userRepository, times(1)).upsertOnLogin(any(User.class));
+  }
+
+  @Test
+  public void getUser_stores_user_with_one_upsert_and_caches_it() {
+    upsertReturnsArgument();
+
+    User user = currentUserService.getUser();
+
+    assertEquals("cgaucho@ucsb.edu", user.getEmail());
+    assertFalse(user.getAdmin());
+    assertSame(user, currentUserService.getUser());
+    verify(userRepository, times(1)).upsertOnLogin(any(User.class));
+    verify(userRepository, never()).findByEmail(any());
+    verify(userRepository, never()).save(any());
+  }
+
+  @Test
+  public void getUser_looks_user_up_again_after_user_changes() {
+    upsertReturnsArgument();
+    currentUserService.getUser();
+
+    UserChanges.changed("cgaucho@ucsb.edu");
+    currentUserService.getUser();
+
+    verify(userRepository, times(2)).upsertOnLogin(any(User.class));
+  }
+
+  @Test
+  public void getUser_does_not_return_user_cached_for_another_login() {
+    upsertReturnsArgument();
+    currentUserService.getUser();
+
+    login("ldelplaya@ucsb.edu");
+
+    assertEquals("ldelplaya@ucsb.edu", currentUserService.getUser().getEmail());
+  }
+
+  @Test
+  public void getUser_without_session_reads_users_table_every_time() {
+    RequestContextHolder.resetRequestAttributes();
+    upsertReturnsArgument();
+
+    currentUserService.getUser();
+    currentUserService.getUser();
+
+    verify(userRepository, times(2)).upsertOnLogin(any(User.class));
+  }
+
+  @Test
+  public void getUser_without_oauth2_login_is_null() {
+    SecurityContextHolder.clearContext();
+
+    assertNull(currentUserService.getUser());
+    verify(userRepository, never()).upsertOnLogin(any());
+  }
+
+  @Test
+  public void admin_email_is_upserted_and_cached_as_admin() {
+    ReflectionTestUtils.setField(adminDirectory, "adminEmails", Set.of("cgaucho@ucsb.edu"));
+    upsertReturnsArgument();
+
+    assertTrue(currentUserService.getUser().getAdmin());
+    assertTrue(currentUserService.getUser().getAdmin());
+    verify(userRepository, times(1)).upsertOnLogin(any(User.class));
+  }
+
+  @Test
+  public void upsert_is_retried_when_concurrent_login_inserted_user_first() {
+    User user = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+    when(userRepository.upsertOnLogin(any(User.class)))
+        .thenThrow(new DataIntegrityViolationException("USERS_EMAIL_UNIQUE"))
+        .thenReturn(user);
+
+    assertSame(user, currentUserService.getUser());
+    verify(userRepository, times(2)).upsertOnLogin(any(User.class));
+  }
+}
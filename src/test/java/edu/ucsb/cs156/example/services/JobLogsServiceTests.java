@@ -1,23 +1,69 @@
 package edu.ucsb.cs156.example.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.IdempotencyKeyConflictException;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.models.JobLogSlice;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import edu.ucsb.cs156.example.services.jobs.JobFactory;
+import edu.ucsb.cs156.example.services.jobs.JobLogBroadcaster;
+import edu.ucsb.cs156.example.services.jobs.JobPipeline;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ThreadPoolExecutor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class JobLogsServiceTests {
 
   @Mock private JobsRepository jobRepository;
 
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private ThreadPoolTaskExecutor jobExecutor;
+
+  @Mock private JobFactory jobFactory;
+
+  @Mock private JobLogBroadcaster jobLogBroadcaster;
+
   @InjectMocks private JobService jobService;
 
   @BeforeEach
@@ -55,6 +101,186 @@ public class JobLogsServiceTests {
     assertEquals("", result);
   }
 
+  @Test
+  void test_getJobLogs_with_log_lines() {
+    // Arrange
+    Long jobId = 4L;
+    Job job = Job.builder().id(jobId).build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(2L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            jobId, 0, 2))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(jobId).seq(0).message("line one").build(),
+                JobLogLine.builder().jobId(jobId).seq(1).message("line two").build()));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("line one\nline two", result);
+  }
+
+  @Test
+  void test_getJobLogs_with_legacy_log_and_log_lines() {
+    // Arrange
+    Long jobId = 5L;
+    Job job = Job.builder().id(jobId).log("old line").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(1L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            jobId, 0, 1))
+        .thenReturn(List.of(JobLogLine.builder().jobId(jobId).seq(0).message("new line").build()));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("old line\nnew line", result);
+  }
+
+  private static List<JobLogLine> lines(long jobId, int fromSeq, int toSeq) {
+    List<JobLogLine> lines = new ArrayList<>();
+    for (int seq = fromSeq; seq < toSeq; seq++) {
+      lines.add(JobLogLine.builder().jobId(jobId).seq(seq).message("line " + seq).build());
+    }
+    return lines;
+  }
+
+  @Test
+  void test_getJobLogs_reads_only_the_requested_range() {
+    // Arrange
+    Long jobId = 9L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(1000L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            jobId, 10, 13))
+        .thenReturn(lines(jobId, 10, 13));
+
+    // Act
+    JobLogSlice slice = jobService.getJobLogs(jobId, 10, 3, null);
+
+    // Assert
+    assertEquals(10, slice.getOffset());
+    assertEquals(1000, slice.getTotalLines());
+    assertEquals("line 10\nline 11\nline 12", slice.getText());
+    verify(jobLogLinesRepository, never()).findAllByJobIdOrderBySeqAsc(jobId);
+  }
+
+  @Test
+  void test_getJobLogs_tail_returns_last_lines() {
+    // Arrange
+    Long jobId = 9L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(1000L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            jobId, 998, 1000))
+        .thenReturn(lines(jobId, 998, 1000));
+
+    // Act
+    JobLogSlice slice = jobService.getJobLogs(jobId, 0, null, 2);
+
+    // Assert
+    assertEquals(998, slice.getOffset());
+    assertEquals(1000, slice.getTotalLines());
+    assertEquals("line 998\nline 999", slice.getText());
+  }
+
+  @Test
+  void test_getJobLogs_tail_longer_than_log_returns_whole_log() {
+    // Arrange
+    Long jobId = 9L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(2L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            jobId, 0, 2))
+        .thenReturn(lines(jobId, 0, 2));
+
+    // Act
+    JobLogSlice slice = jobService.getJobLogs(jobId, 0, null, 50);
+
+    // Assert
+    assertEquals(0, slice.getOffset());
+    assertEquals("line 0\nline 1", slice.getText());
+  }
+
+  @Test
+  void test_getJobLogs_offset_past_end_returns_no_lines() {
+    // Arrange
+    Long jobId = 9L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(2L);
+
+    // Act
+    JobLogSlice slice = jobService.getJobLogs(jobId, 5, 10, null);
+
+    // Assert
+    assertEquals(2, slice.getOffset());
+    assertEquals(2, slice.getTotalLines());
+    assertEquals("", slice.getText());
+    verify(jobLogLinesRepository, never())
+        .findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            any(Long.class), any(Integer.class), any(Integer.class));
+  }
+
+  @Test
+  void test_getJobLogs_negative_parameters_are_treated_as_zero() {
+    // Arrange
+    Long jobId = 9L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(2L);
+
+    // Act
+    JobLogSlice fromStart = jobService.getJobLogs(jobId, -5, -1, null);
+    JobLogSlice emptyTail = jobService.getJobLogs(jobId, 0, null, -3);
+
+    // Assert
+    assertEquals(0, fromStart.getOffset());
+    assertEquals("", fromStart.getText());
+    assertEquals(2, emptyTail.getOffset());
+    assertEquals("", emptyTail.getText());
+  }
+
+  @Test
+  void test_getJobLogs_range_spanning_legacy_log_and_log_lines() {
+    // Arrange
+    Long jobId = 9L;
+    Job job = Job.builder().id(jobId).log("old 0\nold 1").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(3L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            jobId, 0, 2))
+        .thenReturn(lines(jobId, 0, 2));
+
+    // Act
+    JobLogSlice slice = jobService.getJobLogs(jobId, 1, 3, null);
+
+    // Assert
+    assertEquals(1, slice.getOffset());
+    assertEquals(5, slice.getTotalLines());
+    assertEquals("old 1\nline 0\nline 1", slice.getText());
+  }
+
+  @Test
+  void test_getJobLogs_range_after_legacy_log() {
+    // Arrange
+    Long jobId = 9L;
+    Job job = Job.builder().id(jobId).log("old 0\nold 1").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.countByJobId(jobId)).thenReturn(3L);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            jobId, 1, 3))
+        .thenReturn(lines(jobId, 1, 3));
+
+    // Act
+    JobLogSlice slice = jobService.getJobLogs(jobId, 3, null, null);
+
+    // Assert
+    assertEquals(3, slice.getOffset());
+    assertEquals("line 1\nline 2", slice.getText());
+  }
+
   @Test
   void test_getJobLogs_job_not_found() {
     // Arrange
@@ -64,4 +290,746 @@ public class JobLogsServiceTests {
     // Act & Assert
     assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogs(jobId));
   }
+
+  @Test
+  void test_runJobAsync_flushes_buffered_lines_when_job_completes() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "logFlushMaxLines", 100);
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", Long.MAX_VALUE);
+    Job job = Job.builder().id(6L).status("running").build();
+    JobContextConsumer jobFunction =
+        ctx -> {
+          ctx.log("one");
+          ctx.log("two");
+          verify(jobLogLinesRepository, never()).insertAll(any());
+        };
+
+    // Act
+    jobService.runJobAsync(job, jobFunction);
+
+    // Assert
+    verify(jobLogLinesRepository, times(1)).insertAll(any());
+    verify(jobRepository, times(1)).finishAttempt(eq(6L), eq(null), eq(0), eq("complete"), any());
+    verify(jobRepository, never()).save(any());
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void test_runJobAsync_finishes_job_when_last_log_lines_cannot_be_written() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "logFlushMaxLines", 100);
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", Long.MAX_VALUE);
+    ReflectionTestUtils.setField(jobService, "progressIntervalMs", 1_000_000L);
+    Job job = Job.builder().id(7L).status("running").build();
+    doThrow(new DataIntegrityViolationException("JOB_LOG_LINES"))
+        .when(jobLogLinesRepository)
+        .insertAll(any());
+    // the first progress write, while the job runs, succeeds; the last one fails
+    doReturn(1)
+        .doThrow(new DataIntegrityViolationException("JOBS"))
+        .when(jobRepository)
+        .updateProgress(anyLong(), any(), any(), any(), any(ZonedDateTime.class));
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.setProgressTotal(2);
+          ctx.addProgress(1);
+          ctx.log("lost");
+        });
+
+    // Assert
+    verify(jobRepository, times(1)).finishAttempt(eq(7L), eq(null), eq(0), eq("complete"), any());
+    verify(jobLogBroadcaster).close(7L, "complete");
+  }
+
+  @Test
+  void test_runJobAsync_streams_lines_to_log_watchers() {
+    // Arrange
+    Job job = Job.builder().id(8L).status("running").build();
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+
+    // Act
+    jobService.runJobAsync(job, ctx -> ctx.log("streamed"));
+
+    // Assert
+    InOrder inOrder = inOrder(jobLogBroadcaster, jobRepository);
+    inOrder.verify(jobLogBroadcaster).open(8L);
+    inOrder.verify(jobLogBroadcaster).publish(lines.capture());
+    inOrder.verify(jobRepository).finishAttempt(eq(8L), eq(null), eq(0), eq("complete"), any());
+    inOrder.verify(jobLogBroadcaster).close(8L, "complete");
+    assertEquals("streamed", lines.getValue().getMessage());
+  }
+
+  @Test
+  void test_runJobAsync_writes_throttled_progress_and_final_progress() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "progressIntervalMs", 1_000_000L);
+    ReflectionTestUtils.setField(jobService, "progressWindowMs", 10000L);
+    Job job = Job.builder().id(9L).status("running").build();
+    JobContextConsumer jobFunction =
+        ctx -> {
+          ctx.setProgressTotal(10);
+          ctx.addProgress(3);
+          ctx.addProgress(4);
+        };
+
+    // Act
+    jobService.runJobAsync(job, jobFunction);
+
+    // Assert
+    InOrder inOrder = inOrder(jobRepository);
+    inOrder.verify(jobRepository).updateProgress(eq(9L), eq(10L), eq(0L), any(), any());
+    inOrder.verify(jobRepository).updateProgress(eq(9L), eq(10L), eq(7L), any(), any());
+    inOrder.verify(jobRepository).finishAttempt(eq(9L), eq(null), eq(0), eq("complete"), any());
+    verify(jobRepository, times(2))
+        .updateProgress(anyLong(), any(), any(), any(), any(ZonedDateTime.class));
+    assertEquals(10L, job.getProgressTotal());
+    assertEquals(7L, job.getProgressCompleted());
+  }
+
+  @Test
+  void test_runJobAsync_autowires_job_and_saves_its_checkpoints() {
+    // Arrange
+    Job job = Job.builder().id(10L).status("running").build();
+    JobContextConsumer jobFunction = ctx -> ctx.saveCheckpoint("42");
+
+    // Act
+    jobService.runJobAsync(job, jobFunction);
+
+    // Assert
+    InOrder inOrder = inOrder(jobFactory, jobRepository);
+    inOrder.verify(jobFactory).autowire(jobFunction);
+    inOrder.verify(jobRepository).updateCheckpoint(10L, "42");
+    inOrder.verify(jobRepository).finishAttempt(eq(10L), eq(null), eq(0), eq("complete"), any());
+    assertEquals("42", job.getCheckpoint());
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void test_flushRunningJobLogs_flushes_lines_of_running_jobs() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "logFlushMaxLines", 100);
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", 50L);
+    Job job = Job.builder().id(7L).status("running").build();
+    JobContextConsumer jobFunction =
+        ctx -> {
+          ctx.log("one");
+          verify(jobLogLinesRepository, never()).insertAll(any());
+          Thread.sleep(60);
+          jobService.flushRunningJobLogs();
+          verify(jobLogLinesRepository, times(1)).insertAll(any());
+        };
+
+    // Act
+    jobService.runJobAsync(job, jobFunction);
+
+    // Assert
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void test_cancelLocal_stops_running_job() {
+    // Arrange
+    Job job = Job.builder().id(11L).status("running").build();
+    JobContextConsumer jobFunction =
+        ctx -> {
+          ctx.log("started");
+          assertTrue(jobService.cancelLocal(11L));
+          Thread.sleep(10000);
+          ctx.log("not reached");
+        };
+
+    // Act
+    jobService.runJobAsync(job, jobFunction);
+
+    // Assert
+    assertEquals("cancelled", job.getStatus());
+    assertFalse(Thread.currentThread().isInterrupted());
+    assertFalse(jobService.cancelLocal(11L));
+    verify(jobRepository, times(1)).finishAttempt(eq(11L), eq(null), eq(0), eq("cancelled"), any());
+    verify(jobLogBroadcaster).close(11L, "cancelled");
+    ArgumentCaptor<JobLogLine> lines = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogBroadcaster, times(2)).publish(lines.capture());
+    assertEquals("Job stopped: cancelled", lines.getAllValues().get(1).getMessage());
+  }
+
+  @Test
+  void test_cancel_of_job_waiting_for_executor_thread_stops_it_before_it_starts() {
+    // Arrange
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    Job job = Job.builder().id(17L).status("running").build();
+    List<String> ran = new ArrayList<>();
+    JobContextConsumer jobFunction = ctx -> ran.add("ran");
+    jobService.submit(job, jobFunction);
+
+    // Act
+    boolean cancelled = jobService.cancel(17L);
+    jobService.runJobAsync(job, jobFunction);
+
+    // Assert
+    assertTrue(cancelled);
+    assertEquals(List.of(), ran);
+    assertEquals("cancelled", job.getStatus());
+    verify(jobRepository, never()).cancelQueued(17L);
+    verify(jobRepository).finishAttempt(eq(17L), eq(null), eq(0), eq("cancelled"), any());
+    assertFalse(jobService.cancelLocal(17L));
+  }
+
+  @Test
+  void test_submit_forgets_job_rejected_by_executor() {
+    // Arrange
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    Job job = Job.builder().id(18L).status("running").build();
+    JobContextConsumer jobFunction = ctx -> ctx.log("never runs");
+    doThrow(new TaskRejectedException("queue full")).when(self).runJobAsync(job, jobFunction);
+
+    // Act & Assert
+    assertThrows(TaskRejectedException.class, () -> jobService.submit(job, jobFunction));
+    assertFalse(jobService.cancelLocal(18L));
+  }
+
+  @Test
+  void test_stopTimedOutJobs_stops_jobs_running_longer_than_timeout() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "timeoutMs", 20L);
+    Job job = Job.builder().id(12L).status("running").build();
+    JobContextConsumer jobFunction =
+        ctx -> {
+          jobService.stopTimedOutJobs();
+          ctx.checkCancelled();
+          Thread.sleep(30);
+          jobService.stopTimedOutJobs();
+          ctx.checkCancelled();
+        };
+
+    // Act
+    jobService.runJobAsync(job, jobFunction);
+
+    // Assert
+    assertEquals("timed_out", job.getStatus());
+  }
+
+  @Test
+  void test_stopTimedOutJobs_does_nothing_without_timeout() {
+    // Arrange
+    Job job = Job.builder().id(13L).status("running").build();
+    JobContextConsumer jobFunction =
+        ctx -> {
+          Thread.sleep(5);
+          jobService.stopTimedOutJobs();
+          ctx.checkCancelled();
+        };
+
+    // Act
+    jobService.runJobAsync(job, jobFunction);
+
+    // Assert
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void test_cancel_marks_queued_job_cancelled() {
+    // Arrange
+    when(jobRepository.cancelQueued(14L)).thenReturn(1);
+
+    // Act & Assert
+    assertTrue(jobService.cancel(14L));
+    verify(jobRepository, never()).requestCancel(anyLong());
+  }
+
+  @Test
+  void test_cancel_requests_cancellation_of_job_running_on_another_node() {
+    // Arrange
+    when(jobRepository.cancelQueued(15L)).thenReturn(0);
+    when(jobRepository.requestCancel(15L)).thenReturn(1);
+
+    // Act & Assert
+    assertTrue(jobService.cancel(15L));
+  }
+
+  @Test
+  void test_cancel_returns_false_for_finished_job() {
+    // Act & Assert
+    assertFalse(jobService.cancel(16L));
+    verify(jobRepository).cancelQueued(16L);
+    verify(jobRepository).requestCancel(16L);
+  }
+
+  @Test
+  void test_runAsJob_marks_job_rejected_when_executor_is_full() throws Exception {
+    // Arrange
+    User user = User.builder().id(1L).build();
+    when(currentUserService.getUser()).thenReturn(user);
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    JobContextConsumer jobFunction = ctx -> ctx.log("never runs");
+    doThrow(new TaskRejectedException("queue full"))
+        .when(self)
+        .runJobAsync(any(Job.class), any(JobContextConsumer.class));
+
+    // Act
+    Job job = jobService.runAsJob(jobFunction);
+
+    // Assert
+    assertEquals("rejected", job.getStatus());
+    assertEquals(user, job.getCreatedBy());
+    verify(jobRepository, times(2)).save(job);
+  }
+
+  @Test
+  void test_runAsJob_submits_job_to_executor() throws Exception {
+    // Arrange
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    JobContextConsumer jobFunction = ctx -> ctx.log("runs");
+
+    // Act
+    Job job = jobService.runAsJob(jobFunction);
+
+    // Assert
+    assertEquals("running", job.getStatus());
+    verify(self, times(1)).runJobAsync(job, jobFunction);
+    verify(jobRepository, times(1)).save(job);
+  }
+
+  @Test
+  void test_runAsJob_claims_in_process_job_for_this_node() throws Exception {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "nodeId", "node-1");
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+
+    // Act
+    Job job = jobService.runAsJob(ctx -> ctx.log("runs"));
+
+    // Assert
+    assertEquals("node-1", job.getClaimedBy());
+    assertEquals(1, job.getAttempts());
+    assertNotNull(job.getHeartbeatAt());
+    assertNull(job.getQueuedAt());
+  }
+
+  @Test
+  void test_runAsJob_with_idempotency_key_stores_key_and_parameters() throws Exception {
+    // Arrange
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    TestJob testJob = TestJob.builder().sleepMs(10).build();
+    when(jobFactory.typeOf(testJob)).thenReturn("TestJob");
+    when(jobFactory.parametersOf(testJob)).thenReturn("{\"sleepMs\":10}");
+    when(jobRepository.findActiveByIdempotencyKey("k1")).thenReturn(Optional.empty());
+
+    // Act
+    Job job = jobService.runAsJob(testJob, "k1");
+
+    // Assert
+    assertEquals("running", job.getStatus());
+    assertEquals("k1", job.getIdempotencyKey());
+    assertEquals("TestJob", job.getJobType());
+    assertEquals("{\"sleepMs\":10}", job.getParameters());
+    verify(jobRepository, times(1)).save(job);
+    verify(self, times(1)).runJobAsync(job, testJob);
+  }
+
+  @Test
+  void test_runAsJob_with_key_of_running_job_returns_that_job() throws Exception {
+    // Arrange
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    TestJob testJob = TestJob.builder().sleepMs(10).build();
+    when(jobFactory.typeOf(testJob)).thenReturn("TestJob");
+    when(jobFactory.parametersOf(testJob)).thenReturn("{\"sleepMs\":10}");
+    Job running =
+        Job.builder()
+            .id(3L)
+            .status("running")
+            .idempotencyKey("k1")
+            .jobType("TestJob")
+            .parameters("{\"sleepMs\":10}")
+            .build();
+    when(jobRepository.findActiveByIdempotencyKey("k1")).thenReturn(Optional.of(running));
+
+    // Act
+    Job job = jobService.runAsJob(testJob, "k1");
+
+    // Assert
+    assertEquals(running, job);
+    verify(jobRepository, never()).save(any());
+    verify(self, never()).runJobAsync(any(), any());
+  }
+
+  @Test
+  void test_runAsJob_with_key_of_job_with_other_parameters_throws() throws Exception {
+    // Arrange
+    TestJob testJob = TestJob.builder().sleepMs(10).build();
+    when(jobFactory.typeOf(testJob)).thenReturn("TestJob");
+    when(jobFactory.parametersOf(testJob)).thenReturn("{\"sleepMs\":10}");
+    Job running =
+        Job.builder()
+            .id(3L)
+            .status("running")
+            .idempotencyKey("k1")
+            .jobType("TestJob")
+            .parameters("{\"sleepMs\":20}")
+            .build();
+    when(jobRepository.findActiveByIdempotencyKey("k1")).thenReturn(Optional.of(running));
+
+    // Act & Assert
+    IdempotencyKeyConflictException e =
+        assertThrows(
+            IdempotencyKeyConflictException.class, () -> jobService.runAsJob(testJob, "k1"));
+    assertEquals("Idempotency key k1 is in use by job 3 with different parameters", e.getMessage());
+    verify(jobRepository, never()).save(any());
+  }
+
+  @Test
+  void test_runAsJob_losing_race_on_key_returns_the_winning_job() throws Exception {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "persistentQueue", true);
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    TestJob testJob = TestJob.builder().sleepMs(10).build();
+    when(jobFactory.typeOf(testJob)).thenReturn("TestJob");
+    when(jobFactory.parametersOf(testJob)).thenReturn("{}");
+    Job winner =
+        Job.builder()
+            .id(4L)
+            .status("queued")
+            .idempotencyKey("k1")
+            .jobType("TestJob")
+            .parameters("{}")
+            .build();
+    when(jobRepository.findActiveByIdempotencyKey("k1"))
+        .thenReturn(Optional.empty())
+        .thenReturn(Optional.of(winner));
+    when(jobRepository.save(any(Job.class)))
+        .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+    // Act
+    Job job = jobService.runAsJob(testJob, "k1");
+
+    // Assert
+    assertEquals(winner, job);
+    verify(self, never()).runJobAsync(any(), any());
+  }
+
+  @Test
+  void test_runAsJob_rethrows_integrity_violation_not_caused_by_key() throws Exception {
+    // Arrange
+    TestJob testJob = TestJob.builder().sleepMs(10).build();
+    when(jobFactory.typeOf(testJob)).thenReturn("TestJob");
+    when(jobFactory.parametersOf(testJob)).thenReturn("{}");
+    when(jobRepository.findActiveByIdempotencyKey("k1")).thenReturn(Optional.empty());
+    when(jobRepository.save(any(Job.class)))
+        .thenThrow(new DataIntegrityViolationException("other constraint"));
+
+    // Act & Assert
+    assertThrows(DataIntegrityViolationException.class, () -> jobService.runAsJob(testJob, "k1"));
+  }
+
+  @Test
+  void test_getExecutorStatus() {
+    // Arrange
+    ThreadPoolExecutor threadPoolExecutor = mock(ThreadPoolExecutor.class);
+    when(jobExecutor.getMaxPoolSize()).thenReturn(4);
+    when(jobExecutor.getQueueCapacity()).thenReturn(100);
+    when(jobExecutor.getActiveCount()).thenReturn(2);
+    when(jobExecutor.getQueueSize()).thenReturn(3);
+    when(jobExecutor.getThreadPoolExecutor()).thenReturn(threadPoolExecutor);
+    when(threadPoolExecutor.getCompletedTaskCount()).thenReturn(42L);
+
+    // Act
+    JobExecutorStatus status = jobService.getExecutorStatus();
+
+    // Assert
+    JobExecutorStatus expected =
+        JobExecutorStatus.builder()
+            .poolSize(4)
+            .queueCapacity(100)
+            .active(2)
+            .queued(3)
+            .completed(42L)
+            .build();
+    assertEquals(expected, status);
+  }
+
+  @Test
+  void test_runAsJob_enqueues_job_when_persistent_queue_is_enabled() throws Exception {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "persistentQueue", true);
+    User user = User.builder().id(1L).build();
+    when(currentUserService.getUser()).thenReturn(user);
+    TestJob testJob = TestJob.builder().sleepMs(10).build();
+    when(jobFactory.typeOf(testJob)).thenReturn("TestJob");
+    when(jobFactory.parametersOf(testJob)).thenReturn("{\"sleepMs\":10}");
+    when(jobRepository.save(any(Job.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+
+    // Act
+    Job job = jobService.runAsJob(testJob);
+
+    // Assert
+    assertEquals("queued", job.getStatus());
+    assertEquals("TestJob", job.getJobType());
+    assertEquals("{\"sleepMs\":10}", job.getParameters());
+    assertEquals(user, job.getCreatedBy());
+    assertNotNull(job.getQueuedAt());
+    verify(jobRepository, times(1)).save(job);
+    verify(self, never()).runJobAsync(any(), any());
+  }
+
+  @Test
+  void test_retry_puts_failed_job_back_on_persistent_queue() throws Exception {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "persistentQueue", true);
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    Job job =
+        Job.builder()
+            .id(12L)
+            .status("timed_out")
+            .jobType("TestJob")
+            .parameters("{}")
+            .attempts(2)
+            .build();
+    when(jobRepository.findById(12L)).thenReturn(Optional.of(job));
+    when(jobFactory.create("TestJob", "{}")).thenReturn(TestJob.builder().build());
+    when(jobRepository.retryQueued(eq(12L), eq("timed_out"), eq(2), eq(2), any())).thenReturn(1);
+
+    // Act and Assert
+    assertTrue(jobService.retry(12L));
+    verify(self, never()).runJobAsync(any(), any());
+  }
+
+  @Test
+  void test_retry_of_job_whose_key_is_in_use_does_nothing() throws Exception {
+    // Arrange
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    Job job =
+        Job.builder()
+            .id(13L)
+            .status("error")
+            .jobType("TestJob")
+            .parameters("{}")
+            .idempotencyKey("nightly")
+            .attempts(1)
+            .build();
+    when(jobRepository.findById(13L)).thenReturn(Optional.of(job));
+    when(jobFactory.create("TestJob", "{}")).thenReturn(TestJob.builder().build());
+    when(jobRepository.retryInProcess(eq(13L), eq("error"), eq(1), any(), eq(2), any()))
+        .thenThrow(new DataIntegrityViolationException("JOBS_ACTIVE_IDEMPOTENCY_KEY_IDX"));
+
+    // Act and Assert
+    assertFalse(jobService.retry(13L));
+    verify(self, never()).runJobAsync(any(), any());
+  }
+
+  @Test
+  void test_retry_of_job_without_type_does_nothing() throws Exception {
+    when(jobRepository.findById(14L))
+        .thenReturn(Optional.of(Job.builder().id(14L).status("error").build()));
+
+    assertFalse(jobService.retry(14L));
+    verify(jobRepository, never())
+        .retryInProcess(anyLong(), any(), anyInt(), any(), anyInt(), any());
+  }
+
+  @Test
+  void test_runQueuedJob_runs_job_created_from_its_parameters() throws Exception {
+    // Arrange
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    Job job = Job.builder().id(8L).status("running").jobType("TestJob").parameters("{}").build();
+    TestJob testJob = TestJob.builder().build();
+    when(jobFactory.create("TestJob", "{}")).thenReturn(testJob);
+
+    // Act
+    jobService.runQueuedJob(job);
+
+    // Assert
+    verify(self, times(1)).runJobAsync(job, testJob);
+    verify(jobRepository, never()).save(any());
+  }
+
+  @Test
+  void test_runQueuedJob_marks_job_error_when_it_cannot_be_created() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(9L).status("running").jobType("NoSuchJob").parameters("{}").build();
+    when(jobFactory.create("NoSuchJob", "{}"))
+        .thenThrow(new IllegalArgumentException("Unknown job type NoSuchJob"));
+
+    // Act
+    jobService.runQueuedJob(job);
+
+    // Assert
+    assertEquals("error", job.getStatus());
+    verify(jobLogLinesRepository, times(1)).insertAll(any());
+    verify(jobRepository, times(1)).finishAttempt(eq(9L), eq(null), eq(0), eq("error"), any());
+    verify(jobRepository, never()).save(any());
+  }
+
+  @Test
+  void test_runQueuedJob_returns_job_to_queue_when_executor_is_full() throws Exception {
+    // Arrange
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    Job job =
+        Job.builder()
+            .id(10L)
+            .status("running")
+            .claimedBy("node-1")
+            .attempts(2)
+            .jobType("TestJob")
+            .parameters("{}")
+            .build();
+    TestJob testJob = TestJob.builder().build();
+    when(jobFactory.create("TestJob", "{}")).thenReturn(testJob);
+    doThrow(new TaskRejectedException("queue full")).when(self).runJobAsync(job, testJob);
+
+    // Act
+    jobService.runQueuedJob(job);
+
+    // Assert
+    assertEquals("queued", job.getStatus());
+    assertNull(job.getClaimedBy());
+    verify(jobRepository, times(1)).requeueAttempt(eq(10L), eq("node-1"), eq(2), any());
+    verify(jobRepository, never()).save(any());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void test_runJobAsync_continues_log_of_earlier_attempts() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "logFlushMaxLines", 1);
+    Job job = Job.builder().id(11L).status("running").attempts(2).build();
+    when(jobLogLinesRepository.countByJobId(11L)).thenReturn(3L);
+
+    // Act
+    jobService.runJobAsync(job, ctx -> ctx.log("retrying"));
+
+    // Assert
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(jobLogLinesRepository, times(1)).insertAll(captor.capture());
+    assertEquals(3, captor.getValue().get(0).getSeq());
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void test_runJobAsync_leaves_job_alone_once_another_attempt_owns_it() {
+    // Arrange
+    Job job = Job.builder().id(12L).status("running").claimedBy("node-1").attempts(1).build();
+    when(jobRepository.finishAttempt(eq(12L), eq("node-1"), eq(1), eq("complete"), any()))
+        .thenReturn(0);
+
+    // Act
+    jobService.runJobAsync(job, ctx -> ctx.log("finished late"));
+
+    // Assert
+    verify(jobRepository, never()).save(any());
+    verify(jobLogBroadcaster).close(12L, "complete");
+  }
+
+  private List<Job> savePipelineJobsWithIds() {
+    List<Job> saved = new ArrayList<>();
+    when(jobRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              if (job.getId() == 0) {
+                job.setId(100 + saved.size());
+                saved.add(job);
+              }
+              return job;
+            });
+    return saved;
+  }
+
+  @Test
+  void test_runPipeline_runs_stages_in_dependency_order_as_child_jobs() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", jobService);
+    User user = User.builder().id(1L).build();
+    when(currentUserService.getUser()).thenReturn(user);
+    List<Job> saved = savePipelineJobsWithIds();
+    List<String> ran = new ArrayList<>();
+    JobPipeline pipeline =
+        new JobPipeline()
+            .stage("publish", ctx -> ran.add("publish"), "import")
+            .stage("import", ctx -> ran.add("import"));
+
+    // Act
+    Job pipelineJob = jobService.runPipeline(pipeline);
+
+    // Assert
+    assertEquals(List.of("import", "publish"), ran);
+    assertEquals("complete", pipelineJob.getStatus());
+    assertEquals(2L, pipelineJob.getProgressTotal());
+    assertEquals(2L, pipelineJob.getProgressCompleted());
+    assertEquals(3, saved.size());
+    for (Job stageJob : saved.subList(1, 3)) {
+      assertEquals(pipelineJob.getId(), stageJob.getParentId());
+      assertEquals("complete", stageJob.getStatus());
+      assertEquals(user, stageJob.getCreatedBy());
+    }
+    assertEquals("import", saved.get(1).getStage());
+    verify(jobLogBroadcaster).close(pipelineJob.getId(), "complete");
+  }
+
+  @Test
+  void test_runPipeline_with_failing_stage_is_error() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "self", jobService);
+    List<Job> saved = savePipelineJobsWithIds();
+    JobPipeline pipeline =
+        new JobPipeline()
+            .stage(
+                "import",
+                ctx -> {
+                  throw new Exception("no data");
+                })
+            .stage("publish", ctx -> ctx.log("never runs"), "import");
+
+    // Act
+    Job pipelineJob = jobService.runPipeline(pipeline);
+
+    // Assert
+    assertEquals("error", pipelineJob.getStatus());
+    assertEquals("error", saved.get(1).getStatus());
+    assertEquals("skipped", saved.get(2).getStatus());
+  }
+
+  @Test
+  void test_runPipeline_rejects_cycle_before_saving_anything() {
+    JobPipeline pipeline = new JobPipeline().stage("a", ctx -> {}, "b").stage("b", ctx -> {}, "a");
+
+    assertThrows(IllegalArgumentException.class, () -> jobService.runPipeline(pipeline));
+    verify(jobRepository, never()).save(any());
+  }
+
+  @Test
+  void test_cancel_cancels_stages_of_running_pipeline() {
+    // Arrange
+    JobService self = mock(JobService.class);
+    ReflectionTestUtils.setField(jobService, "self", self);
+    List<Job> saved = savePipelineJobsWithIds();
+    Job pipelineJob =
+        jobService.runPipeline(
+            new JobPipeline().stage("import", ctx -> {}).stage("publish", ctx -> {}, "import"));
+
+    // Act
+    boolean cancelled = jobService.cancel(pipelineJob.getId());
+
+    // Assert
+    assertTrue(cancelled);
+    verify(self).cancelLocal(saved.get(1).getId());
+    assertEquals("cancelled", saved.get(2).getStatus());
+    assertEquals("running", pipelineJob.getStatus());
+    verify(jobRepository, never()).cancelQueued(pipelineJob.getId());
+  }
 }
@@ -0,0 +1,138 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.TableVersion;
+import edu.ucsb.cs156.example.repositories.TableVersionsRepository;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+@ExtendWith(MockitoExtension.class)
+public class TableVersionsTests {
+
+  @Mock TableVersionsRepository tableVersionsRepository;
+
+  @InjectMocks TableVersions tableVersions;
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(tableVersions, "versionCacheMs", 60000L);
+  }
+
+  private static Optional<TableVersion> version(long version) {
+    return Optional.of(TableVersion.builder().name("ucsbdates").version(version).build());
+  }
+
+  private static ServletWebRequest request(String ifNoneMatch) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ucsbdates/all");
+    if (ifNoneMatch != null) {
+      request.addHeader("If-None-Match", ifNoneMatch);
+    }
+    return new ServletWebRequest(request, new MockHttpServletResponse());
+  }
+
+  @Test
+  public void version_is_read_once_and_cached() {
+    when(tableVersionsRepository.findById("ucsbdates")).thenReturn(version(7));
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals("\"ucsbdates-7\"", tableVersions.etag("ucsbdates"));
+    }
+
+    verify(tableVersionsRepository, times(1)).findById("ucsbdates");
+  }
+
+  @Test
+  public void version_is_read_again_once_the_cached_one_expires() {
+    ReflectionTestUtils.setField(tableVersions, "versionCacheMs", 0L);
+    when(tableVersionsRepository.findById("ucsbdates")).thenReturn(version(7), version(8));
+
+    assertEquals("\"ucsbdates-7\"", tableVersions.etag("ucsbdates"));
+    assertEquals("\"ucsbdates-8\"", tableVersions.etag("ucsbdates"));
+  }
+
+  @Test
+  public void change_increments_the_version_and_is_seen_at_once() {
+    when(tableVersionsRepository.findById("ucsbdates")).thenReturn(version(7), version(8));
+
+    assertEquals("\"ucsbdates-7\"", tableVersions.etag("ucsbdates"));
+    tableVersions.changed("ucsbdates");
+
+    verify(tableVersionsRepository, times(1)).increment("ucsbdates");
+    assertEquals("\"ucsbdates-8\"", tableVersions.etag("ucsbdates"));
+  }
+
+  @Test
+  public void an_older_version_does_not_replace_a_newer_cached_one() {
+    when(tableVersionsRepository.findById("ucsbdates")).thenReturn(version(8), version(7));
+
+    tableVersions.changed("ucsbdates");
+    tableVersions.changed("ucsbdates");
+
+    assertEquals("\"ucsbdates-8\"", tableVersions.etag("ucsbdates"));
+  }
+
+  @Test
+  public void table_without_a_version_is_an_error() {
+    when(tableVersionsRepository.findById("nosuchtable")).thenReturn(Optional.empty());
+
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> tableVersions.etag("nosuchtable"));
+    assertEquals("No version for table nosuchtable", e.getMessage());
+  }
+
+  @Test
+  public void conditional_get_returns_the_body_with_its_etag() {
+    when(tableVersionsRepository.findById("ucsbdates")).thenReturn(version(7));
+
+    ResponseEntity<List<String>> response =
+        tableVersions.conditionalGet(request(null), "ucsbdates", () -> List.of("a", "b"));
+
+    assertEquals(200, response.getStatusCode().value());
+    assertEquals(List.of("a", "b"), response.getBody());
+    assertEquals("\"ucsbdates-7\"", response.getHeaders().getETag());
+    assertEquals("no-cache", response.getHeaders().getCacheControl());
+  }
+
+  @Test
+  public void conditional_get_returns_304_without_reading_the_body_when_the_etag_matches() {
+    when(tableVersionsRepository.findById("ucsbdates")).thenReturn(version(7));
+
+    ResponseEntity<List<String>> response =
+        tableVersions.conditionalGet(
+            request("\"ucsbdates-7\""),
+            "ucsbdates",
+            () -> {
+              throw new AssertionError("body read");
+            });
+
+    assertEquals(304, response.getStatusCode().value());
+    assertEquals("\"ucsbdates-7\"", response.getHeaders().getETag());
+  }
+
+  @Test
+  public void conditional_get_returns_the_body_when_the_etag_is_out_of_date() {
+    when(tableVersionsRepository.findById("ucsbdates")).thenReturn(version(8));
+
+    ResponseEntity<List<String>> response =
+        tableVersions.conditionalGet(request("\"ucsbdates-7\""), "ucsbdates", () -> List.of("a"));
+
+    assertEquals(200, response.getStatusCode().value());
+    assertEquals("\"ucsbdates-8\"", response.getHeaders().getETag());
+  }
+}
@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+public class UserChangesTests {
+
+  @AfterEach
+  public void clearSynchronization() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  public void change_invalidates_only_that_user() {
+    long generation = UserChanges.generation();
+
+    UserChanges.changed("cgaucho@ucsb.edu");
+
+    assertTrue(UserChanges.changedSince("cgaucho@ucsb.edu", generation));
+    assertFalse(UserChanges.changedSince("ldelplaya@ucsb.edu", generation));
+    assertFalse(UserChanges.changedSince("cgaucho@ucsb.edu", UserChanges.generation()));
+  }
+
+  @Test
+  public void change_without_email_invalidates_every_user() {
+    long generation = UserChanges.generation();
+
+    UserChanges.changed(null);
+
+    assertTrue(UserChanges.changedSince("ldelplaya@ucsb.edu", generation));
+    assertTrue(UserChanges.changedSince(null, generation));
+  }
+
+  @Test
+  public void too_many_changed_emails_are_folded_into_one_change() {
+    long generation = UserChanges.generation();
+
+    for (int i = 0; i <= UserChanges.MAX_TRACKED_EMAILS; i++) {
+      UserChanges.changed("fold-" + i + "@ucsb.edu");
+    }
+
+    assertTrue(UserChanges.changedSince("ldelplaya@ucsb.edu", generation));
+    assertFalse(UserChanges.changedSince("fold-0@ucsb.edu", UserChanges.generation()));
+  }
+
+  @Test
+  public void change_in_transaction_is_recorded_again_on_commit() {
+    TransactionSynchronizationManager.initSynchronization();
+    UserChanges.changed("cgaucho@ucsb.edu");
+    // e.g. a concurrent read of the uncommitted row cached after the change
+    long cachedAt = UserChanges.generation();
+
+    TransactionSynchronizationUtils.invokeAfterCommit(
+        TransactionSynchronizationManager.getSynchronizations());
+
+    assertTrue(UserChanges.changedSince("cgaucho@ucsb.edu", cachedAt));
+  }
+}
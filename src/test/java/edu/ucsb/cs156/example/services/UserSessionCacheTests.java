@@ -0,0 +1,86 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import edu.ucsb.cs156.example.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class UserSessionCacheTests {
+
+  UserSessionCache cache = new UserSessionCache();
+
+  MockHttpSession session = new MockHttpSession();
+
+  User user = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+  }
+
+  @Test
+  public void returns_user_cached_in_session() {
+    cache.put(session, user);
+
+    assertSame(user, cache.get(session, "cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  public void ignores_user_cached_for_another_email() {
+    cache.put(session, user);
+
+    assertNull(cache.get(session, "ldelplaya@ucsb.edu"));
+    assertNull(session.getAttribute(UserSessionCache.SESSION_ATTRIBUTE));
+  }
+
+  @Test
+  public void expired_entry_is_dropped() {
+    ReflectionTestUtils.setField(cache, "ttlSeconds", 1L);
+    cache.put(session, user);
+    UserSessionCache.Entry entry =
+        (UserSessionCache.Entry) session.getAttribute(UserSessionCache.SESSION_ATTRIBUTE);
+    session.setAttribute(
+        UserSessionCache.SESSION_ATTRIBUTE,
+        new UserSessionCache.Entry(user, entry.generation, System.currentTimeMillis() - 1));
+
+    assertNull(cache.get(session, "cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  public void user_change_invalidates_entry_of_that_user() {
+    cache.put(session, user);
+
+    new UserChanges.Listener().userChanged(user);
+
+    assertNull(cache.get(session, "cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  public void change_to_another_user_keeps_entry() {
+    cache.put(session, user);
+
+    new UserChanges.Listener().userChanged(User.builder().email("ldelplaya@ucsb.edu").build());
+
+    assertSame(user, cache.get(session, "cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  public void zero_ttl_disables_cache() {
+    ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+    cache.put(session, user);
+
+    assertNull(session.getAttribute(UserSessionCache.SESSION_ATTRIBUTE));
+    assertNull(cache.get(session, "cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  public void no_session_means_no_cache() {
+    cache.put(null, user);
+
+    assertNull(cache.get(null, "cgaucho@ucsb.edu"));
+  }
+}
@@ -1,13 +1,30 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import edu.ucsb.cs156.example.models.JobProgress;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 public class JobContextTests {
   @Test
-  public void when_jobs_repository_is_null_does_not_save() throws Exception {
+  public void when_log_lines_repository_is_null_does_not_save() throws Exception {
 
     // arrange
 
@@ -18,6 +35,298 @@ public class JobContextTests {
     ctx.log("This is a log message");
 
     // assert
-    assertEquals("This is a log message", job1.getLog());
+    assertNull(job1.getLog());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void unbuffered_context_writes_each_line_with_increasing_seq() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(17L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1);
+
+    // act
+    ctx.log("first");
+    ctx.log("second");
+
+    // assert
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(jobLogLinesRepository, times(2)).insertAll(captor.capture());
+    List<JobLogLine> first = captor.getAllValues().get(0);
+    List<JobLogLine> second = captor.getAllValues().get(1);
+
+    assertEquals(1, first.size());
+    assertEquals(17L, first.get(0).getJobId());
+    assertEquals(0, first.get(0).getSeq());
+    assertEquals("first", first.get(0).getMessage());
+    assertNotNull(first.get(0).getTimestamp());
+
+    assertEquals(1, second.size());
+    assertEquals(17L, second.get(0).getJobId());
+    assertEquals(1, second.get(0).getSeq());
+    assertEquals("second", second.get(0).getMessage());
+
+    assertNull(job1.getLog());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void buffered_context_writes_one_batch_when_max_lines_reached() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(17L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1, 5, 3, Long.MAX_VALUE);
+
+    // act
+    ctx.log("one");
+    ctx.log("two");
+    verify(jobLogLinesRepository, never()).insertAll(any());
+    ctx.log("three");
+
+    // assert
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(jobLogLinesRepository, times(1)).insertAll(captor.capture());
+    List<JobLogLine> batch = captor.getValue();
+    assertEquals(
+        List.of("one", "two", "three"), batch.stream().map(JobLogLine::getMessage).toList());
+    assertEquals(List.of(5, 6, 7), batch.stream().map(JobLogLine::getSeq).toList());
+  }
+
+  @Test
+  public void buffered_context_writes_pending_lines_on_flush() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(17L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1, 0, 100, Long.MAX_VALUE);
+
+    // act
+    ctx.log("one");
+    ctx.flushIfDue();
+    verify(jobLogLinesRepository, never()).insertAll(any());
+    ctx.flush();
+    ctx.flush();
+
+    // assert
+    verify(jobLogLinesRepository, times(1)).insertAll(any());
+  }
+
+  @Test
+  public void buffered_context_writes_pending_lines_once_interval_has_passed() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(17L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, job1, 0, 100, 0);
+
+    // act
+    ctx.log("one");
+
+    // assert
+    verify(jobLogLinesRepository, times(1)).insertAll(any());
+  }
+
+  @Test
+  public void listener_receives_each_line_before_it_is_written() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(17L).build();
+    List<JobLogLine> heard = new ArrayList<>();
+    JobContext ctx =
+        new JobContext(jobLogLinesRepository, job1, 0, 100, Long.MAX_VALUE, heard::add);
+
+    // act
+    ctx.log("first");
+    ctx.log("second");
+
+    // assert
+    verify(jobLogLinesRepository, never()).insertAll(any());
+    assertEquals(2, heard.size());
+    assertEquals(0, heard.get(0).getSeq());
+    assertEquals("first", heard.get(0).getMessage());
+    assertEquals(1, heard.get(1).getSeq());
+    assertEquals("second", heard.get(1).getMessage());
+  }
+
+  @Test
+  public void progress_rate_is_measured_over_the_sliding_window() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(17L).status("running").build();
+    JobContext ctx = new JobContext(null, job1);
+    ctx.reportProgressTo(progress -> {}, 0, 10000);
+
+    // act
+    ctx.setProgressTotal(1000);
+    ctx.setProgress(0, 0);
+    ctx.setProgress(500, 5000); // 100 per second
+    ctx.setProgress(600, 15000); // 10 per second over the last 10 seconds
+    JobProgress progress = ctx.getProgress(15000);
+
+    // assert
+    assertEquals("running", progress.getStatus());
+    assertEquals(1000L, progress.getTotal());
+    assertEquals(600L, progress.getCompleted());
+    assertEquals(10.0, progress.getRate());
+    assertEquals(40L, progress.getEtaSeconds());
+  }
+
+  @Test
+  public void progress_rate_falls_while_job_makes_no_progress() throws Exception {
+
+    // arrange
+
+    JobContext ctx = new JobContext(null, Job.builder().id(17L).status("running").build());
+    ctx.reportProgressTo(progress -> {}, 0, 10000);
+    ctx.setProgressTotal(1000);
+    ctx.setProgress(0, 0);
+    ctx.setProgress(100, 10000);
+
+    // act
+    JobProgress atLastSample = ctx.getProgress(10000);
+    JobProgress stalled = ctx.getProgress(15000);
+    JobProgress stalledForWindow = ctx.getProgress(20000);
+
+    // assert
+    assertEquals(10.0, atLastSample.getRate());
+    assertEquals(100L / 15.0, stalled.getRate(), 1e-9);
+    assertTrue(stalled.getEtaSeconds() > atLastSample.getEtaSeconds());
+    assertEquals(0.0, stalledForWindow.getRate());
+    assertNull(stalledForWindow.getEtaSeconds());
+  }
+
+  @Test
+  public void stalled_progress_is_reported_again_until_its_rate_is_zero() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(17L).status("running").build();
+    JobContext ctx = new JobContext(null, job1);
+    List<JobProgress> reported = new ArrayList<>();
+    ctx.reportProgressTo(reported::add, 0, 1);
+    ctx.setProgress(0);
+    Thread.sleep(5);
+    ctx.setProgress(10);
+    reported.clear();
+    Thread.sleep(5);
+
+    // act
+    ctx.flushProgressIfDue();
+    ctx.flushProgressIfDue();
+
+    // assert
+    assertEquals(1, reported.size());
+    assertEquals(0.0, reported.get(0).getRate());
+    assertEquals(0.0, job1.getProgressRate());
+  }
+
+  @Test
+  public void progress_without_total_or_rate_has_no_eta() throws Exception {
+
+    // arrange
+
+    JobContext ctx = new JobContext(null, Job.builder().id(17L).build());
+
+    // act
+    ctx.addProgress(5);
+
+    // assert
+    assertEquals(5L, ctx.getProgress().getCompleted());
+    assertEquals(0.0, ctx.getProgress().getRate());
+    assertNull(ctx.getProgress().getEtaSeconds());
+  }
+
+  @Test
+  public void progress_is_reported_at_most_once_per_interval_and_on_flush() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(17L).build();
+    JobContext ctx = new JobContext(null, job1);
+    List<JobProgress> reported = new ArrayList<>();
+    ctx.reportProgressTo(reported::add, 1000, 10000);
+
+    // act
+    ctx.setProgress(1, 5000);
+    ctx.setProgress(2, 5500);
+    ctx.setProgress(3, 5900);
+    ctx.setProgress(4, 6000);
+    ctx.setProgress(5, 6100);
+    ctx.flushProgress();
+    ctx.flushProgress();
+
+    // assert
+    assertEquals(List.of(1L, 4L, 5L), reported.stream().map(JobProgress::getCompleted).toList());
+    assertEquals(5L, job1.getProgressCompleted());
+    assertNotNull(job1.getProgressUpdatedAt());
+  }
+
+  @Test
+  public void cancelled_context_interrupts_the_job_and_refuses_further_log_lines()
+      throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    JobContext ctx = new JobContext(jobLogLinesRepository, Job.builder().id(17L).build());
+    ctx.runOn(Thread.currentThread());
+    ctx.log("before");
+
+    // act
+    ctx.cancel("cancelled");
+    ctx.cancel("timed_out");
+
+    // assert
+    assertTrue(Thread.currentThread().isInterrupted());
+    assertEquals("cancelled", ctx.getCancelStatus());
+    JobCancelledException e = assertThrows(JobCancelledException.class, () -> ctx.log("after"));
+    assertEquals("Job stopped: cancelled", e.getMessage());
+    assertThrows(JobCancelledException.class, ctx::checkCancelled);
+    verify(jobLogLinesRepository, times(1)).insertAll(any());
+
+    ctx.runOn(null);
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void context_that_is_not_cancelled_can_be_checked() throws Exception {
+    JobContext ctx = new JobContext(null, Job.builder().id(17L).build());
+
+    ctx.checkCancelled();
+    ctx.runOn(null);
+
+    assertNull(ctx.getCancelStatus());
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void saved_checkpoint_is_passed_to_listener_and_kept_on_the_job() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(17L).checkpoint("3").build();
+    JobContext ctx = new JobContext(null, job1);
+    List<String> saved = new ArrayList<>();
+    ctx.checkpointTo(saved::add);
+
+    // act
+    String restartedFrom = ctx.getCheckpoint();
+    ctx.saveCheckpoint("7");
+
+    // assert
+    assertEquals("3", restartedFrom);
+    assertEquals(List.of("7"), saved);
+    assertEquals("7", job1.getCheckpoint());
+    assertEquals("7", ctx.getCheckpoint());
   }
 }
@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.jobs.NormalizeMenuItemReviewsJob;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+
+public class JobFactoryTests {
+
+  private JobFactory jobFactory;
+
+  @BeforeEach
+  public void setup() {
+    jobFactory = new JobFactory();
+    jobFactory.mapper = new ObjectMapper();
+  }
+
+  @Test
+  public void typeOf_returns_simple_class_name_of_registered_job() {
+    assertEquals("TestJob", jobFactory.typeOf(TestJob.builder().build()));
+  }
+
+  @Test
+  public void typeOf_throws_for_unregistered_job() {
+    JobContextConsumer unregistered = ctx -> ctx.log("hi");
+    assertThrows(IllegalArgumentException.class, () -> jobFactory.typeOf(unregistered));
+  }
+
+  @Test
+  public void parameters_round_trip_through_create() {
+    TestJob testJob = TestJob.builder().fail(true).sleepMs(250).build();
+
+    String parameters = jobFactory.parametersOf(testJob);
+    TestJob created = (TestJob) jobFactory.create("TestJob", parameters);
+
+    assertTrue(created.getFail());
+    assertEquals(250, created.getSleepMs());
+  }
+
+  @Test
+  public void chunk_job_parameters_round_trip_without_its_dependencies() {
+    NormalizeMenuItemReviewsJob job =
+        NormalizeMenuItemReviewsJob.builder()
+            .chunkSize(25)
+            .menuItemReviewRepository(mock(MenuItemReviewRepository.class))
+            .build();
+
+    String parameters = jobFactory.parametersOf(job);
+    NormalizeMenuItemReviewsJob created =
+        (NormalizeMenuItemReviewsJob) jobFactory.create("NormalizeMenuItemReviewsJob", parameters);
+
+    assertEquals("{\"chunkSize\":25}", parameters);
+    assertEquals(25, created.getChunkSize());
+    assertNull(created.getMenuItemReviewRepository());
+  }
+
+  @Test
+  public void autowire_injects_dependencies_of_the_job() {
+    AutowireCapableBeanFactory beanFactory = mock(AutowireCapableBeanFactory.class);
+    jobFactory.beanFactory = beanFactory;
+    TestJob testJob = TestJob.builder().build();
+
+    jobFactory.autowire(testJob);
+
+    verify(beanFactory).autowireBean(testJob);
+  }
+
+  @Test
+  public void parametersOf_throws_when_job_cannot_be_serialized() throws Exception {
+    ObjectMapper mapper = mock(ObjectMapper.class);
+    when(mapper.writeValueAsString(any())).thenThrow(new JsonProcessingException("bad") {});
+    jobFactory.mapper = mapper;
+
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> jobFactory.parametersOf(TestJob.builder().build()));
+    assertEquals("Cannot serialize job TestJob", e.getMessage());
+  }
+
+  @Test
+  public void create_throws_for_unknown_job_type() {
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> jobFactory.create("NoSuchJob", "{}"));
+    assertEquals("Unknown job type NoSuchJob", e.getMessage());
+  }
+
+  @Test
+  public void create_throws_for_unreadable_parameters() {
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class, () -> jobFactory.create("TestJob", "not json"));
+    assertEquals("Cannot read parameters of job type TestJob", e.getMessage());
+  }
+}
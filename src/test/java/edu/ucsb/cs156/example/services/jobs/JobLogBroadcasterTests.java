@@ -0,0 +1,356 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@ExtendWith(MockitoExtension.class)
+public class JobLogBroadcasterTests {
+
+  @Mock JobsRepository jobsRepository;
+
+  @Mock JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock TaskScheduler pollScheduler;
+
+  @InjectMocks JobLogBroadcaster jobLogBroadcaster;
+
+  /** Sends on the calling thread. */
+  static final Executor SAME_THREAD = Runnable::run;
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(jobLogBroadcaster, "logStreamExecutor", SAME_THREAD);
+    ReflectionTestUtils.setField(jobLogBroadcaster, "pollScheduler", pollScheduler);
+    ReflectionTestUtils.setField(jobLogBroadcaster, "bufferLines", 3);
+    ReflectionTestUtils.setField(jobLogBroadcaster, "subscriberQueueLines", 10);
+    ReflectionTestUtils.setField(jobLogBroadcaster, "timeoutMs", 5000L);
+    ReflectionTestUtils.setField(jobLogBroadcaster, "pollIntervalMs", 1000L);
+  }
+
+  private static JobLogLine line(int seq, String message) {
+    return JobLogLine.builder().jobId(7L).seq(seq).message(message).build();
+  }
+
+  private static String text(SseEmitter.SseEventBuilder event) {
+    return event.build().stream()
+        .map(part -> part.getData().toString())
+        .collect(Collectors.joining());
+  }
+
+  private static List<String> sentEvents(SseEmitter emitter) throws IOException {
+    ArgumentCaptor<SseEmitter.SseEventBuilder> captor =
+        ArgumentCaptor.forClass(SseEmitter.SseEventBuilder.class);
+    verify(emitter, atLeast(0)).send(captor.capture());
+    return captor.getAllValues().stream().map(JobLogBroadcasterTests::text).toList();
+  }
+
+  @Test
+  public void subscribe_returns_emitter_with_configured_timeout() {
+    when(jobsRepository.findById(7L))
+        .thenReturn(Optional.of(Job.builder().status("complete").build()));
+
+    SseEmitter emitter = jobLogBroadcaster.subscribe(7L, -1);
+
+    assertEquals(5000L, emitter.getTimeout());
+  }
+
+  @Test
+  public void finished_job_replays_saved_lines_and_ends_with_its_status() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(7L, 0))
+        .thenReturn(List.of(line(1, "second"), line(2, "third")));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(7L, 2))
+        .thenReturn(List.of());
+    when(jobsRepository.findById(7L))
+        .thenReturn(Optional.of(Job.builder().status("complete").build()));
+
+    jobLogBroadcaster.attach(emitter, 7L, 0);
+
+    assertEquals(
+        List.of("id:1\ndata:second\n\n", "id:2\ndata:third\n\n", "event:end\ndata:complete\n\n"),
+        sentEvents(emitter));
+    verify(emitter).complete();
+  }
+
+  @Test
+  public void deleted_job_ends_with_status_deleted() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(7L, -1))
+        .thenReturn(List.of());
+    when(jobsRepository.findById(7L)).thenReturn(Optional.empty());
+
+    jobLogBroadcaster.attach(emitter, 7L, -1);
+
+    assertEquals(List.of("event:end\ndata:deleted\n\n"), sentEvents(emitter));
+    verify(emitter).complete();
+  }
+
+  @Test
+  public void multi_line_message_is_sent_as_several_data_fields() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+
+    JobLogBroadcaster.sendLine(emitter, line(4, "one\ntwo"));
+
+    assertEquals(List.of("id:4\ndata:one\ndata:two\n\n"), sentEvents(emitter));
+  }
+
+  @Test
+  public void running_job_sends_saved_and_buffered_lines_then_live_lines() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    jobLogBroadcaster.open(7L);
+    jobLogBroadcaster.publish(line(0, "zero"));
+    jobLogBroadcaster.publish(line(1, "one"));
+    jobLogBroadcaster.publish(line(2, "two"));
+    jobLogBroadcaster.publish(line(3, "three"));
+    // line 0 has been written and dropped from the buffer of 3 lines
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(7L, -1))
+        .thenReturn(List.of(line(0, "zero"), line(1, "one")));
+
+    jobLogBroadcaster.attach(emitter, 7L, -1);
+    jobLogBroadcaster.publish(line(4, "four"));
+    jobLogBroadcaster.close(7L, "complete");
+
+    assertEquals(
+        List.of(
+            "id:0\ndata:zero\n\n",
+            "id:1\ndata:one\n\n",
+            "id:2\ndata:two\n\n",
+            "id:3\ndata:three\n\n",
+            "id:4\ndata:four\n\n",
+            "event:end\ndata:complete\n\n"),
+        sentEvents(emitter));
+    verify(emitter).complete();
+    verify(jobsRepository, never()).findById(any());
+  }
+
+  @Test
+  public void publish_and_close_of_job_that_is_not_open_do_nothing() {
+    jobLogBroadcaster.publish(line(0, "zero"));
+    jobLogBroadcaster.close(7L, "complete");
+  }
+
+  @Test
+  public void failed_send_while_attaching_completes_emitter_with_error() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    IOException broken = new IOException("broken pipe");
+    doThrow(broken).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(7L, -1))
+        .thenReturn(List.of(line(0, "zero")));
+
+    jobLogBroadcaster.attach(emitter, 7L, -1);
+
+    verify(emitter).completeWithError(broken);
+    verify(emitter, never()).complete();
+  }
+
+  @Test
+  public void failed_send_of_live_line_drops_the_subscriber() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    JobLogBroadcaster.JobLogStream stream = new JobLogBroadcaster.JobLogStream(3, 10, SAME_THREAD);
+    stream.subscribe(emitter, -1);
+    IOException broken = new IOException("broken pipe");
+    doThrow(broken).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+
+    stream.publish(line(0, "zero"));
+
+    verify(emitter).completeWithError(broken);
+    assertEquals(0, stream.subscriberCount());
+  }
+
+  @Test
+  public void failed_send_of_end_event_completes_emitter_with_error() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    JobLogBroadcaster.JobLogStream stream = new JobLogBroadcaster.JobLogStream(3, 10, SAME_THREAD);
+    stream.subscribe(emitter, -1);
+    IOException broken = new IOException("broken pipe");
+    doThrow(broken).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+
+    stream.close("complete");
+
+    verify(emitter).completeWithError(broken);
+    assertEquals(0, stream.subscriberCount());
+  }
+
+  @Test
+  public void completed_emitter_is_unsubscribed() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    JobLogBroadcaster.JobLogStream stream = new JobLogBroadcaster.JobLogStream(3, 10, SAME_THREAD);
+    stream.subscribe(emitter, -1);
+    ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+    verify(emitter).onCompletion(onCompletion.capture());
+
+    onCompletion.getValue().run();
+
+    assertEquals(0, stream.subscriberCount());
+  }
+
+  @Test
+  public void closed_stream_refuses_subscribers() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    JobLogBroadcaster.JobLogStream stream = new JobLogBroadcaster.JobLogStream(3, 10, SAME_THREAD);
+    stream.close("complete");
+
+    assertFalse(stream.subscribe(emitter, -1));
+    assertEquals(0, stream.subscriberCount());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void job_finishing_while_attaching_falls_back_to_saved_lines() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    jobLogBroadcaster.open(7L);
+    Map<Long, JobLogBroadcaster.JobLogStream> streams =
+        (Map<Long, JobLogBroadcaster.JobLogStream>)
+            ReflectionTestUtils.getField(jobLogBroadcaster, "streams");
+    streams.get(7L).close("complete");
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(7L, -1))
+        .thenReturn(List.of(), List.of(line(0, "zero")));
+    when(jobsRepository.findById(7L))
+        .thenReturn(Optional.of(Job.builder().status("error").build()));
+
+    jobLogBroadcaster.attach(emitter, 7L, -1);
+
+    assertEquals(List.of("id:0\ndata:zero\n\n", "event:end\ndata:error\n\n"), sentEvents(emitter));
+    verify(emitter).complete();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void job_running_elsewhere_is_polled_until_it_finishes() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(7L, -1))
+        .thenReturn(List.of(line(0, "zero")));
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(7L, 0))
+        .thenReturn(List.of(), List.of(), List.of(line(1, "one")), List.of());
+    when(jobsRepository.findById(7L))
+        .thenReturn(
+            Optional.of(Job.builder().status("queued").build()),
+            Optional.of(Job.builder().status("complete").build()));
+    ArgumentCaptor<Runnable> nextPoll = ArgumentCaptor.forClass(Runnable.class);
+    doReturn(mock(ScheduledFuture.class))
+        .when(pollScheduler)
+        .schedule(nextPoll.capture(), any(Instant.class));
+
+    jobLogBroadcaster.attach(emitter, 7L, -1);
+
+    // the job has not finished, so only its saved line is sent
+    verify(emitter, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    verify(emitter, never()).complete();
+
+    nextPoll.getValue().run();
+
+    assertEquals(
+        List.of("id:0\ndata:zero\n\n", "id:1\ndata:one\n\n", "event:end\ndata:complete\n\n"),
+        sentEvents(emitter));
+    verify(emitter).complete();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void poll_stops_once_client_is_gone() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    when(jobLogLinesRepository.findAllByJobIdAndSeqGreaterThanOrderBySeqAsc(7L, -1))
+        .thenReturn(List.of());
+    when(jobsRepository.findById(7L))
+        .thenReturn(Optional.of(Job.builder().status("running").build()));
+    ScheduledFuture<Object> scheduled = mock(ScheduledFuture.class);
+    doReturn(scheduled).when(pollScheduler).schedule(any(Runnable.class), any(Instant.class));
+
+    jobLogBroadcaster.attach(emitter, 7L, -1);
+    ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+    verify(emitter).onCompletion(onCompletion.capture());
+    onCompletion.getValue().run();
+
+    verify(scheduled).cancel(false);
+  }
+
+  @Test
+  public void lines_are_sent_on_the_executor_not_by_the_publishing_thread() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    List<Runnable> tasks = new ArrayList<>();
+    JobLogBroadcaster.JobLogStream stream = new JobLogBroadcaster.JobLogStream(3, 10, tasks::add);
+    stream.subscribe(emitter, -1);
+
+    stream.publish(line(0, "zero"));
+    stream.publish(line(1, "one"));
+    stream.close("complete");
+
+    verify(emitter, never()).send(any(SseEmitter.SseEventBuilder.class));
+    assertEquals(1, tasks.size());
+    tasks.get(0).run();
+    assertEquals(
+        List.of("id:0\ndata:zero\n\n", "id:1\ndata:one\n\n", "event:end\ndata:complete\n\n"),
+        sentEvents(emitter));
+    verify(emitter).complete();
+  }
+
+  @Test
+  public void subscriber_falling_behind_is_dropped_without_end_event() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    List<Runnable> tasks = new ArrayList<>();
+    JobLogBroadcaster.JobLogStream stream = new JobLogBroadcaster.JobLogStream(3, 2, tasks::add);
+    stream.subscribe(emitter, -1);
+
+    stream.publish(line(0, "zero"));
+    stream.publish(line(1, "one"));
+    stream.publish(line(2, "two"));
+
+    assertEquals(0, stream.subscriberCount());
+    tasks.get(0).run();
+    verify(emitter, never()).send(any(SseEmitter.SseEventBuilder.class));
+    verify(emitter).complete();
+  }
+
+  @Test
+  public void subscriber_is_closed_when_no_sender_thread_is_free() throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    JobLogBroadcaster.JobLogStream stream =
+        new JobLogBroadcaster.JobLogStream(
+            3,
+            10,
+            task -> {
+              throw new RejectedExecutionException("busy");
+            });
+    assertTrue(stream.subscribe(emitter, -1));
+
+    stream.publish(line(0, "zero"));
+
+    assertEquals(0, stream.subscriberCount());
+    verify(emitter).complete();
+  }
+}
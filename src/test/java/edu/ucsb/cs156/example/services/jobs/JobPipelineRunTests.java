@@ -0,0 +1,198 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+
+@ExtendWith(MockitoExtension.class)
+public class JobPipelineRunTests {
+
+  @Mock JobsRepository jobsRepository;
+
+  @Mock JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock JobService jobService;
+
+  JobContextConsumer importJob = ctx -> {};
+  JobContextConsumer aggregateA = ctx -> {};
+  JobContextConsumer aggregateB = ctx -> {};
+  JobContextConsumer publishJob = ctx -> {};
+
+  Job pipelineJob;
+  Map<String, Job> stageJobs;
+  List<String> logLines;
+  JobPipelineRun run;
+
+  @BeforeEach
+  public void setup() {
+    JobPipeline pipeline =
+        new JobPipeline()
+            .stage("import", importJob)
+            .stage("aggregate-a", aggregateA, "import")
+            .stage("aggregate-b", aggregateB, "import")
+            .stage("publish", publishJob, "aggregate-a", "aggregate-b");
+    pipelineJob =
+        Job.builder()
+            .id(1L)
+            .status("running")
+            .claimedBy("node-1")
+            .attempts(1)
+            .progressTotal(4L)
+            .build();
+    stageJobs = new LinkedHashMap<>();
+    long id = 2;
+    for (JobPipeline.Stage stage : pipeline.inDependencyOrder()) {
+      stageJobs.put(
+          stage.getName(),
+          Job.builder().id(id++).status("pending").parentId(1L).stage(stage.getName()).build());
+    }
+    logLines = new ArrayList<>();
+    JobContext context =
+        new JobContext(
+            jobLogLinesRepository,
+            pipelineJob,
+            0,
+            1,
+            0,
+            (JobLogLine line) -> logLines.add(line.getMessage()));
+    run =
+        new JobPipelineRun(
+            pipelineJob,
+            context,
+            pipeline.inDependencyOrder(),
+            stageJobs,
+            jobsRepository,
+            jobService);
+  }
+
+  private boolean finish(String stage, String status) {
+    Job job = stageJobs.get(stage);
+    job.setStatus(status);
+    return run.stageFinished(job);
+  }
+
+  @Test
+  public void stages_start_when_their_dependencies_complete() {
+    assertFalse(run.start());
+    verify(jobService).submit(stageJobs.get("import"), importJob);
+    verify(jobService, never()).submit(stageJobs.get("aggregate-a"), aggregateA);
+    assertEquals("running", stageJobs.get("import").getStatus());
+
+    assertFalse(finish("import", "complete"));
+    verify(jobService).submit(stageJobs.get("aggregate-a"), aggregateA);
+    verify(jobService).submit(stageJobs.get("aggregate-b"), aggregateB);
+
+    assertFalse(finish("aggregate-a", "complete"));
+    verify(jobService, never()).submit(stageJobs.get("publish"), publishJob);
+    assertFalse(finish("aggregate-b", "complete"));
+    verify(jobService).submit(stageJobs.get("publish"), publishJob);
+
+    assertTrue(finish("publish", "complete"));
+    assertEquals("complete", pipelineJob.getStatus());
+    assertEquals(4L, pipelineJob.getProgressCompleted());
+    verify(jobsRepository).finishAttempt(eq(1L), eq("node-1"), eq(1), eq("complete"), any());
+    verify(jobsRepository, never()).save(pipelineJob);
+    assertEquals(
+        List.of(
+            "Pipeline started with 4 stages",
+            "Stage import complete",
+            "Stage aggregate-a complete",
+            "Stage aggregate-b complete",
+            "Stage publish complete",
+            "Pipeline complete"),
+        logLines);
+  }
+
+  @Test
+  public void failed_stage_skips_the_stages_that_depend_on_it() {
+    run.start();
+    finish("import", "complete");
+
+    assertFalse(finish("aggregate-a", "error"));
+    assertEquals("skipped", stageJobs.get("publish").getStatus());
+    assertEquals("running", pipelineJob.getStatus());
+    verify(jobsRepository).updateProgress(eq(1L), eq(4L), eq(3L), eq(null), any());
+
+    assertTrue(finish("aggregate-b", "complete"));
+    assertEquals("error", pipelineJob.getStatus());
+    verify(jobService, never()).submit(stageJobs.get("publish"), publishJob);
+  }
+
+  @Test
+  public void failed_first_stage_skips_everything_and_finishes_pipeline() {
+    run.start();
+
+    assertTrue(finish("import", "error"));
+    assertEquals("skipped", stageJobs.get("aggregate-a").getStatus());
+    assertEquals("skipped", stageJobs.get("aggregate-b").getStatus());
+    assertEquals("skipped", stageJobs.get("publish").getStatus());
+    assertEquals("error", pipelineJob.getStatus());
+  }
+
+  @Test
+  public void rejected_stage_is_treated_as_failed() {
+    doThrow(new TaskRejectedException("queue full"))
+        .when(jobService)
+        .submit(stageJobs.get("import"), importJob);
+
+    assertTrue(run.start());
+    assertEquals("rejected", stageJobs.get("import").getStatus());
+    assertEquals("skipped", stageJobs.get("publish").getStatus());
+    assertEquals("error", pipelineJob.getStatus());
+  }
+
+  @Test
+  public void cancel_cancels_pending_stages_and_interrupts_running_ones() {
+    run.start();
+
+    assertFalse(run.cancel());
+    verify(jobService).cancelLocal(2L);
+    assertEquals("cancelled", stageJobs.get("aggregate-a").getStatus());
+    assertEquals("cancelled", stageJobs.get("publish").getStatus());
+
+    assertTrue(finish("import", "cancelled"));
+    assertEquals("cancelled", pipelineJob.getStatus());
+  }
+
+  @Test
+  public void stage_completing_after_cancel_starts_nothing() {
+    run.start();
+    run.cancel();
+
+    assertTrue(finish("import", "complete"));
+    verify(jobService, never()).submit(stageJobs.get("aggregate-a"), aggregateA);
+    assertEquals("cancelled", pipelineJob.getStatus());
+  }
+
+  @Test
+  public void pipeline_given_up_on_by_another_node_is_not_overwritten() {
+    when(jobsRepository.finishAttempt(eq(1L), eq("node-1"), eq(1), eq("error"), any()))
+        .thenReturn(0);
+    run.start();
+
+    assertTrue(finish("import", "error"));
+    assertEquals("error", pipelineJob.getStatus());
+    verify(jobsRepository, never()).save(pipelineJob);
+  }
+}
@@ -0,0 +1,71 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class JobPipelineTests {
+
+  JobContextConsumer noop = ctx -> {};
+
+  private List<String> names(List<JobPipeline.Stage> stages) {
+    return stages.stream().map(JobPipeline.Stage::getName).toList();
+  }
+
+  @Test
+  public void stages_come_after_their_dependencies() {
+    JobPipeline pipeline =
+        new JobPipeline()
+            .stage("publish", noop, "aggregate-a", "aggregate-b")
+            .stage("aggregate-b", noop, "import")
+            .stage("import", noop)
+            .stage("aggregate-a", noop, "import");
+
+    assertEquals(
+        List.of("import", "aggregate-b", "aggregate-a", "publish"),
+        names(pipeline.inDependencyOrder()));
+  }
+
+  @Test
+  public void repeated_dependency_counts_once() {
+    JobPipeline pipeline = new JobPipeline().stage("a", noop).stage("b", noop, "a", "a");
+
+    assertEquals(List.of("a", "b"), names(pipeline.inDependencyOrder()));
+    assertEquals(List.of("a"), pipeline.inDependencyOrder().get(1).getDependsOn());
+  }
+
+  @Test
+  public void duplicate_stage_is_rejected() {
+    JobPipeline pipeline = new JobPipeline().stage("a", noop);
+
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> pipeline.stage("a", noop));
+    assertEquals("Duplicate stage a", e.getMessage());
+  }
+
+  @Test
+  public void unknown_dependency_is_rejected() {
+    JobPipeline pipeline = new JobPipeline().stage("a", noop, "missing");
+
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, pipeline::inDependencyOrder);
+    assertEquals("Stage a depends on unknown stage missing", e.getMessage());
+  }
+
+  @Test
+  public void cycle_is_rejected() {
+    JobPipeline pipeline =
+        new JobPipeline().stage("a", noop).stage("b", noop, "a", "c").stage("c", noop, "b");
+
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, pipeline::inDependencyOrder);
+    assertEquals("Pipeline stages [b, c] form a cycle", e.getMessage());
+  }
+
+  @Test
+  public void empty_pipeline_is_rejected() {
+    assertThrows(IllegalArgumentException.class, () -> new JobPipeline().inDependencyOrder());
+  }
+}
@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.time.ZonedDateTime;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class JobQueueTests {
+
+  @Mock JobsRepository jobsRepository;
+
+  @Mock DataSource dataSource;
+
+  @Mock Connection connection;
+
+  @Mock DatabaseMetaData metaData;
+
+  @InjectMocks JobQueue jobQueue;
+
+  private void databaseProduct(String product) throws Exception {
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.getMetaData()).thenReturn(metaData);
+    when(metaData.getDatabaseProductName()).thenReturn(product);
+  }
+
+  @Test
+  public void claim_marks_jobs_running_on_the_node() throws Exception {
+    databaseProduct("H2");
+    Job job = Job.builder().id(1L).status("queued").attempts(1).build();
+    when(jobsRepository.findQueuedForUpdateSkipLocked(3)).thenReturn(List.of(job));
+
+    List<Job> claimed = jobQueue.claim("node-1", 3);
+
+    assertEquals(List.of(job), claimed);
+    assertEquals("running", job.getStatus());
+    assertEquals("node-1", job.getClaimedBy());
+    assertEquals(2, job.getAttempts());
+    assertNotNull(job.getHeartbeatAt());
+    verify(jobsRepository).saveAll(List.of(job));
+  }
+
+  @Test
+  public void claim_takes_oldest_jobs_first_on_postgres() throws Exception {
+    databaseProduct("PostgreSQL");
+    Job job = Job.builder().id(1L).status("queued").build();
+    when(jobsRepository.findOldestQueuedForUpdateSkipLocked(3)).thenReturn(List.of(job));
+
+    assertEquals(List.of(job), jobQueue.claim("node-1", 3));
+    assertEquals(List.of(job), jobQueue.claim("node-1", 3));
+
+    verify(jobsRepository, never()).findQueuedForUpdateSkipLocked(anyInt());
+    verify(dataSource).getConnection();
+  }
+
+  @Test
+  public void heartbeat_updates_jobs_of_the_node() {
+    when(jobsRepository.updateHeartbeats(eq("node-1"), any(ZonedDateTime.class))).thenReturn(2);
+
+    assertEquals(2, jobQueue.heartbeat("node-1"));
+  }
+
+  @Test
+  public void cancelRequested_returns_jobs_of_the_node_to_cancel() {
+    when(jobsRepository.findCancelRequested("node-1")).thenReturn(List.of(4L));
+
+    assertEquals(List.of(4L), jobQueue.cancelRequested("node-1"));
+  }
+
+  @Test
+  public void reclaimStale_fails_exhausted_jobs_and_requeues_the_rest() {
+    when(jobsRepository.requeueStale(any(ZonedDateTime.class), eq(3))).thenReturn(4);
+
+    ZonedDateTime before = ZonedDateTime.now().minusSeconds(60);
+    assertEquals(4, jobQueue.reclaimStale(60000, 3));
+    ZonedDateTime after = ZonedDateTime.now().minusSeconds(60);
+
+    ArgumentCaptor<ZonedDateTime> staleBefore = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobsRepository).failStale(staleBefore.capture(), eq(3));
+    assertTrue(!staleBefore.getValue().isBefore(before) && !staleBefore.getValue().isAfter(after));
+  }
+}
@@ -0,0 +1,130 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class JobQueueWorkerTests {
+
+  @Mock JobQueue jobQueue;
+
+  @Mock JobService jobService;
+
+  @Mock ThreadPoolTaskExecutor jobExecutor;
+
+  @InjectMocks JobQueueWorker worker;
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(worker, "persistentQueue", true);
+    ReflectionTestUtils.setField(worker, "nodeId", "node-1");
+    ReflectionTestUtils.setField(worker, "staleHeartbeatMs", 60000L);
+    ReflectionTestUtils.setField(worker, "maxAttempts", 3);
+  }
+
+  @Test
+  public void pollQueue_claims_one_job_per_free_thread_and_runs_them() {
+    Job job1 = Job.builder().id(1L).build();
+    Job job2 = Job.builder().id(2L).build();
+    when(jobExecutor.getMaxPoolSize()).thenReturn(4);
+    when(jobExecutor.getActiveCount()).thenReturn(1);
+    when(jobExecutor.getQueueSize()).thenReturn(1);
+    when(jobQueue.claim("node-1", 2)).thenReturn(List.of(job1, job2));
+
+    worker.pollQueue();
+
+    verify(jobService).runQueuedJob(job1);
+    verify(jobService).runQueuedJob(job2);
+  }
+
+  @Test
+  public void pollQueue_does_not_claim_when_executor_is_busy() {
+    when(jobExecutor.getMaxPoolSize()).thenReturn(4);
+    when(jobExecutor.getActiveCount()).thenReturn(4);
+    when(jobExecutor.getQueueSize()).thenReturn(0);
+
+    worker.pollQueue();
+
+    verify(jobQueue, never()).claim(anyString(), anyInt());
+  }
+
+  @Test
+  public void pollQueue_does_not_claim_without_persistent_queue() {
+    ReflectionTestUtils.setField(worker, "persistentQueue", false);
+
+    worker.pollQueue();
+
+    verify(jobQueue, never()).claim(anyString(), anyInt());
+  }
+
+  @Test
+  public void heartbeat_updates_jobs_of_this_node() {
+    worker.heartbeat();
+
+    verify(jobQueue).heartbeat("node-1");
+  }
+
+  @Test
+  public void heartbeat_cancels_jobs_whose_cancellation_was_requested() {
+    when(jobQueue.cancelRequested("node-1")).thenReturn(List.of(4L, 5L));
+
+    worker.heartbeat();
+
+    verify(jobService).cancelLocal(4L);
+    verify(jobService).cancelLocal(5L);
+  }
+
+  @Test
+  public void reclaimStaleJobs_uses_configured_limits() {
+    when(jobQueue.reclaimStale(60000L, 3)).thenReturn(2).thenReturn(0);
+
+    worker.reclaimStaleJobs();
+    worker.reclaimStaleJobs();
+
+    verify(jobQueue, times(2)).reclaimStale(60000L, 3);
+  }
+
+  @Test
+  public void heartbeat_and_reclaim_run_on_a_scheduler_thread_of_their_own() {
+    ReflectionTestUtils.setField(worker, "heartbeatIntervalMs", 10L);
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    doAnswer(
+            invocation -> {
+              threads.add(Thread.currentThread().getName());
+              return null;
+            })
+        .when(jobQueue)
+        .heartbeat("node-1");
+
+    worker.startHeartbeatScheduler();
+    try {
+      verify(jobQueue, timeout(1000).atLeastOnce()).heartbeat("node-1");
+      verify(jobQueue, timeout(1000).atLeastOnce()).reclaimStale(60000L, 3);
+    } finally {
+      worker.stopHeartbeatScheduler();
+    }
+
+    assertTrue(
+        threads.stream().allMatch(name -> name.startsWith("job-heartbeat-")), threads::toString);
+  }
+}
@@ -0,0 +1,70 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import java.time.ZonedDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class JobRetentionSweeperTests {
+
+  @Mock JobRetention jobRetention;
+
+  @InjectMocks JobRetentionSweeper sweeper;
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(sweeper, "retentionDays", 30L);
+    ReflectionTestUtils.setField(sweeper, "retentionMode", "archive");
+    ReflectionTestUtils.setField(sweeper, "retentionBatchSize", 2);
+    ReflectionTestUtils.setField(sweeper, "retentionMaxBatches", 5);
+  }
+
+  @Test
+  public void sweep_runs_batches_until_one_comes_back_short_and_adds_them_up() {
+    JobRetentionReport full =
+        JobRetentionReport.builder().jobs(2).logLines(10).logBytes(100).archivedBytes(20).build();
+    JobRetentionReport last =
+        JobRetentionReport.builder().jobs(1).logLines(3).logBytes(30).archivedBytes(6).build();
+    when(jobRetention.sweepBatch(any(ZonedDateTime.class), eq(2), eq(true)))
+        .thenReturn(full, full, last);
+
+    ZonedDateTime before = ZonedDateTime.now().minusDays(30);
+    JobRetentionReport report = sweeper.sweep();
+    ZonedDateTime after = ZonedDateTime.now().minusDays(30);
+
+    assertEquals(
+        JobRetentionReport.builder().jobs(5).logLines(23).logBytes(230).archivedBytes(46).build(),
+        report);
+    ArgumentCaptor<ZonedDateTime> cutoff = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobRetention, times(3)).sweepBatch(cutoff.capture(), eq(2), eq(true));
+    assertTrue(!cutoff.getValue().isBefore(before) && !cutoff.getValue().isAfter(after));
+  }
+
+  @Test
+  public void sweep_stops_after_max_batches() {
+    ReflectionTestUtils.setField(sweeper, "retentionMode", "delete");
+    when(jobRetention.sweepBatch(any(ZonedDateTime.class), eq(2), anyBoolean()))
+        .thenReturn(JobRetentionReport.builder().jobs(2).build());
+
+    JobRetentionReport report = sweeper.sweep();
+
+    assertEquals(10, report.getJobs());
+    verify(jobRetention, times(5)).sweepBatch(any(ZonedDateTime.class), eq(2), eq(false));
+  }
+}
@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobArchive;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import edu.ucsb.cs156.example.repositories.JobArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class JobRetentionTests {
+
+  @Mock JobsRepository jobsRepository;
+
+  @Mock JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock JobArchivesRepository jobArchivesRepository;
+
+  @InjectMocks JobRetention jobRetention;
+
+  ZonedDateTime cutoff = ZonedDateTime.parse("2022-01-03T00:00:00Z");
+
+  @Test
+  public void sweepBatch_with_no_expired_jobs_deletes_nothing() {
+    when(jobsRepository.findExpiredForUpdateSkipLocked(Job.TERMINAL_STATUSES, cutoff, 10))
+        .thenReturn(List.of());
+
+    JobRetentionReport report = jobRetention.sweepBatch(cutoff, 10, true);
+
+    assertEquals(JobRetentionReport.builder().build(), report);
+    verify(jobsRepository, never()).deleteByIdIn(any());
+  }
+
+  @Test
+  public void sweepBatch_deletes_jobs_and_their_log_lines() {
+    Job job1 = Job.builder().id(1L).status("complete").log("old").build();
+    Job job2 = Job.builder().id(2L).status("error").build();
+    when(jobsRepository.findExpiredForUpdateSkipLocked(Job.TERMINAL_STATUSES, cutoff, 10))
+        .thenReturn(List.of(job1, job2));
+    when(jobLogLinesRepository.sumMessageBytesByJobIdIn(List.of(1L, 2L))).thenReturn(100L);
+    when(jobLogLinesRepository.deleteByJobIdIn(List.of(1L, 2L))).thenReturn(7);
+    when(jobsRepository.deleteByIdIn(List.of(1L, 2L))).thenReturn(2);
+
+    JobRetentionReport report = jobRetention.sweepBatch(cutoff, 10, false);
+
+    assertEquals(
+        JobRetentionReport.builder().jobs(2).logLines(7).logBytes(103).archivedBytes(0).build(),
+        report);
+    verify(jobArchivesRepository, never()).save(any());
+  }
+
+  @Test
+  public void sweepBatch_in_archive_mode_stores_compressed_log_first() throws Exception {
+    User user = User.builder().id(5L).build();
+    ZonedDateTime createdAt = ZonedDateTime.parse("2021-01-01T00:00:00Z");
+    Job job =
+        Job.builder()
+            .id(1L)
+            .status("complete")
+            .createdBy(user)
+            .createdAt(createdAt)
+            .log("old")
+            .build();
+    when(jobsRepository.findExpiredForUpdateSkipLocked(Job.TERMINAL_STATUSES, cutoff, 10))
+        .thenReturn(List.of(job));
+    when(jobLogLinesRepository.findAllByJobIdOrderBySeqAsc(1L))
+        .thenReturn(List.of(JobLogLine.builder().jobId(1L).seq(0).message("new").build()));
+    when(jobArchivesRepository.save(any(JobArchive.class))).thenAnswer(i -> i.getArgument(0));
+    when(jobLogLinesRepository.deleteByJobIdIn(List.of(1L))).thenReturn(1);
+    when(jobsRepository.deleteByIdIn(List.of(1L))).thenReturn(1);
+
+    JobRetentionReport report = jobRetention.sweepBatch(cutoff, 10, true);
+
+    ArgumentCaptor<JobArchive> archive = ArgumentCaptor.forClass(JobArchive.class);
+    verify(jobArchivesRepository).save(archive.capture());
+    assertEquals(1L, archive.getValue().getJobId());
+    assertEquals(5L, archive.getValue().getCreatedById());
+    assertEquals(createdAt, archive.getValue().getCreatedAt());
+    assertEquals("complete", archive.getValue().getStatus());
+    assertEquals(7, archive.getValue().getLogBytes());
+    byte[] log =
+        new GZIPInputStream(new ByteArrayInputStream(archive.getValue().getLogGzip()))
+            .readAllBytes();
+    assertArrayEquals("old\nnew".getBytes(StandardCharsets.UTF_8), log);
+    assertEquals(archive.getValue().getLogGzip().length, report.getArchivedBytes());
+    assertEquals(1, report.getJobs());
+  }
+}
@@ -0,0 +1,52 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.jobs.NormalizeMenuItemReviewsJob;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class JobScheduleWorkerTests {
+
+  @Mock JobSchedules jobSchedules;
+
+  @InjectMocks JobScheduleWorker worker;
+
+  @Test
+  public void registerSchedules_registers_configured_cron() {
+    ReflectionTestUtils.setField(worker, "normalizeMenuItemReviewsCron", "0 0 3 * * *");
+
+    worker.registerSchedules();
+
+    verify(jobSchedules)
+        .register(
+            eq("normalizeMenuItemReviews"),
+            eq("0 0 3 * * *"),
+            any(NormalizeMenuItemReviewsJob.class));
+  }
+
+  @Test
+  public void registerSchedules_skips_disabled_cron() {
+    ReflectionTestUtils.setField(worker, "normalizeMenuItemReviewsCron", "-");
+
+    worker.registerSchedules();
+
+    verify(jobSchedules, never()).register(anyString(), anyString(), any());
+  }
+
+  @Test
+  public void fireDueSchedules_delegates() {
+    worker.fireDueSchedules();
+
+    verify(jobSchedules).fireDueSchedules();
+  }
+}
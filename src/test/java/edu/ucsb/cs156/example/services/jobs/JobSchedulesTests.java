@@ -0,0 +1,216 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobSchedule;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobSchedulesRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class JobSchedulesTests {
+
+  @Mock JobSchedulesRepository jobSchedulesRepository;
+
+  @Mock JobFactory jobFactory;
+
+  @Mock JobService jobService;
+
+  @InjectMocks JobSchedules jobSchedules;
+
+  TestJob testJob = TestJob.builder().fail(false).sleepMs(0).build();
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(jobSchedules, "nodeId", "node-a");
+    ReflectionTestUtils.setField(jobSchedules, "scheduleLeaseMs", 60000L);
+  }
+
+  private JobSchedule schedule(long id) {
+    return JobSchedule.builder()
+        .id(id)
+        .name("nightly")
+        .cron("0 0 3 * * *")
+        .jobType("TestJob")
+        .parameters("{}")
+        .build();
+  }
+
+  @Test
+  public void register_creates_schedule_due_at_next_fire_time() {
+    when(jobFactory.typeOf(testJob)).thenReturn("TestJob");
+    when(jobFactory.parametersOf(testJob)).thenReturn("{}");
+    when(jobSchedulesRepository.findByName("nightly")).thenReturn(Optional.empty());
+    when(jobSchedulesRepository.save(any(JobSchedule.class))).thenAnswer(i -> i.getArgument(0));
+
+    JobSchedule saved = jobSchedules.register("nightly", "0 0 3 * * *", testJob);
+
+    assertEquals("nightly", saved.getName());
+    assertEquals("TestJob", saved.getJobType());
+    assertEquals("{}", saved.getParameters());
+    assertEquals(3, saved.getNextRunAt().getHour());
+    assertTrue(saved.getNextRunAt().isAfter(ZonedDateTime.now()));
+  }
+
+  @Test
+  public void register_leaves_unchanged_schedule_alone() {
+    JobSchedule existing = schedule(1);
+    existing.setPaused(true);
+    when(jobFactory.typeOf(testJob)).thenReturn("TestJob");
+    when(jobFactory.parametersOf(testJob)).thenReturn("{}");
+    when(jobSchedulesRepository.findByName("nightly")).thenReturn(Optional.of(existing));
+
+    assertSame(existing, jobSchedules.register("nightly", "0 0 3 * * *", testJob));
+    verify(jobSchedulesRepository, never()).save(any());
+  }
+
+  @Test
+  public void register_keeps_next_run_and_pause_when_only_parameters_change() {
+    JobSchedule existing = schedule(1);
+    existing.setPaused(true);
+    ZonedDateTime nextRunAt = ZonedDateTime.now().plusHours(1);
+    existing.setNextRunAt(nextRunAt);
+    when(jobFactory.typeOf(testJob)).thenReturn("TestJob");
+    when(jobFactory.parametersOf(testJob)).thenReturn("{\"fail\":false}");
+    when(jobSchedulesRepository.findByName("nightly")).thenReturn(Optional.of(existing));
+    when(jobSchedulesRepository.save(existing)).thenReturn(existing);
+
+    JobSchedule saved = jobSchedules.register("nightly", "0 0 3 * * *", testJob);
+
+    assertEquals("{\"fail\":false}", saved.getParameters());
+    assertEquals(nextRunAt, saved.getNextRunAt());
+    assertTrue(saved.getPaused());
+  }
+
+  @Test
+  public void register_returns_schedule_registered_concurrently() {
+    JobSchedule other = schedule(2);
+    when(jobFactory.typeOf(testJob)).thenReturn("TestJob");
+    when(jobFactory.parametersOf(testJob)).thenReturn("{}");
+    when(jobSchedulesRepository.findByName("nightly"))
+        .thenReturn(Optional.empty(), Optional.of(other));
+    when(jobSchedulesRepository.save(any(JobSchedule.class)))
+        .thenThrow(new DataIntegrityViolationException("duplicate name"));
+
+    assertSame(other, jobSchedules.register("nightly", "0 0 3 * * *", testJob));
+  }
+
+  @Test
+  public void register_rejects_invalid_cron() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> jobSchedules.register("nightly", "every night", testJob));
+    verify(jobSchedulesRepository, never()).save(any());
+  }
+
+  @Test
+  public void fireDueSchedules_launches_leased_schedules_and_advances_them() {
+    JobSchedule schedule = schedule(1);
+    when(jobSchedulesRepository.findDueIds(any())).thenReturn(List.of(1L, 2L));
+    when(jobSchedulesRepository.acquireLease(eq(1L), eq("node-a"), any(), any())).thenReturn(1);
+    when(jobSchedulesRepository.acquireLease(eq(2L), eq("node-a"), any(), any())).thenReturn(0);
+    when(jobSchedulesRepository.findById(1L)).thenReturn(Optional.of(schedule));
+    when(jobFactory.create("TestJob", "{}")).thenReturn(testJob);
+    when(jobService.runAsJob(testJob, "schedule:nightly"))
+        .thenReturn(Job.builder().id(17L).build());
+
+    assertEquals(1, jobSchedules.fireDueSchedules());
+
+    ArgumentCaptor<ZonedDateTime> nextRunAt = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobSchedulesRepository)
+        .completeRun(eq(1L), eq("node-a"), nextRunAt.capture(), any(), eq(17L));
+    assertEquals(3, nextRunAt.getValue().getHour());
+    verify(jobSchedulesRepository, never()).findById(2L);
+  }
+
+  @Test
+  public void fireDueSchedules_advances_schedule_whose_launch_fails() {
+    JobSchedule schedule = schedule(1);
+    when(jobSchedulesRepository.findDueIds(any())).thenReturn(List.of(1L));
+    when(jobSchedulesRepository.acquireLease(eq(1L), eq("node-a"), any(), any())).thenReturn(1);
+    when(jobSchedulesRepository.findById(1L)).thenReturn(Optional.of(schedule));
+    when(jobFactory.create("TestJob", "{}")).thenThrow(new IllegalArgumentException("bad"));
+
+    assertEquals(0, jobSchedules.fireDueSchedules());
+
+    verify(jobSchedulesRepository)
+        .completeRun(eq(1L), eq("node-a"), any(ZonedDateTime.class), any(), isNull());
+  }
+
+  @Test
+  public void setPaused_resume_skips_missed_runs() {
+    JobSchedule schedule = schedule(1);
+    schedule.setPaused(true);
+    schedule.setNextRunAt(ZonedDateTime.now().minusDays(3));
+    when(jobSchedulesRepository.findById(1L)).thenReturn(Optional.of(schedule));
+
+    JobSchedule resumed = jobSchedules.setPaused(1L, false);
+
+    assertTrue(!resumed.getPaused());
+    assertTrue(resumed.getNextRunAt().isAfter(ZonedDateTime.now()));
+    verify(jobSchedulesRepository).updatePaused(1L, false, resumed.getNextRunAt());
+  }
+
+  @Test
+  public void setPaused_pause_keeps_next_run() {
+    JobSchedule schedule = schedule(1);
+    ZonedDateTime nextRunAt = ZonedDateTime.now().plusHours(1);
+    schedule.setNextRunAt(nextRunAt);
+    when(jobSchedulesRepository.findById(1L)).thenReturn(Optional.of(schedule));
+
+    assertTrue(jobSchedules.setPaused(1L, true).getPaused());
+    verify(jobSchedulesRepository).updatePaused(1L, true, nextRunAt);
+  }
+
+  @Test
+  public void setPaused_missing_schedule_is_not_found() {
+    when(jobSchedulesRepository.findById(9L)).thenReturn(Optional.empty());
+
+    assertThrows(EntityNotFoundException.class, () -> jobSchedules.setPaused(9L, true));
+  }
+
+  @Test
+  public void trigger_launches_job_and_records_run() {
+    when(jobSchedulesRepository.findById(1L)).thenReturn(Optional.of(schedule(1)));
+    when(jobFactory.create("TestJob", "{}")).thenReturn(testJob);
+    Job job = Job.builder().id(18L).build();
+    when(jobService.runAsJob(testJob, "schedule:nightly")).thenReturn(job);
+
+    assertSame(job, jobSchedules.trigger(1L));
+    verify(jobSchedulesRepository).recordRun(eq(1L), any(ZonedDateTime.class), eq(18L));
+    verify(jobSchedulesRepository, never()).completeRun(anyLong(), any(), any(), any(), any());
+  }
+
+  @Test
+  public void invalid_stored_cron_stops_schedule() {
+    JobSchedule schedule = schedule(1);
+    schedule.setCron("bogus");
+    when(jobSchedulesRepository.findById(1L)).thenReturn(Optional.of(schedule));
+
+    assertNull(jobSchedules.setPaused(1L, false).getNextRunAt());
+  }
+}